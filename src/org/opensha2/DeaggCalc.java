@@ -13,10 +13,12 @@ import org.opensha2.calc.Site;
 import org.opensha2.calc.Sites;
 import org.opensha2.calc.ThreadCount;
 import org.opensha2.eq.model.HazardModel;
+import org.opensha2.eq.model.SystemSourceSet;
 import org.opensha2.internal.Logging;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -101,7 +103,9 @@ public class DeaggCalc {
 
       double returnPeriod = Double.valueOf(args[2]);
 
-      Path out = calc(model, config, sites, returnPeriod, log);
+      Path out = (config.performance.shardSize > 0)
+          ? ShardCoordinator.calc(modelPath, config, sites, Optional.of(returnPeriod), log)
+          : calc(model, config, sites, returnPeriod, log);
 
       // transfer log and write config
       Files.move(tempLog, out.resolve(PROGRAM + ".log"));
@@ -129,7 +133,7 @@ public class DeaggCalc {
    * TODO consider refactoring to supply an Optional<Double> return period to
    * HazardCalc.calc() that will trigger deaggregations if the value is present.
    */
-  private static Path calc(
+  static Path calc(
       HazardModel model,
       CalcConfig config,
       Sites sites,
@@ -150,11 +154,15 @@ public class DeaggCalc {
 
     ResultHandler handler = ResultHandler.create(config, sites, log);
 
-    for (Site site : sites) {
-      Hazard hazard = HazardCalc.calc(model, config, site, executor);
-      Deaggregation deagg = calc(hazard, returnPeriod);
-      handler.add(hazard, Optional.of(deagg));
-      log.fine(hazard.toString());
+    try {
+      for (Site site : Iterables.skip(sites, handler.resumeIndex())) {
+        Hazard hazard = HazardCalc.calc(model, config, site, executor);
+        Deaggregation deagg = calc(hazard, returnPeriod);
+        handler.add(hazard, Optional.of(deagg));
+        log.fine(hazard.toString());
+      }
+    } finally {
+      SystemSourceSet.closeDistanceCaches();
     }
     handler.expire();
 
@@ -1,5 +1,6 @@
 package org.opensha2;
 
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
 import static org.opensha2.internal.TextUtils.NEWLINE;
@@ -13,20 +14,30 @@ import org.opensha2.calc.Site;
 import org.opensha2.calc.Sites;
 import org.opensha2.calc.ThreadCount;
 import org.opensha2.eq.model.HazardModel;
+import org.opensha2.eq.model.SystemSourceSet;
 import org.opensha2.internal.Logging;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 
@@ -106,7 +117,9 @@ public class HazardCalc {
       Sites sites = readSites(args[1], config, log);
       log.info("Sites: " + sites);
 
-      Path out = calc(model, config, sites, log);
+      Path out = (config.performance.shardSize > 0)
+          ? ShardCoordinator.calc(modelPath, config, sites, Optional.<Double> absent(), log)
+          : calc(model, config, sites, log);
 
       // transfer log and write config
       Files.move(tempLog, out.resolve(PROGRAM + ".log"));
@@ -152,14 +165,34 @@ public class HazardCalc {
    * Compute hazard curves using the supplied model, config, and sites. Method
    * returns the path to the directory where results were written.
    */
-  private static Path calc(
+  static Path calc(
       HazardModel model,
       CalcConfig config,
       Sites sites,
-      Logger log) throws IOException {
+      Logger log) throws IOException, InterruptedException {
+
+    try {
+      ThreadCount threadCount = config.performance.threadCount;
+      return (threadCount != ThreadCount.ONE && config.performance.sitesInFlight > 1)
+          ? calcMap(model, config, sites, log)
+          : calcSites(model, config, sites, log);
+    } finally {
+      SystemSourceSet.closeDistanceCaches();
+    }
+  }
+
+  /*
+   * Compute hazard curves one site at a time.
+   */
+  private static Path calcSites(
+      HazardModel model,
+      CalcConfig config,
+      Sites sites,
+      Logger log) throws IOException, InterruptedException {
 
-    ExecutorService execSvc = null;
     ThreadCount threadCount = config.performance.threadCount;
+
+    ExecutorService execSvc = null;
     if (threadCount != ThreadCount.ONE) {
       execSvc = newFixedThreadPool(threadCount.value());
       log.info("Threads: " + ((ThreadPoolExecutor) execSvc).getCorePoolSize());
@@ -171,7 +204,7 @@ public class HazardCalc {
     log.info(PROGRAM + ": calculating ...");
 
     ResultHandler handler = ResultHandler.create(config, sites, log);
-    for (Site site : sites) {
+    for (Site site : Iterables.skip(sites, handler.resumeIndex())) {
       Hazard hazard = calc(model, config, site, executor);
       handler.add(hazard, Optional.<Deaggregation> absent());
       log.fine(hazard.toString());
@@ -188,6 +221,89 @@ public class HazardCalc {
     return handler.outputDir();
   }
 
+  /*
+   * Compute hazard curves for many sites concurrently. All source-level tasks
+   * are executed by a shared work-stealing pool. A second pool, sized to the
+   * number of sites permitted in flight, manages the mostly idle work of
+   * waiting on per-site results so that the calculation pool is never starved
+   * by the fan-in of any one site. Results are passed to the ResultHandler as
+   * they complete and written in site order.
+   */
+  private static Path calcMap(
+      final HazardModel model,
+      final CalcConfig config,
+      Sites sites,
+      final Logger log) throws IOException, InterruptedException {
+
+    int threadCount = config.performance.threadCount.value();
+    int sitesInFlight = config.performance.sitesInFlight;
+    ForkJoinPool calcPool = new ForkJoinPool(threadCount);
+    ListeningExecutorService siteSvc = listeningDecorator(newFixedThreadPool(sitesInFlight));
+    final Optional<Executor> executor = Optional.<Executor> of(calcPool);
+    log.info("Threads: " + threadCount + " (" + sitesInFlight + " sites in flight)");
+
+    log.info(PROGRAM + ": calculating ...");
+
+    final ResultHandler handler = ResultHandler.create(config, sites, log);
+    final Semaphore window = new Semaphore(sitesInFlight);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    try {
+      int index = handler.resumeIndex();
+      for (final Site site : Iterables.skip(sites, index)) {
+        window.acquire();
+        if (failure.get() != null) {
+          window.release();
+          break;
+        }
+        final int siteIndex = index++;
+        ListenableFuture<Hazard> hazard = siteSvc.submit(new Callable<Hazard>() {
+          @Override
+          public Hazard call() throws Exception {
+            return Calcs.hazard(model, config, site, executor);
+          }
+        });
+        Futures.addCallback(hazard, new FutureCallback<Hazard>() {
+          @Override
+          public void onSuccess(Hazard result) {
+            try {
+              handler.add(siteIndex, result, Optional.<Deaggregation> absent());
+              log.fine(result.toString());
+            } catch (IOException ioe) {
+              failure.compareAndSet(null, ioe);
+            } finally {
+              window.release();
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            failure.compareAndSet(null, t);
+            window.release();
+          }
+        });
+      }
+      /* Wait for all sites in flight to complete. */
+      window.acquire(sitesInFlight);
+    } finally {
+      siteSvc.shutdown();
+      calcPool.shutdown();
+    }
+
+    Throwable t = failure.get();
+    if (t != null) {
+      Throwables.propagateIfInstanceOf(t, IOException.class);
+      throw Throwables.propagate(t);
+    }
+    handler.expire();
+
+    log.info(String.format(
+        PROGRAM + ": %s sites completed in %s",
+        handler.resultsProcessed(), handler.elapsedTime()));
+
+    return handler.outputDir();
+  }
+
   static final String TMP_LOG = "nshmp-haz-log";
 
   static Path createTempLog() {
@@ -0,0 +1,590 @@
+package org.opensha2;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import static org.opensha2.internal.TextUtils.NEWLINE;
+
+import org.opensha2.calc.CalcConfig;
+import org.opensha2.calc.Calcs;
+import org.opensha2.calc.Deaggregation;
+import org.opensha2.calc.Hazard;
+import org.opensha2.calc.Site;
+import org.opensha2.calc.Sites;
+import org.opensha2.calc.ThreadCount;
+import org.opensha2.data.XySequence;
+import org.opensha2.eq.model.HazardModel;
+import org.opensha2.eq.model.SystemSourceSet;
+import org.opensha2.gmm.Gmm;
+import org.opensha2.gmm.GmmInput;
+import org.opensha2.gmm.GmmInput.Field;
+import org.opensha2.gmm.Imt;
+import org.opensha2.internal.Logging;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serve probabilisitic seismic hazard, deaggregation, and deterministic
+ * response spectra calculations over HTTP.
+ *
+ * <p>Running {@link HazardCalc} or {@link DeaggCalc} once per site incurs the
+ * cost of starting the JVM, loading a {@link HazardModel}, and compiling hot
+ * code paths on every invocation. A server loads one or more models once and
+ * computes results using a shared pool of calculation threads for as long as
+ * it runs, such that single-site queries complete in milliseconds.
+ *
+ * @author Peter Powers
+ */
+public class HazardServer {
+
+  private static final Logger LOG = Logger.getLogger(HazardServer.class.getName());
+
+  private static final Gson GSON = new GsonBuilder()
+      .setPrettyPrinting()
+      .serializeNulls()
+      .serializeSpecialFloatingPointValues()
+      .disableHtmlEscaping()
+      .create();
+
+  private static final String MODEL_KEY = "model";
+  private static final String SITE_KEY = "site";
+  private static final String RETURN_PERIOD_KEY = "returnPeriod";
+  private static final String GMM_KEY = "gmm";
+
+  /* The maximum number of sites in a single request. */
+  static final int MAX_SITES = 100;
+
+  /* Calculation configuration sections that a request may override. */
+  static final Set<String> CONFIG_SECTIONS = ImmutableSet.of("curve", "siteDefaults", "deagg");
+
+  private final Map<String, HazardModel> models;
+  private final HazardModel defaultModel;
+  private final ForkJoinPool calcPool;
+  private final ListeningExecutorService siteSvc;
+  private final ExecutorService requestSvc;
+  private final HttpServer server;
+
+  HazardServer(
+      Map<String, HazardModel> models,
+      int port,
+      int threadCount) throws IOException {
+
+    this.models = models;
+    this.defaultModel = Iterables.getFirst(models.values(), null);
+    this.calcPool = new ForkJoinPool(threadCount);
+    this.siteSvc = listeningDecorator(newFixedThreadPool(threadCount, threadFactory("site")));
+    this.requestSvc = newFixedThreadPool(threadCount, threadFactory("request"));
+
+    server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+        0);
+    server.createContext("/models", new ModelsHandler());
+    server.createContext("/hazard", new HazardHandler());
+    server.createContext("/deagg", new DeaggHandler());
+    server.createContext("/spectra", new SpectraHandler());
+    server.setExecutor(requestSvc);
+  }
+
+  /**
+   * Entry point for a hazard server.
+   *
+   * <p>A server requires at least 2 arguments: the port on which to listen
+   * and the path to a model zip file or directory. Additional model paths may
+   * be supplied. The server only accepts connections from the local host.
+   * Models are identified by name, and the first model is used when a request
+   * does not specify one. The following endpoints are supported:
+   *
+   * <ul><li>{@code /models} lists the names and calculation configurations of
+   * all models.</li>
+   *
+   * <li>{@code /hazard?model=name&site=name,lon,lat[,vs30,vsInf[,z1p0,z2p5]]}
+   * computes hazard curves. The {@code site} parameter may be repeated, up to
+   * 100 times, to compute curves for a batch of sites concurrently.</li>
+   *
+   * <li>{@code /deagg?model=name&site=...&returnPeriod=2475} additionally
+   * deaggregates hazard at a return period (in years).</li>
+   *
+   * <li>{@code /spectra?gmm=ASK_14&gmm=BSSA_14&mag=6.5&rjb=10.0&...} computes
+   * deterministic response spectra for one or more ground motion models.
+   * Source and site parameters are identified by the lowercase names of
+   * {@link Field}s; any not supplied take default values.</li></ul>
+   *
+   * <p>Hazard and deaggregation requests may be sent as a POST with a
+   * calculation configuration in the body, using the same JSON format as a
+   * {@code config.json} file, to override the calculation settings of a model
+   * for that request only. Only the {@code curve}, {@code siteDefaults}, and
+   * {@code deagg} sections may be overridden; performance and output settings
+   * are those of the model. All responses are JSON, and invalid requests
+   * receive a 400 response.
+   *
+   * @see HazardCalc#main(String[])
+   * @see DeaggCalc#main(String[])
+   * @see ResponseSpectra
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.err.print(USAGE);
+      System.exit(1);
+    }
+    try {
+      Logging.init();
+      LOG.info(PROGRAM + ": initializing...");
+      int port = Integer.parseInt(args[0]);
+      Map<String, HazardModel> models = new LinkedHashMap<>();
+      for (int i = 1; i < args.length; i++) {
+        HazardModel model = HazardModel.load(Paths.get(args[i]));
+        checkArgument(
+            !models.containsKey(model.name()),
+            "Duplicate model name: %s", model.name());
+        models.put(model.name(), model);
+      }
+      HazardServer server = new HazardServer(models, port, ThreadCount.ALL.value());
+      server.start();
+      LOG.info(PROGRAM + ": listening on port " + port + " " + models.keySet());
+    } catch (Exception e) {
+      StringBuilder sb = new StringBuilder()
+          .append(NEWLINE)
+          .append(PROGRAM + ": error").append(NEWLINE)
+          .append(" Arguments: ").append(Arrays.toString(args)).append(NEWLINE)
+          .append(NEWLINE)
+          .append(Throwables.getStackTraceAsString(e))
+          .append(USAGE);
+      System.err.print(sb.toString());
+      System.exit(1);
+    }
+  }
+
+  private void start() {
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        stop();
+      }
+    });
+  }
+
+  /* Start without a shutdown hook; for testing. */
+  void startLocal() {
+    server.start();
+  }
+
+  int port() {
+    return server.getAddress().getPort();
+  }
+
+  void stop() {
+    server.stop(0);
+    requestSvc.shutdown();
+    siteSvc.shutdown();
+    calcPool.shutdown();
+    try {
+      SystemSourceSet.closeDistanceCaches();
+    } catch (IOException ioe) {
+      LOG.log(Level.WARNING, "Error closing system distance caches", ioe);
+    }
+  }
+
+  private static ThreadFactory threadFactory(String name) {
+    return new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("hazard-server-" + name + "-%d")
+        .build();
+  }
+
+  /*
+   * Base handler that parses query parameters, converts responses to JSON, and
+   * reports any exception as an error.
+   */
+  private abstract class JsonHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      int status = 200;
+      JsonElement response;
+      try {
+        ListMultimap<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String body = CharStreams.toString(new InputStreamReader(
+            exchange.getRequestBody(),
+            UTF_8));
+        response = process(params, body);
+      } catch (Exception e) {
+        Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+        status = (cause instanceof IllegalArgumentException ||
+            cause instanceof IllegalStateException) ? 400 : 500;
+        LOG.warning(PROGRAM + ": " + exchange.getRequestURI() + NEWLINE +
+            Throwables.getStackTraceAsString(cause));
+        JsonObject error = new JsonObject();
+        error.addProperty("status", "error");
+        error.addProperty("message", String.valueOf(cause.getMessage()).trim());
+        response = error;
+      }
+      byte[] bytes = GSON.toJson(response).getBytes(UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+
+    abstract JsonElement process(
+        ListMultimap<String, String> params,
+        String body) throws Exception;
+  }
+
+  private class ModelsHandler extends JsonHandler {
+
+    @Override
+    JsonElement process(ListMultimap<String, String> params, String body) {
+      JsonArray json = new JsonArray();
+      for (HazardModel model : models.values()) {
+        JsonObject modelJson = new JsonObject();
+        modelJson.addProperty("name", model.name());
+        modelJson.add("config", new JsonParser().parse(model.config().toJson()));
+        json.add(modelJson);
+      }
+      return json;
+    }
+  }
+
+  private class HazardHandler extends JsonHandler {
+
+    @Override
+    JsonElement process(ListMultimap<String, String> params, String body) throws Exception {
+      HazardModel model = model(params);
+      CalcConfig config = config(model, body);
+      JsonArray json = new JsonArray();
+      for (Hazard hazard : calc(model, config, sites(params, config))) {
+        json.add(toJson(hazard));
+      }
+      return json;
+    }
+  }
+
+  private class DeaggHandler extends JsonHandler {
+
+    @Override
+    JsonElement process(ListMultimap<String, String> params, String body) throws Exception {
+      HazardModel model = model(params);
+      CalcConfig config = config(model, body);
+      double returnPeriod = Double.valueOf(single(params, RETURN_PERIOD_KEY));
+      JsonArray json = new JsonArray();
+      for (Hazard hazard : calc(model, config, sites(params, config))) {
+        Deaggregation deagg = Calcs.deaggregation(hazard, returnPeriod);
+        JsonObject siteJson = toJson(hazard);
+        siteJson.addProperty(RETURN_PERIOD_KEY, returnPeriod);
+        siteJson.add("deaggregation", deagg.toJson());
+        json.add(siteJson);
+      }
+      return json;
+    }
+  }
+
+  private class SpectraHandler extends JsonHandler {
+
+    @Override
+    JsonElement process(ListMultimap<String, String> params, String body) {
+      List<String> gmmNames = params.get(GMM_KEY);
+      checkArgument(!gmmNames.isEmpty(), "Missing parameter: %s", GMM_KEY);
+      Set<Gmm> gmms = Sets.newEnumSet(
+          Iterables.transform(gmmNames, new Function<String, Gmm>() {
+            @Override
+            public Gmm apply(String name) {
+              return Gmm.valueOf(name.toUpperCase());
+            }
+          }),
+          Gmm.class);
+      GmmInput input = gmmInput(params);
+      ResponseSpectra.MultiResult result = ResponseSpectra.spectra(gmms, input);
+      JsonObject json = new JsonObject();
+      json.add("input", toJson(input));
+      json.add("periods", GSON.toJsonTree(result.periods));
+      JsonArray spectra = new JsonArray();
+      for (Gmm gmm : gmms) {
+        JsonObject gmmJson = new JsonObject();
+        gmmJson.addProperty("gmm", gmm.name());
+        gmmJson.add("means", GSON.toJsonTree(result.meanMap.get(gmm)));
+        gmmJson.add("sigmas", GSON.toJsonTree(result.sigmaMap.get(gmm)));
+        spectra.add(gmmJson);
+      }
+      json.add("spectra", spectra);
+      return json;
+    }
+  }
+
+  /*
+   * Compute hazard at each site. Sites are processed concurrently and all
+   * source-level tasks share the calculation pool.
+   */
+  private List<Hazard> calc(
+      final HazardModel model,
+      final CalcConfig config,
+      List<Site> sites) throws InterruptedException, ExecutionException {
+
+    final Optional<Executor> executor = Optional.<Executor> of(calcPool);
+    if (sites.size() == 1) {
+      return Arrays.asList(Calcs.hazard(model, config, sites.get(0), executor));
+    }
+    List<ListenableFuture<Hazard>> futures = new ArrayList<>(sites.size());
+    for (final Site site : sites) {
+      futures.add(siteSvc.submit(new Callable<Hazard>() {
+        @Override
+        public Hazard call() throws Exception {
+          return Calcs.hazard(model, config, site, executor);
+        }
+      }));
+    }
+    return Futures.allAsList(futures).get();
+  }
+
+  private HazardModel model(ListMultimap<String, String> params) {
+    List<String> names = params.get(MODEL_KEY);
+    if (names.isEmpty()) {
+      return defaultModel;
+    }
+    String name = Iterables.getOnlyElement(names);
+    HazardModel model = models.get(name);
+    checkArgument(model != null, "Unknown model: %s", name);
+    return model;
+  }
+
+  /*
+   * Apply any configuration supplied with a request to the model config. Only
+   * CONFIG_SECTIONS may be supplied.
+   */
+  static CalcConfig config(HazardModel model, String body) {
+    if (body.trim().isEmpty()) {
+      return model.config();
+    }
+    try {
+      JsonElement json = new JsonParser().parse(body);
+      checkArgument(json.isJsonObject(), "Configuration is not a JSON object");
+      for (Entry<String, JsonElement> section : json.getAsJsonObject().entrySet()) {
+        checkArgument(CONFIG_SECTIONS.contains(section.getKey()),
+            "Configuration section [%s] may not be overridden; supported sections: %s",
+            section.getKey(), CONFIG_SECTIONS);
+      }
+      return CalcConfig.Builder.copyOf(model.config())
+          .extend(CalcConfig.Builder.fromJson(body))
+          .build();
+    } catch (JsonParseException jpe) {
+      throw new IllegalArgumentException("Invalid configuration: " + jpe.getMessage(), jpe);
+    }
+  }
+
+  static List<Site> sites(ListMultimap<String, String> params, CalcConfig config) {
+    List<String> siteStrings = params.get(SITE_KEY);
+    checkArgument(!siteStrings.isEmpty(), "Missing parameter: %s", SITE_KEY);
+    checkArgument(siteStrings.size() <= MAX_SITES,
+        "Too many sites [%s]; a request may contain at most %s", siteStrings.size(), MAX_SITES);
+    List<Site> sites = new ArrayList<>(siteStrings.size());
+    for (String s : siteStrings) {
+      Iterables.addAll(sites, Sites.fromString(s, config));
+    }
+    return sites;
+  }
+
+  static GmmInput gmmInput(ListMultimap<String, String> params) {
+    GmmInput.Builder b = GmmInput.builder().withDefaults();
+    for (Entry<String, String> entry : params.entries()) {
+      if (entry.getKey().equals(GMM_KEY)) {
+        continue;
+      }
+      Field field = Field.fromString(entry.getKey());
+      String value = entry.getValue();
+      switch (field) {
+        case MAG:
+          b.mag(Double.valueOf(value));
+          break;
+        case RJB:
+          b.rJB(Double.valueOf(value));
+          break;
+        case RRUP:
+          b.rRup(Double.valueOf(value));
+          break;
+        case RX:
+          b.rX(Double.valueOf(value));
+          break;
+        case DIP:
+          b.dip(Double.valueOf(value));
+          break;
+        case WIDTH:
+          b.width(Double.valueOf(value));
+          break;
+        case ZTOP:
+          b.zTop(Double.valueOf(value));
+          break;
+        case ZHYP:
+          b.zHyp(Double.valueOf(value));
+          break;
+        case RAKE:
+          b.rake(Double.valueOf(value));
+          break;
+        case VS30:
+          b.vs30(Double.valueOf(value));
+          break;
+        case VSINF:
+          b.vsInf(Boolean.valueOf(value));
+          break;
+        case Z1P0:
+          b.z1p0(Double.valueOf(value));
+          break;
+        case Z2P5:
+          b.z2p5(Double.valueOf(value));
+          break;
+        default:
+          throw new IllegalStateException("Unhandled field: " + field);
+      }
+    }
+    return b.build();
+  }
+
+  private static JsonObject toJson(Hazard hazard) {
+    Site site = hazard.site();
+    JsonObject json = new JsonObject();
+    JsonObject siteJson = new JsonObject();
+    siteJson.addProperty("name", site.name);
+    siteJson.addProperty("lon", site.location.lon());
+    siteJson.addProperty("lat", site.location.lat());
+    siteJson.addProperty("vs30", site.vs30);
+    siteJson.addProperty("vsInf", site.vsInferred);
+    siteJson.addProperty("z1p0", finite(site.z1p0));
+    siteJson.addProperty("z2p5", finite(site.z2p5));
+    json.add("site", siteJson);
+    JsonArray curves = new JsonArray();
+    for (Entry<Imt, XySequence> entry : hazard.curves().entrySet()) {
+      Imt imt = entry.getKey();
+      JsonObject curve = new JsonObject();
+      curve.addProperty("imt", imt.name());
+      curve.add("xValues", GSON.toJsonTree(hazard.config().curve.modelCurve(imt).xValues()));
+      curve.add("yValues", GSON.toJsonTree(entry.getValue().yValues()));
+      curves.add(curve);
+    }
+    json.addProperty("valueType", hazard.config().curve.valueType.name());
+    json.add("curves", curves);
+    return json;
+  }
+
+  /* Keyed by the same field names used in spectra requests. */
+  private static JsonObject toJson(GmmInput input) {
+    JsonObject json = new JsonObject();
+    json.addProperty(Field.MAG.toString(), input.Mw);
+    json.addProperty(Field.RJB.toString(), input.rJB);
+    json.addProperty(Field.RRUP.toString(), input.rRup);
+    json.addProperty(Field.RX.toString(), input.rX);
+    json.addProperty(Field.DIP.toString(), input.dip);
+    json.addProperty(Field.WIDTH.toString(), input.width);
+    json.addProperty(Field.ZTOP.toString(), input.zTop);
+    json.addProperty(Field.ZHYP.toString(), input.zHyp);
+    json.addProperty(Field.RAKE.toString(), input.rake);
+    json.addProperty(Field.VS30.toString(), input.vs30);
+    json.addProperty(Field.VSINF.toString(), input.vsInf);
+    json.addProperty(Field.Z1P0.toString(), finite(input.z1p0));
+    json.addProperty(Field.Z2P5.toString(), finite(input.z2p5));
+    return json;
+  }
+
+  /* NaN values, e.g. undefined basin depths, are written as null. */
+  private static Double finite(double value) {
+    return Double.isNaN(value) ? null : value;
+  }
+
+  private static String single(ListMultimap<String, String> params, String key) {
+    List<String> values = params.get(key);
+    checkArgument(values.size() == 1, "Expected one value for parameter: %s", key);
+    return values.get(0);
+  }
+
+  static ListMultimap<String, String> parseQuery(String query) throws IOException {
+    ListMultimap<String, String> params = ArrayListMultimap.create();
+    if (query == null) {
+      return params;
+    }
+    for (String pair : query.split("&")) {
+      if (pair.isEmpty()) {
+        continue;
+      }
+      int index = pair.indexOf('=');
+      String key = (index < 0) ? pair : pair.substring(0, index);
+      String value = (index < 0) ? "" : pair.substring(index + 1);
+      params.put(
+          URLDecoder.decode(key, UTF_8.name()),
+          URLDecoder.decode(value, UTF_8.name()));
+    }
+    return params;
+  }
+
+  private static final String PROGRAM = HazardServer.class.getSimpleName();
+  private static final String USAGE_COMMAND =
+      "java -cp nshmp-haz.jar org.opensha2.HazardServer port model [model...]";
+  private static final String USAGE_URL1 = "https://github.com/usgs/nshmp-haz/wiki";
+
+  private static final String USAGE = new StringBuilder()
+      .append(NEWLINE)
+      .append(PROGRAM).append(" usage:").append(NEWLINE)
+      .append("  ").append(USAGE_COMMAND).append(NEWLINE)
+      .append(NEWLINE)
+      .append("Where:").append(NEWLINE)
+      .append("  'port' is the local port on which to listen")
+      .append(NEWLINE)
+      .append("  'model' is a model zip file or directory; the first model is the default")
+      .append(NEWLINE)
+      .append(NEWLINE)
+      .append("Endpoints:").append(NEWLINE)
+      .append("  /models").append(NEWLINE)
+      .append("  /hazard?model=name&site=name,lon,lat[,vs30,vsInf[,z1p0,z2p5]]").append(NEWLINE)
+      .append("  /deagg?model=name&site=...&returnPeriod=years").append(NEWLINE)
+      .append("  /spectra?gmm=ASK_14&mag=6.5&rjb=10.0&...").append(NEWLINE)
+      .append(NEWLINE)
+      .append("For more information, see:").append(NEWLINE)
+      .append("  ").append(USAGE_URL1).append(NEWLINE)
+      .append(NEWLINE)
+      .toString();
+}
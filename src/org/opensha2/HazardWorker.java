@@ -0,0 +1,228 @@
+package org.opensha2;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.opensha2.internal.TextUtils.NEWLINE;
+
+import org.opensha2.ShardCoordinator.Message;
+import org.opensha2.ShardCoordinator.SiteData;
+import org.opensha2.calc.CalcConfig;
+import org.opensha2.calc.Site;
+import org.opensha2.calc.Sites;
+import org.opensha2.eq.model.HazardModel;
+import org.opensha2.internal.Logging;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Worker in a map calculation that is partitioned across processes, and
+ * possibly hosts, by {@link HazardCalc} or {@link DeaggCalc}.
+ *
+ * <p>A worker connects to the coordinator of a calculation, loads the model
+ * of the calculation once, and then computes shards of sites, as assigned by
+ * the coordinator, until there are none left. Any number of workers may
+ * participate in a calculation and workers may join at any time. The
+ * coordinator and all workers must share a file system.
+ *
+ * @see CalcConfig.Performance#shardSize
+ * @author Peter Powers
+ */
+public class HazardWorker {
+
+  private static final int CONNECT_ATTEMPTS = 60;
+  private static final long CONNECT_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+  /**
+   * Entry point for a partitioned calculation worker.
+   *
+   * <p>A worker requires 2 arguments: the host name and port of the
+   * coordinator. If the coordinator is not yet accepting connections, the
+   * worker will keep trying to connect for about a minute.
+   */
+  public static void main(String[] args) {
+
+    /* Delegate to run which has a return value for testing. */
+
+    Optional<String> status = run(args);
+    if (status.isPresent()) {
+      System.err.print(status.get());
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  static Optional<String> run(String[] args) {
+    if (args.length != 2) {
+      return Optional.of(USAGE);
+    }
+
+    try {
+      Logging.init();
+      Logger log = Logger.getLogger(HazardWorker.class.getName());
+      log.info(PROGRAM + ": connecting to " + args[0] + ":" + args[1] + " ...");
+      try (Socket socket = connect(args[0], Integer.parseInt(args[1]))) {
+        work(socket, log);
+      }
+      log.info(PROGRAM + ": finished");
+      return Optional.absent();
+
+    } catch (Exception e) {
+      StringBuilder sb = new StringBuilder()
+          .append(NEWLINE)
+          .append(PROGRAM + ": error").append(NEWLINE)
+          .append(" Arguments: ").append(Arrays.toString(args)).append(NEWLINE)
+          .append(NEWLINE)
+          .append(Throwables.getStackTraceAsString(e))
+          .append(USAGE);
+      return Optional.of(sb.toString());
+    }
+  }
+
+  private static Socket connect(String host, int port)
+      throws IOException, InterruptedException {
+
+    for (int i = 1;; i++) {
+      try {
+        return new Socket(host, port);
+      } catch (ConnectException ce) {
+        if (i == CONNECT_ATTEMPTS) {
+          throw ce;
+        }
+        Thread.sleep(CONNECT_INTERVAL);
+      }
+    }
+  }
+
+  private static void work(Socket socket, Logger log) throws Exception {
+    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+    final Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8));
+
+    /* Heartbeats continue through model loading and shard calculations. */
+    ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("heartbeat-%d")
+            .build());
+    heartbeat.scheduleAtFixedRate(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              send(out, new Message(Message.HEARTBEAT));
+            } catch (IOException ioe) {
+              // connection lost; reported by the calculating thread
+            }
+          }
+        },
+        ShardCoordinator.HEARTBEAT_INTERVAL,
+        ShardCoordinator.HEARTBEAT_INTERVAL,
+        TimeUnit.MILLISECONDS);
+
+    try {
+      Message job = ShardCoordinator.receive(in);
+      checkState(job.type.equals(Message.JOB), "Expected job, received: %s", job.type);
+      log.info(PROGRAM + ": loading model " + job.model);
+      HazardModel model = HazardModel.load(Paths.get(job.model));
+
+      while (true) {
+        Message shard = ShardCoordinator.receive(in);
+        if (shard.type.equals(Message.EXIT)) {
+          break;
+        }
+        checkState(shard.type.equals(Message.SHARD), "Expected shard, received: %s", shard.type);
+        log.info(PROGRAM + ": shard " + shard.id + " [" + shard.sites.size() + " sites]");
+        Message response;
+        try {
+          Path dir = calc(model, job, shard, log);
+          response = new Message(Message.DONE);
+          response.id = shard.id;
+          response.dir = dir.toAbsolutePath().toString();
+        } catch (Exception e) {
+          response = Message.failed(shard.id, e);
+        }
+        send(out, response);
+      }
+    } finally {
+      heartbeat.shutdownNow();
+    }
+  }
+
+  /*
+   * Compute a shard, writing results to the directory specified by the
+   * coordinator. The job config is otherwise used as is, less any partitioning
+   * or resumption.
+   */
+  private static Path calc(
+      HazardModel model,
+      Message job,
+      Message shard,
+      Logger log) throws Exception {
+
+    JsonObject json = new JsonParser().parse(job.config).getAsJsonObject();
+    JsonObject output = json.getAsJsonObject("output");
+    output.addProperty("directory", shard.dir);
+    output.addProperty("resume", false);
+    json.getAsJsonObject("performance").addProperty("shardSize", 0);
+    CalcConfig config = CalcConfig.Builder.copyOf(model.config())
+        .extend(CalcConfig.Builder.fromJson(json.toString()))
+        .build();
+
+    List<Site> siteList = new ArrayList<>(shard.sites.size());
+    for (SiteData site : shard.sites) {
+      siteList.add(site.toSite());
+    }
+    Sites sites = Sites.fromList(siteList);
+
+    return (job.returnPeriod == null)
+        ? HazardCalc.calc(model, config, sites, log)
+        : DeaggCalc.calc(model, config, sites, job.returnPeriod, log);
+  }
+
+  private static void send(Writer out, Message message) throws IOException {
+    synchronized (out) {
+      ShardCoordinator.send(out, message);
+    }
+  }
+
+  private static final String PROGRAM = HazardWorker.class.getSimpleName();
+  private static final String USAGE_COMMAND =
+      "java -cp nshmp-haz.jar org.opensha2.HazardWorker host port";
+
+  private static final String USAGE = new StringBuilder()
+      .append(NEWLINE)
+      .append(PROGRAM).append(" usage:").append(NEWLINE)
+      .append("  ").append(USAGE_COMMAND).append(NEWLINE)
+      .append(NEWLINE)
+      .append("Where:").append(NEWLINE)
+      .append("  'host' and 'port' identify the coordinator of a partitioned")
+      .append(NEWLINE)
+      .append("  HazardCalc or DeaggCalc calculation; see the 'shardSize' and")
+      .append(NEWLINE)
+      .append("  'coordinatorPort' performance settings")
+      .append(NEWLINE)
+      .append(NEWLINE)
+      .toString();
+}
@@ -11,6 +11,7 @@ import org.opensha2.gmm.ScalarGroundMotion;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Doubles;
 
 import java.util.Arrays;
 import java.util.List;
@@ -70,13 +71,13 @@ public class ResponseSpectra {
   public static Result spectrum(Gmm model, GmmInput input) {
     Set<Imt> imts = model.responseSpectrumIMTs();
     Result spectrum = new Result(imts.size());
+    if (imts.isEmpty()) {
+      return spectrum;
+    }
+    model.spectrum(imts).calc(input, spectrum.means, spectrum.sigmas);
     int i = 0;
     for (Imt imt : imts) {
-      ScalarGroundMotion sgm = model.instance(imt).calc(input);
-      spectrum.periods[i] = imt.period();
-      spectrum.means[i] = sgm.mean();
-      spectrum.sigmas[i] = sgm.sigma();
-      i++;
+      spectrum.periods[i++] = imt.period();
     }
     return spectrum;
   }
@@ -124,16 +125,14 @@ public class ResponseSpectra {
     Map<Gmm, List<Double>> sigmaMap = Maps.newEnumMap(Gmm.class);
 
     // compute spectra
+    double[] means = new double[imts.size()];
+    double[] sigmas = new double[imts.size()];
     for (Gmm gmm : gmms) {
-      ImmutableList.Builder<Double> means = ImmutableList.builder();
-      ImmutableList.Builder<Double> sigmas = ImmutableList.builder();
-      for (Imt imt : imts) {
-        ScalarGroundMotion sgm = gmm.instance(imt).calc(input);
-        means.add(sgm.mean());
-        sigmas.add(sgm.sigma());
+      if (!imts.isEmpty()) {
+        gmm.spectrum(imts).calc(input, means, sigmas);
       }
-      meanMap.put(gmm, means.build());
-      sigmaMap.put(gmm, sigmas.build());
+      meanMap.put(gmm, ImmutableList.copyOf(Doubles.asList(means)));
+      sigmaMap.put(gmm, ImmutableList.copyOf(Doubles.asList(sigmas)));
     }
 
     return new MultiResult(periods, Maps.immutableEnumMap(meanMap),
@@ -0,0 +1,498 @@
+package org.opensha2;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.opensha2.geo.GeoTools.TO_DEG;
+import static org.opensha2.geo.GeoTools.TO_RAD;
+
+import org.opensha2.calc.CalcConfig;
+import org.opensha2.calc.CurveType;
+import org.opensha2.calc.ResultHandler;
+import org.opensha2.calc.Site;
+import org.opensha2.calc.Sites;
+import org.opensha2.geo.Location;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Coordinator of a map calculation that is partitioned across
+ * {@link HazardWorker} processes.
+ *
+ * <p>Sites are split into shards of {@link CalcConfig.Performance#shardSize}
+ * consecutive sites that are handed out to workers as they become available.
+ * A worker computes a shard with its own {@link ResultHandler}, writing to a
+ * directory, unique to the shard and attempt, beneath the output directory of
+ * the coordinator, and reports back when done. Shard results are then merged,
+ * in site order, into the output of the coordinator's handler, and the shard
+ * directory is removed. Thus output is identical in layout to that of an
+ * unpartitioned calculation and may be checkpointed and resumed in the same
+ * way. Workers and the coordinator must therefore share a file system.
+ *
+ * <p>Workers and the coordinator exchange newline-delimited JSON
+ * {@link Message}s over a socket. On connection, the coordinator sends a
+ * worker the model path, calculation configuration, and any deaggregation
+ * return period of the job, and then one shard of sites at a time. Workers
+ * send periodic heartbeats; a worker that disconnects, or from which nothing
+ * has been heard within {@link #WORKER_TIMEOUT}, is presumed dead and its shard
+ * is reassigned. A shard that cannot be completed in {@link #MAX_ATTEMPTS}
+ * attempts fails the calculation.
+ *
+ * @author Peter Powers
+ */
+final class ShardCoordinator {
+
+  /* Interval at which workers send heartbeats. */
+  static final long HEARTBEAT_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+  /* Silence from a worker, in ms, after which it is presumed dead. */
+  static final int WORKER_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+
+  static final int MAX_ATTEMPTS = 3;
+
+  static final Gson GSON = new GsonBuilder()
+      .serializeSpecialFloatingPointValues()
+      .create();
+
+  private static final String SHARD_DIR = "shards";
+
+  private final Path modelPath;
+  private final CalcConfig config;
+  private final Optional<Double> returnPeriod;
+  private final Logger log;
+  private final ResultHandler handler;
+  private final Path shardDir;
+
+  /* Coordination state; guarded by this */
+  private final Iterator<Site> sites;
+  private final Deque<Shard> retries = new ArrayDeque<>();
+  private final Map<Integer, Shard> completed = new HashMap<>();
+  private int shardCount = 0;
+  private int nextMerge = 0;
+  private boolean finished = false;
+  private String failure;
+
+  private ShardCoordinator(
+      Path modelPath,
+      CalcConfig config,
+      Sites sites,
+      Optional<Double> returnPeriod,
+      Logger log) throws IOException {
+
+    this.modelPath = modelPath.toAbsolutePath().normalize();
+    this.config = config;
+    this.returnPeriod = returnPeriod;
+    this.log = log;
+    this.handler = ResultHandler.create(config, sites, log);
+    this.shardDir = handler.outputDir().toAbsolutePath().resolve(SHARD_DIR);
+    this.sites = Iterables.skip(sites, handler.resumeIndex()).iterator();
+  }
+
+  /*
+   * Coordinate the calculation of hazard curves, and deaggregations if a
+   * return period is supplied, at the supplied sites. Method returns the path
+   * to the directory where results were written.
+   */
+  static Path calc(
+      Path modelPath,
+      CalcConfig config,
+      Sites sites,
+      Optional<Double> returnPeriod,
+      Logger log) throws IOException, InterruptedException {
+
+    checkState(!config.output.curveTypes.contains(CurveType.BINARY),
+        "Binary output is not supported by partitioned calculations");
+    return new ShardCoordinator(modelPath, config, sites, returnPeriod, log).run();
+  }
+
+  private Path run() throws IOException, InterruptedException {
+    deleteTree(shardDir);
+    Files.createDirectories(shardDir);
+
+    ExecutorService acceptor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("shard-acceptor-%d")
+        .build());
+    final ServerSocket server = new ServerSocket(config.performance.coordinatorPort);
+    log.info("Coordinator: waiting for workers on port " + server.getLocalPort());
+
+    try {
+      acceptor.execute(new Runnable() {
+        @Override
+        public void run() {
+          acceptWorkers(server);
+        }
+      });
+      mergeShards();
+    } finally {
+      synchronized (this) {
+        finished = true;
+        notifyAll();
+      }
+      server.close();
+      acceptor.shutdown();
+    }
+
+    handler.expire();
+    deleteTree(shardDir);
+    return handler.outputDir();
+  }
+
+  private void acceptWorkers(ServerSocket server) {
+    ExecutorService sessions = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("shard-session-%d")
+        .build());
+    try {
+      while (true) {
+        final Socket socket = server.accept();
+        sessions.execute(new Runnable() {
+          @Override
+          public void run() {
+            serve(socket);
+          }
+        });
+      }
+    } catch (IOException ioe) {
+      // server closed
+    } finally {
+      sessions.shutdown();
+    }
+  }
+
+  /* Merge shards in order as they complete. */
+  private void mergeShards() throws IOException, InterruptedException {
+    while (true) {
+      Shard shard;
+      synchronized (this) {
+        while (!completed.containsKey(nextMerge) && failure == null && !allMerged()) {
+          wait();
+        }
+        if (failure != null) {
+          throw new IllegalStateException(failure);
+        }
+        if (allMerged()) {
+          return;
+        }
+        shard = completed.remove(nextMerge);
+      }
+      handler.merge(shard.resultDir, shard.size, shard.lastSite);
+      deleteTree(shard.resultDir.getParent());
+      log.info(String.format(
+          "     shard: %s – %s sites in %s",
+          shard.id + 1, handler.resultsProcessed(), handler.elapsedTime()));
+      synchronized (this) {
+        nextMerge++;
+        notifyAll();
+      }
+    }
+  }
+
+  /* Called while holding lock. */
+  private boolean allMerged() {
+    return !sites.hasNext() && retries.isEmpty() && nextMerge == shardCount;
+  }
+
+  /*
+   * Return the next shard to be computed, waiting if shards are in progress
+   * that may yet need to be reassigned, or null if there are no more shards.
+   */
+  private synchronized Shard takeShard() throws InterruptedException {
+    while (true) {
+      if (finished || failure != null) {
+        return null;
+      }
+      if (!retries.isEmpty()) {
+        return retries.poll();
+      }
+      if (sites.hasNext()) {
+        List<Site> shardSites = new ArrayList<>();
+        while (sites.hasNext() && shardSites.size() < config.performance.shardSize) {
+          shardSites.add(sites.next());
+        }
+        return new Shard(shardCount++, shardSites);
+      }
+      if (allMerged()) {
+        return null;
+      }
+      wait();
+    }
+  }
+
+  private synchronized void complete(Shard shard, Path resultDir) {
+    shard.resultDir = resultDir;
+    shard.sites = null;
+    completed.put(shard.id, shard);
+    notifyAll();
+  }
+
+  private synchronized void reassign(Shard shard, String reason) {
+    shard.attempts++;
+    if (shard.attempts >= MAX_ATTEMPTS) {
+      failure = "Shard " + shard.id + " failed after " + shard.attempts +
+          " attempts; last failure: " + reason;
+    } else {
+      retries.addFirst(shard);
+    }
+    notifyAll();
+  }
+
+  /* Serve a single worker connection until the worker dies or is released. */
+  private void serve(Socket socket) {
+    String worker = socket.getRemoteSocketAddress().toString();
+    log.info("Coordinator: worker connected " + worker);
+    Shard shard = null;
+    try (Socket s = socket) {
+      s.setSoTimeout(WORKER_TIMEOUT);
+      BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+      Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), UTF_8));
+
+      Message job = new Message(Message.JOB);
+      job.model = modelPath.toString();
+      job.config = config.toJson();
+      job.returnPeriod = returnPeriod.orNull();
+      send(out, job);
+
+      while ((shard = takeShard()) != null) {
+        Message request = new Message(Message.SHARD);
+        request.id = shard.id;
+        request.dir = attemptDir(shard).resolve("curves").toString();
+        request.sites = new ArrayList<>();
+        for (Site site : shard.sites) {
+          request.sites.add(new SiteData(site));
+        }
+        send(out, request);
+
+        Message response = receive(in);
+        while (response.type.equals(Message.HEARTBEAT)) {
+          response = receive(in);
+        }
+        if (response.type.equals(Message.DONE)) {
+          complete(shard, resultDir(shard, response));
+        } else {
+          log.warning("Coordinator: shard " + shard.id + " failed on worker " + worker +
+              ": " + response.error);
+          reassign(shard, response.error);
+        }
+        shard = null;
+      }
+      send(out, new Message(Message.EXIT));
+      log.info("Coordinator: worker released " + worker);
+
+    } catch (IOException | RuntimeException e) {
+      String reason = (e instanceof SocketTimeoutException)
+          ? "worker timed out"
+          : (e instanceof SocketException) ? "worker disconnected" : e.toString();
+      log.warning("Coordinator: lost worker " + worker + " (" + reason + ")");
+      if (shard != null) {
+        reassign(shard, reason);
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      if (shard != null) {
+        reassign(shard, "coordinator interrupted");
+      }
+    }
+  }
+
+  /* The directory assigned to the current attempt at a shard. */
+  private Path attemptDir(Shard shard) {
+    return shardDir.resolve(shard.id + "-" + shard.attempts).normalize();
+  }
+
+  /*
+   * Return the result directory reported by a worker that completed the
+   * supplied shard. Because the directory is merged and then deleted, it must
+   * lie directly within the directory assigned to the current attempt at the
+   * shard (a worker may increment the name of the assigned result directory).
+   */
+  private Path resultDir(Shard shard, Message response) {
+    checkState(response.id != null && response.id == shard.id,
+        "Received result for shard %s when expecting shard %s", response.id, shard.id);
+    checkState(response.dir != null, "Result for shard %s has no directory", shard.id);
+    Path attemptDir = attemptDir(shard);
+    Path resultDir = shardDir.getFileSystem().getPath(response.dir)
+        .toAbsolutePath()
+        .normalize();
+    checkState(attemptDir.equals(resultDir.getParent()),
+        "Result directory [%s] for shard %s is not in [%s]",
+        resultDir, shard.id, attemptDir);
+    return resultDir;
+  }
+
+  static void send(Writer out, Message message) throws IOException {
+    out.write(GSON.toJson(message));
+    out.write('\n');
+    out.flush();
+  }
+
+  static Message receive(BufferedReader in) throws IOException {
+    String line = in.readLine();
+    if (line == null) {
+      throw new SocketException("Connection closed");
+    }
+    Message message = GSON.fromJson(line, Message.class);
+    checkState(message != null && message.type != null, "Invalid message: %s", line);
+    return message;
+  }
+
+  static void deleteTree(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.deleteIfExists(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+        Files.deleteIfExists(d);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static final class Shard {
+
+    final int id;
+    final int size;
+    final Location lastSite;
+    List<Site> sites;
+    Path resultDir;
+    int attempts = 0;
+
+    Shard(int id, List<Site> sites) {
+      this.id = id;
+      this.size = sites.size();
+      this.lastSite = sites.get(size - 1).location;
+      this.sites = sites;
+    }
+  }
+
+  /*
+   * A protocol message. Only the fields relevant to a message type are set.
+   */
+  static final class Message {
+
+    /* coordinator to worker */
+    static final String JOB = "JOB";
+    static final String SHARD = "SHARD";
+    static final String EXIT = "EXIT";
+
+    /* worker to coordinator */
+    static final String HEARTBEAT = "HEARTBEAT";
+    static final String DONE = "DONE";
+    static final String FAILED = "FAILED";
+
+    final String type;
+    String model;
+    String config;
+    Double returnPeriod;
+    Integer id;
+    String dir;
+    List<SiteData> sites;
+    String error;
+
+    Message(String type) {
+      this.type = type;
+    }
+
+    static Message failed(int id, Throwable t) {
+      Message message = new Message(FAILED);
+      message.id = id;
+      message.error = Throwables.getStackTraceAsString(t);
+      return message;
+    }
+  }
+
+  /*
+   * Site serialization; unnamed sites have a null name. Locations are stored
+   * in radians, and a degree value that converts back to exactly the same
+   * radian value is sent so that workers compute identical results.
+   */
+  static final class SiteData {
+
+    final String name;
+    final double lon;
+    final double lat;
+    final double vs30;
+    final boolean vsInf;
+    final double z1p0;
+    final double z2p5;
+
+    SiteData(Site site) {
+      this.name = (site.name() == Site.NO_NAME) ? null : site.name();
+      this.lon = toDegrees(site.location.lonRad());
+      this.lat = toDegrees(site.location.latRad());
+      this.vs30 = site.vs30;
+      this.vsInf = site.vsInferred;
+      this.z1p0 = site.z1p0;
+      this.z2p5 = site.z2p5;
+    }
+
+    Site toSite() {
+      Site.Builder builder = Site.builder()
+          .location(lat, lon)
+          .vs30(vs30)
+          .vsInferred(vsInf)
+          .z1p0(z1p0)
+          .z2p5(z2p5);
+      if (name != null) {
+        builder.name(name);
+      }
+      return builder.build();
+    }
+
+    private static double toDegrees(double radians) {
+      double degrees = radians * TO_DEG;
+      double up = degrees;
+      double down = degrees;
+      for (int i = 0; i < 4; i++) {
+        if (up * TO_RAD == radians) {
+          return up;
+        }
+        if (down * TO_RAD == radians) {
+          return down;
+        }
+        up = Math.nextUp(up);
+        down = Math.nextAfter(down, Double.NEGATIVE_INFINITY);
+      }
+      return degrees;
+    }
+  }
+}
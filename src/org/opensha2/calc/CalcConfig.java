@@ -112,6 +112,16 @@ public final class CalcConfig {
     public final ExceedanceModel exceedanceModel;
     // TODO refactor to probabilityModel
 
+    /**
+     * The method used to evaluate the complementary cumulative normal
+     * distribution when computing hazard curves. Table-based methods are
+     * faster, but introduce a small, bounded error; see
+     * {@link ExceedanceEvaluation} for details.
+     *
+     * <p><b>Default:</b> {@link ExceedanceEvaluation#ERF}
+     */
+    public final ExceedanceEvaluation exceedanceEvaluation;
+
     /**
      * The number of standard deviations (σ) at which to truncate a
      * distribution. This field is ignored if an {@link ExceedanceModel} does
@@ -154,6 +164,7 @@ public final class CalcConfig {
 
     private Curve(
         ExceedanceModel exceedanceModel,
+        ExceedanceEvaluation exceedanceEvaluation,
         double truncationLevel,
         Set<Imt> imts,
         boolean gmmUncertainty,
@@ -164,6 +175,7 @@ public final class CalcConfig {
         Map<Imt, XySequence> logModelCurves) {
 
       this.exceedanceModel = exceedanceModel;
+      this.exceedanceEvaluation = exceedanceEvaluation;
       this.truncationLevel = truncationLevel;
       this.imts = imts;
       this.gmmUncertainty = gmmUncertainty;
@@ -209,6 +221,7 @@ public final class CalcConfig {
       return new StringBuilder()
           .append(LOG_INDENT).append("Curve")
           .append(formatEntry(Key.EXCEEDANCE_MODEL, exceedanceModel))
+          .append(formatEntry(Key.EXCEEDANCE_EVALUATION, exceedanceEvaluation))
           .append(formatEntry(Key.TRUNCATION_LEVEL, truncationLevel))
           .append(formatEntry(Key.IMTS, enumsToString(imts, Imt.class)))
           .append(formatEntry(Key.GMM_UNCERTAINTY, gmmUncertainty))
@@ -220,6 +233,7 @@ public final class CalcConfig {
     private static final class Builder {
 
       ExceedanceModel exceedanceModel;
+      ExceedanceEvaluation exceedanceEvaluation;
       Double truncationLevel;
       Set<Imt> imts;
       Boolean gmmUncertainty;
@@ -230,6 +244,7 @@ public final class CalcConfig {
       Curve build() {
         return new Curve(
             exceedanceModel,
+            exceedanceEvaluation,
             truncationLevel,
             Sets.immutableEnumSet(imts),
             gmmUncertainty,
@@ -242,6 +257,7 @@ public final class CalcConfig {
 
       void copy(Curve that) {
         this.exceedanceModel = that.exceedanceModel;
+        this.exceedanceEvaluation = that.exceedanceEvaluation;
         this.truncationLevel = that.truncationLevel;
         this.imts = that.imts;
         this.gmmUncertainty = that.gmmUncertainty;
@@ -254,6 +270,9 @@ public final class CalcConfig {
         if (that.exceedanceModel != null) {
           this.exceedanceModel = that.exceedanceModel;
         }
+        if (that.exceedanceEvaluation != null) {
+          this.exceedanceEvaluation = that.exceedanceEvaluation;
+        }
         if (that.truncationLevel != null) {
           this.truncationLevel = that.truncationLevel;
         }
@@ -286,6 +305,7 @@ public final class CalcConfig {
       static Builder defaults() {
         Builder b = new Builder();
         b.exceedanceModel = ExceedanceModel.TRUNCATION_UPPER_ONLY;
+        b.exceedanceEvaluation = ExceedanceEvaluation.ERF;
         b.truncationLevel = 3.0;
         b.imts = EnumSet.of(Imt.PGA, Imt.SA0P2, Imt.SA1P0);
         b.gmmUncertainty = false;
@@ -298,6 +318,7 @@ public final class CalcConfig {
 
       void validate() {
         checkNotNull(exceedanceModel, STATE_ERROR, Curve.ID, Key.EXCEEDANCE_MODEL);
+        checkNotNull(exceedanceEvaluation, STATE_ERROR, Curve.ID, Key.EXCEEDANCE_EVALUATION);
         checkNotNull(truncationLevel, STATE_ERROR, Curve.ID, Key.TRUNCATION_LEVEL);
         checkNotNull(imts, STATE_ERROR, Curve.ID, Key.IMTS);
         checkNotNull(defaultImls, STATE_ERROR, Curve.ID, Key.DEFAULT_IMLS);
@@ -482,16 +503,99 @@ public final class CalcConfig {
      */
     public final ThreadCount threadCount;
 
+    /**
+     * The maximum number of sites for which calculations may be in progress at
+     * any one time. When greater than one, and {@link #threadCount} is not
+     * {@link ThreadCount#ONE}, map calculations keep multiple sites in flight
+     * on a shared work-stealing pool rather than processing sites one at a
+     * time. Results are still written in site order. Must be at least one.
+     *
+     * <p><b>Default:</b> {@code 1}
+     */
+    public final int sitesInFlight;
+
+    /**
+     * The maximum number of distinct ground motion model inputs for which
+     * results are memoized when computing hazard for a single {@code SourceSet}
+     * at a site. Inputs that differ only in rate (e.g. point source depth and
+     * mechanism variants, or floating ruptures with identical geometry) then
+     * reuse previously computed ground motions. A value of {@code 0} disables
+     * memoization.
+     *
+     * <p><b>Default:</b> {@code 0}
+     */
+    public final int gmmCacheSize;
+
+    /**
+     * The interval, in km, to which the source-to-site distances (rJB, rRup,
+     * and rX) of ground motion model inputs are rounded when building
+     * memoization keys. All other input values, such as magnitude, must always
+     * be identical. A value of {@code 0.0} requires distances to be identical;
+     * larger values permit inputs at nearly identical distances to share a
+     * result at the expense of some accuracy. Has no effect if
+     * {@link #gmmCacheSize} is {@code 0}.
+     *
+     * <p><b>Default:</b> {@code 0.0}
+     */
+    public final double gmmCacheQuantum;
+
+    /**
+     * The directory in which to store, and from which to reuse, fault section
+     * distances computed for {@link SourceType#SYSTEM} sources. Because section
+     * distances depend only on source geometry and site location, repeat
+     * calculations for the same sites and system model, but with different
+     * intensity measures, site properties, or other settings, skip all
+     * section distance calculations. A value of {@code null} disables the
+     * cache. A cache may not be used by a partitioned calculation (see
+     * {@link #shardSize}) because it may not be shared by concurrently running
+     * workers.
+     *
+     * <p><b>Default:</b> {@code null}
+     */
+    public final Path systemCache;
+
+    /**
+     * The number of sites in each shard of a partitioned map calculation. When
+     * greater than zero, {@code HazardCalc} and {@code DeaggCalc} do not
+     * compute results themselves but instead coordinate the calculation of
+     * shards of sites by any number of {@code HazardWorker} processes, which
+     * connect on {@link #coordinatorPort}. Shard results are merged into a
+     * single output directory, in site order.
+     *
+     * <p><b>Default:</b> {@code 0}
+     */
+    public final int shardSize;
+
+    /**
+     * The port on which the coordinator of a partitioned map calculation
+     * listens for workers. Has no effect if {@link #shardSize} is {@code 0}.
+     *
+     * <p><b>Default:</b> {@code 7117}
+     */
+    public final int coordinatorPort;
+
     private Performance(
         boolean optimizeGrids,
         boolean collapseMfds,
         int systemPartition,
-        ThreadCount threadCount) {
+        ThreadCount threadCount,
+        int sitesInFlight,
+        int gmmCacheSize,
+        double gmmCacheQuantum,
+        Path systemCache,
+        int shardSize,
+        int coordinatorPort) {
 
       this.optimizeGrids = optimizeGrids;
       this.collapseMfds = collapseMfds;
       this.systemPartition = systemPartition;
       this.threadCount = threadCount;
+      this.sitesInFlight = sitesInFlight;
+      this.gmmCacheSize = gmmCacheSize;
+      this.gmmCacheQuantum = gmmCacheQuantum;
+      this.systemCache = systemCache;
+      this.shardSize = shardSize;
+      this.coordinatorPort = coordinatorPort;
     }
 
     private StringBuilder asString() {
@@ -500,7 +604,15 @@ public final class CalcConfig {
           .append(formatEntry(Key.OPTIMIZE_GRIDS, optimizeGrids))
           .append(formatEntry(Key.COLLAPSE_MFDS, collapseMfds))
           .append(formatEntry(Key.SYSTEM_PARTITION, systemPartition))
-          .append(formatEntry(Key.THREAD_COUNT, threadCount));
+          .append(formatEntry(Key.THREAD_COUNT, threadCount))
+          .append(formatEntry(Key.SITES_IN_FLIGHT, sitesInFlight))
+          .append(formatEntry(Key.GMM_CACHE_SIZE, gmmCacheSize))
+          .append(formatEntry(Key.GMM_CACHE_QUANTUM, gmmCacheQuantum))
+          .append(formatEntry(Key.SYSTEM_CACHE, (systemCache == null)
+              ? null
+              : systemCache.toAbsolutePath().normalize()))
+          .append(formatEntry(Key.SHARD_SIZE, shardSize))
+          .append(formatEntry(Key.COORDINATOR_PORT, coordinatorPort));
     }
 
     private static final class Builder {
@@ -509,13 +621,25 @@ public final class CalcConfig {
       Boolean collapseMfds;
       Integer systemPartition;
       ThreadCount threadCount;
+      Integer sitesInFlight;
+      Integer gmmCacheSize;
+      Double gmmCacheQuantum;
+      Path systemCache;
+      Integer shardSize;
+      Integer coordinatorPort;
 
       Performance build() {
         return new Performance(
             optimizeGrids,
             collapseMfds,
             systemPartition,
-            threadCount);
+            threadCount,
+            sitesInFlight,
+            gmmCacheSize,
+            gmmCacheQuantum,
+            systemCache,
+            shardSize,
+            coordinatorPort);
       }
 
       void copy(Performance that) {
@@ -523,6 +647,12 @@ public final class CalcConfig {
         this.collapseMfds = that.collapseMfds;
         this.systemPartition = that.systemPartition;
         this.threadCount = that.threadCount;
+        this.sitesInFlight = that.sitesInFlight;
+        this.gmmCacheSize = that.gmmCacheSize;
+        this.gmmCacheQuantum = that.gmmCacheQuantum;
+        this.systemCache = that.systemCache;
+        this.shardSize = that.shardSize;
+        this.coordinatorPort = that.coordinatorPort;
       }
 
       void extend(Builder that) {
@@ -538,6 +668,24 @@ public final class CalcConfig {
         if (that.threadCount != null) {
           this.threadCount = that.threadCount;
         }
+        if (that.sitesInFlight != null) {
+          this.sitesInFlight = that.sitesInFlight;
+        }
+        if (that.gmmCacheSize != null) {
+          this.gmmCacheSize = that.gmmCacheSize;
+        }
+        if (that.gmmCacheQuantum != null) {
+          this.gmmCacheQuantum = that.gmmCacheQuantum;
+        }
+        if (that.systemCache != null) {
+          this.systemCache = that.systemCache;
+        }
+        if (that.shardSize != null) {
+          this.shardSize = that.shardSize;
+        }
+        if (that.coordinatorPort != null) {
+          this.coordinatorPort = that.coordinatorPort;
+        }
       }
 
       static Builder defaults() {
@@ -546,6 +694,12 @@ public final class CalcConfig {
         b.collapseMfds = true;
         b.systemPartition = 1000;
         b.threadCount = ThreadCount.ALL;
+        b.sitesInFlight = 1;
+        b.gmmCacheSize = 0;
+        b.gmmCacheQuantum = 0.0;
+        b.systemCache = null;
+        b.shardSize = 0;
+        b.coordinatorPort = 7117;
         return b;
       }
 
@@ -554,6 +708,22 @@ public final class CalcConfig {
         checkNotNull(collapseMfds, STATE_ERROR, Performance.ID, Key.COLLAPSE_MFDS);
         checkNotNull(systemPartition, STATE_ERROR, Performance.ID, Key.SYSTEM_PARTITION);
         checkNotNull(threadCount, STATE_ERROR, Performance.ID, Key.THREAD_COUNT);
+        checkNotNull(sitesInFlight, STATE_ERROR, Performance.ID, Key.SITES_IN_FLIGHT);
+        checkNotNull(gmmCacheSize, STATE_ERROR, Performance.ID, Key.GMM_CACHE_SIZE);
+        checkNotNull(gmmCacheQuantum, STATE_ERROR, Performance.ID, Key.GMM_CACHE_QUANTUM);
+        // systemCache may be null
+        checkNotNull(shardSize, STATE_ERROR, Performance.ID, Key.SHARD_SIZE);
+        checkNotNull(coordinatorPort, STATE_ERROR, Performance.ID, Key.COORDINATOR_PORT);
+        checkState(sitesInFlight >= 1, "%s %s [%s] must be >= 1",
+            Performance.ID, Key.SITES_IN_FLIGHT, sitesInFlight);
+        checkState(shardSize >= 0, "%s %s [%s] must be >= 0",
+            Performance.ID, Key.SHARD_SIZE, shardSize);
+        checkState(coordinatorPort >= 0 && coordinatorPort <= 65535,
+            "%s %s [%s] must be in the range 0..65535",
+            Performance.ID, Key.COORDINATOR_PORT, coordinatorPort);
+        checkState(shardSize == 0 || systemCache == null,
+            "%s %s may not be used when %s > 0",
+            Performance.ID, Key.SYSTEM_CACHE, Key.SHARD_SIZE);
       }
     }
   }
@@ -589,16 +759,46 @@ public final class CalcConfig {
      */
     public final int flushLimit;
 
+    /**
+     * The precision of the values written to a {@link CurveStore} when
+     * {@link CurveType#STORE} curves are saved.
+     *
+     * <p><b>Default:</b> {@link CurveStore.Precision#DOUBLE}
+     */
+    public final CurveStore.Precision storePrecision;
+
+    /**
+     * Whether a calculation may be resumed if interrupted. If {@code true},
+     * results are forced to disk and a checkpoint is written after every
+     * batch of {@code flushLimit} results, at the cost of a file system sync
+     * per result file per batch. If {@code true} and {@code directory}, or
+     * one of the incremented directories (e.g. {@code curves-1}) written to
+     * when {@code directory} already exists, holds a checkpoint of a
+     * calculation that did not complete, results for any sites that have
+     * already been written are not recomputed and new results are appended to
+     * the existing output of the last such directory; otherwise, results are
+     * written to a new directory as usual. A resumed calculation must compute the same
+     * {@code Imt}s and write the same {@code curveTypes} as the interrupted
+     * calculation.
+     *
+     * <p><b>Default:</b> {@code false}
+     */
+    public final boolean resume;
+
     private Output(
         Path directory,
         Set<CurveType> curveTypes,
-        int flushLimit) {
+        int flushLimit,
+        CurveStore.Precision storePrecision,
+        boolean resume) {
 
       this.directory = directory;
       this.curveTypes = Sets.immutableEnumSet(
           CurveType.TOTAL,
           curveTypes.toArray(new CurveType[curveTypes.size()]));
       this.flushLimit = flushLimit;
+      this.storePrecision = storePrecision;
+      this.resume = resume;
     }
 
     private StringBuilder asString() {
@@ -606,7 +806,9 @@ public final class CalcConfig {
           .append(LOG_INDENT).append("Output")
           .append(formatEntry(Key.DIRECTORY, directory.toAbsolutePath().normalize()))
           .append(formatEntry(Key.CURVE_TYPES, enumsToString(curveTypes, CurveType.class)))
-          .append(formatEntry(Key.FLUSH_LIMIT, flushLimit));
+          .append(formatEntry(Key.FLUSH_LIMIT, flushLimit))
+          .append(formatEntry(Key.STORE_PRECISION, storePrecision))
+          .append(formatEntry(Key.RESUME, resume));
     }
 
     private static final class Builder {
@@ -614,18 +816,24 @@ public final class CalcConfig {
       Path directory;
       Set<CurveType> curveTypes;
       Integer flushLimit;
+      CurveStore.Precision storePrecision;
+      Boolean resume;
 
       Output build() {
         return new Output(
             directory,
             curveTypes,
-            flushLimit);
+            flushLimit,
+            storePrecision,
+            resume);
       }
 
       void copy(Output that) {
         this.directory = that.directory;
         this.curveTypes = that.curveTypes;
         this.flushLimit = that.flushLimit;
+        this.storePrecision = that.storePrecision;
+        this.resume = that.resume;
       }
 
       void extend(Builder that) {
@@ -638,6 +846,12 @@ public final class CalcConfig {
         if (that.flushLimit != null) {
           this.flushLimit = that.flushLimit;
         }
+        if (that.storePrecision != null) {
+          this.storePrecision = that.storePrecision;
+        }
+        if (that.resume != null) {
+          this.resume = that.resume;
+        }
       }
 
       static Builder defaults() {
@@ -645,6 +859,8 @@ public final class CalcConfig {
         b.directory = Paths.get(DEFAULT_OUT);
         b.curveTypes = EnumSet.of(CurveType.TOTAL);
         b.flushLimit = 5;
+        b.storePrecision = CurveStore.Precision.DOUBLE;
+        b.resume = false;
         return b;
       }
 
@@ -652,6 +868,8 @@ public final class CalcConfig {
         checkNotNull(directory, STATE_ERROR, Output.ID, Key.DIRECTORY);
         checkNotNull(curveTypes, STATE_ERROR, Output.ID, Key.CURVE_TYPES);
         checkNotNull(flushLimit, STATE_ERROR, Output.ID, Key.FLUSH_LIMIT);
+        checkNotNull(storePrecision, STATE_ERROR, Output.ID, Key.STORE_PRECISION);
+        checkNotNull(resume, STATE_ERROR, Output.ID, Key.RESUME);
       }
     }
   }
@@ -814,6 +1032,7 @@ public final class CalcConfig {
     RESOURCE,
     /* curve */
     EXCEEDANCE_MODEL,
+    EXCEEDANCE_EVALUATION,
     TRUNCATION_LEVEL,
     IMTS,
     GMM_UNCERTAINTY,
@@ -830,10 +1049,18 @@ public final class CalcConfig {
     COLLAPSE_MFDS,
     SYSTEM_PARTITION,
     THREAD_COUNT,
+    SITES_IN_FLIGHT,
+    GMM_CACHE_SIZE,
+    GMM_CACHE_QUANTUM,
+    SYSTEM_CACHE,
+    SHARD_SIZE,
+    COORDINATOR_PORT,
     /* output */
     DIRECTORY,
     CURVE_TYPES,
     FLUSH_LIMIT,
+    STORE_PRECISION,
+    RESUME,
     /* deagg */
     BINS,
     CONTRIBUTOR_LIMIT;
@@ -914,7 +1141,7 @@ public final class CalcConfig {
           return Paths.get(json.getAsString());
         }
       })
-      .registerTypeAdapter(Path.class, new JsonSerializer<Path>() {
+      .registerTypeHierarchyAdapter(Path.class, new JsonSerializer<Path>() {
         @Override
         public JsonElement serialize(
             Path path,
@@ -938,6 +1165,13 @@ public final class CalcConfig {
     writer.close();
   }
 
+  /**
+   * Return this config in the JSON format used by {@link #write(Path)}.
+   */
+  public String toJson() {
+    return GSON.toJson(this);
+  }
+
   /**
    * A builder of configuration instances.
    */
@@ -994,6 +1228,17 @@ public final class CalcConfig {
       return b;
     }
 
+    /**
+     * Create a new builder from the supplied JSON string. This will only set
+     * those fields that are explicitely defined.
+     *
+     * @param json configuration string
+     */
+    public static Builder fromJson(String json) {
+      Builder b = GSON.fromJson(checkNotNull(json), Builder.class);
+      return (b == null) ? new Builder() : b;
+    }
+
     /**
      * Initialize a new builder with all fields initialized to default values.
      */
@@ -3,6 +3,7 @@ package org.opensha2.calc;
 import static com.google.common.util.concurrent.Futures.allAsList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.transform;
+import static com.google.common.util.concurrent.Futures.transformAsync;
 
 import org.opensha2.calc.Transforms.ClusterCurveConsolidator;
 import org.opensha2.calc.Transforms.ClusterToCurves;
@@ -18,6 +19,7 @@ import org.opensha2.eq.model.Source;
 import org.opensha2.eq.model.SourceSet;
 import org.opensha2.eq.model.SystemSourceSet;
 
+import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
@@ -43,12 +45,13 @@ final class CalcFactory {
       CalcConfig config,
       Site site) {
 
-    SourceToCurves sourceToCurves = new SourceToCurves(sources, config, site);
+    Optional<GroundMotionCache> cache = GroundMotionCache.create(sources, config);
+    SourceToCurves sourceToCurves = new SourceToCurves(sources, config, site, cache);
     List<HazardCurves> curvesList = new ArrayList<>();
     for (Source source : sources.iterableForLocation(site.location)) {
       curvesList.add(sourceToCurves.apply(source));
     }
-    CurveConsolidator consolidateFn = new CurveConsolidator(sources, config);
+    CurveConsolidator consolidateFn = new CurveConsolidator(sources, config, cache);
     return consolidateFn.apply(curvesList);
   }
 
@@ -59,7 +62,8 @@ final class CalcFactory {
       Site site,
       Executor ex) {
 
-    SourceToCurves sourceToCurves = new SourceToCurves(sources, config, site);
+    Optional<GroundMotionCache> cache = GroundMotionCache.create(sources, config);
+    SourceToCurves sourceToCurves = new SourceToCurves(sources, config, site, cache);
     AsyncList<HazardCurves> curvesList = AsyncList.create();
     for (Source source : sources.iterableForLocation(site.location)) {
       ListenableFuture<HazardCurves> curves = transform(
@@ -70,7 +74,7 @@ final class CalcFactory {
     }
     return transform(
         allAsList(curvesList),
-        new CurveConsolidator(sources, config),
+        new CurveConsolidator(sources, config, cache),
         ex);
   }
 
@@ -90,7 +94,7 @@ final class CalcFactory {
       Site site,
       final Executor ex) {
 
-    return transform(
+    return transformAsync(
         immediateFuture(sources),
         new ParallelSystemToCurves(site, config, ex),
         ex);
@@ -102,12 +106,13 @@ final class CalcFactory {
       CalcConfig config,
       Site site) {
 
-    ClusterToCurves clusterToCurves = new ClusterToCurves(sources, config, site);
+    Optional<GroundMotionCache> cache = GroundMotionCache.create(sources, config);
+    ClusterToCurves clusterToCurves = new ClusterToCurves(sources, config, site, cache);
     List<ClusterCurves> curvesList = new ArrayList<>();
     for (ClusterSource source : sources.iterableForLocation(site.location)) {
       curvesList.add(clusterToCurves.apply(source));
     }
-    ClusterCurveConsolidator consolidateFn = new ClusterCurveConsolidator(sources, config);
+    ClusterCurveConsolidator consolidateFn = new ClusterCurveConsolidator(sources, config, cache);
     return consolidateFn.apply(curvesList);
   }
 
@@ -118,7 +123,8 @@ final class CalcFactory {
       Site site,
       Executor ex) {
 
-    ClusterToCurves clusterToCurves = new ClusterToCurves(sources, config, site);
+    Optional<GroundMotionCache> cache = GroundMotionCache.create(sources, config);
+    ClusterToCurves clusterToCurves = new ClusterToCurves(sources, config, site, cache);
     AsyncList<ClusterCurves> curvesList = AsyncList.create();
     for (ClusterSource source : sources.iterableForLocation(site.location)) {
       ListenableFuture<ClusterCurves> curves = transform(
@@ -129,7 +135,7 @@ final class CalcFactory {
     }
     return transform(
         allAsList(curvesList),
-        new ClusterCurveConsolidator(sources, config),
+        new ClusterCurveConsolidator(sources, config, cache),
         ex);
   }
 
@@ -0,0 +1,170 @@
+package org.opensha2.calc;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import org.opensha2.geo.Location;
+import org.opensha2.gmm.Imt;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Record of the results of a calculation that have been committed to disk.
+ *
+ * <p>Because a {@link ResultHandler} writes results in site order, the sites
+ * completed at any point are always the first {@code n} sites of those being
+ * processed. A checkpoint stores {@code n}, the location of the last completed
+ * site, the {@code Imt}s and {@link CurveType}s being written, and the length
+ * of every file to which results are appended, measured after each batch of
+ * results has been forced to disk. On resumption, files are truncated to their
+ * checkpointed lengths, removing any partially written batch, and calculation
+ * continues at site {@code n}. A calculation may only be resumed with the same
+ * {@code Imt}s and curve types.
+ *
+ * <p>Checkpoints are only written if {@link CalcConfig.Output#resume} is
+ * {@code true}. They are written to a temporary file that then atomically
+ * replaces the previous checkpoint, such that a checkpoint on disk always
+ * describes a consistent set of results.
+ *
+ * @author Peter Powers
+ */
+final class Checkpoint {
+
+  static final String FILENAME = "checkpoint.json";
+
+  private static final Gson GSON = new GsonBuilder()
+      .setPrettyPrinting()
+      .create();
+
+  private final int sites;
+  private final double[] lastSite;
+  private final Set<Imt> imts;
+  private final Set<CurveType> curveTypes;
+  private final Map<String, Long> files;
+
+  private Checkpoint(
+      int sites,
+      Location lastSite,
+      CalcConfig config,
+      Map<String, Long> files) {
+
+    this.sites = sites;
+    this.lastSite = new double[] { lastSite.lon(), lastSite.lat() };
+    this.imts = config.curve.imts;
+    this.curveTypes = config.output.curveTypes;
+    this.files = files;
+  }
+
+  /* The number of sites completed. */
+  int sites() {
+    return sites;
+  }
+
+  /*
+   * Return the checkpoint in the supplied directory, or null if there is no
+   * checkpoint.
+   */
+  static Checkpoint read(Path dir) throws IOException {
+    Path file = dir.resolve(FILENAME);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+      Checkpoint checkpoint = GSON.fromJson(reader, Checkpoint.class);
+      checkState(checkpoint != null && checkpoint.files != null &&
+          checkpoint.imts != null && checkpoint.curveTypes != null &&
+          checkpoint.lastSite != null && checkpoint.lastSite.length == 2,
+          "Checkpoint [%s] is incomplete", file);
+      return checkpoint;
+    } catch (JsonParseException jpe) {
+      throw new IllegalStateException("Checkpoint [" + file + "] is corrupt", jpe);
+    }
+  }
+
+  /*
+   * Force the supplied result files, written using the supplied config, to
+   * disk and write a checkpoint of them to the supplied directory.
+   */
+  static void write(
+      Path dir,
+      CalcConfig config,
+      int sites,
+      Location lastSite,
+      Iterable<Path> resultFiles) throws IOException {
+
+    Map<String, Long> files = new TreeMap<>();
+    for (Path file : resultFiles) {
+      try (FileChannel channel = FileChannel.open(file, WRITE)) {
+        channel.force(true);
+        files.put(relativize(dir, file), channel.size());
+      }
+    }
+    Checkpoint checkpoint = new Checkpoint(sites, lastSite, config, files);
+    Path temp = dir.resolve(FILENAME + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, ResultHandler.WRITE)) {
+      ByteBuffer buffer = UTF_8.encode(GSON.toJson(checkpoint));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temp, dir.resolve(FILENAME), REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+  /* Remove any checkpoint in the supplied directory. */
+  static void delete(Path dir) throws IOException {
+    Files.deleteIfExists(dir.resolve(FILENAME));
+    Files.deleteIfExists(dir.resolve(FILENAME + ".tmp"));
+  }
+
+  /*
+   * Check that the config and sites of a resumed calculation agree with those
+   * of this checkpoint and truncate all result files in the supplied directory
+   * to their checkpointed lengths.
+   */
+  void restore(Path dir, CalcConfig config, Sites siteList) throws IOException {
+    checkState(imts.equals(config.curve.imts),
+        "Imts %s do not match those of checkpoint %s in [%s]",
+        config.curve.imts, imts, dir);
+    checkState(curveTypes.equals(config.output.curveTypes),
+        "Curve types %s do not match those of checkpoint %s in [%s]",
+        config.output.curveTypes, curveTypes, dir);
+
+    Site site = siteList.get(sites - 1);
+    checkState(site != null &&
+        site.location.lon() == lastSite[0] &&
+        site.location.lat() == lastSite[1],
+        "Sites do not match those of checkpoint in [%s]", dir);
+
+    for (Entry<String, Long> entry : files.entrySet()) {
+      Path file = dir.resolve(entry.getKey());
+      checkState(Files.exists(file), "Checkpointed result file [%s] is missing", file);
+      try (FileChannel channel = FileChannel.open(file, WRITE)) {
+        checkState(channel.size() >= entry.getValue(),
+            "Checkpointed result file [%s] is truncated", file);
+        channel.truncate(entry.getValue());
+      }
+    }
+  }
+
+  /* Paths relative to dir with '/' separators. */
+  private static String relativize(Path dir, Path file) {
+    return dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+  }
+}
@@ -0,0 +1,444 @@
+package org.opensha2.calc;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import org.opensha2.data.XySequence;
+import org.opensha2.geo.Location;
+import org.opensha2.gmm.Imt;
+
+import com.google.common.primitives.Doubles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Random-access binary store of the hazard curves at a list of sites for a
+ * single {@code Imt} and dataset (e.g. total, a {@code SourceType}, or a
+ * {@code Gmm}). Stores are written by a {@link ResultHandler} when
+ * {@link CurveType#STORE} curves are saved, alongside the corresponding text
+ * files, and may be opened for reading with {@link #open(Path)}.
+ *
+ * <p>A store file consists of a header followed by one fixed-size record per
+ * site, in site order. The header holds a marker, the format version, header
+ * and record sizes, the value {@link Precision}, the {@code Imt}, dataset name
+ * and {@link CurveValue} type, and the IMLs of the curves. Each record holds
+ * the longitude and latitude of a site, in radians, followed by the y-values
+ * of its curve. All values are little-endian. Locations are stored as radians,
+ * the internal representation of a {@link Location}, so that the location of a
+ * site read from a store is always equal to the location written. Unlike the
+ * legacy {@link CurveType#BINARY} format, there is no limit on the number of
+ * IMLs and sites need not lie on a map grid.
+ *
+ * <p>Stores are memory-mapped when opened, and the location and curve values
+ * at any site are read directly from the mapped file by site index. Site
+ * locations are indexed the first time {@link #indexOf(Location)} is called.
+ *
+ * @author Peter Powers
+ */
+public final class CurveStore {
+
+  /** The file extension of curve store files. */
+  public static final String SUFFIX = ".curves";
+
+  private static final long MARKER = 0x4e53484d50435256L; // "NSHMPCRV"
+  private static final int VERSION = 2;
+
+  /* Largest region of a file that may be mapped at once. */
+  private static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  /**
+   * The precision with which curve values are stored. Site locations are
+   * always stored as {@code double}s.
+   */
+  public enum Precision {
+
+    /** 4-byte {@code float} values. */
+    FLOAT(4),
+
+    /** 8-byte {@code double} values. */
+    DOUBLE(8);
+
+    final int bytes;
+
+    private Precision(int bytes) {
+      this.bytes = bytes;
+    }
+
+    private static Precision fromBytes(int bytes) {
+      for (Precision precision : values()) {
+        if (precision.bytes == bytes) {
+          return precision;
+        }
+      }
+      throw new IllegalStateException("Unsupported value size: " + bytes);
+    }
+  }
+
+  private final Header header;
+  private final MappedByteBuffer[] segments;
+  private final int recordsPerSegment;
+  private final int size;
+  private Map<Location, Integer> locationIndex;
+
+  private CurveStore(
+      Header header,
+      MappedByteBuffer[] segments,
+      int recordsPerSegment,
+      int size) {
+
+    this.header = header;
+    this.segments = segments;
+    this.recordsPerSegment = recordsPerSegment;
+    this.size = size;
+  }
+
+  /**
+   * Open an existing curve store. An incomplete trailing record, such as may
+   * be left by an interrupted calculation, is ignored.
+   *
+   * @param path to store file
+   * @throws IOException if a problem is encountered reading the file
+   * @throws IllegalStateException if the file is not a curve store
+   */
+  public static CurveStore open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, READ)) {
+      Header header = Header.read(channel, path);
+      long dataSize = channel.size() - header.size;
+      int size = (int) Math.min(dataSize / header.recordSize, Integer.MAX_VALUE);
+      int recordsPerSegment = MAX_SEGMENT_SIZE / header.recordSize;
+      int segmentCount = (size + recordsPerSegment - 1) / recordsPerSegment;
+      MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        long start = header.size + (long) i * recordsPerSegment * header.recordSize;
+        int records = Math.min(recordsPerSegment, size - i * recordsPerSegment);
+        segments[i] = channel.map(READ_ONLY, start, (long) records * header.recordSize);
+        segments[i].order(LITTLE_ENDIAN);
+      }
+      return new CurveStore(header, segments, recordsPerSegment, size);
+    }
+  }
+
+  /** The intensity measure type of the curves in this store. */
+  public Imt imt() {
+    return header.imt;
+  }
+
+  /**
+   * The name of the dataset in this store: {@code "total"}, or the name of a
+   * {@code SourceType} or {@code Gmm}.
+   */
+  public String dataset() {
+    return header.dataset;
+  }
+
+  /** The type of the curve values in this store. */
+  public CurveValue valueType() {
+    return header.valueType;
+  }
+
+  /** The precision of the curve values in this store. */
+  public Precision precision() {
+    return header.precision;
+  }
+
+  /** The intensity measure levels (x-values) of all curves. */
+  public List<Double> imls() {
+    return Doubles.asList(header.imls.clone());
+  }
+
+  /** The number of sites in this store. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The location of the site at {@code index}. Site depths are not stored;
+   * returned locations have zero depth.
+   *
+   * @param index of site
+   */
+  public Location location(int index) {
+    ByteBuffer segment = segment(index);
+    int offset = offset(index);
+    return Location.fromRadians(segment.getDouble(offset + 8), segment.getDouble(offset), 0.0);
+  }
+
+  /**
+   * The y-value at {@code imlIndex} of the curve of the site at {@code index}.
+   *
+   * @param index of site
+   * @param imlIndex of value
+   */
+  public double y(int index, int imlIndex) {
+    checkElementIndex(imlIndex, header.imls.length);
+    return value(segment(index), offset(index) + 16 + imlIndex * header.precision.bytes);
+  }
+
+  /**
+   * The y-values of the curve of the site at {@code index}.
+   *
+   * @param index of site
+   */
+  public double[] yValues(int index) {
+    ByteBuffer segment = segment(index);
+    int offset = offset(index) + 16;
+    double[] values = new double[header.imls.length];
+    for (int i = 0; i < values.length; i++, offset += header.precision.bytes) {
+      values[i] = value(segment, offset);
+    }
+    return values;
+  }
+
+  /**
+   * The curve of the site at {@code index}.
+   *
+   * @param index of site
+   */
+  public XySequence curve(int index) {
+    return XySequence.create(header.imls, yValues(index));
+  }
+
+  /**
+   * The index of the site at the supplied location, or {@code -1} if there is
+   * no such site. If more than one site shares a location, the index of the
+   * first is returned. The depth of the supplied location is ignored.
+   *
+   * @param location of site
+   */
+  public synchronized int indexOf(Location location) {
+    if (locationIndex == null) {
+      locationIndex = new HashMap<>();
+      for (int i = size - 1; i >= 0; i--) {
+        locationIndex.put(location(i), i);
+      }
+    }
+    Integer index = locationIndex.get(
+        Location.fromRadians(location.latRad(), location.lonRad(), 0.0));
+    return (index == null) ? -1 : index;
+  }
+
+  @Override
+  public String toString() {
+    return "CurveStore [" + header.imt + " " + header.dataset + ", " + size + " sites]";
+  }
+
+  private ByteBuffer segment(int index) {
+    checkElementIndex(index, size);
+    return segments[index / recordsPerSegment];
+  }
+
+  private int offset(int index) {
+    return (index % recordsPerSegment) * header.recordSize;
+  }
+
+  private double value(ByteBuffer segment, int offset) {
+    return (header.precision == Precision.FLOAT)
+        ? segment.getFloat(offset)
+        : segment.getDouble(offset);
+  }
+
+  /*
+   * Append the curve values at the supplied locations to a store, creating the
+   * store, or replacing any existing file, if create is true. Records are
+   * written through a mapped region at the end of the file.
+   */
+  static void append(
+      Path path,
+      boolean create,
+      Imt imt,
+      String dataset,
+      CurveValue valueType,
+      Precision precision,
+      double[] imls,
+      List<Location> locations,
+      List<double[]> values) throws IOException {
+
+    Header header = new Header(imt, dataset, valueType, precision, imls);
+    try (FileChannel channel = create
+        ? FileChannel.open(path, CREATE, TRUNCATE_EXISTING, READ, WRITE)
+        : FileChannel.open(path, READ, WRITE)) {
+
+      if (create) {
+        ByteBuffer headerBuffer = header.toBuffer();
+        while (headerBuffer.hasRemaining()) {
+          channel.write(headerBuffer);
+        }
+      } else {
+        Header existing = Header.read(channel, path);
+        checkState(existing.recordSize == header.recordSize,
+            "Curve store [%s] record size mismatch", path);
+      }
+
+      /* Map whole records only; a partial trailing record is overwritten. */
+      long end = channel.size();
+      end -= (end - header.size) % header.recordSize;
+      int recordsPerSegment = MAX_SEGMENT_SIZE / header.recordSize;
+      for (int start = 0; start < values.size(); start += recordsPerSegment) {
+        int records = Math.min(recordsPerSegment, values.size() - start);
+        MappedByteBuffer buffer = channel.map(
+            READ_WRITE,
+            end,
+            (long) records * header.recordSize);
+        buffer.order(LITTLE_ENDIAN);
+        for (int i = start; i < start + records; i++) {
+          Location location = locations.get(i);
+          buffer.putDouble(location.lonRad()).putDouble(location.latRad());
+          for (double value : values.get(i)) {
+            if (precision == Precision.FLOAT) {
+              buffer.putFloat((float) value);
+            } else {
+              buffer.putDouble(value);
+            }
+          }
+        }
+        end += (long) records * header.recordSize;
+      }
+    }
+  }
+
+  /*
+   * Append all complete records of the store at source to the store at target.
+   * Both stores must have the same record size.
+   */
+  static void appendStore(Path target, Path source) throws IOException {
+    try (FileChannel in = FileChannel.open(source, READ);
+        FileChannel out = FileChannel.open(target, READ, WRITE)) {
+
+      Header sourceHeader = Header.read(in, source);
+      Header targetHeader = Header.read(out, target);
+      checkState(sourceHeader.recordSize == targetHeader.recordSize,
+          "Curve store [%s] record size mismatch", target);
+      int recordSize = sourceHeader.recordSize;
+      long count = (in.size() - sourceHeader.size) / recordSize;
+      long end = out.size() - (out.size() - targetHeader.size) % recordSize;
+      out.truncate(end);
+      long position = sourceHeader.size;
+      long remaining = count * recordSize;
+      while (remaining > 0) {
+        long transferred = in.transferTo(position, remaining, out.position(end));
+        position += transferred;
+        end += transferred;
+        remaining -= transferred;
+      }
+    }
+  }
+
+  private static final class Header {
+
+    final Imt imt;
+    final String dataset;
+    final CurveValue valueType;
+    final Precision precision;
+    final double[] imls;
+    final int size;
+    final int recordSize;
+
+    Header(
+        Imt imt,
+        String dataset,
+        CurveValue valueType,
+        Precision precision,
+        double[] imls) {
+
+      this.imt = imt;
+      this.dataset = dataset;
+      this.valueType = valueType;
+      this.precision = precision;
+      this.imls = imls;
+      int unpadded = 8 + 4 * 5 +
+          stringSize(imt.name()) +
+          stringSize(dataset) +
+          stringSize(valueType.name()) +
+          imls.length * 8;
+      this.size = (unpadded + 7) / 8 * 8;
+      this.recordSize = 16 + imls.length * precision.bytes;
+    }
+
+    ByteBuffer toBuffer() {
+      ByteBuffer buffer = ByteBuffer.allocate(size).order(LITTLE_ENDIAN)
+          .putLong(MARKER)
+          .putInt(VERSION)
+          .putInt(size)
+          .putInt(recordSize)
+          .putInt(precision.bytes)
+          .putInt(imls.length);
+      putString(buffer, imt.name());
+      putString(buffer, dataset);
+      putString(buffer, valueType.name());
+      for (double iml : imls) {
+        buffer.putDouble(iml);
+      }
+      buffer.rewind();
+      return buffer;
+    }
+
+    static Header read(FileChannel channel, Path path) throws IOException {
+      ByteBuffer prefix = readFully(channel, 0, 8 + 4 * 2, path);
+      checkState(prefix.getLong() == MARKER, "File [%s] is not a curve store", path);
+      int version = prefix.getInt();
+      checkState(version == VERSION, "Unsupported curve store version: %s", version);
+      int size = prefix.getInt();
+
+      ByteBuffer buffer = readFully(channel, 0, size, path);
+      buffer.position(prefix.position());
+      int recordSize = buffer.getInt();
+      Precision precision = Precision.fromBytes(buffer.getInt());
+      double[] imls = new double[buffer.getInt()];
+      Imt imt = Imt.valueOf(getString(buffer));
+      String dataset = getString(buffer);
+      CurveValue valueType = CurveValue.valueOf(getString(buffer));
+      for (int i = 0; i < imls.length; i++) {
+        imls[i] = buffer.getDouble();
+      }
+      Header header = new Header(imt, dataset, valueType, precision, imls);
+      checkState(header.size == size && header.recordSize == recordSize,
+          "Curve store [%s] header is corrupt", path);
+      return header;
+    }
+
+    private static ByteBuffer readFully(
+        FileChannel channel,
+        long position,
+        int size,
+        Path path) throws IOException {
+
+      checkState(channel.size() >= position + size, "Curve store [%s] is truncated", path);
+      ByteBuffer buffer = ByteBuffer.allocate(size).order(LITTLE_ENDIAN);
+      while (buffer.hasRemaining()) {
+        channel.read(buffer, position + buffer.position());
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    private static int stringSize(String s) {
+      return 4 + s.getBytes(UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buffer, String s) {
+      byte[] bytes = s.getBytes(UTF_8);
+      buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return new String(bytes, UTF_8);
+    }
+  }
+}
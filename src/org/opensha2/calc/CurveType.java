@@ -30,6 +30,17 @@ public enum CurveType {
    * legacy fortran codes still in use. See <a
    * href="https://github.com/usgs/nshmp-haz-fortran"
    * target="_top">nshmp-haz-fortran</a>.
+   *
+   * @see #STORE
    */
-  BINARY;
+  BINARY,
+
+  /**
+   * Indexed, random-access binary hazard curves. Curves are saved alongside
+   * each of the {@link #TOTAL}, {@link #GMM}, and {@link #SOURCE} text files
+   * that are written, for any sites and number of IMLs.
+   *
+   * @see CurveStore
+   */
+  STORE;
 }
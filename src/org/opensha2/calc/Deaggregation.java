@@ -13,6 +13,11 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Multimaps;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -156,6 +161,26 @@ public final class Deaggregation {
     return sb.toString();
   }
 
+  /**
+   * A JSON representation of this deaggregation. For each {@code Imt}, the
+   * summary and distance-magnitude data of the total deaggregation and of the
+   * deaggregation of each {@code Gmm} are included.
+   */
+  public JsonElement toJson() {
+    JsonArray json = new JsonArray();
+    for (Entry<Imt, ImtDeagg> entry : deaggs.entrySet()) {
+      JsonObject imtJson = new JsonObject();
+      imtJson.addProperty("imt", entry.getKey().name());
+      imtJson.add("components", entry.getValue().toJson());
+      json.add(imtJson);
+    }
+    return json;
+  }
+
+  private static final Gson GSON = new GsonBuilder()
+      .serializeSpecialFloatingPointValues()
+      .create();
+
   /* One per Imt in supplied Hazard. */
   static class ImtDeagg {
 
@@ -231,6 +256,25 @@ public final class Deaggregation {
       }
       return sb.toString();
     }
+
+    JsonArray toJson() {
+      JsonArray json = new JsonArray();
+      json.add(exportJson(new DeaggExport(totalDataset, totalDataset, config, "Total")));
+      for (Entry<Gmm, DeaggDataset> ddEntry : gmmDatasets.entrySet()) {
+        json.add(exportJson(new DeaggExport(
+            totalDataset,
+            ddEntry.getValue(),
+            config,
+            ddEntry.getKey().toString())));
+      }
+      return json;
+    }
+
+    private static JsonObject exportJson(DeaggExport export) {
+      JsonObject json = GSON.toJsonTree(export).getAsJsonObject();
+      json.addProperty("component", export.id);
+      return json;
+    }
   }
 
 }
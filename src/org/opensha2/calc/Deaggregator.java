@@ -30,7 +30,6 @@ import com.google.common.collect.Multimaps;
 import com.google.common.primitives.Ints;
 
 import java.math.RoundingMode;
-import java.util.BitSet;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Iterator;
@@ -189,8 +188,6 @@ final class Deaggregator {
     /* Local references from argument. */
     InputList inputs = gms.inputs;
     Map<Gmm, Double> gmms = gmmSet.gmmWeightMap(gms.inputs.minDistance);
-    Map<Gmm, List<Double>> μLists = gms.μLists.get(imt);
-    Map<Gmm, List<Double>> σLists = gms.σLists.get(imt);
 
     /* Local EnumSet based keys; gmms.keySet() is not an EnumSet. */
     final Set<Gmm> gmmKeys = EnumSet.copyOf(gmms.keySet());
@@ -216,8 +213,8 @@ final class Deaggregator {
 
         double gmmWeight = gmms.get(gmm);
 
-        double μ = μLists.get(gmm).get(i);
-        double σ = σLists.get(gmm).get(i);
+        double μ = gms.mean(imt, gmm, i);
+        double σ = gms.sigma(imt, gmm, i);
         double ε = epsilon(μ, σ, iml);
 
         double probAtIml = probModel.exceedance(μ, σ, trunc, imt, iml);
@@ -308,15 +305,13 @@ final class Deaggregator {
 
     /*
      * Subsequent to deaggregation we no longer need references to the source
-     * bitsets so we drain it in place rather than making a copy.
+     * indices so we drain it in place rather than making a copy.
      */
 
     GroundMotions gms = curves.hazardGroundMotionsList.get(0);
     SystemInputList inputs = (SystemInputList) gms.inputs;
-    List<BitSet> bitsets = inputs.bitsets;
+    List<Integer> systemIndices = inputs.sourceIndices;
     Map<Gmm, Double> gmms = gmmSet.gmmWeightMap(gms.inputs.minDistance);
-    Map<Gmm, List<Double>> μLists = gms.μLists.get(imt);
-    Map<Gmm, List<Double>> σLists = gms.σLists.get(imt);
 
     /* Local EnumSet based keys; gmms.keySet() is not an EnumSet. */
     final Set<Gmm> gmmKeys = EnumSet.copyOf(gmms.keySet());
@@ -332,7 +327,7 @@ final class Deaggregator {
         0.1).build();
     IntervalArray.Builder mfdIndexer = IntervalArray.Builder.fromModel(mfdModel);
 
-    List<Integer> sourceIndices = new LinkedList<>(Ints.asList(Data.indices(bitsets.size())));
+    List<Integer> sourceIndices = new LinkedList<>(Ints.asList(Data.indices(systemIndices.size())));
 
     for (int sectionIndex : inputs.sectionIndices) {
 
@@ -367,7 +362,7 @@ final class Deaggregator {
         int sourceIndex = iter.next();
 
         /* Source includes section. */
-        if (bitsets.get(sourceIndex).get(sectionIndex)) {
+        if (systemSources.sourceIncludesSection(systemIndices.get(sourceIndex), sectionIndex)) {
 
           HazardInput in = inputs.get(sourceIndex);
           double rRup = in.rRup;
@@ -388,8 +383,8 @@ final class Deaggregator {
 
             double gmmWeight = gmms.get(gmm);
 
-            double μ = μLists.get(gmm).get(sourceIndex);
-            double σ = σLists.get(gmm).get(sourceIndex);
+            double μ = gms.mean(imt, gmm, sourceIndex);
+            double σ = gms.sigma(imt, gmm, sourceIndex);
             double ε = epsilon(μ, σ, iml);
 
             double probAtIml = probModel.exceedance(μ, σ, trunc, imt, iml);
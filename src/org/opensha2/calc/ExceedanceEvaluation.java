@@ -0,0 +1,157 @@
+package org.opensha2.calc;
+
+import static java.lang.Math.exp;
+import static java.lang.Math.sqrt;
+
+import static org.opensha2.calc.ExceedanceModel.A1;
+import static org.opensha2.calc.ExceedanceModel.A2;
+import static org.opensha2.calc.ExceedanceModel.A3;
+import static org.opensha2.calc.ExceedanceModel.A4;
+import static org.opensha2.calc.ExceedanceModel.A5;
+import static org.opensha2.calc.ExceedanceModel.P;
+
+/**
+ * The method used to evaluate the standard normal complementary cumulative
+ * distribution function, Φc(ε), when computing hazard curves with a truncated
+ * or untruncated {@link ExceedanceModel}.
+ *
+ * <p>By default, Φc(ε) is computed directly using the Abramowitz and Stegun
+ * 7.1.26 approximation of the Gauss error function, which requires a call to
+ * {@code exp()} for every ground motion and intensity measure level. The table
+ * based modes instead look up Φc(ε) in a precomputed table of Abramowitz and
+ * Stegun values spanning −8 ≤ ε ≤ 8 at an interval of Δε = 1/1024. Outside
+ * this range the value at the nearest end of the table is used; the absolute
+ * difference from the direct evaluation there is less than 1e-15.
+ *
+ * <p>Table based modes trade a small, bounded loss of accuracy for speed. The
+ * maximum absolute differences between table-based and direct evaluation of
+ * Φc(ε) over the full range of ε are:
+ *
+ * <ul><li>{@link #TABLE_LINEAR}: 2.9e-8, consistent with the theoretical bound
+ * of Δε²/8 · max|φ′(ε)|.</li>
+ *
+ * <li>{@link #TABLE_CUBIC}: 1.0e-9, which only occurs in the interval adjacent
+ * to ε = 0 where the Abramowitz and Stegun approximation has a small
+ * discontinuity. Elsewhere differences are less than 1e-14.</li></ul>
+ *
+ * <p>For comparison, the Abramowitz and Stegun approximation itself has a
+ * maximum absolute error of 1.5e-7 with respect to the true error function.
+ * Table-based modes are only used when computing hazard curves;
+ * deaggregation and other single value exceedance calculations always use
+ * direct evaluation.
+ *
+ * @author Peter Powers
+ * @see ExceedanceModel
+ */
+public enum ExceedanceEvaluation {
+
+  /**
+   * Direct evaluation using the Abramowitz and Stegun approximation of the
+   * error function.
+   */
+  ERF {
+    @Override
+    double ccd(double ε) {
+      return (1.0 + ExceedanceModel.erf(-ε / SQRT_2)) * 0.5;
+    }
+  },
+
+  /**
+   * Linear interpolation of a precomputed table.
+   */
+  TABLE_LINEAR {
+    @Override
+    double ccd(double ε) {
+      double x = (ε - Table.MIN) * Table.SCALE;
+      if (x <= 0.0) {
+        return Table.VALUES[0];
+      }
+      if (x >= Table.LAST) {
+        return Table.VALUES[Table.LAST];
+      }
+      int i = (int) x;
+      double f = x - i;
+      double y0 = Table.VALUES[i];
+      return y0 + f * (Table.VALUES[i + 1] - y0);
+    }
+  },
+
+  /**
+   * Cubic Hermite interpolation of a precomputed table of values and
+   * derivatives.
+   */
+  TABLE_CUBIC {
+    @Override
+    double ccd(double ε) {
+      double x = (ε - Table.MIN) * Table.SCALE;
+      if (x <= 0.0) {
+        return Table.VALUES[0];
+      }
+      if (x >= Table.LAST) {
+        return Table.VALUES[Table.LAST];
+      }
+      int i = (int) x;
+      double f = x - i;
+      double f2 = f * f;
+      double f3 = f2 * f;
+      return (2.0 * f3 - 3.0 * f2 + 1.0) * Table.VALUES[i] +
+          (f3 - 2.0 * f2 + f) * Table.SLOPES[i] +
+          (3.0 * f2 - 2.0 * f3) * Table.VALUES[i + 1] +
+          (f3 - f2) * Table.SLOPES[i + 1];
+    }
+  };
+
+  /**
+   * Compute the probability of exceeding ε in a standard normal distribution.
+   *
+   * @param ε the number of standard deviations from the mean
+   */
+  abstract double ccd(double ε);
+
+  private static final double SQRT_2 = sqrt(2);
+
+  /*
+   * Lazily initialized lookup table. VALUES holds Φc(ε) and SLOPES holds
+   * dΦc/dε scaled by the table interval, both derived from the Abramowitz and
+   * Stegun approximation so that interpolation reproduces direct evaluation.
+   */
+  private static final class Table {
+
+    static final double MIN = -8.0;
+    static final double MAX = 8.0;
+    static final double SCALE = 1024.0;
+    static final int LAST = (int) ((MAX - MIN) * SCALE);
+
+    static final double[] VALUES = new double[LAST + 1];
+    static final double[] SLOPES = new double[LAST + 1];
+
+    static {
+      for (int i = 0; i <= LAST; i++) {
+        double ε = MIN + i / SCALE;
+        VALUES[i] = ERF.ccd(ε);
+        SLOPES[i] = -erfDerivative(-ε / SQRT_2) / (2.0 * SQRT_2) / SCALE;
+      }
+    }
+
+    /*
+     * Derivative of the Abramowitz and Stegun erf(x) approximation. Because
+     * erf(x) is odd, its derivative is even.
+     */
+    private static double erfDerivative(double x) {
+      x = Math.abs(x);
+      double t = 1 / (1 + P * x);
+      double s = A1 * t +
+          A2 * t * t +
+          A3 * t * t * t +
+          A4 * t * t * t * t +
+          A5 * t * t * t * t * t;
+      double ds = A1 +
+          2 * A2 * t +
+          3 * A3 * t * t +
+          4 * A4 * t * t * t +
+          5 * A5 * t * t * t * t;
+      return (P * t * t * ds + 2 * x * s) * exp(-x * x);
+    }
+  }
+
+}
@@ -28,6 +28,9 @@ import java.util.List;
  *
  * <p>Internally, models use a high precision approximation of the Gauss error
  * function (see Abramowitz and Stegun 7.1.26) when computing exceedances.
+ * When computing hazard curves, table-based evaluation of the complementary
+ * cumulative normal distribution may be used instead; see
+ * {@link ExceedanceEvaluation}.
  *
  * @author Peter Powers
  */
@@ -76,6 +79,12 @@ public enum ExceedanceModel {
     XySequence exceedance(double μ, double σ, double n, Imt imt, XySequence sequence) {
       return boundedCcdFn(μ, σ, sequence, 0.0, 1.0);
     }
+
+    @Override
+    void exceedance(double μ, double σ, double n, Imt imt, double rate, double[] xs,
+        double[] ys, ExceedanceEvaluation evaluation) {
+      boundedCcdFn(μ, σ, 0.0, 1.0, rate, xs, ys, evaluation);
+    }
   },
 
   /**
@@ -93,6 +102,12 @@ public enum ExceedanceModel {
     XySequence exceedance(double μ, double σ, double n, Imt imt, XySequence sequence) {
       return boundedCcdFn(μ, σ, sequence, prob(μ, σ, n), 1.0);
     }
+
+    @Override
+    void exceedance(double μ, double σ, double n, Imt imt, double rate, double[] xs,
+        double[] ys, ExceedanceEvaluation evaluation) {
+      boundedCcdFn(μ, σ, prob(μ, σ, n), 1.0, rate, xs, ys, evaluation);
+    }
   },
 
   /**
@@ -112,6 +127,13 @@ public enum ExceedanceModel {
       double pHi = prob(μ, σ, n);
       return boundedCcdFn(μ, σ, sequence, pHi, 1.0 - pHi);
     }
+
+    @Override
+    void exceedance(double μ, double σ, double n, Imt imt, double rate, double[] xs,
+        double[] ys, ExceedanceEvaluation evaluation) {
+      double pHi = prob(μ, σ, n);
+      boundedCcdFn(μ, σ, pHi, 1.0 - pHi, rate, xs, ys, evaluation);
+    }
   },
 
   /*
@@ -129,6 +151,12 @@ public enum ExceedanceModel {
     XySequence exceedance(double μ, double σ, double n, Imt imt, XySequence sequence) {
       return boundedCcdFn(μ, 0.65, sequence, 0.0, 1.0);
     }
+
+    @Override
+    void exceedance(double μ, double σ, double n, Imt imt, double rate, double[] xs,
+        double[] ys, ExceedanceEvaluation evaluation) {
+      boundedCcdFn(μ, 0.65, 0.0, 1.0, rate, xs, ys, evaluation);
+    }
   },
 
   /**
@@ -177,6 +205,13 @@ public enum ExceedanceModel {
       return boundedCcdFn(μ, σ, sequence, pHi, 1.0);
     }
 
+    @Override
+    void exceedance(double μ, double σ, double n, Imt imt, double rate, double[] xs,
+        double[] ys, ExceedanceEvaluation evaluation) {
+      double pHi = prob(μ, σ, n, log(maxValue(imt)));
+      boundedCcdFn(μ, σ, pHi, 1.0, rate, xs, ys, evaluation);
+    }
+
     private double maxValue(Imt imt) {
       /*
        * Clamping/limiting is turned off at and above 0.75 sec.
@@ -223,6 +258,35 @@ public enum ExceedanceModel {
    */
   abstract XySequence exceedance(double μ, double σ, double n, Imt imt, XySequence sequence);
 
+  /**
+   * Compute the probability of exceeding each of the supplied x-values, scale
+   * each probability by {@code rate}, and add the result to the corresponding
+   * element of {@code ys}. This is the primary hazard curve kernel; it
+   * allocates nothing and combines the work of
+   * {@link #exceedance(double, double, double, Imt, XySequence)},
+   * {@link XySequence#multiply(double)}, and {@link XySequence#add(XySequence)}
+   * in a single pass. Results are identical to those of the three separate
+   * operations.
+   *
+   * @param μ mean
+   * @param σ standard deviation
+   * @param n truncation level in units of {@code σ} (truncation = n * σ)
+   * @param imt intenisty measure type (only used by
+   *        {@link #NSHM_CEUS_MAX_INTENSITY}
+   * @param rate by which to scale exceedance probabilities
+   * @param xs the x-values of which to compute exceedance for
+   * @param ys the values to which rate-scaled probabilities are added; must be
+   *        the same size as {@code xs}
+   * @param evaluation the method used to evaluate the complementary cumulative
+   *        normal distribution; ignored by models that do not use it
+   */
+  void exceedance(double μ, double σ, double n, Imt imt, double rate, double[] xs, double[] ys,
+      ExceedanceEvaluation evaluation) {
+    for (int i = 0; i < xs.length; i++) {
+      ys[i] += exceedance(μ, σ, n, imt, xs[i]) * rate;
+    }
+  }
+
   private static final double SQRT_2 = sqrt(2);
   private static final double SQRT_2PI = sqrt(2 * PI);
 
@@ -268,6 +332,39 @@ public enum ExceedanceModel {
     return sequence;
   }
 
+  /*
+   * Fused, rate-scaled, bounded complementary cumulative distribution. Compute
+   * the probabilities that the x-values in {@code xs} will be exceeded, subject
+   * to upper and lower probability limits, and add the rate-scaled results to
+   * {@code ys}.
+   *
+   * The loop body is branch-light, operates only on local primitives and the
+   * supplied arrays, and calls erf inline so that the JIT can unroll and, where
+   * possible, vectorize it. When using ERF evaluation, the order of floating
+   * point operations matches that of boundedCcdFn(double, double, double,
+   * double, double) followed by separate multiply and add steps.
+   */
+  private static void boundedCcdFn(double μ, double σ, double pHi, double pLo, double rate,
+      double[] xs, double[] ys, ExceedanceEvaluation evaluation) {
+    double pRange = pLo - pHi;
+    if (evaluation != ExceedanceEvaluation.ERF) {
+      for (int i = 0; i < xs.length; i++) {
+        double p = (evaluation.ccd((xs[i] - μ) / σ) - pHi) / pRange;
+        p = (p < 0.0) ? 0.0 : (p > 1.0) ? 1.0 : p;
+        ys[i] += p * rate;
+      }
+      return;
+    }
+    double σSqrt2 = σ * SQRT_2;
+    for (int i = 0; i < xs.length; i++) {
+      double z = (μ - xs[i]) / σSqrt2;
+      double erf = z < 0.0 ? -erfBase(-z) : erfBase(z);
+      double p = ((1.0 + erf) * 0.5 - pHi) / pRange;
+      p = (p < 0.0) ? 0.0 : (p > 1.0) ? 1.0 : p;
+      ys[i] += p * rate;
+    }
+  }
+
   /*
    * TODO does this exist due to double precission errors possibly pushing
    * probabilities above 1 or below 0 ?? Run a test sometime to determine if P
@@ -295,16 +392,16 @@ public enum ExceedanceModel {
    * Abramowitz and Stegun 7.1.26 implementation. This erf(x) approximation is
    * valid for x ≥ 0. Because erf(x) is an odd function, erf(x) = −erf(−x).
    */
-  private static double erf(double x) {
+  static double erf(double x) {
     return x < 0.0 ? -erfBase(-x) : erfBase(x);
   }
 
-  private static final double P = 0.3275911;
-  private static final double A1 = 0.254829592;
-  private static final double A2 = -0.284496736;
-  private static final double A3 = 1.421413741;
-  private static final double A4 = -1.453152027;
-  private static final double A5 = 1.061405429;
+  static final double P = 0.3275911;
+  static final double A1 = 0.254829592;
+  static final double A2 = -0.284496736;
+  static final double A3 = 1.421413741;
+  static final double A4 = -1.453152027;
+  static final double A5 = 1.061405429;
 
   private static double erfBase(double x) {
     double t = 1 / (1 + P * x);
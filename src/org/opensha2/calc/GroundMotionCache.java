@@ -0,0 +1,181 @@
+package org.opensha2.calc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.opensha2.eq.model.Source;
+import org.opensha2.eq.model.SourceSet;
+import org.opensha2.gmm.GmmInput;
+
+import com.google.common.base.Optional;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Memoized ground motion model results for a single {@code SourceSet} at a
+ * single {@code Site}.
+ *
+ * <p>Many {@code HazardInput}s differ only in rate; for example, point source
+ * depth and focal mechanism variants, grid source table rows, and floating
+ * ruptures with identical magnitude and geometry. A cache stores the means and
+ * sigmas computed for every {@code Imt} and {@code Gmm} pair of a source set
+ * keyed on the {@link GmmInput} field values, with source-to-site distances
+ * optionally rounded to a configured interval.
+ *
+ * <p>Lookups do not block and the cache may be shared by concurrent
+ * calculations. The number of entries is bounded; once full, new results are
+ * no longer stored but existing entries continue to be used. Because a cache
+ * is scoped to one source set at one site, it is discarded when calculations
+ * for that site are complete.
+ *
+ * @author Peter Powers
+ * @see CalcConfig.Performance#gmmCacheSize
+ * @see CalcConfig.Performance#gmmCacheQuantum
+ */
+final class GroundMotionCache {
+
+  private static final Logger LOG = Logger.getLogger(GroundMotionCache.class.getName());
+
+  private final SourceSet<? extends Source> sources;
+  private final int capacity;
+  private final double quantum;
+
+  private final ConcurrentMap<Key, double[]> values;
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private GroundMotionCache(
+      SourceSet<? extends Source> sources,
+      int capacity,
+      double quantum) {
+
+    this.sources = sources;
+    this.capacity = capacity;
+    this.quantum = quantum;
+    this.values = new ConcurrentHashMap<>();
+  }
+
+  /*
+   * Create a cache for the supplied source set if memoization is enabled in
+   * the supplied config.
+   */
+  static Optional<GroundMotionCache> create(
+      SourceSet<? extends Source> sources,
+      CalcConfig config) {
+
+    int capacity = config.performance.gmmCacheSize;
+    double quantum = config.performance.gmmCacheQuantum;
+    checkArgument(capacity >= 0, "Invalid GMM cache size: %s", capacity);
+    checkArgument(quantum >= 0.0, "Invalid GMM cache quantum: %s", quantum);
+    return (capacity == 0)
+        ? Optional.<GroundMotionCache> absent()
+        : Optional.of(new GroundMotionCache(sources, capacity, quantum));
+  }
+
+  /*
+   * Return the means and sigmas previously stored for the supplied key, or
+   * null if no such values exist.
+   */
+  double[] get(Key key) {
+    double[] result = values.get(key);
+    if (result == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return result;
+  }
+
+  /*
+   * Store means and sigmas for the supplied key if capacity permits. Under
+   * contention the capacity may be exceeded by at most the number of
+   * concurrent writers.
+   */
+  void put(Key key, double[] result) {
+    if (size.get() < capacity && values.putIfAbsent(key, result) == null) {
+      size.incrementAndGet();
+    }
+  }
+
+  /*
+   * Create a key for the supplied input. Only source-to-site distances are
+   * quantized; all other fields must be identical.
+   */
+  Key key(GmmInput in) {
+    double[] fields = {
+        in.Mw,
+        quantize(in.rJB),
+        quantize(in.rRup),
+        quantize(in.rX),
+        in.dip,
+        in.width,
+        in.zTop,
+        in.zHyp,
+        in.rake,
+        in.vs30,
+        in.vsInf ? 1.0 : 0.0,
+        in.z1p0,
+        in.z2p5 };
+    return new Key(fields);
+  }
+
+  private double quantize(double distance) {
+    return (quantum > 0.0) ? Math.rint(distance / quantum) : distance;
+  }
+
+  /* Log hit and miss statistics for this cache. */
+  void logStatistics() {
+    if (!LOG.isLoggable(Level.FINE)) {
+      return;
+    }
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    LOG.fine(String.format(
+        "GMM cache [%s: %s]: %s hits, %s lookups (%.1f%%), %s entries",
+        sources.type(),
+        sources.name(),
+        hitCount,
+        total,
+        (total == 0) ? 0.0 : 100.0 * hitCount / total,
+        size.get()));
+  }
+
+  /*
+   * Immutable cache key; stores GmmInput field values, with distances
+   * possibly rounded to integral multiples of the cache quantum. NaN values,
+   * such as unspecified basin depths, are considered equal.
+   */
+  static final class Key {
+
+    private final double[] fields;
+    private final int hash;
+
+    private Key(double[] fields) {
+      this.fields = fields;
+      this.hash = Arrays.hashCode(fields);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return hash == that.hash && Arrays.equals(fields, that.fields);
+    }
+  }
+}
@@ -6,14 +6,11 @@ import static com.google.common.base.StandardSystemProperty.LINE_SEPARATOR;
 
 import org.opensha2.gmm.Gmm;
 import org.opensha2.gmm.Imt;
-import org.opensha2.gmm.ScalarGroundMotion;
 
-import com.google.common.collect.Maps;
-import com.google.common.primitives.Doubles;
+import com.google.common.collect.Sets;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 /**
@@ -25,25 +22,74 @@ import java.util.Set;
 final class GroundMotions {
 
   /*
-   * NOTE the inputList supplied to Builder is immutable but the mean and sigma
-   * lists it builds are not; builder backs mean and sigma lists with double[].
-   * Nor are the mean and sigma maps immutable.
+   * Means and sigmas are stored in flat, primitive arrays laid out
+   * [imt][gmm][input] such that the values for all inputs of a particular Imt
+   * and Gmm are contiguous. Imt and Gmm indices are resolved via lookup arrays
+   * keyed on enum ordinal; use offset(Imt, Gmm) to obtain the starting index
+   * of a block of input values and mean(int) or sigma(int) to read values
+   * without boxing or map lookups in tight loops.
    *
-   * TODO It would be nice to have an immutable variant of a double[] backed
-   * list, but would require copying values on build().
+   * NOTE the inputList supplied to Builder is immutable but the backing mean
+   * and sigma arrays are not; they are not exposed outside this class.
    */
 
   final InputList inputs;
-  final Map<Imt, Map<Gmm, List<Double>>> μLists;
-  final Map<Imt, Map<Gmm, List<Double>>> σLists;
+  final Set<Imt> imts;
+  final Set<Gmm> gmms;
+
+  private final int[] imtIndices;
+  private final int[] gmmIndices;
+  private final int gmmCount;
+  private final int inputCount;
+  private final double[] μ;
+  private final double[] σ;
 
   private GroundMotions(
       InputList inputs,
-      Map<Imt, Map<Gmm, List<Double>>> μLists,
-      Map<Imt, Map<Gmm, List<Double>>> σLists) {
+      Set<Imt> imts,
+      Set<Gmm> gmms,
+      int[] imtIndices,
+      int[] gmmIndices,
+      double[] μ,
+      double[] σ) {
+
     this.inputs = inputs;
-    this.μLists = μLists;
-    this.σLists = σLists;
+    this.imts = imts;
+    this.gmms = gmms;
+    this.imtIndices = imtIndices;
+    this.gmmIndices = gmmIndices;
+    this.gmmCount = gmms.size();
+    this.inputCount = inputs.size();
+    this.μ = μ;
+    this.σ = σ;
+  }
+
+  /*
+   * The index of the first input value for the supplied Imt and Gmm. Values for
+   * all inputs of an Imt-Gmm pair occupy [offset, offset + inputs.size()).
+   */
+  int offset(Imt imt, Gmm gmm) {
+    return (imtIndices[imt.ordinal()] * gmmCount + gmmIndices[gmm.ordinal()]) * inputCount;
+  }
+
+  /* The mean at a flat index derived from offset(Imt, Gmm). */
+  double mean(int index) {
+    return μ[index];
+  }
+
+  /* The sigma at a flat index derived from offset(Imt, Gmm). */
+  double sigma(int index) {
+    return σ[index];
+  }
+
+  /* The mean for the supplied Imt, Gmm, and input index. */
+  double mean(Imt imt, Gmm gmm, int inputIndex) {
+    return μ[offset(imt, gmm) + inputIndex];
+  }
+
+  /* The sigma for the supplied Imt, Gmm, and input index. */
+  double sigma(Imt imt, Gmm gmm, int inputIndex) {
+    return σ[offset(imt, gmm) + inputIndex];
   }
 
   @Override
@@ -54,14 +100,12 @@ final class GroundMotions {
     for (int i = 0; i < inputs.size(); i++) {
       sb.append(inputs.get(i));
       sb.append(" ");
-      for (Entry<Imt, Map<Gmm, List<Double>>> imtEntry : μLists.entrySet()) {
-        Imt imt = imtEntry.getKey();
+      for (Imt imt : imts) {
         sb.append(imt.name()).append(" [");
-        for (Entry<Gmm, List<Double>> gmmEntry : imtEntry.getValue().entrySet()) {
-          Gmm gmm = gmmEntry.getKey();
+        for (Gmm gmm : gmms) {
           sb.append(gmm.name()).append(" ");
-          sb.append(String.format("μ=%.3f", gmmEntry.getValue().get(i))).append(" ");
-          sb.append(String.format("σ=%.3f", σLists.get(imt).get(gmm).get(i))).append(" ");
+          sb.append(String.format("μ=%.3f", mean(imt, gmm, i))).append(" ");
+          sb.append(String.format("σ=%.3f", sigma(imt, gmm, i))).append(" ");
         }
         sb.append("] ");
       }
@@ -81,10 +125,8 @@ final class GroundMotions {
    * against the combined result.
    */
   static GroundMotions combine(InputList inputs, List<GroundMotions> groundMotions) {
-    Map<Imt, Map<Gmm, List<Double>>> keyModel = groundMotions.get(0).μLists;
-    Set<Imt> imtKeys = keyModel.keySet();
-    Set<Gmm> gmmKeys = keyModel.get(imtKeys.iterator().next()).keySet();
-    return builder(inputs, imtKeys, gmmKeys)
+    GroundMotions model = groundMotions.get(0);
+    return builder(inputs, model.imts, model.gmms)
         .combine(groundMotions)
         .build();
   }
@@ -97,48 +139,61 @@ final class GroundMotions {
     private int addCount = 0;
 
     private final InputList inputs;
-    private final Map<Imt, Map<Gmm, List<Double>>> means;
-    private final Map<Imt, Map<Gmm, List<Double>>> sigmas;
+    private final Set<Imt> imts;
+    private final Set<Gmm> gmms;
+    private final int[] imtIndices;
+    private final int[] gmmIndices;
+    private final int gmmCount;
+    private final int inputCount;
+    private final double[] means;
+    private final double[] sigmas;
 
     private Builder(InputList inputs, Set<Imt> imts, Set<Gmm> gmms) {
       checkArgument(inputs.size() > 0);
       checkArgument(gmms.size() > 0);
       this.inputs = inputs;
-      means = initValueMaps(imts, gmms, inputs.size());
-      sigmas = initValueMaps(imts, gmms, inputs.size());
+      this.imts = Sets.immutableEnumSet(imts);
+      this.gmms = Sets.immutableEnumSet(gmms);
+      this.imtIndices = indexOrdinals(this.imts, Imt.values().length);
+      this.gmmIndices = indexOrdinals(this.gmms, Gmm.values().length);
+      this.gmmCount = gmms.size();
+      this.inputCount = inputs.size();
       size = imts.size() * gmms.size() * inputs.size();
+      means = new double[size];
+      sigmas = new double[size];
+    }
+
+    private int offset(Imt imt, Gmm gmm) {
+      return (imtIndices[imt.ordinal()] * gmmCount + gmmIndices[gmm.ordinal()]) * inputCount;
     }
 
-    // TODO refactor to set()
-    Builder add(Imt imt, Gmm gmm, ScalarGroundMotion sgm, int index) {
+    Builder set(Imt imt, Gmm gmm, int index, double mean, double sigma) {
       checkState(addCount < size, "This %s instance is already full", ID);
-      means.get(imt).get(gmm).set(index, sgm.mean());
-      sigmas.get(imt).get(gmm).set(index, sgm.sigma());
+      int flatIndex = offset(imt, gmm) + index;
+      means[flatIndex] = mean;
+      sigmas[flatIndex] = sigma;
       addCount++;
       return this;
     }
 
+    /*
+     * Set the means and sigmas for all inputs of an Imt-Gmm pair. The supplied
+     * arrays must contain at least inputs.size() values.
+     */
+    Builder set(Imt imt, Gmm gmm, double[] means, double[] sigmas) {
+      checkState(addCount + inputCount <= size, "This %s instance is already full", ID);
+      int offset = offset(imt, gmm);
+      System.arraycopy(means, 0, this.means, offset, inputCount);
+      System.arraycopy(sigmas, 0, this.sigmas, offset, inputCount);
+      addCount += inputCount;
+      return this;
+    }
+
     GroundMotions build() {
       checkState(!built, "This %s instance has already been used", ID);
       checkState(addCount == size, "Only %s of %s entries have been added", addCount, size);
       built = true;
-      return new GroundMotions(inputs, means, sigmas);
-    }
-
-    static Map<Imt, Map<Gmm, List<Double>>> initValueMaps(
-        Set<Imt> imts,
-        Set<Gmm> gmms,
-        int size) {
-
-      Map<Imt, Map<Gmm, List<Double>>> imtMap = Maps.newEnumMap(Imt.class);
-      for (Imt imt : imts) {
-        Map<Gmm, List<Double>> gmmMap = Maps.newEnumMap(Gmm.class);
-        for (Gmm gmm : gmms) {
-          gmmMap.put(gmm, Doubles.asList(new double[size]));
-        }
-        imtMap.put(imt, gmmMap);
-      }
-      return imtMap;
+      return new GroundMotions(inputs, imts, gmms, imtIndices, gmmIndices, means, sigmas);
     }
 
     /*
@@ -149,41 +204,29 @@ final class GroundMotions {
     private Builder combine(List<GroundMotions> groundMotions) {
       int startIndex = 0;
       for (GroundMotions gm : groundMotions) {
-        addCount += setValues(means, gm.μLists, sigmas, gm.σLists, startIndex);
-        startIndex += gm.inputs.size();
+        int count = gm.inputs.size();
+        for (Imt imt : imts) {
+          for (Gmm gmm : gmms) {
+            int source = gm.offset(imt, gmm);
+            int target = offset(imt, gmm) + startIndex;
+            System.arraycopy(gm.μ, source, means, target, count);
+            System.arraycopy(gm.σ, source, sigmas, target, count);
+            addCount += count;
+          }
+        }
+        startIndex += count;
       }
       return this;
     }
 
-    private static int setValues(
-        Map<Imt, Map<Gmm, List<Double>>> μTargetMap,
-        Map<Imt, Map<Gmm, List<Double>>> μValueMap,
-        Map<Imt, Map<Gmm, List<Double>>> σTargetMap,
-        Map<Imt, Map<Gmm, List<Double>>> σValueMap,
-        int startIndex) {
-
-      int setCount = 0;
-      for (Entry<Imt, Map<Gmm, List<Double>>> imtEntry : μTargetMap.entrySet()) {
-        Imt imt = imtEntry.getKey();
-        for (Entry<Gmm, List<Double>> gmmEntry : imtEntry.getValue().entrySet()) {
-          Gmm gmm = gmmEntry.getKey();
-
-          List<Double> μTarget = gmmEntry.getValue();
-          List<Double> μValues = μValueMap.get(imt).get(gmm);
-          List<Double> σTarget = σTargetMap.get(imt).get(gmm);
-          List<Double> σValues = σValueMap.get(imt).get(gmm);
-
-          setCount += μValues.size();
-
-          for (int i = 0; i < μValues.size(); i++) {
-            int targetIndex = startIndex + i;
-            μTarget.set(targetIndex, μValues.get(i));
-            σTarget.set(targetIndex, σValues.get(i));
-          }
-        }
+    private static <E extends Enum<E>> int[] indexOrdinals(Set<E> keys, int size) {
+      int[] indices = new int[size];
+      Arrays.fill(indices, -1);
+      int index = 0;
+      for (E key : keys) {
+        indices[key.ordinal()] = index++;
       }
-      return setCount;
+      return indices;
     }
-
   }
 }
@@ -96,6 +96,13 @@ public final class Hazard {
     return totalCurves;
   }
 
+  /**
+   * The site at which this result was calculated.
+   */
+  public Site site() {
+    return site;
+  }
+
   /**
    * The original configuration used to generate this result.
    */
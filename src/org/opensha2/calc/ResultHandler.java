@@ -6,6 +6,7 @@ import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 
 import static org.opensha2.data.XySequence.emptyCopyOf;
+import static org.opensha2.internal.TextUtils.NEWLINE;
 
 import org.opensha2.calc.Deaggregation.ImtDeagg;
 import org.opensha2.data.XySequence;
@@ -16,37 +17,51 @@ import org.opensha2.geo.Bounds;
 import org.opensha2.geo.Location;
 import org.opensha2.gmm.Gmm;
 import org.opensha2.gmm.Imt;
+import org.opensha2.internal.FixedFormat;
 import org.opensha2.internal.Parsing;
 import org.opensha2.internal.Parsing.Delimiter;
+import org.opensha2.internal.ScientificFormat;
 import org.opensha2.mfd.Mfds;
 
 import com.google.common.base.Function;
-import com.google.common.base.Functions;
 import com.google.common.base.Optional;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Doubles;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 /**
@@ -60,7 +75,9 @@ public final class ResultHandler {
   private static final String GMM_DIR = "gmm";
   private static final String BINARY_SUFFIX = ".bin";
   private static final String TEXT_SUFFIX = ".csv";
-  private static final String RATE_FMT = "%.8e";
+  private static final ScientificFormat RATE_FORMAT = ScientificFormat.create(8); // %.8e
+  private static final FixedFormat LOCATION_FORMAT = FixedFormat.create(5); // %.5f
+  private static final int WRITE_CHUNK_SIZE = 8192;
 
   static final OpenOption[] WRITE = new OpenOption[] {
       StandardOpenOption.CREATE,
@@ -76,6 +93,7 @@ public final class ResultHandler {
   private final boolean exportGmm;
   private final boolean exportSource;
   private final boolean exportBinary;
+  private final boolean exportStore;
 
   private final Stopwatch batchWatch;
   private final Stopwatch totalWatch;
@@ -83,11 +101,33 @@ public final class ResultHandler {
   private int resultCount = 0;
 
   private final boolean namedSites;
-  private boolean firstBatch = true;
+  private final boolean checkpoints;
+  private final int resumeIndex;
+  private boolean firstBatch; // writer thread only
   private boolean used = false;
 
-  private final List<Hazard> hazards;
-  private final List<Deaggregation> deaggs;
+  /* Sites written and files appended to, for checkpoints; writer thread only */
+  private int sitesWritten;
+  private final Set<Path> resultFiles;
+
+  /*
+   * Results are collected in one pair of lists while the previous batch, held
+   * in the spare pair, is written by a background writer. A single permit
+   * ensures that at most one batch is being written at a time; adding results
+   * blocks only if a batch fills before the previous batch has been written.
+   */
+  private List<Hazard> hazards;
+  private List<Deaggregation> deaggs;
+  private List<Hazard> spareHazards;
+  private List<Deaggregation> spareDeaggs;
+  private final ExecutorService writer;
+  private final Semaphore writePermit;
+  private final AtomicReference<Throwable> writeFailure;
+
+  /* Out-of-order results awaiting their predecessors; see add(int, ...) */
+  private final Map<Integer, Hazard> pendingHazards;
+  private final Map<Integer, Deaggregation> pendingDeaggs;
+  private int nextIndex;
 
   /*
    * Currently used when intializing binary files; the only variation in
@@ -97,17 +137,50 @@ public final class ResultHandler {
   private final Metadata.Builder metaBuilder;
   private final Metadata metaDefault;
 
-  private ResultHandler(CalcConfig config, Sites sites, Logger log) {
+  private ResultHandler(CalcConfig config, Sites sites, Logger log) throws IOException {
     this.log = log;
-    this.dir = createOutputDir(config.output.directory);
     this.config = config;
+
+    this.checkpoints = config.output.resume;
+    Path checkpointDir = checkpoints ? checkpointDir(config.output.directory) : null;
+    Checkpoint checkpoint = null;
+    if (checkpointDir != null) {
+      checkpoint = Checkpoint.read(checkpointDir);
+    } else if (checkpoints) {
+      log.info("No checkpoint in " + config.output.directory + "; starting new calculation");
+    }
+    if (checkpoint != null) {
+      this.dir = checkpointDir;
+      checkpoint.restore(dir, config, sites);
+      this.resumeIndex = checkpoint.sites();
+      log.info("Resuming from checkpoint: " + resumeIndex + " sites completed");
+    } else {
+      this.dir = createOutputDir(config.output.directory);
+      this.resumeIndex = 0;
+    }
+    this.firstBatch = checkpoint == null;
+    this.sitesWritten = resumeIndex;
+    this.nextIndex = resumeIndex;
+    this.resultFiles = new LinkedHashSet<>();
+
     this.exportGmm = config.output.curveTypes.contains(CurveType.GMM);
     this.exportSource = config.output.curveTypes.contains(CurveType.SOURCE);
     this.exportBinary = config.output.curveTypes.contains(CurveType.BINARY);
+    this.exportStore = config.output.curveTypes.contains(CurveType.STORE);
     this.hazards = new ArrayList<>();
     this.deaggs = new ArrayList<>();
-
-    Site demoSite = sites.iterator().next();
+    this.spareHazards = new ArrayList<>();
+    this.spareDeaggs = new ArrayList<>();
+    this.writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("result-writer-%d")
+        .build());
+    this.writePermit = new Semaphore(1);
+    this.writeFailure = new AtomicReference<>();
+    this.pendingHazards = new HashMap<>();
+    this.pendingDeaggs = new HashMap<>();
+
+    Site demoSite = sites.first();
     this.namedSites = demoSite.name() != Site.NO_NAME;
 
     this.batchWatch = Stopwatch.createStarted();
@@ -137,12 +210,17 @@ public final class ResultHandler {
    * @param log shared logging instance from calling class
    * @throws IllegalStateException if binary output has been specified in the
    *         {@code config} but the {@code sites} container does not specify map
-   *         extents.
+   *         extents, or if a calculation is being resumed and the
+   *         {@code sites}, {@code Imt}s, curve types, or existing results do
+   *         not agree with its checkpoint.
+   * @throws IOException if a problem is encountered restoring the results of
+   *         a calculation that is being resumed
+   * @see CalcConfig.Output#resume
    */
   public static ResultHandler create(
       CalcConfig config,
       Sites sites,
-      Logger log) {
+      Logger log) throws IOException {
 
     return new ResultHandler(config, sites, log);
   }
@@ -158,21 +236,84 @@ public final class ResultHandler {
     return incrementedDir;
   }
 
+  /*
+   * Return the last of the supplied directory and its incremented siblings
+   * that holds a checkpoint, or null if there is no checkpoint. An interrupted
+   * calculation will have written to an incremented directory if the
+   * supplied directory already existed when it started.
+   */
+  private static Path checkpointDir(Path dir) {
+    Path checkpointDir = null;
+    int i = 1;
+    Path incrementedDir = dir;
+    while (Files.exists(incrementedDir)) {
+      if (Files.exists(incrementedDir.resolve(Checkpoint.FILENAME))) {
+        checkpointDir = incrementedDir;
+      }
+      incrementedDir = incrementedDir.resolveSibling(dir.getFileName() + "-" + i);
+      i++;
+    }
+    return checkpointDir;
+  }
+
   /**
    * Add a Hazard and optional Deaggregation result to this handler.
    * 
    * @param hazard to add
    * @param deagg to add
    */
-  public void add(Hazard hazard, Optional<Deaggregation> deagg) throws IOException {
+  public synchronized void add(Hazard hazard, Optional<Deaggregation> deagg) throws IOException {
     checkState(!used, "This result handler is expired");
+    checkState(pendingHazards.isEmpty(), "Results pending ordered addition");
+    addResult(hazard, deagg);
+    nextIndex++;
+  }
+
+  /**
+   * Add a Hazard and optional Deaggregation result to this handler, where
+   * {@code index} is the position of the result's {@code Site} in the sequence
+   * of sites being processed. Results may be added in any order, e.g. as
+   * concurrent calculations complete, but are only written once all results
+   * preceding them have been added. Thus output is always in site order.
+   * Callers should bound the number of concurrent calculations to limit the
+   * number of results held by this handler.
+   * 
+   * @param index of the result {@code Site}; when resuming a calculation, the
+   *        first index is {@link #resumeIndex()}
+   * @param hazard to add
+   * @param deagg to add
+   * @throws IllegalArgumentException if a result for {@code index} has already
+   *         been added
+   */
+  public synchronized void add(
+      int index,
+      Hazard hazard,
+      Optional<Deaggregation> deagg) throws IOException {
+
+    checkState(!used, "This result handler is expired");
+    checkArgument(index >= nextIndex && !pendingHazards.containsKey(index),
+        "Result for site [%s] already added", index);
+    pendingHazards.put(index, hazard);
+    if (deagg.isPresent()) {
+      pendingDeaggs.put(index, deagg.get());
+    }
+    while (pendingHazards.containsKey(nextIndex)) {
+      addResult(
+          pendingHazards.remove(nextIndex),
+          Optional.fromNullable(pendingDeaggs.remove(nextIndex)));
+      nextIndex++;
+    }
+  }
+
+  private void addResult(Hazard hazard, Optional<Deaggregation> deagg) throws IOException {
+    checkWriteFailure();
     resultCount++;
     hazards.add(hazard);
     if (deagg.isPresent()) {
       deaggs.add(deagg.get());
     }
     if (hazards.size() == config.output.flushLimit) {
-      flush();
+      submitBatch();
       batchCount++;
       log.info(String.format(
           "     batch: %s in %s – %s sites in %s",
@@ -183,41 +324,238 @@ public final class ResultHandler {
 
   /**
    * Flush any stored Hazard and Deaggregation results to file, clearing
+   * them from this handler. This method blocks until all results have been
+   * written.
    */
-  public void flush() throws IOException {
-    if (!hazards.isEmpty()) {
-      writeHazards();
-      hazards.clear();
-      firstBatch = false;
-    }
-    if (!deaggs.isEmpty()) {
-      writeDeaggs();
-      deaggs.clear();
+  public synchronized void flush() throws IOException {
+    if (!hazards.isEmpty() || !deaggs.isEmpty()) {
+      submitBatch();
     }
+    acquireWritePermit();
+    writePermit.release();
+    checkWriteFailure();
   }
 
   /**
    * Calls {@link #flush()} a final time, stops all timers and sets the state of
-   * this {@code Results} instance to 'used'; no more results may be added.
+   * this {@code Results} instance to 'used'; no more results may be added. As
+   * all results have been written, any checkpoint is removed.
    */
-  public void expire() throws IOException {
-    flush();
+  public synchronized void expire() throws IOException {
+    checkState(pendingHazards.isEmpty(), "Results pending ordered addition");
+    try {
+      flush();
+    } finally {
+      writer.shutdown();
+    }
+    Checkpoint.delete(dir);
     batchWatch.stop();
     totalWatch.stop();
     used = true;
   }
 
+  /**
+   * Add the results of the next {@code siteCount} sites, which were written to
+   * {@code resultDir} by another handler, to this handler. For example, the
+   * results for a shard of the sites being processed by this handler may be
+   * computed in another process. Curves are appended to the corresponding
+   * files of this handler, less any headers, and deaggregations are copied.
+   * Any checkpoint is updated. This method blocks until all results have been
+   * written; {@code resultDir} is not modified.
+   *
+   * @param resultDir output directory of another handler
+   * @param siteCount the number of sites in {@code resultDir}
+   * @param lastSite the location of the last site in {@code resultDir}
+   * @throws IllegalStateException if results added to this handler are
+   *         pending or have not been flushed
+   */
+  public synchronized void merge(
+      Path resultDir,
+      int siteCount,
+      Location lastSite) throws IOException {
+
+    checkState(!used, "This result handler is expired");
+    checkState(hazards.isEmpty() && pendingHazards.isEmpty(), "Results pending addition");
+    acquireWritePermit();
+    try {
+      checkWriteFailure();
+      mergeResults(resultDir, siteCount, lastSite);
+    } finally {
+      writePermit.release();
+    }
+    resultCount += siteCount;
+    nextIndex += siteCount;
+  }
+
+  /* Called while holding the write permit; see writeBatch() */
+  private void mergeResults(
+      final Path resultDir,
+      int siteCount,
+      Location lastSite) throws IOException {
+
+    final List<Path> files = new ArrayList<>();
+    Files.walkFileTree(resultDir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        files.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    for (Path file : files) {
+      Path relative = resultDir.relativize(file);
+      String name = file.getFileName().toString();
+      if (name.startsWith(Checkpoint.FILENAME)) {
+        continue;
+      }
+      Path target = dir.resolve(relative.toString());
+      Files.createDirectories(target.getParent());
+      if (Iterables.contains(relative, relative.getFileSystem().getPath(DEAGG_DIR))) {
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        continue;
+      }
+      checkState(!name.endsWith(BINARY_SUFFIX), "Binary curves may not be merged");
+      if (firstBatch) {
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+      } else if (name.endsWith(CurveStore.SUFFIX)) {
+        CurveStore.appendStore(target, file);
+      } else {
+        appendLines(target, file);
+      }
+      resultFiles.add(target);
+    }
+
+    firstBatch = false;
+    sitesWritten += siteCount;
+    if (checkpoints) {
+      Checkpoint.write(dir, config, sitesWritten, lastSite, resultFiles);
+    }
+  }
+
+  /* Append all but the header line of a text file to another. */
+  private static void appendLines(Path target, Path source) throws IOException {
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel out = FileChannel.open(target, APPEND)) {
+
+      ByteBuffer buffer = ByteBuffer.allocate(WRITE_CHUNK_SIZE);
+      long position = 0;
+      boolean header = true;
+      while (header && in.read(buffer) > 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          position++;
+          if (buffer.get() == '\n') {
+            header = false;
+            break;
+          }
+        }
+        buffer.clear();
+      }
+      long remaining = in.size() - position;
+      while (remaining > 0) {
+        long transferred = in.transferTo(position, remaining, out);
+        position += transferred;
+        remaining -= transferred;
+      }
+    }
+  }
+
+  /*
+   * Hand the current batch of results to the writer and continue collecting
+   * results in the spare lists, waiting first for any batch already being
+   * written. Batches are written in the order submitted.
+   */
+  private void submitBatch() throws IOException {
+    acquireWritePermit();
+    final List<Hazard> hazardBatch = hazards;
+    final List<Deaggregation> deaggBatch = deaggs;
+    hazards = spareHazards;
+    deaggs = spareDeaggs;
+    spareHazards = hazardBatch;
+    spareDeaggs = deaggBatch;
+    try {
+      writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if (writeFailure.get() == null) {
+              writeBatch(hazardBatch, deaggBatch);
+            }
+          } catch (Throwable t) {
+            writeFailure.compareAndSet(null, t);
+          } finally {
+            hazardBatch.clear();
+            deaggBatch.clear();
+            writePermit.release();
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      writePermit.release();
+      throw e;
+    }
+  }
+
+  private void writeBatch(
+      List<Hazard> hazardBatch,
+      List<Deaggregation> deaggBatch) throws IOException {
+
+    if (!hazardBatch.isEmpty()) {
+      writeHazards(hazardBatch);
+      firstBatch = false;
+    }
+    if (!deaggBatch.isEmpty()) {
+      writeDeaggs(deaggBatch);
+    }
+    if (!hazardBatch.isEmpty()) {
+      sitesWritten += hazardBatch.size();
+      if (checkpoints) {
+        Location lastSite = hazardBatch.get(hazardBatch.size() - 1).site.location;
+        Checkpoint.write(dir, config, sitesWritten, lastSite, resultFiles);
+      }
+    }
+  }
+
+  private void acquireWritePermit() throws IOException {
+    try {
+      writePermit.acquire();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for result writer");
+    }
+  }
+
+  /* Rethrow any exception encountered by the writer. */
+  private void checkWriteFailure() throws IOException {
+    Throwable t = writeFailure.get();
+    if (t != null) {
+      Throwables.propagateIfInstanceOf(t, IOException.class);
+      throw Throwables.propagate(t);
+    }
+  }
+
+  /**
+   * The number of leading sites whose results were written by a previous,
+   * interrupted calculation that this handler is resuming. Callers should
+   * skip these sites. Returns {@code 0} if no calculation is being resumed.
+   *
+   * @see CalcConfig.Output#resume
+   */
+  public int resumeIndex() {
+    return resumeIndex;
+  }
+
   /**
    * The number of hazard [and deagg] results passed to this handler thus far.
    */
-  public int resultsProcessed() {
+  public synchronized int resultsProcessed() {
     return resultCount;
   }
 
   /**
    * The number of {@code Hazard} results this handler is currently storing.
    */
-  public int size() {
+  public synchronized int size() {
     return hazards.size();
   }
 
@@ -237,9 +575,9 @@ public final class ResultHandler {
   }
 
   /*
-   * Write the current list of {@code Hazard}s to file.
+   * Write a batch of {@code Hazard}s to file.
    */
-  private void writeHazards() throws IOException {
+  private void writeHazards(List<Hazard> hazards) throws IOException {
 
     Hazard demo = hazards.get(0);
 
@@ -249,49 +587,49 @@ public final class ResultHandler {
 
     OpenOption[] options = !firstBatch ? APPEND : WRITE;
 
-    Function<Double, String> formatter = Parsing.formatDoubleFunction(RATE_FMT);
-    if (demo.config.curve.valueType == CurveValue.POISSON_PROBABILITY) {
-      formatter = Functions.compose(
-          formatter,
-          Mfds.annualRateToProbabilityConverter());
-    }
+    boolean poisson = demo.config.curve.valueType == CurveValue.POISSON_PROBABILITY;
 
-    /* Line maps for ascii output; may or may not be used */
-    Map<Imt, List<String>> totalLines = Maps.newEnumMap(Imt.class);
-    Map<Imt, Map<SourceType, List<String>>> typeLines = Maps.newEnumMap(Imt.class);
-    Map<Imt, Map<Gmm, List<String>>> gmmLines = Maps.newEnumMap(Imt.class);
+    /* Line buffers for ascii output; may or may not be used */
+    Map<Imt, StringBuilder> totalLines = Maps.newEnumMap(Imt.class);
+    Map<Imt, Map<SourceType, StringBuilder>> typeLines = Maps.newEnumMap(Imt.class);
+    Map<Imt, Map<Gmm, StringBuilder>> gmmLines = Maps.newEnumMap(Imt.class);
 
     /* Curve maps for binary output; may or may not be used */
     Map<Imt, Map<Integer, XySequence>> totalCurves = Maps.newEnumMap(Imt.class);
     Map<Imt, Map<SourceType, Map<Integer, XySequence>>> typeCurves = Maps.newEnumMap(Imt.class);
     Map<Imt, Map<Gmm, Map<Integer, XySequence>>> gmmCurves = Maps.newEnumMap(Imt.class);
 
-    /* Initialize line maps. */
-    for (Imt imt : demo.totalCurves.keySet()) {
+    /* Curve values for store output; may or may not be used */
+    List<Location> storeLocations = new ArrayList<>();
+    Map<Imt, List<double[]>> totalValues = Maps.newEnumMap(Imt.class);
+    Map<Imt, Map<SourceType, List<double[]>>> typeValues = Maps.newEnumMap(Imt.class);
+    Map<Imt, Map<Gmm, List<double[]>>> gmmValues = Maps.newEnumMap(Imt.class);
 
-      List<String> lines = new ArrayList<>();
-      totalLines.put(imt, lines);
+    /* Initialize line buffers. */
+    for (Imt imt : demo.totalCurves.keySet()) {
 
+      String header = "";
       if (firstBatch) {
-        Iterable<?> header = Iterables.concat(
+        Iterable<?> headerValues = Iterables.concat(
             Lists.newArrayList(namedSites ? "name" : null, "lon", "lat"),
             demo.config.curve.modelCurves().get(imt).xValues());
-        lines.add(Parsing.join(header, Delimiter.COMMA));
+        header = Parsing.join(headerValues, Delimiter.COMMA) + NEWLINE;
       }
+      totalLines.put(imt, new StringBuilder(header));
 
       if (exportSource) {
-        Map<SourceType, List<String>> typeMap = new EnumMap<>(SourceType.class);
+        Map<SourceType, StringBuilder> typeMap = new EnumMap<>(SourceType.class);
         typeLines.put(imt, typeMap);
         for (SourceType type : demo.model.types()) {
-          typeMap.put(type, Lists.newArrayList(lines));
+          typeMap.put(type, new StringBuilder(header));
         }
       }
 
       if (exportGmm) {
-        Map<Gmm, List<String>> gmmMap = new EnumMap<>(Gmm.class);
+        Map<Gmm, StringBuilder> gmmMap = new EnumMap<>(Gmm.class);
         gmmLines.put(imt, gmmMap);
         for (Gmm gmm : gmms) {
-          gmmMap.put(gmm, Lists.newArrayList(lines));
+          gmmMap.put(gmm, new StringBuilder(header));
         }
       }
     }
@@ -319,16 +657,44 @@ public final class ResultHandler {
       }
     }
 
+    /* Initialize store value lists. */
+    if (exportStore) {
+      for (Imt imt : demo.totalCurves.keySet()) {
+        totalValues.put(imt, new ArrayList<double[]>());
+
+        if (exportSource) {
+          Map<SourceType, List<double[]>> typeMap = new EnumMap<>(SourceType.class);
+          typeValues.put(imt, typeMap);
+          for (SourceType type : demo.model.types()) {
+            typeMap.put(type, new ArrayList<double[]>());
+          }
+        }
+
+        if (exportGmm) {
+          Map<Gmm, List<double[]>> gmmMap = new EnumMap<>(Gmm.class);
+          gmmValues.put(imt, gmmMap);
+          for (Gmm gmm : gmms) {
+            gmmMap.put(gmm, new ArrayList<double[]>());
+          }
+        }
+      }
+    }
+
     /* Process batch */
+    StringBuilder locData = new StringBuilder();
     for (Hazard hazard : hazards) {
 
-      String name = namedSites ? hazard.site.name : null;
       Location location = hazard.site.location;
+      if (exportStore) {
+        storeLocations.add(location);
+      }
 
-      List<String> locData = Lists.newArrayList(
-          name,
-          String.format("%.5f", hazard.site.location.lon()),
-          String.format("%.5f", hazard.site.location.lat()));
+      locData.setLength(0);
+      if (namedSites) {
+        locData.append(hazard.site.name).append(',');
+      }
+      LOCATION_FORMAT.format(location.lon(), locData).append(',');
+      LOCATION_FORMAT.format(location.lat(), locData);
 
       Map<Imt, Map<SourceType, XySequence>> curvesBySource =
           exportSource ? curvesBySource(hazard) : null;
@@ -340,104 +706,128 @@ public final class ResultHandler {
         Imt imt = imtEntry.getKey();
 
         XySequence totalCurve = imtEntry.getValue();
-        Iterable<Double> emptyValues = Doubles.asList(new double[totalCurve.size()]);
-        String emptyLine = toLine(locData, emptyValues, formatter);
-
-        totalLines.get(imt).add(toLine(
-            locData,
-            imtEntry.getValue().yValues(),
-            formatter));
+        appendLine(totalLines.get(imt), locData, totalCurve, poisson);
 
         int binIndex = -1;
         if (exportBinary) {
           binIndex = curveIndex(metaDefault.bounds, metaDefault.spacing, location);
           totalCurves.get(imt).put(binIndex, totalCurve);
         }
+        if (exportStore) {
+          totalValues.get(imt).add(storeValues(totalCurve, poisson));
+        }
 
         if (exportSource) {
           Map<SourceType, XySequence> sourceCurveMap = curvesBySource.get(imt);
-          for (Entry<SourceType, List<String>> typeEntry : typeLines.get(imt).entrySet()) {
+          for (Entry<SourceType, StringBuilder> typeEntry : typeLines.get(imt).entrySet()) {
             SourceType type = typeEntry.getKey();
-            String typeLine = emptyLine;
-            if (sourceCurveMap.containsKey(type)) {
-              XySequence typeCurve = sourceCurveMap.get(type);
-              typeLine = toLine(locData, typeCurve.yValues(), formatter);
+            XySequence typeCurve = sourceCurveMap.get(type);
+            if (typeCurve != null) {
+              appendLine(typeEntry.getValue(), locData, typeCurve, poisson);
               if (exportBinary) {
                 typeCurves.get(imt).get(type).put(binIndex, typeCurve);
               }
+              if (exportStore) {
+                typeValues.get(imt).get(type).add(storeValues(typeCurve, poisson));
+              }
+            } else {
+              appendEmptyLine(typeEntry.getValue(), locData, totalCurve.size());
+              if (exportStore) {
+                typeValues.get(imt).get(type).add(new double[totalCurve.size()]);
+              }
             }
-            typeEntry.getValue().add(typeLine);
           }
         }
 
         if (exportGmm) {
           Map<Gmm, XySequence> gmmCurveMap = curvesByGmm.get(imt);
-          for (Entry<Gmm, List<String>> gmmEntry : gmmLines.get(imt).entrySet()) {
+          for (Entry<Gmm, StringBuilder> gmmEntry : gmmLines.get(imt).entrySet()) {
             Gmm gmm = gmmEntry.getKey();
-            String gmmLine = emptyLine;
-            if (gmmCurveMap.containsKey(gmm)) {
-              XySequence gmmCurve = gmmCurveMap.get(gmm);
-              gmmLine = toLine(locData, gmmCurveMap.get(gmm).yValues(), formatter);
+            XySequence gmmCurve = gmmCurveMap.get(gmm);
+            if (gmmCurve != null) {
+              appendLine(gmmEntry.getValue(), locData, gmmCurve, poisson);
               if (exportBinary) {
                 gmmCurves.get(imt).get(gmm).put(binIndex, gmmCurve);
               }
+              if (exportStore) {
+                gmmValues.get(imt).get(gmm).add(storeValues(gmmCurve, poisson));
+              }
+            } else {
+              appendEmptyLine(gmmEntry.getValue(), locData, totalCurve.size());
+              if (exportStore) {
+                gmmValues.get(imt).get(gmm).add(new double[totalCurve.size()]);
+              }
             }
-            gmmEntry.getValue().add(gmmLine);
           }
         }
       }
     }
 
     /* write/append */
-    for (Entry<Imt, List<String>> totalEntry : totalLines.entrySet()) {
+    for (Entry<Imt, StringBuilder> totalEntry : totalLines.entrySet()) {
       Imt imt = totalEntry.getKey();
 
       Path imtDir = dir.resolve(imt.name());
       Files.createDirectories(imtDir);
       Path totalFile = imtDir.resolve("total" + TEXT_SUFFIX);
-      Files.write(totalFile, totalEntry.getValue(), US_ASCII, options);
+      writeLines(totalFile, totalEntry.getValue(), options);
 
       if (exportBinary) {
         Path totalBinFile = imtDir.resolve("total" + BINARY_SUFFIX);
         writeBinaryBatch(totalBinFile, totalCurves.get(imt), buffer, imt);
       }
 
+      if (exportStore) {
+        Path totalStoreFile = imtDir.resolve("total" + CurveStore.SUFFIX);
+        writeStoreBatch(totalStoreFile, demo, imt, "total", storeLocations, totalValues.get(imt));
+      }
+
       if (exportSource) {
         Path typeDir = imtDir.resolve("source");
         Files.createDirectories(typeDir);
-        for (Entry<SourceType, List<String>> typeEntry : typeLines.get(imt).entrySet()) {
+        for (Entry<SourceType, StringBuilder> typeEntry : typeLines.get(imt).entrySet()) {
           SourceType type = typeEntry.getKey();
           String filename = type.toString();
           Path typeFile = typeDir.resolve(filename + TEXT_SUFFIX);
-          Files.write(typeFile, typeEntry.getValue(), US_ASCII, options);
+          writeLines(typeFile, typeEntry.getValue(), options);
           if (exportBinary) {
             Path typeBinFile = typeDir.resolve(filename + BINARY_SUFFIX);
             writeBinaryBatch(typeBinFile, typeCurves.get(imt).get(type), buffer, imt);
           }
+          if (exportStore) {
+            Path typeStoreFile = typeDir.resolve(filename + CurveStore.SUFFIX);
+            writeStoreBatch(typeStoreFile, demo, imt, filename, storeLocations,
+                typeValues.get(imt).get(type));
+          }
         }
       }
 
       if (exportGmm) {
         Path gmmDir = imtDir.resolve("gmm");
         Files.createDirectories(gmmDir);
-        for (Entry<Gmm, List<String>> gmmEntry : gmmLines.get(imt).entrySet()) {
+        for (Entry<Gmm, StringBuilder> gmmEntry : gmmLines.get(imt).entrySet()) {
           Gmm gmm = gmmEntry.getKey();
           String filename = gmm.name();
           Path gmmFile = gmmDir.resolve(filename + TEXT_SUFFIX);
-          Files.write(gmmFile, gmmEntry.getValue(), US_ASCII, options);
+          writeLines(gmmFile, gmmEntry.getValue(), options);
           if (exportBinary) {
             Path gmmBinFile = gmmDir.resolve(filename + BINARY_SUFFIX);
             writeBinaryBatch(gmmBinFile, gmmCurves.get(imt).get(gmm), buffer, imt);
           }
+          if (exportStore) {
+            Path gmmStoreFile = gmmDir.resolve(filename + CurveStore.SUFFIX);
+            writeStoreBatch(gmmStoreFile, demo, imt, filename, storeLocations,
+                gmmValues.get(imt).get(gmm));
+          }
         }
       }
     }
   }
 
   /*
-   * Write the current list of {@code Deaggregation}s to file.
+   * Write a batch of {@code Deaggregation}s to file.
    */
-  private void writeDeaggs() throws IOException {
+  private void writeDeaggs(List<Deaggregation> deaggs) throws IOException {
 
     /*
      * Writing of Hazard results will have already created necessary Imt
@@ -472,14 +862,90 @@ public final class ResultHandler {
     }
   }
 
-  private static String toLine(
-      Iterable<String> location,
-      Iterable<Double> values,
-      Function<Double, String> formatter) {
+  /*
+   * Append a line of curve values, formatted as with '%.8e', and optionally
+   * converted to Poisson probabilities. Zero values are written as '0.0'.
+   */
+  private static void appendLine(
+      StringBuilder lines,
+      CharSequence location,
+      XySequence curve,
+      boolean poisson) {
+
+    lines.append(location);
+    for (int i = 0; i < curve.size(); i++) {
+      double value = curve.y(i);
+      if (poisson) {
+        value = Mfds.rateToProb(value, 1.0);
+      }
+      lines.append(',');
+      if (value == 0.0) {
+        lines.append("0.0");
+      } else {
+        RATE_FORMAT.format(value, lines);
+      }
+    }
+    lines.append(NEWLINE);
+  }
+
+  /*
+   * Curve values as written to a store, converted to Poisson probabilities if
+   * necessary, as for text output.
+   */
+  private static double[] storeValues(XySequence curve, boolean poisson) {
+    double[] values = new double[curve.size()];
+    for (int i = 0; i < values.length; i++) {
+      double value = curve.y(i);
+      values[i] = poisson ? Mfds.rateToProb(value, 1.0) : value;
+    }
+    return values;
+  }
 
-    return Parsing.join(
-        FluentIterable.from(location).append(Iterables.transform(values, formatter)),
-        Delimiter.COMMA);
+  /* Create or append to a curve store. */
+  private void writeStoreBatch(
+      Path file,
+      Hazard demo,
+      Imt imt,
+      String dataset,
+      List<Location> locations,
+      List<double[]> values) throws IOException {
+
+    resultFiles.add(file);
+    CurveStore.append(
+        file,
+        firstBatch,
+        imt,
+        dataset,
+        demo.config.curve.valueType,
+        config.output.storePrecision,
+        Doubles.toArray(demo.config.curve.modelCurves().get(imt).xValues()),
+        locations,
+        values);
+  }
+
+  private static void appendEmptyLine(StringBuilder lines, CharSequence location, int size) {
+    lines.append(location);
+    for (int i = 0; i < size; i++) {
+      lines.append(",0.0");
+    }
+    lines.append(NEWLINE);
+  }
+
+  /* Stream buffered lines to file in chunks, avoiding a copy of the buffer. */
+  private void writeLines(
+      Path path,
+      StringBuilder lines,
+      OpenOption[] options) throws IOException {
+
+    resultFiles.add(path);
+    char[] chunk = new char[Math.min(lines.length(), WRITE_CHUNK_SIZE)];
+    try (Writer writer = Files.newBufferedWriter(path, US_ASCII, options)) {
+      for (int start = 0; start < lines.length(); start += chunk.length) {
+        int end = Math.min(start + chunk.length, lines.length());
+        lines.getChars(start, end, chunk, 0);
+        writer.write(chunk, 0, end - start);
+      }
+    }
   }
 
   private static String lonLatStr(Location loc) {
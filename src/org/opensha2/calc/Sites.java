@@ -23,21 +23,21 @@ import org.opensha2.internal.Parsing;
 import org.opensha2.internal.Parsing.Delimiter;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.reflect.TypeToken;
+import com.google.common.collect.Iterators;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.Reader;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -54,49 +54,48 @@ public abstract class Sites implements Iterable<Site> {
 
   /**
    * Create an unmodifiable {@code Iterable<Site>} from the comma-delimted site
-   * file designated by {@code path}.
+   * file designated by {@code path}. Sites are read from the file one line at
+   * a time, each time the returned container is iterated.
    *
    * @param path to comma-delimited site data file
    * @throws IOException if a problem is encountered
    */
   public static Sites fromCsv(Path path, CalcConfig defaults) throws IOException {
-    return readCsv(path, defaults);
-  }
-
-  private static Sites readCsv(Path path, CalcConfig defaults) throws IOException {
-
     checkArgument(Files.exists(path), "Specified site file [%s] does not exist", path);
+    return new FileIterable(path, defaults, false);
+  }
 
-    ImmutableList.Builder<Site> listBuilder = ImmutableList.builder();
-    Builder siteBuilder = Site.builder(defaults);
-
-    List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
-    boolean firstline = true;
-    List<String> keyList = new ArrayList<>();
-    for (String line : lines) {
+  /*
+   * Reads sites from a comma-delimited file. The first line that is neither a
+   * comment nor blank defines the column keys.
+   */
+  private static final class CsvIterator extends SiteIterator {
 
-      /* Skip comments */
-      if (line.startsWith("#")) {
-        continue;
-      }
-      if (line.trim().isEmpty()) {
-        continue;
+    final BufferedReader reader;
+    final Builder siteBuilder;
+    final List<String> keyList = new ArrayList<>();
+
+    CsvIterator(Path path, CalcConfig defaults) throws IOException {
+      super(Files.newBufferedReader(path, UTF_8));
+      this.reader = (BufferedReader) closeable;
+      this.siteBuilder = Site.builder(defaults);
+
+      List<String> keys = nextValues();
+      checkState(keys != null, "Site file [%s] is empty", path);
+      for (String key : keys) {
+        checkState(Site.KEYS.contains(key), "Illegal site property key [%s]", key);
+        keyList.add(key);
       }
+      checkState(keyList.contains(Site.Key.LAT), "Site latitudes must be defined");
+      checkState(keyList.contains(Site.Key.LON), "Site longitudes must be defined");
+    }
 
-      List<String> values = Parsing.splitToList(line, Delimiter.COMMA);
-
-      /* Set up key/column ordering */
-      if (firstline) {
-        for (String key : values) {
-          checkState(Site.KEYS.contains(key), "Illegal site property key [%s]", key);
-          keyList.add(key);
-        }
-        checkState(keyList.contains(Site.Key.LAT), "Site latitudes must be defined");
-        checkState(keyList.contains(Site.Key.LON), "Site longitudes must be defined");
-        firstline = false;
-        continue;
+    @Override
+    Site readSite() throws IOException {
+      List<String> values = nextValues();
+      if (values == null) {
+        return null;
       }
-
       int index = 0;
       double lat = 0.0;
       double lon = 0.0;
@@ -130,28 +129,143 @@ public abstract class Sites implements Iterable<Site> {
         index++;
       }
       siteBuilder.location(lat, lon);
-      listBuilder.add(siteBuilder.build());
+      return siteBuilder.build();
+    }
+
+    /* Values of the next line that is neither a comment nor blank. */
+    private List<String> nextValues() throws IOException {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("#") || line.trim().isEmpty()) {
+          continue;
+        }
+        return Parsing.splitToList(line, Delimiter.COMMA);
+      }
+      return null;
     }
-    return new ListIterable(listBuilder.build());
   }
 
   /**
    * Create an unmodifiable {@code Iterable<Site>} from the GeoJSON site file
-   * designated by {@code path}.
+   * designated by {@code path}. Point features are read from the file one at a
+   * time, each time the returned container is iterated.
    *
    * @param path to GeoJson site data file
    * @throws IOException if a problem is encountered
    */
   public static Sites fromJson(Path path, CalcConfig defaults) throws IOException {
     checkArgument(Files.exists(path), "Specified site file [%s] does not exist", path);
-    Gson gson = new GsonBuilder()
-        .registerTypeAdapter(Site.class, new Site.Deserializer(defaults))
-        .registerTypeAdapter(Sites.class, new Deserializer(defaults))
-        .create();
-    Reader reader = Files.newBufferedReader(path, UTF_8);
-    Sites iterable = gson.fromJson(reader, Sites.class);
-    reader.close();
-    return iterable;
+    try (JsonReader reader = openFeatures(path)) {
+      checkState(reader.hasNext(), "Feature array is empty");
+
+      // check if we have a site list
+      JsonObject feature = JSON_PARSER.parse(reader).getAsJsonObject();
+      String featureType = feature
+          .get(GeoJson.Key.GEOMETRY).getAsJsonObject()
+          .get(GeoJson.Key.TYPE).getAsString();
+      if (featureType.equals(GeoJson.Value.POINT)) {
+        return new FileIterable(path, defaults, true);
+      }
+
+      // or a region
+      JsonArray features = new JsonArray();
+      features.add(feature);
+      while (reader.hasNext()) {
+        features.add(JSON_PARSER.parse(reader));
+      }
+      return createRegion(features, defaults);
+    }
+  }
+
+  private static final JsonParser JSON_PARSER = new JsonParser();
+
+  /*
+   * Open a reader positioned at the first element of the feature array of a
+   * GeoJSON file; all other top-level members are skipped.
+   */
+  private static JsonReader openFeatures(Path path) throws IOException {
+    JsonReader reader = new JsonReader(Files.newBufferedReader(path, UTF_8));
+    try {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.nextName().equals(GeoJson.Key.FEATURES)) {
+          reader.beginArray();
+          return reader;
+        }
+        reader.skipValue();
+      }
+      throw new IllegalStateException("GeoJSON does not define a feature array: " + path);
+    } catch (IOException | RuntimeException e) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  /* Reads sites from the point features of a GeoJSON file. */
+  private static final class JsonIterator extends SiteIterator {
+
+    final JsonReader reader;
+    final Gson gson;
+
+    JsonIterator(Path path, CalcConfig defaults) throws IOException {
+      super(openFeatures(path));
+      this.reader = (JsonReader) closeable;
+      this.gson = new GsonBuilder()
+          .registerTypeAdapter(Site.class, new Site.Deserializer(defaults))
+          .create();
+    }
+
+    @Override
+    Site readSite() throws IOException {
+      if (!reader.hasNext()) {
+        return null;
+      }
+      return gson.fromJson(JSON_PARSER.parse(reader), Site.class);
+    }
+  }
+
+  /*
+   * Base site file iterator. The underlying file is closed when the last site
+   * has been read or if an error occurs.
+   */
+  private static abstract class SiteIterator extends AbstractIterator<Site> implements Closeable {
+
+    final Closeable closeable;
+
+    SiteIterator(Closeable closeable) {
+      this.closeable = closeable;
+    }
+
+    /* Return the next site or null if there are no more sites. */
+    abstract Site readSite() throws IOException;
+
+    @Override
+    protected Site computeNext() {
+      try {
+        Site site = readSite();
+        if (site == null) {
+          close();
+          return endOfData();
+        }
+        return site;
+      } catch (IOException | RuntimeException e) {
+        closeQuietly();
+        throw Throwables.propagate(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      closeable.close();
+    }
+
+    private void closeQuietly() {
+      try {
+        close();
+      } catch (IOException ioe) {
+        // nothing to do
+      }
+    }
   }
 
   /**
@@ -197,6 +311,15 @@ public abstract class Sites implements Iterable<Site> {
     return new ListIterable(ImmutableList.of(b.build()));
   }
 
+  /**
+   * Create an unmodifiable {@code Iterable<Site>} from the supplied list.
+   *
+   * @param sites to wrap
+   */
+  public static Sites fromList(List<Site> sites) {
+    return new ListIterable(ImmutableList.copyOf(sites));
+  }
+
   private static final int TO_STRING_LIMIT = 5;
   private static final String SITE_INDENT = LOG_INDENT + "       ";
 
@@ -211,6 +334,17 @@ public abstract class Sites implements Iterable<Site> {
           .append(mapIterable.region.size())
           .append(" ").append(mapIterable.siteBuilder.state())
           .append("]");
+    } else if (this instanceof FileIterable) {
+      /* Avoid reading an entire file just to count sites. */
+      FileIterable fileIterable = (FileIterable) this;
+      sb.append("File [").append(fileIterable.path).append("]");
+      List<Site> preview = fileIterable.preview;
+      for (Site site : Iterables.limit(preview, TO_STRING_LIMIT)) {
+        sb.append(SITE_INDENT).append(site);
+      }
+      if (preview.size() > TO_STRING_LIMIT) {
+        sb.append(SITE_INDENT).append("... and more ...");
+      }
     } else {
       int size = Iterables.size(this);
       sb.append("List")
@@ -244,6 +378,36 @@ public abstract class Sites implements Iterable<Site> {
    */
   public abstract Optional<Double> mapSpacing();
 
+  /*
+   * The first site. Streaming containers override this to avoid opening, and
+   * abandoning, a site file.
+   */
+  Site first() {
+    return iterator().next();
+  }
+
+  /*
+   * The site at the supplied index, or null if there are fewer sites. Any site
+   * file opened to find the site is closed.
+   */
+  Site get(int index) throws IOException {
+    Iterator<Site> sites = iterator();
+    try {
+      Site site = null;
+      for (int i = 0; i <= index; i++) {
+        if (!sites.hasNext()) {
+          return null;
+        }
+        site = sites.next();
+      }
+      return site;
+    } finally {
+      if (sites instanceof Closeable) {
+        ((Closeable) sites).close();
+      }
+    }
+  }
+
   private static final class ListIterable extends Sites {
     final List<Site> delegate;
 
@@ -267,6 +431,57 @@ public abstract class Sites implements Iterable<Site> {
     }
   }
 
+  /*
+   * Sites read from a file, line by line or feature by feature, each time this
+   * is iterated. A preview of the first few sites is read when a container is
+   * created so that file errors are identified early.
+   */
+  private static final class FileIterable extends Sites {
+
+    final Path path;
+    final CalcConfig defaults;
+    final boolean json;
+    final List<Site> preview;
+
+    FileIterable(Path path, CalcConfig defaults, boolean json) throws IOException {
+      this.path = path;
+      this.defaults = defaults;
+      this.json = json;
+      try (SiteIterator sites = open()) {
+        this.preview = ImmutableList.copyOf(Iterators.limit(sites, TO_STRING_LIMIT + 1));
+      }
+      checkState(!preview.isEmpty(), "Site file [%s] does not define any sites", path);
+    }
+
+    private SiteIterator open() throws IOException {
+      return json ? new JsonIterator(path, defaults) : new CsvIterator(path, defaults);
+    }
+
+    @Override
+    public Iterator<Site> iterator() {
+      try {
+        return open();
+      } catch (IOException ioe) {
+        throw Throwables.propagate(ioe);
+      }
+    }
+
+    @Override
+    Site first() {
+      return preview.get(0);
+    }
+
+    @Override
+    public Optional<Bounds> mapBounds() {
+      return Optional.absent();
+    }
+
+    @Override
+    public Optional<Double> mapSpacing() {
+      return Optional.absent();
+    }
+  }
+
   private static final class RegionIterable extends Sites {
 
     final GriddedRegion region;
@@ -327,117 +542,85 @@ public abstract class Sites implements Iterable<Site> {
    * processed. Results are undefined for self-intersecting polygon coordinate
    * arrays.
    */
-  private static final class Deserializer implements JsonDeserializer<Sites> {
-
-    final CalcConfig defaults;
+  private static Sites createRegion(JsonArray features, CalcConfig defaults) {
+    checkState(features.size() <= 2, "Only 2 polygon features may be defined");
 
-    Deserializer(CalcConfig defaults) {
-      this.defaults = defaults;
-    }
-
-    @Override
-    public Sites deserialize(
-        JsonElement json,
-        Type type,
-        JsonDeserializationContext context) {
-
-      // should always have a features array
-      JsonArray features = json.getAsJsonObject()
-          .get(GeoJson.Key.FEATURES)
-          .getAsJsonArray();
-      checkState(features.size() > 0, "Feature array is empty");
-
-      // check if we have a site list
-      String featureType = features.get(0).getAsJsonObject()
-          .get(GeoJson.Key.GEOMETRY).getAsJsonObject()
-          .get(GeoJson.Key.TYPE).getAsString();
-      if (featureType.equals(GeoJson.Value.POINT)) {
-        Type siteType = new TypeToken<List<Site>>() {}.getType();
-        List<Site> sites = context.deserialize(features, siteType);
-        return new ListIterable(ImmutableList.copyOf(sites));
-      }
-
-      // or a region
-      checkState(features.size() <= 2, "Only 2 polygon features may be defined");
+    // Optional<Region> extents = Optional.absent();
+    Optional<Bounds> mapBounds = Optional.absent();
+    String boundsName = "";
+    int calcPolyIndex = 0;
+    if (features.size() == 2) {
+      calcPolyIndex++;
 
-      // Optional<Region> extents = Optional.absent();
-      Optional<Bounds> mapBounds = Optional.absent();
-      String boundsName = "";
-      int calcPolyIndex = 0;
-      if (features.size() == 2) {
-        calcPolyIndex++;
+      JsonObject extentsFeature = features.get(0).getAsJsonObject();
+      validateProperty(extentsFeature, GeoJson.Key.ID, GeoJson.Value.EXTENTS);
 
-        JsonObject extentsFeature = features.get(0).getAsJsonObject();
-        validateProperty(extentsFeature, GeoJson.Key.ID, GeoJson.Value.EXTENTS);
+      mapBounds = Optional.of(validateExtents(readPolygon(extentsFeature)).bounds());
 
-        mapBounds = Optional.of(validateExtents(readPolygon(extentsFeature)).bounds());
-
-        JsonObject properties = extentsFeature.getAsJsonObject(GeoJson.Key.PROPERTIES);
-        boundsName = readName(properties, "Map Extents");
-      }
+      JsonObject properties = extentsFeature.getAsJsonObject(GeoJson.Key.PROPERTIES);
+      boundsName = readName(properties, "Map Extents");
+    }
 
-      JsonObject sitesFeature = features.get(calcPolyIndex).getAsJsonObject();
-      LocationList border = readPolygon(sitesFeature);
+    JsonObject sitesFeature = features.get(calcPolyIndex).getAsJsonObject();
+    LocationList border = readPolygon(sitesFeature);
 
-      JsonObject properties = sitesFeature.getAsJsonObject(GeoJson.Key.PROPERTIES);
-      String mapName = readName(properties, "Unnamed Map");
+    JsonObject properties = sitesFeature.getAsJsonObject(GeoJson.Key.PROPERTIES);
+    String mapName = readName(properties, "Unnamed Map");
 
-      /*
-       * We special case a 5-coordinate border that defines a mercator recangle
-       * so as to create a region that includes sites on the north and east
-       * borders.
-       */
+    /*
+     * We special case a 5-coordinate border that defines a mercator recangle
+     * so as to create a region that includes sites on the north and east
+     * borders.
+     */
 
-      Region calcRegion = null;
-      try {
-        Bounds b = validateExtents(border).bounds();
-        calcRegion = Regions.createRectangular(mapName, b.min(), b.max());
-      } catch (IllegalArgumentException iae) {
-        calcRegion = Regions.create(mapName, border, MERCATOR_LINEAR);
-      }
-      checkState(
-          properties.has(GeoJson.Properties.Key.SPACING),
-          "A \"spacing\" : value (in degrees) must be defined in \"properties\"");
-      double spacing = properties.get(GeoJson.Properties.Key.SPACING).getAsDouble();
-
-      // builder used to create all sites when iterating over region
-      Builder builder = Site.builder(defaults);
-
-      if (properties.has(Site.Key.VS30)) {
-        double vs30 = properties.get(Site.Key.VS30).getAsDouble();
-        builder.vs30(vs30);
-      }
+    Region calcRegion = null;
+    try {
+      Bounds b = validateExtents(border).bounds();
+      calcRegion = Regions.createRectangular(mapName, b.min(), b.max());
+    } catch (IllegalArgumentException iae) {
+      calcRegion = Regions.create(mapName, border, MERCATOR_LINEAR);
+    }
+    checkState(
+        properties.has(GeoJson.Properties.Key.SPACING),
+        "A \"spacing\" : value (in degrees) must be defined in \"properties\"");
+    double spacing = properties.get(GeoJson.Properties.Key.SPACING).getAsDouble();
 
-      if (properties.has(Site.Key.VS_INF)) {
-        boolean vsInf = properties.get(Site.Key.VS_INF).getAsBoolean();
-        builder.vsInferred(vsInf);
-      }
+    // builder used to create all sites when iterating over region
+    Builder builder = Site.builder(defaults);
 
-      if (properties.has(Site.Key.Z1P0)) {
-        double z1p0 = properties.get(Site.Key.Z1P0).getAsDouble();
-        builder.z1p0(z1p0);
-      }
+    if (properties.has(Site.Key.VS30)) {
+      double vs30 = properties.get(Site.Key.VS30).getAsDouble();
+      builder.vs30(vs30);
+    }
 
-      if (properties.has(Site.Key.Z2P5)) {
-        double z2p5 = properties.get(Site.Key.Z2P5).getAsDouble();
-        builder.z2p5(z2p5);
-      }
+    if (properties.has(Site.Key.VS_INF)) {
+      boolean vsInf = properties.get(Site.Key.VS_INF).getAsBoolean();
+      builder.vsInferred(vsInf);
+    }
 
-      Region mapRegion = calcRegion;
-      if (mapBounds.isPresent()) {
-        Bounds b = mapBounds.get();
-        Region r = Regions.createRectangular(boundsName, b.min(), b.max());
-        mapRegion = Regions.intersectionOf(mapName, r, calcRegion);
-      }
+    if (properties.has(Site.Key.Z1P0)) {
+      double z1p0 = properties.get(Site.Key.Z1P0).getAsDouble();
+      builder.z1p0(z1p0);
+    }
 
-      GriddedRegion region = Regions.toGridded(
-          mapRegion,
-          spacing, spacing,
-          GriddedRegion.ANCHOR_0_0);
+    if (properties.has(Site.Key.Z2P5)) {
+      double z2p5 = properties.get(Site.Key.Z2P5).getAsDouble();
+      builder.z2p5(z2p5);
+    }
 
-      return new RegionIterable(region, builder, mapBounds);
+    Region mapRegion = calcRegion;
+    if (mapBounds.isPresent()) {
+      Bounds b = mapBounds.get();
+      Region r = Regions.createRectangular(boundsName, b.min(), b.max());
+      mapRegion = Regions.intersectionOf(mapName, r, calcRegion);
     }
 
+    GriddedRegion region = Regions.toGridded(
+        mapRegion,
+        spacing, spacing,
+        GriddedRegion.ANCHOR_0_0);
+
+    return new RegionIterable(region, builder, mapBounds);
   }
 
   private static LocationList readPolygon(JsonObject feature) {
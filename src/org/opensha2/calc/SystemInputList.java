@@ -5,7 +5,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import org.opensha2.eq.model.SystemSourceSet;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
@@ -30,16 +29,15 @@ public final class SystemInputList extends InputList {
    * class.
    * 
    * package privacy - or move to SYstemSourceSet how to get back to parent to
-   * mine info; index? need index reference comment bitset array is going to be
-   * reallocating because we don't know it's size at creation time; using linked
-   * list
+   * mine info; index? need index reference comment source index list is going
+   * to be reallocating because we don't know it's size at creation time
    * 
    * Well suited for a builder
    */
 
   final SystemSourceSet parent;
   final Set<Integer> sectionIndices; // ascending in rRup
-  final List<BitSet> bitsets; // source/rupture bisets
+  final List<Integer> sourceIndices; // source/rupture indices in parent
 
   public SystemInputList(
       SystemSourceSet parent,
@@ -47,15 +45,15 @@ public final class SystemInputList extends InputList {
 
     this.parent = checkNotNull(parent);
     this.sectionIndices = sectionIndices; // may be null for empty only
-    this.bitsets = new ArrayList<>();
+    this.sourceIndices = new ArrayList<>();
   }
 
   public static SystemInputList empty(SystemSourceSet parent) {
     return new SystemInputList(parent, null);
   }
 
-  public void addBitset(BitSet bitset) {
-    bitsets.add(bitset);
+  public void addSource(int index) {
+    sourceIndices.add(index);
   }
 
   @Override
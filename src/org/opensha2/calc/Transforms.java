@@ -1,7 +1,6 @@
 package org.opensha2.calc;
 
 import static com.google.common.util.concurrent.Futures.allAsList;
-import static com.google.common.util.concurrent.Futures.getUnchecked;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.transform;
 
@@ -23,14 +22,23 @@ import org.opensha2.eq.model.SourceSet;
 import org.opensha2.eq.model.SystemSourceSet;
 import org.opensha2.gmm.Gmm;
 import org.opensha2.gmm.GmmInput;
+import org.opensha2.gmm.GmmUtils;
 import org.opensha2.gmm.GroundMotionModel;
+import org.opensha2.gmm.GroundMotionSpectrum;
 import org.opensha2.gmm.Imt;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.MultimapBuilder;
+import com.google.common.primitives.Doubles;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -73,6 +81,12 @@ final class Transforms {
     public SourceInputList apply(Source source) {
       SourceInputList hazardInputs = new SourceInputList(source);
 
+      /* Fault sources reuse site-independent rupture geometry. */
+      if (source instanceof FaultSource) {
+        ((FaultSource) source).addInputs(site, hazardInputs);
+        return hazardInputs;
+      }
+
       for (Rupture rup : source) {
 
         RuptureSurface surface = rup.surface();
@@ -113,32 +127,116 @@ final class Transforms {
   static final class InputsToGroundMotions implements Function<InputList, GroundMotions> {
 
     private final Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable;
+    private final Map<Gmm, GroundMotionSpectrum> spectra;
+    private final Optional<GroundMotionCache> cache;
+
+    InputsToGroundMotions(
+        Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable,
+        Optional<GroundMotionCache> cache) {
 
-    InputsToGroundMotions(Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable) {
       this.gmmTable = gmmTable;
+      this.spectra = spectra(gmmTable);
+      this.cache = cache;
     }
 
     @Override
     public GroundMotions apply(InputList inputs) {
 
       Set<Imt> imtKeys = gmmTable.keySet();
-      Set<Gmm> gmmKeys = gmmTable.get(imtKeys.iterator().next()).keySet();
+      Set<Gmm> gmmKeys = spectra.keySet();
       GroundMotions.Builder builder = GroundMotions.builder(
           inputs,
           imtKeys,
           gmmKeys);
 
+      if (cache.isPresent()) {
+        return memoized(inputs, imtKeys, gmmKeys, builder, cache.get());
+      }
+
+      /*
+       * When computing multiple Imts, evaluate each Gmm for all Imts at once
+       * so that terms that do not depend on period are computed once per input.
+       */
+      if (imtKeys.size() > 1) {
+        double[] means = new double[imtKeys.size()];
+        double[] sigmas = new double[imtKeys.size()];
+        for (Gmm gmm : gmmKeys) {
+          GroundMotionSpectrum spectrum = spectra.get(gmm);
+          for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+            spectrum.calc(inputs.get(inputIndex), means, sigmas);
+            int i = 0;
+            for (Imt imt : imtKeys) {
+              builder.set(imt, gmm, inputIndex, means[i], sigmas[i]);
+              i++;
+            }
+          }
+        }
+        return builder.build();
+      }
+
+      double[] means = new double[inputs.size()];
+      double[] sigmas = new double[inputs.size()];
       for (Imt imt : imtKeys) {
         for (Gmm gmm : gmmKeys) {
           GroundMotionModel model = gmmTable.get(imt).get(gmm);
-          int inputIndex = 0;
-          for (GmmInput gmmInput : inputs) {
-            builder.add(imt, gmm, model.calc(gmmInput), inputIndex++);
+          GmmUtils.calc(model, inputs, means, sigmas);
+          builder.set(imt, gmm, means, sigmas);
+        }
+      }
+      return builder.build();
+    }
+
+    /*
+     * Process inputs one at a time, looking up or computing the means and
+     * sigmas for all Gmm-Imt pairs, stored [gmm][imt][μ, σ].
+     */
+    private GroundMotions memoized(
+        InputList inputs,
+        Set<Imt> imtKeys,
+        Set<Gmm> gmmKeys,
+        GroundMotions.Builder builder,
+        GroundMotionCache cache) {
+
+      int imtCount = imtKeys.size();
+      double[] means = new double[imtCount];
+      double[] sigmas = new double[imtCount];
+      for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+        GmmInput gmmInput = inputs.get(inputIndex);
+        GroundMotionCache.Key key = cache.key(gmmInput);
+        double[] values = cache.get(key);
+        if (values == null) {
+          values = new double[gmmKeys.size() * imtCount * 2];
+          int i = 0;
+          for (Gmm gmm : gmmKeys) {
+            spectra.get(gmm).calc(gmmInput, means, sigmas);
+            for (int j = 0; j < imtCount; j++) {
+              values[i++] = means[j];
+              values[i++] = sigmas[j];
+            }
+          }
+          cache.put(key, values);
+        }
+        int i = 0;
+        for (Gmm gmm : gmmKeys) {
+          for (Imt imt : imtKeys) {
+            builder.set(imt, gmm, inputIndex, values[i++], values[i++]);
           }
         }
       }
       return builder.build();
     }
+
+    private static Map<Gmm, GroundMotionSpectrum> spectra(
+        Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable) {
+
+      Set<Imt> imts = gmmTable.keySet();
+      Set<Gmm> gmms = gmmTable.get(imts.iterator().next()).keySet();
+      Map<Gmm, GroundMotionSpectrum> spectra = new EnumMap<>(Gmm.class);
+      for (Gmm gmm : gmms) {
+        spectra.put(gmm, gmm.spectrum(imts));
+      }
+      return Maps.immutableEnumMap(spectra);
+    }
   }
 
   /*
@@ -149,12 +247,16 @@ final class Transforms {
   static final class GroundMotionsToCurves implements Function<GroundMotions, HazardCurves> {
 
     private final Map<Imt, XySequence> modelCurves;
+    private final Map<Imt, double[]> modelImls;
     private final ExceedanceModel exceedanceModel;
+    private final ExceedanceEvaluation exceedanceEvaluation;
     private final double truncationLevel;
 
     GroundMotionsToCurves(CalcConfig config) {
       this.modelCurves = config.curve.logModelCurves();
+      this.modelImls = xValueArrays(modelCurves);
       this.exceedanceModel = config.curve.exceedanceModel;
+      this.exceedanceEvaluation = config.curve.exceedanceEvaluation;
       this.truncationLevel = config.curve.truncationLevel;
     }
 
@@ -162,32 +264,34 @@ final class Transforms {
     public HazardCurves apply(GroundMotions groundMotions) {
 
       HazardCurves.Builder curveBuilder = HazardCurves.builder(groundMotions);
+      InputList inputs = groundMotions.inputs;
 
       for (Entry<Imt, XySequence> entry : modelCurves.entrySet()) {
 
         XySequence modelCurve = entry.getValue();
         Imt imt = entry.getKey();
 
-        XySequence utilCurve = XySequence.copyOf(modelCurve);
+        double[] imls = modelImls.get(imt);
+        double[] gmmValues = new double[imls.length];
         XySequence gmmCurve = XySequence.copyOf(modelCurve);
 
-        for (Gmm gmm : groundMotions.μLists.get(imt).keySet()) {
+        for (Gmm gmm : groundMotions.gmms) {
 
-          gmmCurve.clear();
-
-          List<Double> means = groundMotions.μLists.get(imt).get(gmm);
-          List<Double> sigmas = groundMotions.σLists.get(imt).get(gmm);
+          Arrays.fill(gmmValues, 0.0);
 
-          for (int i = 0; i < means.size(); i++) {
+          int offset = groundMotions.offset(imt, gmm);
+          for (int i = 0; i < inputs.size(); i++) {
             exceedanceModel.exceedance(
-                means.get(i),
-                sigmas.get(i),
+                groundMotions.mean(offset + i),
+                groundMotions.sigma(offset + i),
                 truncationLevel,
                 imt,
-                utilCurve);
-            utilCurve.multiply(groundMotions.inputs.get(i).rate);
-            gmmCurve.add(utilCurve);
+                inputs.get(i).rate,
+                imls,
+                gmmValues,
+                exceedanceEvaluation);
           }
+          gmmCurve.clear().add(gmmValues);
           curveBuilder.addCurve(imt, gmm, gmmCurve);
         }
       }
@@ -195,6 +299,15 @@ final class Transforms {
     }
   }
 
+  /* Extract the x-values of each model curve to an array. */
+  private static Map<Imt, double[]> xValueArrays(Map<Imt, XySequence> modelCurves) {
+    Map<Imt, double[]> xValues = new EnumMap<>(Imt.class);
+    for (Entry<Imt, XySequence> entry : modelCurves.entrySet()) {
+      xValues.put(entry.getKey(), Doubles.toArray(entry.getValue().xValues()));
+    }
+    return xValues;
+  }
+
   /*
    * GroundMotions --> HazardCurves
    *
@@ -239,20 +352,18 @@ final class Transforms {
         XySequence utilCurve = XySequence.copyOf(modelCurve);
         XySequence gmmCurve = XySequence.copyOf(modelCurve);
 
-        for (Gmm gmm : groundMotions.μLists.get(imt).keySet()) {
+        for (Gmm gmm : groundMotions.gmms) {
 
           gmmCurve.clear();
 
-          List<Double> means = groundMotions.μLists.get(imt).get(gmm);
-          List<Double> sigmas = groundMotions.σLists.get(imt).get(gmm);
-
-          for (int i = 0; i < means.size(); i++) {
-            double mean = means.get(i);
+          int offset = groundMotions.offset(imt, gmm);
+          for (int i = 0; i < inputs.size(); i++) {
+            double mean = groundMotions.mean(offset + i);
             double epi = uncertainties[i];
             double[] epiMeans = new double[] { mean - epi, mean, mean + epi };
             exceedanceCurve(
                 epiMeans,
-                sigmas.get(i),
+                groundMotions.sigma(offset + i),
                 imt,
                 utilCurve);
             utilCurve.multiply(groundMotions.inputs.get(i).rate);
@@ -304,7 +415,8 @@ final class Transforms {
     SourceToCurves(
         SourceSet<? extends Source> sources,
         CalcConfig config,
-        Site site) {
+        Site site,
+        Optional<GroundMotionCache> cache) {
 
       GmmSet gmmSet = sources.groundMotionModels();
       Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable = instances(
@@ -312,7 +424,7 @@ final class Transforms {
           gmmSet.gmms());
 
       this.sourceToInputs = new SourceToInputs(site);
-      this.inputsToGroundMotions = new InputsToGroundMotions(gmmTable);
+      this.inputsToGroundMotions = new InputsToGroundMotions(gmmTable, cache);
       this.groundMotionsToCurves = config.curve.gmmUncertainty && gmmSet.epiUncertainty()
           ? new GroundMotionsToCurvesWithUncertainty(gmmSet, config)
           : new GroundMotionsToCurves(config);
@@ -335,18 +447,25 @@ final class Transforms {
 
     private final SourceSet<? extends Source> sources;
     private final Map<Imt, XySequence> modelCurves;
+    private final Optional<GroundMotionCache> cache;
 
     CurveConsolidator(
         SourceSet<? extends Source> sources,
-        CalcConfig config) {
+        CalcConfig config,
+        Optional<GroundMotionCache> cache) {
 
       this.sources = sources;
       this.modelCurves = config.curve.logModelCurves();
+      this.cache = cache;
     }
 
     @Override
     public HazardCurveSet apply(List<HazardCurves> curvesList) {
 
+      if (cache.isPresent()) {
+        cache.get().logStatistics();
+      }
+
       if (curvesList.isEmpty()) {
         return HazardCurveSet.empty(sources);
       }
@@ -393,7 +512,7 @@ final class Transforms {
     @Override
     public HazardCurveSet apply(SystemSourceSet sources) {
 
-      InputList inputs = SystemSourceSet.toInputsFunction(site).apply(sources);
+      InputList inputs = SystemSourceSet.toInputsFunction(site, config).apply(sources);
       if (inputs.isEmpty()) {
         return HazardCurveSet.empty(sources);
       }
@@ -403,7 +522,8 @@ final class Transforms {
           config.curve.imts,
           gmmSet.gmms());
 
-      InputsToGroundMotions inputsToGm = new InputsToGroundMotions(gmmTable);
+      Optional<GroundMotionCache> cache = GroundMotionCache.create(sources, config);
+      InputsToGroundMotions inputsToGm = new InputsToGroundMotions(gmmTable, cache);
       GroundMotions gms = inputsToGm.apply(inputs);
 
       Function<GroundMotions, HazardCurves> gmToCurves =
@@ -412,7 +532,7 @@ final class Transforms {
               : new GroundMotionsToCurves(config);
       HazardCurves curves = gmToCurves.apply(gms);
 
-      CurveConsolidator consolidator = new CurveConsolidator(sources, config);
+      CurveConsolidator consolidator = new CurveConsolidator(sources, config, cache);
       return consolidator.apply(ImmutableList.of(curves));
     }
   }
@@ -423,8 +543,14 @@ final class Transforms {
    * Compute hazard curves for system sources concurrently. This function
    * derives all inputs for an entire SystemSourceSet and partitions them before
    * composing them with standard ground motion and hazard curve functions.
+   *
+   * The returned future completes once all partitions have been processed; no
+   * thread blocks waiting on partition results. This permits many system
+   * calculations (e.g. for multiple sites) to share a single pool without the
+   * risk of every pool thread waiting on work queued behind it.
    */
-  static final class ParallelSystemToCurves implements Function<SystemSourceSet, HazardCurveSet> {
+  static final class ParallelSystemToCurves implements
+      AsyncFunction<SystemSourceSet, HazardCurveSet> {
 
     private final Site site;
     private final Executor ex;
@@ -441,16 +567,17 @@ final class Transforms {
     }
 
     @Override
-    public HazardCurveSet apply(SystemSourceSet sources) {
+    public ListenableFuture<HazardCurveSet> apply(final SystemSourceSet sources) {
 
       // create input list
-      InputList master = SystemSourceSet.toInputsFunction(site).apply(sources);
+      final InputList master = SystemSourceSet.toInputsFunction(site, config).apply(sources);
       if (master.isEmpty()) {
-        return HazardCurveSet.empty(sources);
+        return immediateFuture(HazardCurveSet.empty(sources));
       }
 
       // calculate curves from list in parallel
-      InputsToCurves inputsToCurves = new InputsToCurves(sources, config);
+      Optional<GroundMotionCache> cache = GroundMotionCache.create(sources, config);
+      InputsToCurves inputsToCurves = new InputsToCurves(sources, config, cache);
       AsyncList<HazardCurves> asyncCurvesList = AsyncList.create();
       int size = config.performance.systemPartition;
       for (InputList partition : master.partition(size)) {
@@ -459,13 +586,19 @@ final class Transforms {
             inputsToCurves,
             ex));
       }
-      List<HazardCurves> curvesList = getUnchecked(allAsList(asyncCurvesList));
 
       // combine and consolidate
-      HazardCurves hazardCurves = HazardCurves.combine(master, curvesList);
-      CurveConsolidator consolidator = new CurveConsolidator(sources, config);
-
-      return consolidator.apply(ImmutableList.of(hazardCurves));
+      final CurveConsolidator consolidator = new CurveConsolidator(sources, config, cache);
+      return transform(
+          allAsList(asyncCurvesList),
+          new Function<List<HazardCurves>, HazardCurveSet>() {
+            @Override
+            public HazardCurveSet apply(List<HazardCurves> curvesList) {
+              HazardCurves hazardCurves = HazardCurves.combine(master, curvesList);
+              return consolidator.apply(ImmutableList.of(hazardCurves));
+            }
+          },
+          ex);
     }
   }
 
@@ -483,14 +616,15 @@ final class Transforms {
 
     InputsToCurves(
         SourceSet<? extends Source> sources,
-        CalcConfig config) {
+        CalcConfig config,
+        Optional<GroundMotionCache> cache) {
 
       GmmSet gmmSet = sources.groundMotionModels();
       Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable = instances(
           config.curve.imts,
           gmmSet.gmms());
 
-      this.inputsToGroundMotions = new InputsToGroundMotions(gmmTable);
+      this.inputsToGroundMotions = new InputsToGroundMotions(gmmTable, cache);
       this.groundMotionsToCurves = config.curve.gmmUncertainty && gmmSet.epiUncertainty()
           ? new GroundMotionsToCurvesWithUncertainty(gmmSet, config)
           : new GroundMotionsToCurves(config);
@@ -535,8 +669,10 @@ final class Transforms {
 
     private final InputsToGroundMotions transform;
 
-    ClusterInputsToGroundMotions(Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable) {
-      transform = new InputsToGroundMotions(gmmTable);
+    ClusterInputsToGroundMotions(
+        Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable,
+        Optional<GroundMotionCache> cache) {
+      transform = new InputsToGroundMotions(gmmTable, cache);
     }
 
     @Override
@@ -561,12 +697,16 @@ final class Transforms {
       Function<ClusterGroundMotions, ClusterCurves> {
 
     private final Map<Imt, XySequence> logModelCurves;
+    private final Map<Imt, double[]> modelImls;
     private final ExceedanceModel exceedanceModel;
+    private final ExceedanceEvaluation exceedanceEvaluation;
     private final double truncationLevel;
 
     ClusterGroundMotionsToCurves(CalcConfig config) {
       this.logModelCurves = config.curve.logModelCurves();
+      this.modelImls = xValueArrays(logModelCurves);
       this.exceedanceModel = config.curve.exceedanceModel;
+      this.exceedanceEvaluation = config.curve.exceedanceEvaluation;
       this.truncationLevel = config.curve.truncationLevel;
     }
 
@@ -585,27 +725,25 @@ final class Transforms {
             .enumKeys(Gmm.class)
             .arrayListValues(clusterGroundMotions.size())
             .build();
-        XySequence utilCurve = XySequence.copyOf(modelCurve);
+        double[] imls = modelImls.get(imt);
 
         for (GroundMotions groundMotions : clusterGroundMotions) {
 
-          Map<Gmm, List<Double>> gmmMeans = groundMotions.μLists.get(imt);
-          Map<Gmm, List<Double>> gmmSigmas = groundMotions.σLists.get(imt);
-
-          for (Gmm gmm : gmmMeans.keySet()) {
-            XySequence magVarCurve = XySequence.copyOf(modelCurve);
-            List<Double> means = gmmMeans.get(gmm);
-            List<Double> sigmas = gmmSigmas.get(gmm);
+          for (Gmm gmm : groundMotions.gmms) {
+            double[] magVarValues = new double[imls.length];
+            int offset = groundMotions.offset(imt, gmm);
             for (int i = 0; i < groundMotions.inputs.size(); i++) {
               exceedanceModel.exceedance(
-                  means.get(i),
-                  sigmas.get(i),
+                  groundMotions.mean(offset + i),
+                  groundMotions.sigma(offset + i),
                   truncationLevel,
                   imt,
-                  utilCurve);
-              utilCurve.multiply(groundMotions.inputs.get(i).rate);
-              magVarCurve.add(utilCurve);
+                  groundMotions.inputs.get(i).rate,
+                  imls,
+                  magVarValues,
+                  exceedanceEvaluation);
             }
+            XySequence magVarCurve = XySequence.copyOf(modelCurve).add(magVarValues);
             faultCurves.put(gmm, magVarCurve);
           }
         }
@@ -636,13 +774,14 @@ final class Transforms {
     ClusterToCurves(
         ClusterSourceSet sources,
         CalcConfig config,
-        Site site) {
+        Site site,
+        Optional<GroundMotionCache> cache) {
 
       Set<Gmm> gmms = sources.groundMotionModels().gmms();
       Map<Imt, Map<Gmm, GroundMotionModel>> gmmTable = instances(config.curve.imts, gmms);
 
       this.sourceToInputs = new ClusterSourceToInputs(site);
-      this.inputsToGroundMotions = new ClusterInputsToGroundMotions(gmmTable);
+      this.inputsToGroundMotions = new ClusterInputsToGroundMotions(gmmTable, cache);
       this.groundMotionsToCurves = new ClusterGroundMotionsToCurves(config);
     }
 
@@ -664,18 +803,25 @@ final class Transforms {
 
     private final ClusterSourceSet sources;
     private final Map<Imt, XySequence> modelCurves;
+    private final Optional<GroundMotionCache> cache;
 
     ClusterCurveConsolidator(
         ClusterSourceSet sources,
-        CalcConfig config) {
+        CalcConfig config,
+        Optional<GroundMotionCache> cache) {
 
       this.sources = sources;
       this.modelCurves = config.curve.logModelCurves();
+      this.cache = cache;
     }
 
     @Override
     public HazardCurveSet apply(List<ClusterCurves> curvesList) {
 
+      if (cache.isPresent()) {
+        cache.get().logStatistics();
+      }
+
       if (curvesList.isEmpty()) {
         return HazardCurveSet.empty(sources);
       }
@@ -3,10 +3,11 @@ package org.opensha2.eq.fault.surface;
 import org.opensha2.eq.model.Distance;
 import org.opensha2.geo.Location;
 import org.opensha2.geo.LocationList;
+import org.opensha2.geo.Locations;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * <b>Title:</b> GriddedSurface<p> <b>Description:</b>
@@ -26,6 +27,22 @@ abstract class AbstractGriddedSurface extends Container2DImpl<Location> implemen
 
   double strikeSpacing;
   double dipSpacing;
+
+  /*
+   * Grid nodes are stored in row-major primitive arrays of latitude and
+   * longitude, in radians, and depth, rather than as Location objects, and are
+   * allocated on the first call to set(). Distance calculations read the
+   * arrays directly; get() recreates an equal Location on demand.
+   */
+  private double[] lats;
+  private double[] lons;
+  private double[] depths;
+
+  /*
+   * Rows of grid nodes as Locations, created on demand and retained for use as
+   * traces and perimeters in distance calculations. Cleared by set().
+   */
+  private ImmutableList<Location>[] rows;
   // protected Boolean sameGridSpacing;
 
   // for distance measures
@@ -139,16 +156,141 @@ abstract class AbstractGriddedSurface extends Container2DImpl<Location> implemen
    * @param row
    */
   public LocationList getRowAsTrace(int row) {
-    List<Location> locs = Lists.newArrayList();
-    for (int col = 0; col < getNumCols(); col++) {
-      locs.add(get(row, col));
+    return LocationList.create(row(row));
+  }
+
+  /* The Locations of a row, created on the first request. */
+  ImmutableList<Location> row(int row) {
+    checkBounds(row, 0);
+    ImmutableList<Location>[] rows = this.rows;
+    if (rows == null) {
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      ImmutableList<Location>[] newRows = new ImmutableList[getNumRows()];
+      rows = newRows;
+      this.rows = rows;
+    }
+    ImmutableList<Location> locs = rows[row];
+    if (locs == null) {
+      ImmutableList.Builder<Location> builder = ImmutableList.builder();
+      for (int col = 0; col < getNumCols(); col++) {
+        builder.add(get(row, col));
+      }
+      locs = builder.build();
+      rows[row] = locs;
     }
-    return LocationList.create(locs);
+    return locs;
+  }
+
+  @Override
+  public void set(int row, int column, Location loc) {
+    checkBounds(row, column);
+    if (lats == null) {
+      int size = getNumRows() * getNumCols();
+      lats = new double[size];
+      lons = new double[size];
+      depths = new double[size];
+      Arrays.fill(lats, Double.NaN);
+    }
+    int index = row * getNumCols() + column;
+    lats[index] = (loc == null) ? Double.NaN : loc.latRad();
+    lons[index] = (loc == null) ? Double.NaN : loc.lonRad();
+    depths[index] = (loc == null) ? Double.NaN : loc.depth();
+    rows = null;
+  }
+
+  @Override
+  public Location get(int row, int column) {
+    checkBounds(row, column);
+    if (lats == null) {
+      return null;
+    }
+    int index = row * getNumCols() + column;
+    double lat = lats[index];
+    return Double.isNaN(lat) ? null : Location.fromRadians(lat, lons[index], depths[index]);
+  }
+
+  @Override
+  protected void setNumRowsAndNumCols(int numRows, int numCols) {
+    super.setNumRowsAndNumCols(numRows, numCols);
+    lats = null;
+    lons = null;
+    depths = null;
+    rows = null;
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    lats = null;
+    lons = null;
+    depths = null;
+    rows = null;
   }
 
   @Override
   public Distance distanceTo(Location loc) {
-    return Distance.compute(this, loc);
+    return distanceTo(this, loc, 0, 0, getNumRows(), getNumCols());
+  }
+
+  /*
+   * Distance metrics for a surface that spans the supplied window of this
+   * surface, computed from the node arrays. Consistent with
+   * Distance.compute(GriddedSurface, Location), only the top row of a
+   * near-vertical surface is considered.
+   */
+  Distance distanceTo(
+      GriddedSurface surface,
+      Location loc,
+      int startRow,
+      int startCol,
+      int numRows,
+      int numCols) {
+
+    int endRow = startRow + ((surface.dip() > 89) ? 1 : numRows);
+    int cols = getNumCols();
+    double depth = loc.depth();
+    double horzMin = Double.MAX_VALUE;
+    double slantSqMin = Double.MAX_VALUE;
+    for (int row = startRow; row < endRow; row++) {
+      for (int index = row * cols + startCol, end = index + numCols; index < end; index++) {
+        double horz = Locations.horzDistanceFast(loc, lats[index], lons[index]);
+        double vert = depths[index] - depth;
+        if (horz < horzMin) {
+          horzMin = horz;
+        }
+        double slantSq = horz * horz + vert * vert;
+        if (slantSq < slantSqMin) {
+          slantSqMin = slantSq;
+        }
+      }
+    }
+    return Distance.compute(surface, loc, horzMin, slantSqMin);
+  }
+
+  /*
+   * Populate the supplied arrays with the horizontal and squared slant
+   * distances from a site to every node, in row-major order.
+   */
+  void nodeDistances(Location loc, double[] horz, double[] slantSq) {
+    double depth = loc.depth();
+    for (int index = 0; index < horz.length; index++) {
+      double h = Locations.horzDistanceFast(loc, lats[index], lons[index]);
+      double v = depths[index] - depth;
+      horz[index] = h;
+      slantSq[index] = h * h + v * v;
+    }
+  }
+
+  /*
+   * The average depth of a span of nodes in a row, read from the node arrays
+   * rather than from the Locations of the row.
+   */
+  double depth(int row, int startCol, int numCols) {
+    double depth = 0;
+    for (int index = row * getNumCols() + startCol, end = index + numCols; index < end; index++) {
+      depth += depths[index];
+    }
+    return depth / numCols;
   }
 
   // @Deprecated
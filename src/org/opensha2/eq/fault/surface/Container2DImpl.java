@@ -29,7 +29,11 @@ import java.util.NoSuchElementException;
 
 class Container2DImpl<T> implements Container2D<T> {
 
-  /** Array of data elements - 2D flattened into 1D Array */
+  /**
+   * Array of data elements - 2D flattened into 1D Array. Allocated on first
+   * {@code set()} so that subclasses that provide their own storage do not
+   * carry an unused array.
+   */
   private Object[] data;
 
   /** The number of rows in this two dimensional matrix. */
@@ -73,7 +77,6 @@ class Container2DImpl<T> implements Container2D<T> {
     this.numRows = numRows;
     this.numCols = numCols;
     size = (long) numRows * (long) numCols;
-    data = new Object[numRows * numCols];
   }
 
   /** Sets the name of this container */
@@ -101,6 +104,9 @@ class Container2DImpl<T> implements Container2D<T> {
   @Override
   public void set(int row, int column, T obj) throws ArrayIndexOutOfBoundsException {
     checkBounds(row, column);
+    if (data == null) {
+      data = new Object[numRows * numCols];
+    }
     data[row * numCols + column] = obj;
   }
 
@@ -113,8 +119,7 @@ class Container2DImpl<T> implements Container2D<T> {
     this.numCols = numCols;
     this.numRows = numRows;
     size = (long) numRows * (long) numCols;
-    data = new Object[numRows * numCols];
-
+    data = null;
   }
 
   /**
@@ -147,7 +152,7 @@ class Container2DImpl<T> implements Container2D<T> {
   @SuppressWarnings("unchecked")
   public T get(int row, int column) {
     checkBounds(row, column);
-    return (T) data[row * numCols + column];
+    return (data == null) ? null : (T) data[row * numCols + column];
   }
 
   /**
@@ -597,10 +602,9 @@ class Container2DImpl<T> implements Container2D<T> {
      * @exception NoSuchElementException Description of the Exception
      */
     @Override
-    @SuppressWarnings("unchecked")
     public T next() throws NoSuchElementException {
       try {
-        T object = (T) data[pinnedRow * numCols + cursor];
+        T object = get(pinnedRow, cursor);
         lastRet = cursor++;
         return object;
       } catch (IndexOutOfBoundsException e) {
@@ -58,6 +58,7 @@ public class DefaultGriddedSurface extends AbstractGriddedSurface {
   private final double aseisReduceH;
 
   private final Location centroid;
+  private final LocationList perimeter;
 
   private DefaultGriddedSurface(LocationList trace, double dipRad, double dipDirRad,
       double depth, double aseis, double width, double strikeSpacing, double dipSpacing) {
@@ -80,6 +81,7 @@ public class DefaultGriddedSurface extends AbstractGriddedSurface {
     createEvenlyGriddedSurface();
 
     centroid = Locations.centroid(this);
+    perimeter = createPerimeter();
   }
 
   /**
@@ -463,6 +465,10 @@ public class DefaultGriddedSurface extends AbstractGriddedSurface {
    */
   @Override
   public LocationList getPerimeter() {
+    return perimeter;
+  }
+
+  private LocationList createPerimeter() {
 
     List<Location> topLocs = Lists.newArrayList();
     List<Location> botLocs = Lists.newArrayList();
@@ -0,0 +1,417 @@
+package org.opensha2.eq.fault.surface;
+
+import org.opensha2.eq.model.Distance;
+import org.opensha2.geo.Location;
+import org.opensha2.geo.Locations;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Floating ruptures that are windows into a common parent
+ * {@link GriddedSurface} and their distances to a site.
+ *
+ * <p>Floating rupture surfaces are stored compactly as the row and column
+ * bounds of their windows into the parent surface; identical windows (e.g.
+ * those of magnitudes with the same rounded dimensions) are stored once.
+ * Surfaces are only created on request and when computing distances.
+ *
+ * <p>Computing rJB and rRup for a gridded surface requires the minimum
+ * horizontal and slant distance from a site to the nodes of the surface.
+ * Floating ruptures overlap extensively, so rather than visit the nodes of
+ * every floater, the distances to every node of the parent surface are
+ * computed once per site and the minimum over each floater is found by
+ * sliding a window of the floater's dimensions across the parent grid. All
+ * floaters of like dimensions (e.g. of the same magnitude) share a single
+ * pass, such that the per-site cost is proportional to the size of the parent
+ * grid and the number of floater dimensions, rather than to the number of
+ * floaters times their size. Groups of only a few floaters are visited
+ * directly.
+ *
+ * <p>Distances are identical to those obtained by calling
+ * {@link GriddedSurface#distanceTo(Location)} on each floating surface.
+ *
+ * @author Peter Powers
+ */
+public final class FloatingDistances {
+
+  /*
+   * Groups whose combined node count is at most this multiple of the parent
+   * node count are visited directly rather than by sliding window.
+   */
+  static final int DIRECT_FACTOR = 4;
+
+  private final GriddedSurface parent;
+  private final int rows;
+  private final int cols;
+
+  private final int[] startRows;
+  private final int[] startCols;
+  private final int[] numRows;
+  private final int[] numCols;
+  private final Group[] groups;
+
+  private FloatingDistances(
+      GriddedSurface parent,
+      int[] startRows,
+      int[] startCols,
+      int[] numRows,
+      int[] numCols) {
+
+    this.parent = parent;
+    this.rows = parent.getNumRows();
+    this.cols = parent.getNumCols();
+    this.startRows = startRows;
+    this.startCols = startCols;
+    this.numRows = numRows;
+    this.numCols = numCols;
+
+    /*
+     * Consistent with Distance.compute(), only the top row of near-vertical
+     * surfaces is considered.
+     */
+    boolean vertical = parent.dip() > 89;
+
+    Map<Integer, Integer> groupIndices = new HashMap<>();
+    int[] groupIds = new int[startRows.length];
+    int[] groupSizes = new int[startRows.length];
+    int lastShape = -1;
+    int lastGroup = -1;
+    for (int i = 0; i < startRows.length; i++) {
+      int shape = shape(vertical ? 1 : numRows[i], numCols[i]);
+      if (shape != lastShape) {
+        Integer group = groupIndices.get(shape);
+        if (group == null) {
+          group = groupIndices.size();
+          groupIndices.put(shape, group);
+        }
+        lastShape = shape;
+        lastGroup = group;
+      }
+      groupIds[i] = lastGroup;
+      groupSizes[lastGroup]++;
+    }
+
+    groups = new Group[groupIndices.size()];
+    for (int i = 0; i < startRows.length; i++) {
+      Group group = groups[groupIds[i]];
+      if (group == null) {
+        group = new Group(
+            vertical ? 1 : numRows[i],
+            numCols[i],
+            new int[groupSizes[groupIds[i]]]);
+        groups[groupIds[i]] = group;
+      }
+      group.members[group.size++] = i;
+    }
+  }
+
+  /*
+   * Window dimensions packed into an int; surfaces are nowhere near 2^15 nodes
+   * along strike or down dip.
+   */
+  private static int shape(int numRows, int numCols) {
+    return numRows << 16 | numCols;
+  }
+
+  /**
+   * Return a new builder of floating rupture windows into the supplied parent
+   * surface.
+   *
+   * @param parent surface
+   */
+  public static Builder builder(GriddedSurface parent) {
+    return new Builder(parent);
+  }
+
+  /**
+   * The number of distinct floating surfaces.
+   */
+  public int size() {
+    return startRows.length;
+  }
+
+  /**
+   * Create the floating surface at the supplied index.
+   *
+   * @param index of surface
+   */
+  public GriddedSurface surface(int index) {
+    return new GriddedSubsetSurface(
+        numRows[index],
+        numCols[index],
+        startRows[index],
+        startCols[index],
+        parent);
+  }
+
+  /**
+   * The dip of the floating surface at the supplied index.
+   *
+   * @param index of surface
+   */
+  public double dip(int index) {
+    return parent.dip();
+  }
+
+  /**
+   * The down-dip width of the floating surface at the supplied index.
+   *
+   * @param index of surface
+   */
+  public double width(int index) {
+    return parent.getGridSpacingDownDip() * (numRows[index] - 1);
+  }
+
+  /**
+   * The average depth of the upper edge of the floating surface at the
+   * supplied index.
+   *
+   * @param index of surface
+   */
+  public double depth(int index) {
+    if (parent instanceof AbstractGriddedSurface) {
+      return ((AbstractGriddedSurface) parent).depth(
+          startRows[index],
+          startCols[index],
+          numCols[index]);
+    }
+    return surface(index).depth();
+  }
+
+  /**
+   * Compute the distance metrics from a site to every floating surface.
+   *
+   * @param site of interest
+   * @return distances, 1:1 with surface indices
+   */
+  public Distance[] distances(Location site) {
+    int size = size();
+    Distance[] distances = new Distance[size];
+    if (size == 0) {
+      return distances;
+    }
+
+    int cells = rows * cols;
+    double[] horz = new double[cells];
+    double[] slantSq = new double[cells];
+    if (parent instanceof AbstractGriddedSurface) {
+      ((AbstractGriddedSurface) parent).nodeDistances(site, horz, slantSq);
+    } else {
+      for (int row = 0, k = 0; row < rows; row++) {
+        for (int col = 0; col < cols; col++, k++) {
+          Location node = parent.get(row, col);
+          double v = Locations.vertDistance(site, node);
+          double h = Locations.horzDistanceFast(site, node);
+          horz[k] = h;
+          slantSq[k] = h * h + v * v;
+        }
+      }
+    }
+
+    double[] horzMin = new double[size];
+    double[] slantSqMin = new double[size];
+    for (Group group : groups) {
+      if (group.members.length * group.rows * group.cols <= DIRECT_FACTOR * cells) {
+        for (int i : group.members) {
+          horzMin[i] = windowMin(horz, startRows[i], startCols[i], group.rows, group.cols);
+          slantSqMin[i] = windowMin(slantSq, startRows[i], startCols[i], group.rows, group.cols);
+        }
+      } else {
+        int outCols = cols - group.cols + 1;
+        double[] horzSlide = slidingMin(horz, group.rows, group.cols);
+        double[] slantSqSlide = slidingMin(slantSq, group.rows, group.cols);
+        for (int i : group.members) {
+          int k = startRows[i] * outCols + startCols[i];
+          horzMin[i] = horzSlide[k];
+          slantSqMin[i] = slantSqSlide[k];
+        }
+      }
+    }
+
+    for (int i = 0; i < size; i++) {
+      distances[i] = Distance.compute(surface(i), site, horzMin[i], slantSqMin[i]);
+    }
+    return distances;
+  }
+
+  /* Minimum of a window of a row-major grid. */
+  private double windowMin(double[] grid, int startRow, int startCol, int nRows, int nCols) {
+    double min = Double.MAX_VALUE;
+    for (int row = startRow; row < startRow + nRows; row++) {
+      int k = row * cols + startCol;
+      for (int end = k + nCols; k < end; k++) {
+        min = Math.min(min, grid[k]);
+      }
+    }
+    return min;
+  }
+
+  /*
+   * Minimum of every nRows x nCols window of a row-major grid, indexed by
+   * window origin in a (rows - nRows + 1) x (cols - nCols + 1) row-major grid.
+   */
+  private double[] slidingMin(double[] grid, int nRows, int nCols) {
+    int outRows = rows - nRows + 1;
+    int outCols = cols - nCols + 1;
+
+    /* Along rows. */
+    double[] rowMin = new double[rows * outCols];
+    double[] prefix = new double[Math.max(rows, cols)];
+    double[] suffix = new double[prefix.length];
+    for (int row = 0; row < rows; row++) {
+      slidingMin(grid, row * cols, 1, cols, nCols, rowMin, row * outCols, 1, prefix, suffix);
+    }
+
+    /* Down columns. */
+    double[] min = new double[outRows * outCols];
+    for (int col = 0; col < outCols; col++) {
+      slidingMin(rowMin, col, outCols, rows, nRows, min, col, outCols, prefix, suffix);
+    }
+    return min;
+  }
+
+  /*
+   * Van Herk/Gil-Werman sliding window minimum over n strided values: the
+   * minimum of a window is the smaller of the suffix minimum of the block in
+   * which it starts and the prefix minimum of the block in which it ends.
+   */
+  private static void slidingMin(
+      double[] in, int inOffset, int inStride,
+      int n, int w,
+      double[] out, int outOffset, int outStride,
+      double[] prefix, double[] suffix) {
+
+    for (int i = 0; i < n; i++) {
+      double value = in[inOffset + i * inStride];
+      prefix[i] = (i % w == 0) ? value : Math.min(prefix[i - 1], value);
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      double value = in[inOffset + i * inStride];
+      suffix[i] = (i == n - 1 || (i + 1) % w == 0) ? value : Math.min(suffix[i + 1], value);
+    }
+    for (int i = 0; i <= n - w; i++) {
+      out[outOffset + i * outStride] = Math.min(suffix[i], prefix[i + w - 1]);
+    }
+  }
+
+  /* Surfaces of like dimensions. */
+  private static final class Group {
+
+    final int rows;
+    final int cols;
+    final int[] members;
+    int size;
+
+    Group(int rows, int cols, int[] members) {
+      this.rows = rows;
+      this.cols = cols;
+      this.members = members;
+    }
+  }
+
+  /**
+   * A builder of floating rupture windows.
+   */
+  public static final class Builder {
+
+    private final GriddedSurface parent;
+    private final int cells;
+
+    /*
+     * Window indices for each window shape, indexed by window origin in the
+     * row-major parent grid. Floaters of a shape are generally added
+     * consecutively, so the last shape is checked first.
+     */
+    private final Map<Integer, int[]> shapeIndices = new HashMap<>();
+    private int lastShape = -1;
+    private int[] lastIndices;
+
+    private int size;
+    private int[] startRows = new int[16];
+    private int[] startCols = new int[16];
+    private int[] numRows = new int[16];
+    private int[] numCols = new int[16];
+
+    private Builder(GriddedSurface parent) {
+      this.parent = parent;
+      this.cells = parent.getNumRows() * parent.getNumCols();
+    }
+
+    /**
+     * Add a floating surface, returning its index. Surfaces with the same
+     * window share an index. If the supplied surface is not a window into the
+     * parent surface, it is not added and {@code -1} is returned.
+     *
+     * @param surface to add
+     */
+    public int add(RuptureSurface surface) {
+      if (!(surface instanceof GriddedSubsetSurface)) {
+        return -1;
+      }
+      GriddedSubsetSurface subset = (GriddedSubsetSurface) surface;
+      if (subset.getContainer2D() != parent) {
+        return -1;
+      }
+      return add(
+          subset.getStartRow(),
+          subset.getStartCol(),
+          subset.getNumRows(),
+          subset.getNumCols());
+    }
+
+    /**
+     * Add a floating window, returning its index. Identical windows share an
+     * index.
+     *
+     * @param startRow of the window in the parent surface
+     * @param startCol of the window in the parent surface
+     * @param numRows in the window
+     * @param numCols in the window
+     */
+    public int add(int startRow, int startCol, int numRows, int numCols) {
+      int shape = shape(numRows, numCols);
+      if (shape != lastShape) {
+        int[] indices = shapeIndices.get(shape);
+        if (indices == null) {
+          indices = new int[cells];
+          Arrays.fill(indices, -1);
+          shapeIndices.put(shape, indices);
+        }
+        lastShape = shape;
+        lastIndices = indices;
+      }
+      int origin = startRow * parent.getNumCols() + startCol;
+      int index = lastIndices[origin];
+      if (index < 0) {
+        index = size++;
+        if (index == startRows.length) {
+          int capacity = index * 2;
+          startRows = Arrays.copyOf(startRows, capacity);
+          startCols = Arrays.copyOf(startCols, capacity);
+          this.numRows = Arrays.copyOf(this.numRows, capacity);
+          this.numCols = Arrays.copyOf(this.numCols, capacity);
+        }
+        startRows[index] = startRow;
+        startCols[index] = startCol;
+        this.numRows[index] = numRows;
+        this.numCols[index] = numCols;
+        lastIndices[origin] = index;
+      }
+      return index;
+    }
+
+    /**
+     * Return a new {@code FloatingDistances} instance.
+     */
+    public FloatingDistances build() {
+      return new FloatingDistances(
+          parent,
+          Arrays.copyOf(startRows, size),
+          Arrays.copyOf(startCols, size),
+          Arrays.copyOf(numRows, size),
+          Arrays.copyOf(numCols, size));
+    }
+  }
+}
@@ -158,6 +158,12 @@ class GriddedSubsetSurface extends ContainerSubset2D<Location> implements Gridde
   }
 
   public LocationList getRow(int row) {
+    if (data instanceof AbstractGriddedSurface && window.isValidRow(row)) {
+      int startCol = getStartCol();
+      return LocationList.create(((AbstractGriddedSurface) data)
+          .row(window.getTranslatedRow(row))
+          .subList(startCol, startCol + getNumCols()));
+    }
     List<Location> locs = Lists.newArrayList();
     for (int col = 0; col < getNumCols(); col++) {
       locs.add(get(row, col));
@@ -217,6 +223,10 @@ class GriddedSubsetSurface extends ContainerSubset2D<Location> implements Gridde
 
   @Override
   public Distance distanceTo(Location loc) {
+    if (data instanceof AbstractGriddedSurface) {
+      return ((AbstractGriddedSurface) data).distanceTo(
+          this, loc, getStartRow(), getStartCol(), getNumRows(), getNumCols());
+    }
     return Distance.compute(this, loc);
   }
 
@@ -310,6 +320,9 @@ class GriddedSubsetSurface extends ContainerSubset2D<Location> implements Gridde
     // // row
     // return getLocation(0, 0).depth();
     // }
+    if (data instanceof AbstractGriddedSurface) {
+      return ((AbstractGriddedSurface) data).depth(getStartRow(), getStartCol(), getNumCols());
+    }
     double depth = 0;
     LocationList topTrace = getRow(0);
     for (Location loc : topTrace) {
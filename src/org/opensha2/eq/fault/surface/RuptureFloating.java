@@ -12,7 +12,6 @@ import org.opensha2.geo.LocationList;
 import com.google.common.collect.Range;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -38,32 +37,34 @@ public enum RuptureFloating {
       floaters.add(Rupture.create(mag, rate, rake, surface));
       return floaters;
     }
+
+    @Override
+    public void floatingWindows(GriddedSurface surface, RuptureScaling scaling, double mag,
+        double rate, boolean uncertainty, WindowHandler handler) {
+      throw new UnsupportedOperationException("OFF does not create floating windows");
+    }
   },
 
   /** Float both down-dip and along-strike. */
   ON {
     @Override
-    public List<Rupture> createFloatingRuptures(GriddedSurface surface,
-        RuptureScaling scaling, double mag, double rate, double rake, boolean uncertainty) {
+    public void floatingWindows(GriddedSurface surface, RuptureScaling scaling, double mag,
+        double rate, boolean uncertainty, WindowHandler handler) {
 
       double maxWidth = surface.width();
 
       if (uncertainty) {
-        List<Rupture> floaters = new ArrayList<>();
         Map<Dimensions, Double> dimensionsMap = scaling.dimensionsDistribution(mag,
             maxWidth);
         for (Entry<Dimensions, Double> entry : dimensionsMap.entrySet()) {
           Dimensions d = entry.getKey();
-          List<GriddedSurface> surfaces = createFloatingSurfaces(surface, d.length,
-              d.width);
           double scaledRate = rate * entry.getValue();
-          floaters.addAll(createFloaters(surfaces, mag, scaledRate, rake));
+          floatWindows(surface, d.length, d.width, scaledRate, handler);
         }
-        return floaters;
+        return;
       }
       Dimensions d = scaling.dimensions(mag, maxWidth);
-      List<GriddedSurface> surfaces = createFloatingSurfaces(surface, d.length, d.width);
-      return createFloaters(surfaces, mag, rate, rake);
+      floatWindows(surface, d.length, d.width, rate, handler);
     }
   },
 
@@ -73,12 +74,11 @@ public enum RuptureFloating {
    */
   STRIKE_ONLY {
     @Override
-    public List<Rupture> createFloatingRuptures(GriddedSurface surface,
-        RuptureScaling scaling, double mag, double rate, double rake, boolean uncertainty) {
+    public void floatingWindows(GriddedSurface surface, RuptureScaling scaling, double mag,
+        double rate, boolean uncertainty, WindowHandler handler) {
       double maxWidth = surface.width();
       Dimensions d = scaling.dimensions(mag, maxWidth);
-      List<GriddedSurface> surfaces = createFloatingSurfaces(surface, d.length, maxWidth);
-      return createFloaters(surfaces, mag, rate, rake);
+      floatWindows(surface, d.length, maxWidth, rate, handler);
     }
   },
 
@@ -90,10 +90,9 @@ public enum RuptureFloating {
    */
   NSHM {
     @Override
-    public List<Rupture> createFloatingRuptures(GriddedSurface surface,
-        RuptureScaling scaling, double mag, double rate, double rake, boolean uncertainty) {
-      List<GriddedSurface> surfaces = floatListNshm(surface, scaling, mag);
-      return createFloaters(surfaces, mag, rate, rake);
+    public void floatingWindows(GriddedSurface surface, RuptureScaling scaling, double mag,
+        double rate, boolean uncertainty, WindowHandler handler) {
+      floatWindowsNshm(surface, scaling, mag, rate, handler);
     }
   },
 
@@ -107,14 +106,12 @@ public enum RuptureFloating {
    */
   TRIANGULAR {
     @Override
-    public List<Rupture> createFloatingRuptures(GriddedSurface surface,
-        RuptureScaling scaling, double mag, double rate, double rake, boolean uncertainty) {
+    public void floatingWindows(GriddedSurface surface, RuptureScaling scaling, double mag,
+        double rate, boolean uncertainty, WindowHandler handler) {
 
       double maxWidth = surface.width();
       Dimensions d = scaling.dimensions(mag, maxWidth);
-      Map<GriddedSurface, Double> surfaces = createWeightedFloatingSurfaces(surface,
-          d.length, d.width);
-      return createFloaters(surfaces, mag, rate, rake);
+      floatWeightedWindows(surface, d.length, d.width, rate, handler);
     }
   };
 
@@ -124,38 +121,68 @@ public enum RuptureFloating {
    * spacing to 1km and outputting Transforms.sourceToInput
    */
 
-  private static List<Rupture> createFloaters(List<GriddedSurface> floatingSurfaces, double mag,
-      double rate, double rake) {
-    List<Rupture> floaters = new ArrayList<>();
-    double scaledRate = rate / floatingSurfaces.size();
-    for (GriddedSurface floatingSurface : floatingSurfaces) {
-      floaters.add(Rupture.create(mag, scaledRate, rake, floatingSurface));
-    }
-    return floaters;
+  /**
+   * A receiver of floating rupture windows. Each window is identified by its
+   * origin and size, in rows and columns of the parent surface.
+   */
+  public interface WindowHandler {
+
+    /**
+     * Handle a floating rupture window.
+     *
+     * @param startRow of the window in the parent surface
+     * @param startCol of the window in the parent surface
+     * @param numRows in the window
+     * @param numCols in the window
+     * @param rate of the rupture that fills the window
+     */
+    void window(int startRow, int startCol, int numRows, int numCols, double rate);
   }
 
-  private static List<Rupture> createFloaters(Map<GriddedSurface, Double> surfaceMap, double mag,
-      double rate, double rake) {
-    List<Rupture> floaters = new ArrayList<>();
-    for (Entry<GriddedSurface, Double> entry : surfaceMap.entrySet()) {
-      floaters.add(Rupture.create(mag, entry.getValue() * rate, rake, entry.getKey()));
-    }
+  // TODO why is this taking DefaultGriddedSurface instead of GriddedSurface
+  /**
+   * Create a {@code List} of floating ruptures
+   * @param surface (gridded) from which floaters are derived
+   * @param scaling the rupture scaling model used to determine floater
+   *        dimensions
+   * @param mag the magnitude of interest
+   */
+  public List<Rupture> createFloatingRuptures(final GriddedSurface surface,
+      RuptureScaling scaling, final double mag, double rate, final double rake,
+      boolean uncertainty) {
+
+    final List<Rupture> floaters = new ArrayList<>();
+    floatingWindows(surface, scaling, mag, rate, uncertainty, new WindowHandler() {
+      @Override
+      public void window(int startRow, int startCol, int numRows, int numCols, double rate) {
+        GriddedSubsetSurface gss = new GriddedSubsetSurface(numRows, numCols,
+            startRow, startCol, surface);
+        floaters.add(Rupture.create(mag, rate, rake, gss));
+      }
+    });
     return floaters;
   }
 
-  // TODO why is this taking DefaultGriddedSurface instead of GriddedSurface
   /**
-   * Create a {@code List} of floating ruptures
+   * Supply the windows of floating ruptures into a surface to a handler,
+   * without creating any surfaces. Windows are supplied in the same order, and
+   * with the same rates, as the ruptures returned by
+   * {@code createFloatingRuptures()}. {@code OFF} does not float and throws an
+   * {@code UnsupportedOperationException}.
+   *
    * @param surface (gridded) from which floaters are derived
    * @param scaling the rupture scaling model used to determine floater
    *        dimensions
    * @param mag the magnitude of interest
+   * @param rate the total rate of all floaters
+   * @param uncertainty whether to apply rupture area uncertainty
+   * @param handler to receive windows
    */
-  public abstract List<Rupture> createFloatingRuptures(GriddedSurface surface,
-      RuptureScaling scaling, double mag, double rate, double rake, boolean uncertainty);
+  public abstract void floatingWindows(GriddedSurface surface, RuptureScaling scaling,
+      double mag, double rate, boolean uncertainty, WindowHandler handler);
 
-  private static List<GriddedSurface> floatListNshm(GriddedSurface parent,
-      RuptureScaling scaling, double mag) {
+  private static void floatWindowsNshm(GriddedSurface parent, RuptureScaling scaling,
+      double mag, double rate, WindowHandler handler) {
 
     // zTop > 1, no down-dip variants
     // M>7 [zTop]
@@ -165,23 +192,22 @@ public enum RuptureFloating {
 
     double zTop = parent.depth();
     int downDipCount = (zTop > 1.0 || mag > 7.0) ? 1 : (mag > 6.75) ? 2 : (mag > 6.5) ? 3 : 4;
-    List<Double> zTopWidths = new ArrayList<>();
 
+    // compute row start index and rowCount for each depth
+    int[] startRows = new int[downDipCount];
+    int[] floaterRowSizes = new int[downDipCount];
+    int[] floaterColSizes = new int[downDipCount];
+    int[] alongCounts = new int[downDipCount];
+    int count = 0;
     for (int i = 0; i < downDipCount; i++) {
       double zWidthDelta = 2.0 / sin(parent.dipRad());
-      zTopWidths.add(0.0 + i * zWidthDelta);
-    }
-
-    List<GriddedSurface> floaterList = new ArrayList<>();
-
-    // compute row start index and rowCount for each depth
-    for (double zTopWidth : zTopWidths) {
+      double zTopWidth = 0.0 + i * zWidthDelta;
 
       Dimensions d = scaling.dimensions(mag, parent.width() - zTopWidth);
 
       // row start and
-      int startRow = (int) Math.rint(zTopWidth / parent.getGridSpacingDownDip());
-      int floaterRowSize = (int) Math.rint(d.width / parent.getGridSpacingDownDip() + 1);
+      startRows[i] = (int) Math.rint(zTopWidth / parent.getGridSpacingDownDip());
+      floaterRowSizes[i] = (int) Math.rint(d.width / parent.getGridSpacingDownDip() + 1);
 
       // along-strike size & count
       int floaterColSize = (int) Math.rint(d.length / parent.getGridSpacingAlongStrike() + 1);
@@ -190,21 +216,23 @@ public enum RuptureFloating {
         alongCount = 1;
         floaterColSize = parent.getNumCols();
       }
+      floaterColSizes[i] = floaterColSize;
+      alongCounts[i] = alongCount;
+      count += alongCount;
+    }
 
-      for (int startCol = 0; startCol < alongCount; startCol++) {
-        GriddedSubsetSurface gss = new GriddedSubsetSurface(floaterRowSize, floaterColSize,
-            startRow, startCol, parent);
-        floaterList.add(gss);
+    double scaledRate = rate / count;
+    for (int i = 0; i < downDipCount; i++) {
+      for (int startCol = 0; startCol < alongCounts[i]; startCol++) {
+        handler.window(startRows[i], startCol, floaterRowSizes[i], floaterColSizes[i],
+            scaledRate);
       }
     }
-    return floaterList;
   }
 
-  /* Create a List of floating surfaces. */
-  private static List<GriddedSurface> createFloatingSurfaces(GriddedSurface parent,
-      double floatLength, double floatWidth) {
-
-    List<GriddedSurface> floaterList = new ArrayList<>();
+  /* Supply uniformly weighted floating windows. */
+  private static void floatWindows(GriddedSurface parent, double floatLength,
+      double floatWidth, double rate, WindowHandler handler) {
 
     // along-strike size & count
     int floaterColSize = (int) Math.rint(floatLength / parent.getGridSpacingAlongStrike() + 1);
@@ -222,36 +250,30 @@ public enum RuptureFloating {
       floaterRowSize = parent.getNumRows();
     }
 
+    double scaledRate = rate / (alongCount * downCount);
     for (int startCol = 0; startCol < alongCount; startCol++) {
       for (int startRow = 0; startRow < downCount; startRow++) {
-        GriddedSubsetSurface gss = new GriddedSubsetSurface(floaterRowSize, floaterColSize,
-            startRow, startCol, parent);
-        floaterList.add(gss);
+        handler.window(startRow, startCol, floaterRowSize, floaterColSize, scaledRate);
       }
     }
-
-    return floaterList;
   }
 
   /*
-   * Create a Map of floating surfaces and associated weights derived from a
-   * "triangular" down dip distribution of hypocenters. This model is motivated
-   * by the PEER test cases and apparantly is in use in stable continental
-   * regions. The model used in the test case is for a planar, vertical, 30 km
-   * wide fault. The distribution (pdf) of hypocenters increases linearly from
-   * 0.0 at 0km depth to 0.0667 km⁻¹ (or 1/15 km⁻¹) at 10km depth. It then
-   * decreases linearly back to 0.0 at 30km depth. This model generalizes the
-   * above to generate a pdf of weights that peaks at a depth of 1/3 the parent
-   * surface width with weight such that the integral over the distribution is
-   * 1.
+   * Supply floating windows with weights derived from a "triangular" down dip
+   * distribution of hypocenters. This model is motivated by the PEER test
+   * cases and apparantly is in use in stable continental regions. The model
+   * used in the test case is for a planar, vertical, 30 km wide fault. The
+   * distribution (pdf) of hypocenters increases linearly from 0.0 at 0km depth
+   * to 0.0667 km⁻¹ (or 1/15 km⁻¹) at 10km depth. It then decreases linearly
+   * back to 0.0 at 30km depth. This model generalizes the above to generate a
+   * pdf of weights that peaks at a depth of 1/3 the parent surface width with
+   * weight such that the integral over the distribution is 1.
    *
    * Generally this should only be used with wide faults in stable continental
    * crust.
    */
-  private static Map<GriddedSurface, Double> createWeightedFloatingSurfaces(
-      GriddedSurface parent, double floatLength, double floatWidth) {
-
-    Map<GriddedSurface, Double> floaterMap = new HashMap<>();
+  private static void floatWeightedWindows(GriddedSurface parent, double floatLength,
+      double floatWidth, double rate, WindowHandler handler) {
 
     // along-strike size & count
     int floaterColSize = (int) Math.rint(floatLength / parent.getGridSpacingAlongStrike() + 1);
@@ -286,15 +308,10 @@ public enum RuptureFloating {
 
     for (int startCol = 0; startCol < alongCount; startCol++) {
       for (int startRow = 0; startRow < downCount; startRow++) {
-        GriddedSubsetSurface gss = new GriddedSubsetSurface(floaterRowSize, floaterColSize,
-            startRow, startCol, parent);
-        floaterMap.put(gss, depthWeights[startRow]);
+        handler.window(startRow, startCol, floaterRowSize, floaterColSize,
+            depthWeights[startRow] * rate);
       }
     }
-    System.out.println(Data.sum(floaterMap.values()));
-    System.out.println(floaterMap.size());
-
-    return floaterMap;
   }
 
   /*
@@ -340,9 +357,16 @@ public enum RuptureFloating {
     Dimensions d = RuptureScaling.PEER.dimensions(7.0, 30.0);
     System.out.println(d);
 
-    Map<GriddedSurface, Double> map = createWeightedFloatingSurfaces(surf, d.length, d.width);
-    System.out.println(Data.sum(map.values()));
-    System.out.println(map.size());
+    final double[] sum = new double[2];
+    floatWeightedWindows(surf, d.length, d.width, 1.0, new WindowHandler() {
+      @Override
+      public void window(int startRow, int startCol, int numRows, int numCols, double rate) {
+        sum[0] += rate;
+        sum[1]++;
+      }
+    });
+    System.out.println(sum[0]);
+    System.out.println((int) sum[1]);
 
   }
 
@@ -70,7 +70,17 @@ abstract class AbstractSourceSet<T extends Source> implements SourceSet<T> {
   @Override
   public Iterable<T> iterableForLocation(Location loc) {
     Predicate<T> filter = distanceFilter(loc, gmmSet.maxDistance());
-    return FluentIterable.from(this).filter(filter);
+    return FluentIterable.from(candidatesForLocation(loc)).filter(filter);
+  }
+
+  /*
+   * Return the sources that should be tested by the distance filter for the
+   * supplied location. By default, all sources are tested; source sets that
+   * maintain a spatial index may return a smaller, identically ordered subset
+   * that includes every source the filter accepts.
+   */
+  Iterable<T> candidatesForLocation(Location loc) {
+    return this;
   }
 
   static abstract class Builder {
@@ -8,8 +8,10 @@ import static org.opensha2.eq.model.SourceType.AREA;
 import static org.opensha2.internal.TextUtils.validateName;
 
 import org.opensha2.geo.Location;
+import org.opensha2.geo.LocationList;
 import org.opensha2.geo.Locations;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Lists;
 
@@ -24,6 +26,7 @@ import java.util.List;
 public class AreaSourceSet extends AbstractSourceSet<AreaSource> {
 
   final private List<AreaSource> sources;
+  private final SourceIndex<AreaSource> index;
 
   private AreaSourceSet(
       String name,
@@ -34,6 +37,7 @@ public class AreaSourceSet extends AbstractSourceSet<AreaSource> {
 
     super(name, id, weight, gmmSet);
     this.sources = sources;
+    this.index = SourceIndex.create(sources, LOCATIONS, gmmSet.maxDistance());
   }
 
   @Override
@@ -46,6 +50,11 @@ public class AreaSourceSet extends AbstractSourceSet<AreaSource> {
     return sources.size();
   }
 
+  @Override
+  Iterable<AreaSource> candidatesForLocation(Location loc) {
+    return index.candidates(loc);
+  }
+
   @Override
   public SourceType type() {
     return AREA;
@@ -61,6 +70,15 @@ public class AreaSourceSet extends AbstractSourceSet<AreaSource> {
     };
   }
 
+  /* Border locations tested by the distance filter. */
+  private static final Function<AreaSource, LocationList> LOCATIONS =
+      new Function<AreaSource, LocationList>() {
+        @Override
+        public LocationList apply(AreaSource source) {
+          return source.border();
+        }
+      };
+
   /* Single use builder. */
   static class Builder {
 
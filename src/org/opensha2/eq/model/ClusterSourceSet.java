@@ -7,6 +7,7 @@ import static org.opensha2.eq.model.SourceType.CLUSTER;
 
 import org.opensha2.geo.Location;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -23,6 +24,7 @@ import java.util.List;
 public class ClusterSourceSet extends AbstractSourceSet<ClusterSource> {
 
   private final List<ClusterSource> sources;
+  private final SourceIndex<ClusterSource> index;
 
   ClusterSourceSet(
       String name,
@@ -33,6 +35,7 @@ public class ClusterSourceSet extends AbstractSourceSet<ClusterSource> {
 
     super(name, id, weight, gmmSet);
     this.sources = sources;
+    this.index = SourceIndex.create(sources, LOCATIONS, gmmSet.maxDistance());
   }
 
   @Override
@@ -45,6 +48,11 @@ public class ClusterSourceSet extends AbstractSourceSet<ClusterSource> {
     return sources.size();
   }
 
+  @Override
+  Iterable<ClusterSource> candidatesForLocation(Location loc) {
+    return index.candidates(loc);
+  }
+
   @Override
   public SourceType type() {
     return CLUSTER;
@@ -70,6 +78,20 @@ public class ClusterSourceSet extends AbstractSourceSet<ClusterSource> {
     };
   }
 
+  /* Trace endpoints of all faults tested by the distance filter. */
+  private static final Function<ClusterSource, List<Location>> LOCATIONS =
+      new Function<ClusterSource, List<Location>>() {
+        @Override
+        public List<Location> apply(ClusterSource source) {
+          List<Location> locs = Lists.newArrayList();
+          for (FaultSource fault : source.faults) {
+            locs.add(fault.trace.first());
+            locs.add(fault.trace.last());
+          }
+          return locs;
+        }
+      };
+
   /* Single use builder */
   static class Builder extends AbstractSourceSet.Builder {
 
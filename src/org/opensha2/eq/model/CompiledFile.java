@@ -0,0 +1,184 @@
+package org.opensha2.eq.model;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Utilities for reading and writing the compiled, binary representations of
+ * source XML written by HazardModel.compile(). Each compiled file starts with a
+ * marker identifying the kind of file, a format version, and the size,
+ * last-modified time, and hash of the XML from which it was compiled. The XML
+ * is only hashed when loading a model if its size or last-modified time
+ * differs from that recorded in the compiled file. Files are written to a
+ * temporary file that replaces any existing file once complete.
+ *
+ * @author Peter Powers
+ */
+final class CompiledFile {
+
+  private static final Logger LOG = Logger.getLogger(CompiledFile.class.getName());
+
+  private static final String XML_EXTENSION = ".xml";
+  private static final String EXTENSION = ".bin";
+
+  private CompiledFile() {}
+
+  /* Body of a compiled file, read after the header. */
+  abstract static class Reader<T> {
+    abstract T read(ByteBuffer buffer);
+  }
+
+  /* Body of a compiled file, written after the header. */
+  abstract static class Writer {
+    abstract void write(DataOutputStream out) throws IOException;
+  }
+
+  /* Compiled file path for a source XML file, e.g. 'foo.bin' for 'foo.xml'. */
+  static Path path(Path xml) {
+    String name = xml.getFileName().toString();
+    if (name.endsWith(XML_EXTENSION)) {
+      name = name.substring(0, name.length() - XML_EXTENSION.length());
+    }
+    return xml.resolveSibling(name + EXTENSION);
+  }
+
+  /*
+   * Return the body of the supplied file, or null if the file does not exist,
+   * is truncated or corrupt, or was not compiled from the current content of
+   * the supplied XML.
+   */
+  static <T> T read(Path file, Path xml, long marker, int version, Reader<T> body)
+      throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      ByteBuffer buffer = map(file);
+      if (buffer.getLong() == marker &&
+          buffer.getInt() == version &&
+          current(buffer, xml)) {
+        if (LOG.isLoggable(Level.FINE)) {
+          LOG.fine("Using compiled file: " + file);
+        }
+        return body.read(buffer);
+      }
+    } catch (BufferUnderflowException | NegativeArraySizeException |
+        IllegalArgumentException e) {
+      // fall through; file is truncated or corrupt
+    }
+    LOG.warning("Ignoring invalid or out of date compiled file: " + file);
+    return null;
+  }
+
+  /*
+   * Read the XML attributes from the supplied buffer and return whether they
+   * match the current XML. The XML content is only hashed if its size or
+   * last-modified time has changed.
+   */
+  private static boolean current(ByteBuffer buffer, Path xml) throws IOException {
+    long size = buffer.getLong();
+    long modified = buffer.getLong();
+    long hash = buffer.getLong();
+    if (size == Files.size(xml) && modified == lastModified(xml)) {
+      return true;
+    }
+    return hash == hash(xml);
+  }
+
+  /*
+   * Write a header describing the supplied XML, followed by the supplied body,
+   * to a compiled file.
+   */
+  static void write(Path file, Path xml, long marker, int version, Writer body)
+      throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeLong(marker);
+      out.writeInt(version);
+      out.writeLong(Files.size(xml));
+      out.writeLong(lastModified(xml));
+      out.writeLong(hash(xml));
+      body.write(out);
+    }
+    Files.move(temp, file, REPLACE_EXISTING);
+  }
+
+  /* Files in other file systems (e.g. zipped models) are read in full. */
+  private static ByteBuffer map(Path file) throws IOException {
+    if (file.getFileSystem() != FileSystems.getDefault()) {
+      return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+    try (FileChannel channel = FileChannel.open(file)) {
+      return channel.map(READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static long lastModified(Path file) throws IOException {
+    return Files.getLastModifiedTime(file).toMillis();
+  }
+
+  private static long hash(final Path file) throws IOException {
+    return new ByteSource() {
+      @Override
+      public InputStream openStream() throws IOException {
+        return Files.newInputStream(file);
+      }
+    }.hash(Hashing.murmur3_128()).asLong();
+  }
+
+  static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  static int[] readInts(ByteBuffer buffer, int size) {
+    int[] values = new int[size];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + size * 4);
+    return values;
+  }
+
+  static double[] readDoubles(ByteBuffer buffer, int size) {
+    double[] values = new double[size];
+    buffer.asDoubleBuffer().get(values);
+    buffer.position(buffer.position() + size * 8);
+    return values;
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+}
@@ -119,7 +119,29 @@ public final class Distance {
       // }
     }
 
-    distRup = Math.pow(distRup, 0.5);
+    return compute(surface, loc, distJB, distRup);
+  }
+
+  /**
+   * Compute distance metrics: rJB, rRup, and rX, given the minimum horizontal
+   * and minimum squared slant distances from {@code loc} to the nodes of
+   * {@code surface}. Gridded surfaces that can compute these minima more
+   * efficiently than by iterating their nodes use this method to complete the
+   * calculation.
+   *
+   * @param surface
+   * @param loc
+   * @param rJbMin minimum horizontal distance to the nodes of surface
+   * @param rRupSqMin minimum squared slant distance to the nodes of surface
+   */
+  public static Distance compute(
+      GriddedSurface surface,
+      Location loc,
+      double rJbMin,
+      double rRupSqMin) {
+
+    double distJB = rJbMin;
+    double distRup = Math.pow(rRupSqMin, 0.5);
     // distSeis = Math.pow(distSeis,0.5);
 
     // if(D) {
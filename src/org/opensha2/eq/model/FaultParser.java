@@ -42,6 +42,8 @@ import com.google.common.collect.Lists;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -88,6 +90,9 @@ class FaultParser extends DefaultHandler {
   private boolean readingTrace = false;
   private StringBuilder traceBuilder = null;
 
+  // Records builder values when compiling
+  private FaultSourceFile.Builder compiledBuilder;
+
   private FaultParser(SAXParser sax) {
     this.sax = sax;
   }
@@ -107,6 +112,47 @@ class FaultParser extends DefaultHandler {
     return sourceSet;
   }
 
+  /*
+   * Load fault sources from the supplied compiled file if it is current,
+   * otherwise parse the supplied XML. If 'compile' is true, the XML is always
+   * parsed and the compiled file is (re)written.
+   */
+  FaultSourceSet parse(Path xml, Path compiledPath, GmmSet gmmSet, ModelConfig config,
+      boolean compile) throws SAXException, IOException {
+    checkState(!used, "This parser has expired");
+    this.gmmSet = gmmSet;
+    this.config = config;
+    FaultSourceFile compiled = compile ? null : FaultSourceFile.read(compiledPath, xml);
+    if (compiled == null) {
+      if (compile) {
+        compiledBuilder = new FaultSourceFile.Builder();
+      }
+      try (InputStream in = Files.newInputStream(xml)) {
+        sax.parse(in, this);
+      }
+      if (compile) {
+        compiledBuilder.write(xml, compiledPath);
+      }
+    } else {
+      initSourceSet(compiled.name, compiled.id, compiled.weight);
+      for (FaultSourceFile.Source source : compiled.sources) {
+        rupScaling = source.rupScaling;
+        sourceBuilder = newSourceBuilder(source.name, source.id)
+            .trace(source.trace)
+            .depth(source.depth)
+            .dip(source.dip)
+            .rake(source.rake)
+            .width(source.width)
+            .mfds(source.mfds);
+        sourceSetBuilder.source(sourceBuilder.buildFaultSource());
+      }
+      sourceSet = sourceSetBuilder.buildFaultSet();
+    }
+    checkState(sourceSet.size() > 0, "FaultSourceSet is empty");
+    used = true;
+    return sourceSet;
+  }
+
   @Override
   public void startElement(String uri, String localName, String qName, Attributes atts)
       throws SAXException {
@@ -125,20 +171,7 @@ class FaultParser extends DefaultHandler {
           String name = readString(NAME, atts);
           double weight = readDouble(WEIGHT, atts);
           int id = readInt(ID, atts);
-          sourceSetBuilder = new FaultSourceSet.Builder();
-          sourceSetBuilder
-              .name(name)
-              .id(id)
-              .weight(weight)
-              .gmms(gmmSet);
-          if (log.isLoggable(FINE)) {
-            log.fine("");
-            log.fine("       Name: " + name);
-            log.fine("     Weight: " + weight);
-          }
-          mfdHelperBuilder = MfdHelper.builder();
-          // dummy; usually overwritten
-          mfdHelper = mfdHelperBuilder.build();
+          initSourceSet(name, id, weight);
           break;
 
         case DEFAULT_MFDS:
@@ -161,16 +194,9 @@ class FaultParser extends DefaultHandler {
         case SOURCE:
           String srcName = readString(NAME, atts);
           int srcId = readInt(ID, atts);
-          sourceBuilder = new FaultSource.Builder()
-              .name(srcName)
-              .id(srcId)
-              .ruptureScaling(rupScaling)
-              .ruptureFloating(config.ruptureFloating)
-              .ruptureVariability(config.ruptureVariability)
-              .surfaceSpacing(config.surfaceSpacing);
-          log.fine("     Source: " + srcName + " [" + srcId + "]");
-          if (srcId < 0) {
-            log.warning("  Invalid Id [" + srcId + ", " + srcName + "]");
+          sourceBuilder = newSourceBuilder(srcName, srcId);
+          if (compiledBuilder != null) {
+            compiledBuilder.source(srcName, srcId, rupScaling);
           }
           break;
 
@@ -179,14 +205,25 @@ class FaultParser extends DefaultHandler {
             mfdHelperBuilder.addDefault(atts);
             break;
           }
-          sourceBuilder.mfds(buildMfds(atts));
+          List<IncrementalMfd> mfds = buildMfds(atts);
+          sourceBuilder.mfds(mfds);
+          if (compiledBuilder != null) {
+            compiledBuilder.mfds(mfds);
+          }
           break;
 
         case GEOMETRY:
-          sourceBuilder.depth(readDouble(DEPTH, atts))
-              .dip(readDouble(DIP, atts))
-              .rake(readDouble(RAKE, atts))
-              .width(readDouble(WIDTH, atts));
+          double depth = readDouble(DEPTH, atts);
+          double dip = readDouble(DIP, atts);
+          double rake = readDouble(RAKE, atts);
+          double width = readDouble(WIDTH, atts);
+          sourceBuilder.depth(depth)
+              .dip(dip)
+              .rake(rake)
+              .width(width);
+          if (compiledBuilder != null) {
+            compiledBuilder.geometry(depth, dip, rake, width);
+          }
           break;
 
         case TRACE:
@@ -230,11 +267,18 @@ class FaultParser extends DefaultHandler {
 
         case TRACE:
           readingTrace = false;
-          sourceBuilder.trace(LocationList.fromString(traceBuilder.toString()));
+          String trace = traceBuilder.toString();
+          sourceBuilder.trace(LocationList.fromString(trace));
+          if (compiledBuilder != null) {
+            compiledBuilder.trace(trace);
+          }
           break;
 
         case SOURCE:
           sourceSetBuilder.source(sourceBuilder.buildFaultSource());
+          if (compiledBuilder != null) {
+            compiledBuilder.endSource();
+          }
           log.finer(""); // insert blank line for detailed output
           break;
 
@@ -248,6 +292,41 @@ class FaultParser extends DefaultHandler {
     }
   }
 
+  private void initSourceSet(String name, int id, double weight) {
+    sourceSetBuilder = new FaultSourceSet.Builder();
+    sourceSetBuilder
+        .name(name)
+        .id(id)
+        .weight(weight)
+        .gmms(gmmSet);
+    if (compiledBuilder != null) {
+      compiledBuilder.sourceSet(name, id, weight);
+    }
+    if (log.isLoggable(FINE)) {
+      log.fine("");
+      log.fine("       Name: " + name);
+      log.fine("     Weight: " + weight);
+    }
+    mfdHelperBuilder = MfdHelper.builder();
+    // dummy; usually overwritten
+    mfdHelper = mfdHelperBuilder.build();
+  }
+
+  private FaultSource.Builder newSourceBuilder(String name, int id) {
+    FaultSource.Builder builder = new FaultSource.Builder()
+        .name(name)
+        .id(id)
+        .ruptureScaling(rupScaling)
+        .ruptureFloating(config.ruptureFloating)
+        .ruptureVariability(config.ruptureVariability)
+        .surfaceSpacing(config.surfaceSpacing);
+    log.fine("     Source: " + name + " [" + id + "]");
+    if (id < 0) {
+      log.warning("  Invalid Id [" + id + ", " + name + "]");
+    }
+    return builder;
+  }
+
   @Override
   public void characters(char ch[], int start, int length) throws SAXException {
     if (readingTrace) {
@@ -13,7 +13,12 @@ import static org.opensha2.eq.fault.Faults.validateWidth;
 import static org.opensha2.eq.model.SourceType.FAULT;
 import static org.opensha2.internal.TextUtils.validateName;
 
+import org.opensha2.calc.HazardInput;
+import org.opensha2.calc.InputList;
+import org.opensha2.calc.Site;
+import org.opensha2.eq.fault.Faults;
 import org.opensha2.eq.fault.surface.DefaultGriddedSurface;
+import org.opensha2.eq.fault.surface.FloatingDistances;
 import org.opensha2.eq.fault.surface.GriddedSurface;
 import org.opensha2.eq.fault.surface.RuptureFloating;
 import org.opensha2.eq.fault.surface.RuptureScaling;
@@ -24,9 +29,9 @@ import org.opensha2.mfd.IncrementalMfd;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Range;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -59,7 +64,7 @@ public class FaultSource implements Source {
   final boolean rupVariability;
   final GriddedSurface surface;
 
-  private final List<List<Rupture>> ruptureLists; // 1:1 with Mfds
+  private final RuptureGeometry ruptures;
 
   // package privacy for subduction subclass
   FaultSource(
@@ -89,9 +94,7 @@ public class FaultSource implements Source {
     this.rupFloating = rupFloating;
     this.rupVariability = rupVariability;
 
-    ruptureLists = initRuptureLists();
-    checkState(Iterables.size(Iterables.concat(ruptureLists)) > 0,
-        "FaultSource has no ruptures");
+    ruptures = initRuptures();
   }
 
   @Override
@@ -101,7 +104,7 @@ public class FaultSource implements Source {
 
   @Override
   public int size() {
-    return Iterables.size(this);
+    return ruptures.size();
   }
 
   @Override
@@ -120,7 +123,39 @@ public class FaultSource implements Source {
 
   @Override
   public Iterator<Rupture> iterator() {
-    return Iterables.concat(ruptureLists).iterator();
+    return new Iterator<Rupture>() {
+      final int size = size();
+      int caret = 0;
+
+      @Override
+      public boolean hasNext() {
+        return caret < size;
+      }
+
+      @Override
+      public Rupture next() {
+        return ruptures.rupture(caret++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Add a ground motion model input for every {@code Rupture} in this source,
+   * relative to the supplied {@code Site}, to the supplied list. Inputs are
+   * added in rupture iteration order. Rupture properties that do not vary with
+   * site are computed once, when a source is created, such that only distance
+   * metrics are computed per site, once per unique rupture surface.
+   *
+   * @param site of interest
+   * @param inputs to add to
+   */
+  public void addInputs(Site site, InputList inputs) {
+    ruptures.addInputs(site, inputs);
   }
 
   @Override
@@ -136,17 +171,38 @@ public class FaultSource implements Source {
     return getClass().getSimpleName() + " " + data;
   }
 
-  private List<List<Rupture>> initRuptureLists() {
-    ImmutableList.Builder<List<Rupture>> rupListsBuilder = ImmutableList.builder();
+  /*
+   * Rupture geometry is built directly from the floating windows of each Mfd;
+   * no Ruptures or floating surfaces are created.
+   */
+  private RuptureGeometry initRuptures() {
+    RuptureGeometry.Builder builder = new RuptureGeometry.Builder(surface);
     for (IncrementalMfd mfd : mfds) {
-      List<Rupture> rupList = createRuptureList(mfd);
-      checkState(rupList.size() > 0, "Rupture list is empty");
-      rupListsBuilder.add(rupList);
+      int size = builder.size();
+      for (int i = 0; i < mfd.getNum(); ++i) {
+        double mag = mfd.getX(i);
+        double rate = mfd.getY(i);
+
+        // see createRuptureList()
+        if (rate < 1e-14) {
+          continue;
+        }
+
+        if (mfd.floats() && rupFloating != RuptureFloating.OFF) {
+          builder.magnitude(mag);
+          rupFloating.floatingWindows(surface, rupScaling, mag, rate, rupVariability, builder);
+        } else {
+          builder.add(mag, rate);
+        }
+      }
+      checkState(builder.size() > size, "Rupture list is empty");
     }
-    return rupListsBuilder.build();
+    checkState(builder.size() > 0, "FaultSource has no ruptures");
+    return builder.build(rake);
   }
 
-  private List<Rupture> createRuptureList(IncrementalMfd mfd) {
+  // package privacy for tests
+  List<Rupture> createRuptureList(IncrementalMfd mfd) {
     ImmutableList.Builder<Rupture> rupListbuilder = ImmutableList.builder();
 
     for (int i = 0; i < mfd.getNum(); ++i) {
@@ -180,6 +236,162 @@ public class FaultSource implements Source {
     return rupListbuilder.build();
   }
 
+  /*
+   * Site-independent rupture properties. Magnitude, rate, and surface are
+   * stored in columns that are 1:1 with rupture iteration order. Ruptures are
+   * not retained; floating rupture surfaces are stored as windows into the
+   * source surface and Ruptures are recreated as they are iterated. Dip, width,
+   * top and hypocentral depth are computed once per window. Distances are
+   * computed once per window per site and floating rupture distances are
+   * derived from the distances to the nodes of the source surface. Ruptures
+   * that do not float span the source surface, which computes its own
+   * distances once per site.
+   */
+  private static final class RuptureGeometry {
+
+    private final GriddedSurface surface;
+    private final double rake;
+    private final double[] mags;
+    private final double[] rates;
+    private final int[] windows; // -1 for the source surface
+    private final FloatingDistances floaters;
+
+    /* Indexed by window + 1; the source surface is at 0. */
+    private final double[] dips;
+    private final double[] widths;
+    private final double[] zTops;
+    private final double[] zHyps;
+
+    private RuptureGeometry(Builder builder, double rake) {
+      this.surface = builder.surface;
+      this.rake = rake;
+      int size = builder.size;
+      mags = Arrays.copyOf(builder.mags, size);
+      rates = Arrays.copyOf(builder.rates, size);
+      windows = Arrays.copyOf(builder.windows, size);
+      floaters = builder.floaters.build();
+
+      int geometrySize = floaters.size() + 1;
+      dips = new double[geometrySize];
+      widths = new double[geometrySize];
+      zTops = new double[geometrySize];
+      zHyps = new double[geometrySize];
+      dips[0] = surface.dip();
+      widths[0] = surface.width();
+      zTops[0] = surface.depth();
+      for (int i = 1; i < geometrySize; i++) {
+        dips[i] = floaters.dip(i - 1);
+        widths[i] = floaters.width(i - 1);
+        zTops[i] = floaters.depth(i - 1);
+      }
+      for (int i = 0; i < geometrySize; i++) {
+        zHyps[i] = Faults.hypocentralDepth(dips[i], widths[i], zTops[i]);
+      }
+    }
+
+    int size() {
+      return mags.length;
+    }
+
+    Rupture rupture(int index) {
+      int window = windows[index];
+      return Rupture.create(
+          mags[index],
+          rates[index],
+          rake,
+          (window < 0) ? surface : floaters.surface(window));
+    }
+
+    void addInputs(Site site, InputList inputs) {
+      Distance[] floaterDistances = floaters.distances(site.location);
+      Distance surfaceDistance = null;
+      for (int i = 0; i < mags.length; i++) {
+        int window = windows[i];
+        Distance r;
+        if (window < 0) {
+          if (surfaceDistance == null) {
+            surfaceDistance = surface.distanceTo(site.location);
+          }
+          r = surfaceDistance;
+        } else {
+          r = floaterDistances[window];
+        }
+        int g = window + 1;
+        inputs.add(new HazardInput(
+            rates[i],
+            mags[i],
+            r.rJB,
+            r.rRup,
+            r.rX,
+            dips[g],
+            widths[g],
+            zTops[g],
+            zHyps[g],
+            rake,
+            site.vs30,
+            site.vsInferred,
+            site.z1p0,
+            site.z2p5));
+      }
+    }
+
+    /*
+     * Collects rupture columns and the floating windows of the current
+     * magnitude.
+     */
+    private static final class Builder implements RuptureFloating.WindowHandler {
+
+      private final GriddedSurface surface;
+      private final FloatingDistances.Builder floaters;
+
+      private int size;
+      private double[] mags = new double[64];
+      private double[] rates = new double[64];
+      private int[] windows = new int[64];
+      private double mag;
+
+      Builder(GriddedSurface surface) {
+        this.surface = surface;
+        this.floaters = FloatingDistances.builder(surface);
+      }
+
+      int size() {
+        return size;
+      }
+
+      /* Set the magnitude of subsequent floating windows. */
+      void magnitude(double mag) {
+        this.mag = mag;
+      }
+
+      /* Add a rupture that spans the source surface. */
+      void add(double mag, double rate) {
+        add(mag, rate, -1);
+      }
+
+      @Override
+      public void window(int startRow, int startCol, int numRows, int numCols, double rate) {
+        add(mag, rate, floaters.add(startRow, startCol, numRows, numCols));
+      }
+
+      private void add(double mag, double rate, int window) {
+        if (size == mags.length) {
+          int capacity = size * 2;
+          mags = Arrays.copyOf(mags, capacity);
+          rates = Arrays.copyOf(rates, capacity);
+          windows = Arrays.copyOf(windows, capacity);
+        }
+        mags[size] = mag;
+        rates[size] = rate;
+        windows[size++] = window;
+      }
+
+      RuptureGeometry build(double rake) {
+        return new RuptureGeometry(this, rake);
+      }
+    }
+  }
+
   /* Single use builder */
   static class Builder {
 
@@ -0,0 +1,251 @@
+package org.opensha2.eq.model;
+
+import static org.opensha2.eq.model.CompiledFile.readDoubles;
+import static org.opensha2.eq.model.CompiledFile.readString;
+import static org.opensha2.eq.model.CompiledFile.writeDoubles;
+import static org.opensha2.eq.model.CompiledFile.writeString;
+
+import org.opensha2.eq.fault.surface.RuptureScaling;
+import org.opensha2.geo.Location;
+import org.opensha2.geo.LocationList;
+import org.opensha2.internal.Parsing;
+import org.opensha2.internal.Parsing.Delimiter;
+import org.opensha2.mfd.IncrementalMfd;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Doubles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled, binary representation of a fault source file.
+ *
+ * <p>A compiled fault source file, written alongside the XML by
+ * {@link HazardModel#compile(java.nio.file.Path)} (e.g. {@code foo.bin} for
+ * {@code foo.xml}), stores the values supplied to a {@code FaultSource.Builder}
+ * for each source when the XML was parsed: the source name, id, and
+ * rupture-scaling relation, trace locations as they appear in the XML,
+ * geometry, and MFDs, the latter after the application of any magnitude
+ * uncertainty. The file is memory-mapped when a model is loaded and the values
+ * are replayed through the same builders in place of the XML, provided it was
+ * compiled from the current content of the XML; otherwise it is ignored.
+ * Values that depend on the model configuration, such as the rupture-floating
+ * model and surface spacing, are not stored.
+ *
+ * <p>Each file consists of a marker, format version, and the size,
+ * last-modified time, and hash of the XML from which it was compiled (see
+ * {@code CompiledFile}), followed by the source set name, id, and weight, the
+ * number of sources, and a record for each source.
+ *
+ * @author Peter Powers
+ */
+final class FaultSourceFile {
+
+  private static final long MARKER = 0x4e53484d50464c54L; // "NSHMPFLT"
+  private static final int VERSION = 1;
+
+  final String name;
+  final int id;
+  final double weight;
+  final List<Source> sources;
+
+  /* FaultSource.Builder values. */
+  static final class Source {
+
+    final String name;
+    final int id;
+    final RuptureScaling rupScaling;
+    final LocationList trace;
+    final double depth;
+    final double dip;
+    final double rake;
+    final double width;
+    final List<IncrementalMfd> mfds;
+
+    private Source(ByteBuffer buffer) {
+      name = readString(buffer);
+      id = buffer.getInt();
+      rupScaling = RuptureScaling.valueOf(readString(buffer));
+      int traceSize = buffer.getInt();
+      double[] traceValues = readDoubles(buffer, traceSize * 3);
+      List<Location> locs = new ArrayList<>(traceSize);
+      for (int i = 0; i < traceValues.length; i += 3) {
+        locs.add(Location.create(traceValues[i], traceValues[i + 1], traceValues[i + 2]));
+      }
+      trace = LocationList.create(locs);
+      depth = buffer.getDouble();
+      dip = buffer.getDouble();
+      rake = buffer.getDouble();
+      width = buffer.getDouble();
+      int mfdCount = buffer.getInt();
+      ImmutableList.Builder<IncrementalMfd> mfdsBuilder = ImmutableList.builder();
+      for (int i = 0; i < mfdCount; i++) {
+        mfdsBuilder.add(readMfd(buffer));
+      }
+      mfds = mfdsBuilder.build();
+    }
+  }
+
+  private FaultSourceFile(ByteBuffer buffer) {
+    name = readString(buffer);
+    id = buffer.getInt();
+    weight = buffer.getDouble();
+    int size = buffer.getInt();
+    ImmutableList.Builder<Source> sourcesBuilder = ImmutableList.builder();
+    for (int i = 0; i < size; i++) {
+      sourcesBuilder.add(new Source(buffer));
+    }
+    sources = sourcesBuilder.build();
+  }
+
+  /*
+   * Return the compiled fault sources in the supplied file, or null if the
+   * file does not exist or was not compiled from the current content of the
+   * supplied XML.
+   */
+  static FaultSourceFile read(Path file, Path xml) throws IOException {
+    return CompiledFile.read(file, xml, MARKER, VERSION,
+        new CompiledFile.Reader<FaultSourceFile>() {
+          @Override
+          FaultSourceFile read(ByteBuffer buffer) {
+            return new FaultSourceFile(buffer);
+          }
+        });
+  }
+
+  /*
+   * MFDs are reconstructed from their minimum and maximum magnitudes and size,
+   * from which the magnitude spacing of every IncrementalMfd is derived, and
+   * their tolerance, which is derived from the spacing originally supplied.
+   */
+  private static IncrementalMfd readMfd(ByteBuffer buffer) {
+    double min = buffer.getDouble();
+    double max = buffer.getDouble();
+    double tolerance = buffer.getDouble();
+    boolean floats = buffer.get() != 0;
+    double[] rates = readDoubles(buffer, buffer.getInt());
+    IncrementalMfd mfd = new IncrementalMfd(min, max, rates.length, floats);
+    mfd.setTolerance(tolerance);
+    for (int i = 0; i < rates.length; i++) {
+      mfd.set(i, rates[i]);
+    }
+    return mfd;
+  }
+
+  private static void writeMfd(DataOutputStream out, IncrementalMfd mfd) throws IOException {
+    out.writeDouble(mfd.getMinX());
+    out.writeDouble(mfd.getMaxX());
+    out.writeDouble(mfd.getTolerance());
+    out.writeByte(mfd.floats() ? 1 : 0);
+    out.writeInt(mfd.getNum());
+    for (int i = 0; i < mfd.getNum(); i++) {
+      out.writeDouble(mfd.getY(i));
+    }
+  }
+
+  /*
+   * Records the values supplied to FaultSource.Builders by a FaultParser for
+   * writing to a compiled file. Each source is written to an in-memory buffer
+   * once it is complete.
+   */
+  static final class Builder {
+
+    private String name;
+    private int id;
+    private double weight;
+    private int size;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream sourcesOut = new DataOutputStream(bytes);
+
+    private String sourceName;
+    private int sourceId;
+    private RuptureScaling rupScaling;
+    private double[] trace;
+    private double depth;
+    private double dip;
+    private double rake;
+    private double width;
+    private final List<IncrementalMfd> mfds = new ArrayList<>();
+
+    Builder sourceSet(String name, int id, double weight) {
+      this.name = name;
+      this.id = id;
+      this.weight = weight;
+      return this;
+    }
+
+    Builder source(String name, int id, RuptureScaling rupScaling) {
+      this.sourceName = name;
+      this.sourceId = id;
+      this.rupScaling = rupScaling;
+      return this;
+    }
+
+    /* Trace string as parsed by LocationList.fromString(). */
+    Builder trace(String trace) {
+      List<Double> values = new ArrayList<>();
+      for (String loc : Parsing.split(trace, Delimiter.SPACE)) {
+        List<Double> locValues = Parsing.splitToDoubleList(loc, Delimiter.COMMA);
+        values.add(locValues.get(1));
+        values.add(locValues.get(0));
+        values.add(locValues.get(2));
+      }
+      this.trace = Doubles.toArray(values);
+      return this;
+    }
+
+    Builder geometry(double depth, double dip, double rake, double width) {
+      this.depth = depth;
+      this.dip = dip;
+      this.rake = rake;
+      this.width = width;
+      return this;
+    }
+
+    Builder mfds(List<IncrementalMfd> mfds) {
+      this.mfds.addAll(mfds);
+      return this;
+    }
+
+    /* Write the current source to the buffer and reset source values. */
+    Builder endSource() throws IOException {
+      writeString(sourcesOut, sourceName);
+      sourcesOut.writeInt(sourceId);
+      writeString(sourcesOut, rupScaling.name());
+      sourcesOut.writeInt(trace.length / 3);
+      writeDoubles(sourcesOut, trace);
+      sourcesOut.writeDouble(depth);
+      sourcesOut.writeDouble(dip);
+      sourcesOut.writeDouble(rake);
+      sourcesOut.writeDouble(width);
+      sourcesOut.writeInt(mfds.size());
+      for (IncrementalMfd mfd : mfds) {
+        writeMfd(sourcesOut, mfd);
+      }
+      mfds.clear();
+      size++;
+      return this;
+    }
+
+    /* Write the recorded values, parsed from the supplied XML, to a file. */
+    void write(Path xml, Path file) throws IOException {
+      CompiledFile.write(file, xml, MARKER, VERSION, new CompiledFile.Writer() {
+        @Override
+        void write(DataOutputStream out) throws IOException {
+          writeString(out, name);
+          out.writeInt(id);
+          out.writeDouble(weight);
+          out.writeInt(size);
+          sourcesOut.flush();
+          bytes.writeTo(out);
+        }
+      });
+    }
+  }
+}
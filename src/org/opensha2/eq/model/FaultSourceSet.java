@@ -8,7 +8,9 @@ import static org.opensha2.eq.model.SourceType.FAULT;
 import org.opensha2.geo.Location;
 import org.opensha2.geo.Locations;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import java.util.Iterator;
@@ -23,6 +25,7 @@ import java.util.List;
 public class FaultSourceSet extends AbstractSourceSet<FaultSource> {
 
   private final List<FaultSource> sources;
+  private final SourceIndex<FaultSource> index;
 
   private FaultSourceSet(
       String name,
@@ -33,6 +36,7 @@ public class FaultSourceSet extends AbstractSourceSet<FaultSource> {
 
     super(name, id, weight, gmmSet);
     this.sources = sources;
+    this.index = SourceIndex.create(sources, LOCATIONS, gmmSet.maxDistance());
   }
 
   @Override
@@ -45,6 +49,11 @@ public class FaultSourceSet extends AbstractSourceSet<FaultSource> {
     return sources.size();
   }
 
+  @Override
+  Iterable<FaultSource> candidatesForLocation(Location loc) {
+    return index.candidates(loc);
+  }
+
   @Override
   public SourceType type() {
     return FAULT;
@@ -78,6 +87,15 @@ public class FaultSourceSet extends AbstractSourceSet<FaultSource> {
     }
   }
 
+  /* Trace endpoints tested by DistanceFilter. */
+  private static final Function<FaultSource, List<Location>> LOCATIONS =
+      new Function<FaultSource, List<Location>>() {
+        @Override
+        public List<Location> apply(FaultSource source) {
+          return ImmutableList.of(source.trace.first(), source.trace.last());
+        }
+      };
+
   /* Single use builder. */
   static class Builder extends AbstractSourceSet.Builder {
 
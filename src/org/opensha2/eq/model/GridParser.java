@@ -46,6 +46,8 @@ import com.google.common.collect.Iterables;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -98,6 +100,9 @@ class GridParser extends DefaultHandler {
   // Exposed for use when validating depths in subclasses
   SourceType type = GRID;
 
+  // Records builder values when compiling
+  private GridSourceFile.Builder compiledBuilder;
+
   private GridParser(SAXParser sax) {
     this.sax = checkNotNull(sax);
   }
@@ -116,6 +121,47 @@ class GridParser extends DefaultHandler {
     return sourceSet;
   }
 
+  /*
+   * Load grid sources from the supplied compiled file if it is current,
+   * otherwise parse the supplied XML. If 'compile' is true, the XML is always
+   * parsed and the compiled file is (re)written.
+   */
+  GridSourceSet parse(Path xml, Path compiledPath, GmmSet gmmSet, ModelConfig config,
+      boolean compile) throws SAXException, IOException {
+    checkState(!used, "This parser has expired");
+    this.gmmSet = gmmSet;
+    this.config = config;
+    GridSourceFile compiled = compile ? null : GridSourceFile.read(compiledPath, xml);
+    if (compiled == null) {
+      if (compile) {
+        compiledBuilder = new GridSourceFile.Builder();
+      }
+      try (InputStream in = Files.newInputStream(xml)) {
+        sax.parse(in, this);
+      }
+      if (compile) {
+        compiledBuilder.write(xml, compiledPath);
+      }
+    } else {
+      initSourceSet(compiled.name, compiled.id, compiled.weight);
+      sourceProperties(
+          compiled.depthMap,
+          compiled.maxDepth,
+          compiled.mechMap,
+          compiled.rupScaling,
+          compiled.strike);
+      for (int i = 0; i < compiled.size(); i++) {
+        addNode(compiled.location(i), compiled.mfd(i), compiled.mechMap(i));
+      }
+      minMag = compiled.minMag;
+      maxMag = compiled.maxMag;
+      deltaMag = compiled.deltaMag;
+      buildSourceSet();
+    }
+    used = true;
+    return sourceSet;
+  }
+
   @Override
   public void startElement(String uri, String localName, String qName, Attributes atts)
       throws SAXException {
@@ -129,23 +175,10 @@ class GridParser extends DefaultHandler {
     switch (e) {
 
       case GRID_SOURCE_SET:
-        String name = readString(NAME, atts);
-        int id = readInt(ID, atts);
-        double weight = readDouble(WEIGHT, atts);
-        sourceSetBuilder = new GridSourceSet.Builder();
-        sourceSetBuilder
-            .name(name)
-            .id(id)
-            .weight(weight);
-        sourceSetBuilder.gmms(gmmSet);
-        if (log.isLoggable(FINE)) {
-          log.fine("");
-          log.fine("       Name: " + name);
-          log.fine("     Weight: " + weight);
-        }
-        mfdHelperBuilder = MfdHelper.builder();
-        mfdHelper = mfdHelperBuilder.build(); // dummy; usually
-        // overwritten
+        initSourceSet(
+            readString(NAME, atts),
+            readInt(ID, atts),
+            readDouble(WEIGHT, atts));
         break;
 
       case DEFAULT_MFDS:
@@ -159,37 +192,12 @@ class GridParser extends DefaultHandler {
         break;
 
       case SOURCE_PROPERTIES:
-        String depthMapStr = readString(MAG_DEPTH_MAP, atts);
-        NavigableMap<Double, Map<Double, Double>> depthMap =
-            stringToValueValueWeightMap(depthMapStr);
-        double maxDepth = readDouble(MAX_DEPTH, atts);
-        String mechMapStr = readString(FOCAL_MECH_MAP, atts);
-        Map<FocalMech, Double> mechMap = stringToEnumWeightMap(mechMapStr, FocalMech.class);
-        RuptureScaling rupScaling = readEnum(RUPTURE_SCALING, atts, RuptureScaling.class);
-        sourceSetBuilder
-            .depthMap(depthMap, type)
-            .maxDepth(maxDepth, type)
-            .mechs(mechMap)
-            .ruptureScaling(rupScaling);
-        double strike = readDouble(STRIKE, atts);
-        // first validate strike by setting it in builder
-        sourceSetBuilder.strike(strike);
-        // then possibly override type if strike is set
-        PointSourceType type = config.pointSourceType;
-        if (!Double.isNaN(strike)) {
-          type = PointSourceType.FIXED_STRIKE;
-        }
-        sourceSetBuilder.sourceType(type);
-        if (log.isLoggable(FINE)) {
-          log.fine("     Depths: " + depthMap);
-          log.fine("  Max depth: " + maxDepth);
-          log.fine("Focal mechs: " + mechMap);
-          log.fine("Rup scaling: " + rupScaling);
-          log.fine("     Strike: " + strike);
-          String typeOverride = (type != config.pointSourceType) ? " (" +
-              config.pointSourceType + " overridden)" : "";
-          log.fine("Source type: " + type + typeOverride);
-        }
+        sourceProperties(
+            readString(MAG_DEPTH_MAP, atts),
+            readDouble(MAX_DEPTH, atts),
+            readString(FOCAL_MECH_MAP, atts),
+            readEnum(RUPTURE_SCALING, atts, RuptureScaling.class),
+            readDouble(STRIKE, atts));
         break;
 
       case NODE:
@@ -236,39 +244,106 @@ class GridParser extends DefaultHandler {
 
       case NODE:
         readingLoc = false;
-        Location loc = Location.fromString(locBuilder.toString());
-        if (nodeMechMap != null) {
-          sourceSetBuilder.location(loc, nodeMFD, nodeMechMap);
-        } else {
-          sourceSetBuilder.location(loc, nodeMFD);
+        String locStr = locBuilder.toString();
+        addNode(Location.fromString(locStr), nodeMFD, nodeMechMap);
+        if (compiledBuilder != null) {
+          compiledBuilder.node(locStr, nodeMFD, nodeMechMap);
         }
         nodeMFD = null;
         nodeMechMap = null;
         break;
 
       case GRID_SOURCE_SET:
-        sourceSetBuilder.mfdData(minMag, maxMag, deltaMag);
-        sourceSet = sourceSetBuilder.build();
-
-        if (log.isLoggable(FINE)) {
-          // TODO there must be a better way to organize this so that
-          // we
-          // can log the depth model without having to give it package
-          // vis
-          log.fine("       Size: " + sourceSet.size());
-          log.finer("  MFD count: " + mfdHelper.size());
-          log.finer("  Mag count: " + sourceSet.depthModel.magMaster.size());
-          log.finer(" Mag master: " + sourceSet.depthModel.magMaster);
-          log.finer("  MFD index: " + sourceSet.depthModel.magDepthIndices);
-          log.finer("     Depths: " + sourceSet.depthModel.magDepthDepths);
-          log.finer("    Weights: " + sourceSet.depthModel.magDepthWeights);
-          log.fine("");
-        }
+        buildSourceSet();
         break;
 
     }
   }
 
+  private void initSourceSet(String name, int id, double weight) {
+    sourceSetBuilder = new GridSourceSet.Builder();
+    sourceSetBuilder
+        .name(name)
+        .id(id)
+        .weight(weight);
+    sourceSetBuilder.gmms(gmmSet);
+    if (compiledBuilder != null) {
+      compiledBuilder.sourceSet(name, id, weight);
+    }
+    if (log.isLoggable(FINE)) {
+      log.fine("");
+      log.fine("       Name: " + name);
+      log.fine("     Weight: " + weight);
+    }
+    mfdHelperBuilder = MfdHelper.builder();
+    mfdHelper = mfdHelperBuilder.build(); // dummy; usually
+    // overwritten
+  }
+
+  private void sourceProperties(String depthMapStr, double maxDepth, String mechMapStr,
+      RuptureScaling rupScaling, double strike) {
+    NavigableMap<Double, Map<Double, Double>> depthMap =
+        stringToValueValueWeightMap(depthMapStr);
+    Map<FocalMech, Double> mechMap = stringToEnumWeightMap(mechMapStr, FocalMech.class);
+    sourceSetBuilder
+        .depthMap(depthMap, type)
+        .maxDepth(maxDepth, type)
+        .mechs(mechMap)
+        .ruptureScaling(rupScaling);
+    // first validate strike by setting it in builder
+    sourceSetBuilder.strike(strike);
+    // then possibly override type if strike is set
+    PointSourceType sourceType = config.pointSourceType;
+    if (!Double.isNaN(strike)) {
+      sourceType = PointSourceType.FIXED_STRIKE;
+    }
+    sourceSetBuilder.sourceType(sourceType);
+    if (compiledBuilder != null) {
+      compiledBuilder.properties(depthMapStr, maxDepth, mechMapStr, rupScaling, strike);
+    }
+    if (log.isLoggable(FINE)) {
+      log.fine("     Depths: " + depthMap);
+      log.fine("  Max depth: " + maxDepth);
+      log.fine("Focal mechs: " + mechMap);
+      log.fine("Rup scaling: " + rupScaling);
+      log.fine("     Strike: " + strike);
+      String typeOverride = (sourceType != config.pointSourceType) ? " (" +
+          config.pointSourceType + " overridden)" : "";
+      log.fine("Source type: " + sourceType + typeOverride);
+    }
+  }
+
+  private void addNode(Location loc, XySequence mfd, Map<FocalMech, Double> mechMap) {
+    if (mechMap != null) {
+      sourceSetBuilder.location(loc, mfd, mechMap);
+    } else {
+      sourceSetBuilder.location(loc, mfd);
+    }
+  }
+
+  private void buildSourceSet() {
+    sourceSetBuilder.mfdData(minMag, maxMag, deltaMag);
+    sourceSet = sourceSetBuilder.build();
+    if (compiledBuilder != null) {
+      compiledBuilder.mfdData(minMag, maxMag, deltaMag);
+    }
+
+    if (log.isLoggable(FINE)) {
+      // TODO there must be a better way to organize this so that
+      // we
+      // can log the depth model without having to give it package
+      // vis
+      log.fine("       Size: " + sourceSet.size());
+      log.finer("  MFD count: " + mfdHelper.size());
+      log.finer("  Mag count: " + sourceSet.depthModel.magMaster.size());
+      log.finer(" Mag master: " + sourceSet.depthModel.magMaster);
+      log.finer("  MFD index: " + sourceSet.depthModel.magDepthIndices);
+      log.finer("     Depths: " + sourceSet.depthModel.magDepthDepths);
+      log.finer("    Weights: " + sourceSet.depthModel.magDepthWeights);
+      log.fine("");
+    }
+  }
+
   @Override
   public void characters(char ch[], int start, int length) throws SAXException {
     if (readingLoc) {
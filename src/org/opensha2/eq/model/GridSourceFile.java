@@ -0,0 +1,253 @@
+package org.opensha2.eq.model;
+
+import static org.opensha2.eq.model.CompiledFile.readDoubles;
+import static org.opensha2.eq.model.CompiledFile.readInts;
+import static org.opensha2.eq.model.CompiledFile.readString;
+import static org.opensha2.eq.model.CompiledFile.writeDoubles;
+import static org.opensha2.eq.model.CompiledFile.writeInts;
+import static org.opensha2.eq.model.CompiledFile.writeString;
+
+import org.opensha2.data.XySequence;
+import org.opensha2.eq.fault.FocalMech;
+import org.opensha2.eq.fault.surface.RuptureScaling;
+import org.opensha2.geo.Location;
+import org.opensha2.internal.Parsing;
+import org.opensha2.internal.Parsing.Delimiter;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, binary representation of a grid source file.
+ *
+ * <p>Grid source files in national models define tens of thousands of nodes,
+ * each with its own MFD, and parsing the XML and building node MFDs dominates
+ * the time required to load them. A compiled grid source file, written
+ * alongside the XML by {@link HazardModel#compile(java.nio.file.Path)} (e.g.
+ * {@code foo.bin} for {@code foo.xml}), stores the values supplied to a
+ * {@code GridSourceSet.Builder} when the XML was parsed: the source set name,
+ * id, and weight, source properties, node locations as they appear in the XML,
+ * node MFDs, any node focal mechanism weights, and the magnitude range of all
+ * nodes. The file is memory-mapped when a model is loaded and the values are
+ * replayed through the same builder in place of the XML, provided it was
+ * compiled from the current content of the XML; otherwise it is ignored. Values
+ * that depend on the model configuration, such as the point source type, are
+ * not stored.
+ *
+ * <p>Each file consists of a marker, format version, and the size,
+ * last-modified time, and hash of the XML from which it was compiled (see
+ * {@code CompiledFile}), followed by the source set and source properties, the
+ * number of nodes, the node latitude, longitude, and depth columns, MFD
+ * offsets, magnitudes, and rates, and focal mechanism weights.
+ *
+ * @author Peter Powers
+ */
+final class GridSourceFile {
+
+  private static final long MARKER = 0x4e53484d50475244L; // "NSHMPGRD"
+  private static final int VERSION = 1;
+
+  private static final int MECH_COUNT = FocalMech.values().length;
+
+  final String name;
+  final int id;
+  final double weight;
+  final String depthMap;
+  final double maxDepth;
+  final String mechMap;
+  final RuptureScaling rupScaling;
+  final double strike;
+  final double minMag;
+  final double maxMag;
+  final double deltaMag;
+
+  private final double[] lats;
+  private final double[] lons;
+  private final double[] depths;
+  private final int[] mfdOffsets;
+  private final double[] mfdMags;
+  private final double[] mfdRates;
+  private final double[] mechWeights;
+
+  private GridSourceFile(ByteBuffer buffer) {
+    name = readString(buffer);
+    id = buffer.getInt();
+    weight = buffer.getDouble();
+    depthMap = readString(buffer);
+    maxDepth = buffer.getDouble();
+    mechMap = readString(buffer);
+    rupScaling = RuptureScaling.valueOf(readString(buffer));
+    strike = buffer.getDouble();
+    minMag = buffer.getDouble();
+    maxMag = buffer.getDouble();
+    deltaMag = buffer.getDouble();
+    int size = buffer.getInt();
+    lats = readDoubles(buffer, size);
+    lons = readDoubles(buffer, size);
+    depths = readDoubles(buffer, size);
+    mfdOffsets = readInts(buffer, size + 1);
+    mfdMags = readDoubles(buffer, mfdOffsets[size]);
+    mfdRates = readDoubles(buffer, mfdOffsets[size]);
+    mechWeights = readDoubles(buffer, buffer.getInt());
+  }
+
+  /*
+   * Return the compiled grid sources in the supplied file, or null if the file
+   * does not exist or was not compiled from the current content of the
+   * supplied XML.
+   */
+  static GridSourceFile read(Path file, Path xml) throws IOException {
+    return CompiledFile.read(file, xml, MARKER, VERSION,
+        new CompiledFile.Reader<GridSourceFile>() {
+          @Override
+          GridSourceFile read(ByteBuffer buffer) {
+            return new GridSourceFile(buffer);
+          }
+        });
+  }
+
+  int size() {
+    return lats.length;
+  }
+
+  Location location(int index) {
+    return Location.create(lats[index], lons[index], depths[index]);
+  }
+
+  XySequence mfd(int index) {
+    int start = mfdOffsets[index];
+    int end = mfdOffsets[index + 1];
+    return XySequence.createImmutable(
+        Arrays.copyOfRange(mfdMags, start, end),
+        Arrays.copyOfRange(mfdRates, start, end));
+  }
+
+  /* Returns null if nodes use the source set focal mechanism map. */
+  Map<FocalMech, Double> mechMap(int index) {
+    if (mechWeights.length == 0) {
+      return null;
+    }
+    Map<FocalMech, Double> map = Maps.newEnumMap(FocalMech.class);
+    int offset = index * MECH_COUNT;
+    for (FocalMech mech : FocalMech.values()) {
+      map.put(mech, mechWeights[offset + mech.ordinal()]);
+    }
+    return map;
+  }
+
+  /*
+   * Records the values supplied to a GridSourceSet.Builder by a GridParser
+   * for writing to a compiled file. Node focal mechanism maps must be supplied
+   * for all nodes or none.
+   */
+  static final class Builder {
+
+    private String name;
+    private int id;
+    private double weight;
+    private String depthMap;
+    private double maxDepth;
+    private String mechMap;
+    private RuptureScaling rupScaling;
+    private double strike;
+    private double minMag;
+    private double maxMag;
+    private double deltaMag;
+
+    private final List<Double> lats = new ArrayList<>();
+    private final List<Double> lons = new ArrayList<>();
+    private final List<Double> depths = new ArrayList<>();
+    private final List<Integer> mfdOffsets = new ArrayList<>();
+    private final List<Double> mfdMags = new ArrayList<>();
+    private final List<Double> mfdRates = new ArrayList<>();
+    private final List<Double> mechWeights = new ArrayList<>();
+
+    Builder() {
+      mfdOffsets.add(0);
+    }
+
+    Builder sourceSet(String name, int id, double weight) {
+      this.name = name;
+      this.id = id;
+      this.weight = weight;
+      return this;
+    }
+
+    Builder properties(String depthMap, double maxDepth, String mechMap,
+        RuptureScaling rupScaling, double strike) {
+      this.depthMap = depthMap;
+      this.maxDepth = maxDepth;
+      this.mechMap = mechMap;
+      this.rupScaling = rupScaling;
+      this.strike = strike;
+      return this;
+    }
+
+    /* Location string as parsed by Location.fromString(). */
+    Builder node(String loc, XySequence mfd, Map<FocalMech, Double> mechMap) {
+      List<Double> values = Parsing.splitToDoubleList(loc, Delimiter.COMMA);
+      lats.add(values.get(1));
+      lons.add(values.get(0));
+      depths.add(values.get(2));
+      for (double mag : mfd.xValues()) {
+        mfdMags.add(mag);
+      }
+      for (double rate : mfd.yValues()) {
+        mfdRates.add(rate);
+      }
+      mfdOffsets.add(mfdMags.size());
+      if (mechMap != null) {
+        for (FocalMech mech : FocalMech.values()) {
+          mechWeights.add(mechMap.get(mech));
+        }
+      }
+      return this;
+    }
+
+    Builder mfdData(double minMag, double maxMag, double deltaMag) {
+      this.minMag = minMag;
+      this.maxMag = maxMag;
+      this.deltaMag = deltaMag;
+      return this;
+    }
+
+    /* Write the recorded values, parsed from the supplied XML, to a file. */
+    void write(Path xml, Path file) throws IOException {
+      CompiledFile.write(file, xml, MARKER, VERSION, new CompiledFile.Writer() {
+        @Override
+        void write(DataOutputStream out) throws IOException {
+          writeString(out, name);
+          out.writeInt(id);
+          out.writeDouble(weight);
+          writeString(out, depthMap);
+          out.writeDouble(maxDepth);
+          writeString(out, mechMap);
+          writeString(out, rupScaling.name());
+          out.writeDouble(strike);
+          out.writeDouble(minMag);
+          out.writeDouble(maxMag);
+          out.writeDouble(deltaMag);
+          out.writeInt(lats.size());
+          writeDoubles(out, Doubles.toArray(lats));
+          writeDoubles(out, Doubles.toArray(lons));
+          writeDoubles(out, Doubles.toArray(depths));
+          writeInts(out, Ints.toArray(mfdOffsets));
+          writeDoubles(out, Doubles.toArray(mfdMags));
+          writeDoubles(out, Doubles.toArray(mfdRates));
+          out.writeInt(mechWeights.size());
+          writeDoubles(out, Doubles.toArray(mechWeights));
+        }
+      });
+    }
+  }
+}
@@ -30,6 +30,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.primitives.Doubles;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -58,6 +59,8 @@ public class GridSourceSet extends AbstractSourceSet<PointSource> {
   final double[] magMaster;
   final double Δm;
 
+  private final SourceIndex<Location> index;
+
   /*
    * Most grid sources have the same focal mech map everywhere; in these cases,
    * mechMaps will have been created using Collections.nCopies() with minimal
@@ -95,8 +98,18 @@ public class GridSourceSet extends AbstractSourceSet<PointSource> {
     this.optimizable = !Double.isNaN(Δm);
 
     depthModel = DepthModel.create(magDepthMap, Doubles.asList(magMaster), maxDepth);
+    this.index = SourceIndex.create(locs, NODE_LOCATION, gmmSet.maxDistance());
   }
 
+  /* Node locations are indexed directly. */
+  private static final Function<Location, List<Location>> NODE_LOCATION =
+      new Function<Location, List<Location>>() {
+        @Override
+        public List<Location> apply(Location loc) {
+          return ImmutableList.of(loc);
+        }
+      };
+
   @Override
   public SourceType type() {
     return GRID;
@@ -179,6 +192,52 @@ public class GridSourceSet extends AbstractSourceSet<PointSource> {
     };
   }
 
+  @Override
+  Iterable<PointSource> candidatesForLocation(Location loc) {
+    final BitSet nodes = index.candidateIndices(loc);
+    return new Iterable<PointSource>() {
+      @Override
+      public Iterator<PointSource> iterator() {
+        return new Iterator<PointSource>() {
+          int caret = nodes.nextSetBit(0);
+
+          @Override
+          public boolean hasNext() {
+            return caret >= 0;
+          }
+
+          @Override
+          public PointSource next() {
+            PointSource source = getSource(caret);
+            caret = nodes.nextSetBit(caret + 1);
+            return source;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  /*
+   * Return the indices of the nodes that pass the distance filter for the
+   * supplied location, in node order. Unlike iterableForLocation(), no point
+   * sources are created.
+   */
+  BitSet nodesForLocation(Location loc, double distance) {
+    Predicate<Location> filter = Locations.distanceAndRectangleFilter(loc, distance);
+    BitSet nodes = index.candidateIndices(loc);
+    for (int i = nodes.nextSetBit(0); i >= 0; i = nodes.nextSetBit(i + 1)) {
+      if (!filter.apply(locs.get(i))) {
+        nodes.clear(i);
+      }
+    }
+    return nodes;
+  }
+
   private PointSource getSource(int index) {
 
     /*
@@ -661,9 +720,10 @@ public class GridSourceSet extends AbstractSourceSet<PointSource> {
           .rows(0.0, rMax, distanceDiscretization(rMax))
           .columns(mMin, mMax, Δm);
 
-      for (PointSource source : parent.iterableForLocation(origin)) {
-        double r = Locations.horzDistanceFast(origin, source.loc);
-        tableBuilder.add(r, source.mfd);
+      BitSet nodes = parent.nodesForLocation(origin, rMax);
+      for (int i = nodes.nextSetBit(0); i >= 0; i = nodes.nextSetBit(i + 1)) {
+        double r = Locations.horzDistanceFast(origin, parent.locs.get(i));
+        tableBuilder.add(r, parent.mfds.get(i));
         parentCount++;
       }
 
@@ -717,19 +777,22 @@ public class GridSourceSet extends AbstractSourceSet<PointSource> {
 
       // XySequence srcMfdSum = null;
 
-      for (PointSource source : parent.iterableForLocation(origin)) {
+      BitSet nodes = parent.nodesForLocation(origin, rMax);
+      for (int i = nodes.nextSetBit(0); i >= 0; i = nodes.nextSetBit(i + 1)) {
         // if (srcMfdSum == null) {
         // srcMfdSum = XySequence.emptyCopyOf(source.mfd);
         // }
         // srcMfdSum.add(source.mfd);
 
-        double r = Locations.horzDistanceFast(origin, source.loc);
-        ssTableBuilder.add(r, XySequence.copyOf(source.mfd)
-            .multiply(source.mechWtMap.get(STRIKE_SLIP)));
-        rTableBuilder.add(r, XySequence.copyOf(source.mfd)
-            .multiply(source.mechWtMap.get(REVERSE)));
-        nTableBuilder.add(r, XySequence.copyOf(source.mfd)
-            .multiply(source.mechWtMap.get(NORMAL)));
+        double r = Locations.horzDistanceFast(origin, parent.locs.get(i));
+        XySequence mfd = parent.mfds.get(i);
+        Map<FocalMech, Double> mechWtMap = parent.mechMaps.get(i);
+        ssTableBuilder.add(r, XySequence.copyOf(mfd)
+            .multiply(mechWtMap.get(STRIKE_SLIP)));
+        rTableBuilder.add(r, XySequence.copyOf(mfd)
+            .multiply(mechWtMap.get(REVERSE)));
+        nTableBuilder.add(r, XySequence.copyOf(mfd)
+            .multiply(mechWtMap.get(NORMAL)));
         parentCount++;
       }
 
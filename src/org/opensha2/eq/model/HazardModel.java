@@ -86,6 +86,28 @@ public final class HazardModel implements Iterable<SourceSet<? extends Source>>,
     return Loader.load(path);
   }
 
+  /**
+   * Load a {@code HazardModel} from a directory or Zip file specified by the
+   * supplied {@code path} and compile those parts of the model that support a
+   * binary representation.
+   *
+   * <p>Fault, grid, and slab source files, and fault system rupture and grid
+   * source files, are parsed from XML and written to a binary file alongside
+   * each XML file (e.g. {@code fault_ruptures.bin} for
+   * {@code fault_ruptures.xml}). Subsequent calls to {@link #load(Path)} read
+   * sources from the binary files, skipping the comparatively slow XML parsing
+   * step, provided the XML has not changed since the model was compiled. Area,
+   * cluster, and subduction interface sources, fault system sections, and
+   * {@code gmm.xml} files are always parsed from XML.
+   *
+   * @param path to {@code HazardModel} directory or Zip file
+   * @return a newly instantiated {@code HazardModel}
+   * @see #load(Path)
+   */
+  public static HazardModel compile(Path path) {
+    return Loader.compile(path);
+  }
+
   /**
    * The number of {@code SourceSet}s in this {@code HazardModel}.
    */
@@ -8,7 +8,9 @@ import static org.opensha2.eq.model.SourceType.INTERFACE;
 import org.opensha2.geo.Location;
 import org.opensha2.geo.Locations;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import java.util.Iterator;
@@ -23,11 +25,13 @@ import java.util.List;
 public class InterfaceSourceSet extends AbstractSourceSet<InterfaceSource> {
 
   private final List<InterfaceSource> sources;
+  private final SourceIndex<InterfaceSource> index;
 
   private InterfaceSourceSet(String name, int id, double weight, GmmSet gmmSet,
       List<InterfaceSource> sources) {
     super(name, id, weight, gmmSet);
     this.sources = sources;
+    this.index = SourceIndex.create(sources, LOCATIONS, gmmSet.maxDistance());
   }
 
   @Override
@@ -40,6 +44,11 @@ public class InterfaceSourceSet extends AbstractSourceSet<InterfaceSource> {
     return sources.size();
   }
 
+  @Override
+  Iterable<InterfaceSource> candidatesForLocation(Location loc) {
+    return index.candidates(loc);
+  }
+
   @Override
   public SourceType type() {
     return INTERFACE;
@@ -66,6 +75,19 @@ public class InterfaceSourceSet extends AbstractSourceSet<InterfaceSource> {
     };
   }
 
+  /* Upper and lower trace endpoints tested by the distance filter. */
+  private static final Function<InterfaceSource, List<Location>> LOCATIONS =
+      new Function<InterfaceSource, List<Location>>() {
+        @Override
+        public List<Location> apply(InterfaceSource source) {
+          return ImmutableList.of(
+              source.trace.first(),
+              source.trace.last(),
+              source.lowerTrace.first(),
+              source.lowerTrace.last());
+        }
+      };
+
   /* Single use builder. */
   static class Builder extends FaultSourceSet.Builder {
 
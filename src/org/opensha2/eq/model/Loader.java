@@ -21,6 +21,9 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -34,8 +37,14 @@ import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -65,6 +74,12 @@ class Loader {
    * directory containing sub-directories by {@code SourceType}s, or the
    * absolute path to a zipped model.
    *
+   * <p>Source files are parsed concurrently, using the number of threads
+   * specified by the model {@link CalcConfig}, but the order of source sets in
+   * the returned model always matches the order in which files are listed.
+   * Detailed (i.e. finer than {@code INFO}) parser log messages for different
+   * files may therefore be interleaved.
+   *
    * <p>This method is not thread safe. Any exceptions thrown while loading will
    * be logged and the JVM will exit.
    *
@@ -72,15 +87,29 @@ class Loader {
    * @return a newly created {@code HazardModel}
    */
   static HazardModel load(Path path) {
+    return load(path, false);
+  }
 
-    SAXParser sax = null;
-    try {
-      sax = SAXParserFactory.newInstance().newSAXParser();
-    } catch (ParserConfigurationException | SAXException e) {
-      Throwables.propagate(e);
-    }
+  /**
+   * Load a {@code HazardModel} from XML, writing a compiled file alongside each
+   * fault, grid, and slab source file, and each fault system rupture and grid
+   * source file.
+   *
+   * @param path to model directory or Zip file (absolute)
+   * @return a newly created {@code HazardModel}
+   * @see FaultSourceFile
+   * @see GridSourceFile
+   * @see SystemRuptureFile
+   */
+  static HazardModel compile(Path path) {
+    return load(path, true);
+  }
 
+  private static HazardModel load(Path path, boolean compile) {
+
+    SAXParser sax = newSaxParser();
     HazardModel.Builder builder = HazardModel.builder();
+    SourceSetQueue sourceSets = null;
     List<Path> typePaths = null;
 
     try {
@@ -95,6 +124,7 @@ class Loader {
           .extend(CalcConfig.Builder.fromFile(typeDirPath))
           .build();
       builder.config(calcConfig);
+      sourceSets = new SourceSetQueue(calcConfig.performance.threadCount.value(), compile);
 
       typePaths = typeDirectoryList(typeDirPath);
       checkState(typePaths.size() > 0, "Empty model: %s", path.getFileName());
@@ -104,12 +134,17 @@ class Loader {
         String typeName = cleanZipName(typePath.getFileName().toString());
         log.info("");
         log.info("=======  " + typeName + " Sources  =======");
-        processTypeDir(typePath, builder, modelConfig, sax);
+        processTypeDir(typePath, sourceSets, modelConfig, sax, compile);
         log.info("==========================" + Strings.repeat("=", typeName.length()));
       }
+      sourceSets.drainTo(builder);
 
     } catch (IOException | URISyntaxException e) {
       handleConfigException(e);
+    } finally {
+      if (sourceSets != null) {
+        sourceSets.shutdown();
+      }
     }
 
     log.info("");
@@ -168,8 +203,9 @@ class Loader {
     }
   }
 
-  private static void processTypeDir(Path typeDir, Builder builder, ModelConfig modelConfig,
-      SAXParser sax) throws IOException {
+  private static void processTypeDir(Path typeDir, SourceSetQueue sourceSets,
+      ModelConfig modelConfig,
+      SAXParser sax, boolean compile) throws IOException {
 
     String typeName = cleanZipName(typeDir.getFileName().toString());
     SourceType type = SourceType.fromString(typeName);
@@ -220,9 +256,7 @@ class Loader {
 
     for (Path sourcePath : typePaths) {
       log.info("Parsing: " + typeDir.getParent().relativize(sourcePath));
-      SourceSet<? extends Source> sourceSet = parseSource(type, sourcePath, gmmSet, config,
-          sax);
-      builder.sourceSet(sourceSet);
+      sourceSets.submit(type, sourcePath, gmmSet, config);
     }
 
     try (DirectoryStream<Path> ds =
@@ -234,13 +268,14 @@ class Loader {
           log.info("========  Nested " + typeName + " Sources  ========");
           firstDir = false;
         }
-        processNestedDir(nestedSourceDir, type, gmmSet, builder, config, sax);
+        processNestedDir(nestedSourceDir, type, gmmSet, sourceSets, config, sax, compile);
       }
     }
   }
 
   private static void processNestedDir(Path sourceDir, SourceType type, GmmSet gmmSet,
-      Builder builder, ModelConfig parentConfig, SAXParser sax) throws IOException {
+      SourceSetQueue sourceSets, ModelConfig parentConfig, SAXParser sax, boolean compile)
+      throws IOException {
 
     /*
      * gmm.xml -- this MUST exist if there is at least one source file and there
@@ -291,39 +326,48 @@ class Loader {
 
     if (type == SourceType.SYSTEM) {
       log.info("Parsing: " + typeDir.relativize(sourceDir));
-      parseSystemSource(sourceDir, nestedGmmSet, builder, nestedConfig, sax);
+      parseSystemSource(sourceDir, nestedGmmSet, sourceSets, nestedConfig, sax, compile);
     } else {
       for (Path sourcePath : nestedSourcePaths) {
         log.info("Parsing: " + typeDir.relativize(sourcePath));
-        SourceSet<? extends Source> sourceSet = parseSource(type, sourcePath, nestedGmmSet,
-            nestedConfig, sax);
-        builder.sourceSet(sourceSet);
+        sourceSets.submit(type, sourcePath, nestedGmmSet, nestedConfig);
       }
     }
   }
 
+  /*
+   * Fault, grid, and slab sources are loaded from a compiled file alongside
+   * the source XML if one is current. If 'compile' is true, the XML is always
+   * parsed and the compiled file is (re)written.
+   */
   private static SourceSet<? extends Source> parseSource(SourceType type, Path path,
-      GmmSet gmmSet, ModelConfig config, SAXParser sax) {
+      GmmSet gmmSet, ModelConfig config, SAXParser sax, boolean compile) {
+    Path compiledPath = CompiledFile.path(path);
     try {
-      InputStream in = Files.newInputStream(path);
       switch (type) {
-        case AREA:
-          return AreaParser.create(sax).parse(in, gmmSet, config);
-        case CLUSTER:
-          return ClusterParser.create(sax).parse(in, gmmSet, config);
         case FAULT:
-          return FaultParser.create(sax).parse(in, gmmSet, config);
+          return FaultParser.create(sax).parse(path, compiledPath, gmmSet, config, compile);
         case GRID:
-          return GridParser.create(sax).parse(in, gmmSet, config);
-        case INTERFACE:
-          return InterfaceParser.create(sax).parse(in, gmmSet, config);
+          return GridParser.create(sax).parse(path, compiledPath, gmmSet, config, compile);
         case SLAB:
-          return SlabParser.create(sax).parse(in, gmmSet, config);
+          return SlabParser.create(sax).parse(path, compiledPath, gmmSet, config, compile);
         case SYSTEM:
           throw new UnsupportedOperationException(
               "Fault system sources are not processed with this method");
         default:
-          throw new IllegalStateException("Unkown source type");
+          break;
+      }
+      try (InputStream in = Files.newInputStream(path)) {
+        switch (type) {
+          case AREA:
+            return AreaParser.create(sax).parse(in, gmmSet, config);
+          case CLUSTER:
+            return ClusterParser.create(sax).parse(in, gmmSet, config);
+          case INTERFACE:
+            return InterfaceParser.create(sax).parse(in, gmmSet, config);
+          default:
+            throw new IllegalStateException("Unkown source type");
+        }
       }
     } catch (Exception e) {
       handleParseException(e, path);
@@ -331,18 +375,25 @@ class Loader {
     }
   }
 
-  private static void parseSystemSource(Path dir, GmmSet gmmSet, Builder builder,
-      ModelConfig config, SAXParser sax) {
+  private static void parseSystemSource(Path dir, GmmSet gmmSet, SourceSetQueue sourceSets,
+      ModelConfig config, SAXParser sax, boolean compile) {
     log.info("");
     try {
       Path sectionsPath = dir.resolve(SECTIONS_FILENAME);
       Path rupturesPath = dir.resolve(RUPTURES_FILENAME);
+      Path compiledPath = dir.resolve(SystemRuptureFile.FILENAME);
       if (Files.exists(sectionsPath) && Files.exists(rupturesPath)) {
         InputStream sectionsIn = Files.newInputStream(sectionsPath);
-        InputStream rupturesIn = Files.newInputStream(rupturesPath);
-
         SystemParser systemParser = SystemParser.create(sax);
-        builder.sourceSet(systemParser.parse(sectionsIn, rupturesIn, gmmSet));
+        if (compile) {
+          InputStream rupturesIn = Files.newInputStream(rupturesPath);
+          SystemSourceSet sourceSet = systemParser.parse(sectionsIn, rupturesIn, gmmSet);
+          SystemRuptureFile.write(sourceSet, rupturesPath, compiledPath);
+          log.info("   Compiled: " + dir.getFileName() + "/" + SystemRuptureFile.FILENAME);
+          sourceSets.add(sourceSet);
+        } else {
+          sourceSets.add(systemParser.parse(sectionsIn, rupturesPath, compiledPath, gmmSet));
+        }
       } else {
         log.info("Fault model: (no fault sources supplied with system)");
       }
@@ -350,9 +401,10 @@ class Loader {
       log.info("");
       Path gridSourcePath = dir.resolve(GRIDSOURCE_FILENAME);
       if (Files.exists(gridSourcePath)) {
-        InputStream gridIn = Files.newInputStream(gridSourcePath);
-        GridSourceSet gridSet = GridParser.create(sax).parse(gridIn, gmmSet, config);
-        builder.sourceSet(gridSet);
+        Path compiledGridPath = CompiledFile.path(gridSourcePath);
+        GridSourceSet gridSet = GridParser.create(sax).parse(
+            gridSourcePath, compiledGridPath, gmmSet, config, compile);
+        sourceSets.add(gridSet);
         log.info(" Grid model: " + dir.getFileName() + "/" + GRIDSOURCE_FILENAME);
         log.info("     Weight: " + gridSet.weight());
         log.info("    Sources: " + gridSet.size());
@@ -364,6 +416,69 @@ class Loader {
     }
   }
 
+  private static SAXParser newSaxParser() {
+    try {
+      return SAXParserFactory.newInstance().newSAXParser();
+    } catch (ParserConfigurationException | SAXException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /*
+   * Source sets in model order. Source files are parsed concurrently, each
+   * with its own SAXParser because parsers are not thread safe, and source sets
+   * are added to a HazardModel.Builder in the order in which they were
+   * submitted, regardless of the order in which parsing completes. Fault
+   * system source sets are parsed on the calling thread and simply added.
+   */
+  private static final class SourceSetQueue {
+
+    private final ExecutorService executor;
+    private final boolean compile;
+    private final List<Future<SourceSet<? extends Source>>> sourceSets = new ArrayList<>();
+
+    SourceSetQueue(int threadCount, boolean compile) {
+      this.compile = compile;
+      executor = Executors.newFixedThreadPool(threadCount, new ThreadFactoryBuilder()
+          .setNameFormat("model-loader-%d")
+          .setDaemon(true)
+          .build());
+    }
+
+    void add(SourceSet<? extends Source> sourceSet) {
+      sourceSets.add(Futures.<SourceSet<? extends Source>> immediateFuture(sourceSet));
+    }
+
+    void submit(
+        final SourceType type,
+        final Path path,
+        final GmmSet gmmSet,
+        final ModelConfig config) {
+
+      sourceSets.add(executor.submit(new Callable<SourceSet<? extends Source>>() {
+        @Override
+        public SourceSet<? extends Source> call() {
+          return parseSource(type, path, gmmSet, config, newSaxParser(), compile);
+        }
+      }));
+    }
+
+    void drainTo(Builder builder) {
+      for (Future<SourceSet<? extends Source>> sourceSet : sourceSets) {
+        try {
+          builder.sourceSet(Uninterruptibles.getUninterruptibly(sourceSet));
+        } catch (ExecutionException ee) {
+          throw Throwables.propagate(ee.getCause());
+        }
+      }
+      sourceSets.clear();
+    }
+
+    void shutdown() {
+      executor.shutdownNow();
+    }
+  }
+
   private static GmmSet parseGMM(Path path, SAXParser sax) {
     try {
       InputStream in = Files.newInputStream(path);
@@ -0,0 +1,338 @@
+package org.opensha2.eq.model;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import org.opensha2.eq.fault.surface.GriddedSurface;
+import org.opensha2.geo.Location;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent store of the fault section distances computed for a
+ * {@code SystemSourceSet} at individual sites.
+ *
+ * <p>Computing {@code rJB}, {@code rRup}, and {@code rX} for every fault
+ * section within range of a site is a significant fraction of the work
+ * required to process a large fault system, yet the results depend only on
+ * section geometry and site location. A cache stores the distances to each
+ * in-range section for every site encountered in a file named for its source
+ * set and a hash of the section geometries. The file is memory-mapped when a
+ * cache is opened so that later calculations using the same model and sites
+ * skip all section distance calculations, regardless of other configuration
+ * settings.
+ *
+ * <p>Each file consists of a header (a marker, the geometry hash, and the
+ * number of sections) followed by records, each holding the site latitude,
+ * longitude, and maximum distance, the number of in-range sections, and the
+ * {@code rJB}, {@code rRup}, and {@code rX} for each section, in ascending
+ * section index order. Distances computed during a calculation are appended
+ * to the file as they are computed and are read back from the file if they are
+ * requested again. An incomplete trailing record, such as may be left by an
+ * interrupted calculation, is discarded when a cache is opened.
+ *
+ * <p>Caches are thread safe, but a cache file should not be shared by
+ * concurrently running programs. Open caches are shared by all calculations in
+ * a program and should be closed with {@link #closeAll()} when calculations
+ * are complete.
+ *
+ * @author Peter Powers
+ * @see org.opensha2.calc.CalcConfig.Performance#systemCache
+ */
+final class SectionDistanceCache {
+
+  private static final Logger LOG = Logger.getLogger(SectionDistanceCache.class.getName());
+
+  private static final long MARKER = 0x4e53484d50534443L; // "NSHMPSDC"
+  private static final int HEADER_SIZE = 8 + 8 + 4;
+  private static final int RECORD_HEADER_SIZE = 8 + 8 + 8 + 4;
+  private static final String EXTENSION = ".dist";
+
+  /* Open caches, keyed on file, shared by all calculations. */
+  private static final Map<Path, SectionDistanceCache> CACHES = new HashMap<>();
+
+  private final Path file;
+  private final FileChannel channel;
+  private final MappedByteBuffer mapped;
+  private final Map<Key, Integer> mappedOffsets;
+  private final ConcurrentMap<Key, Long> addedOffsets;
+  private long end;
+
+  private SectionDistanceCache(
+      Path file,
+      FileChannel channel,
+      MappedByteBuffer mapped,
+      Map<Key, Integer> mappedOffsets,
+      long end) {
+
+    this.file = file;
+    this.channel = channel;
+    this.mapped = mapped;
+    this.mappedOffsets = mappedOffsets;
+    this.addedOffsets = new ConcurrentHashMap<>();
+    this.end = end;
+  }
+
+  /*
+   * Return the cache for the source set with the supplied name, id, and
+   * sections in the supplied directory, opening or creating the cache file as
+   * necessary. Opening a cache hashes the geometry of every section; callers
+   * should retain the returned cache for as long as it remains open.
+   */
+  static synchronized SectionDistanceCache open(
+      String name,
+      int id,
+      GriddedSurface[] sections,
+      Path directory) throws IOException {
+
+    long hash = geometryHash(sections);
+    String filename = name.replaceAll("[^A-Za-z0-9._-]+", "_") + "-" +
+        id + "-" + Long.toHexString(hash) + EXTENSION;
+    Path file = directory.resolve(filename).toAbsolutePath().normalize();
+
+    SectionDistanceCache cache = CACHES.get(file);
+    if (cache == null) {
+      cache = create(file, hash, sections.length);
+      CACHES.put(file, cache);
+    }
+    return cache;
+  }
+
+  private static SectionDistanceCache create(
+      Path file,
+      long hash,
+      int sectionCount) throws IOException {
+
+    Files.createDirectories(file.getParent());
+    FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+
+    /* Start over if the header is missing or does not match. */
+    long size = channel.size();
+    if (!validHeader(channel, size, hash, sectionCount)) {
+      channel.truncate(0);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+          .putLong(MARKER)
+          .putLong(hash)
+          .putInt(sectionCount);
+      header.flip();
+      channel.write(header, 0);
+      size = HEADER_SIZE;
+    }
+
+    /*
+     * Index complete records. Mapped buffers are limited to 2GB; records
+     * beyond that are neither used nor discarded.
+     */
+    int mappedSize = (int) Math.min(size, Integer.MAX_VALUE);
+    MappedByteBuffer mapped = channel.map(READ_ONLY, 0, mappedSize);
+    Map<Key, Integer> offsets = new HashMap<>();
+    int offset = HEADER_SIZE;
+    while (offset + RECORD_HEADER_SIZE <= mappedSize) {
+      int count = mapped.getInt(offset + 24);
+      long recordEnd = offset + RECORD_HEADER_SIZE + count * 24L;
+      if (count < 0 || recordEnd > mappedSize) {
+        break;
+      }
+      Key key = new Key(
+          mapped.getDouble(offset),
+          mapped.getDouble(offset + 8),
+          mapped.getDouble(offset + 16));
+      offsets.put(key, offset);
+      offset = (int) recordEnd;
+    }
+    if (offset < size && size <= Integer.MAX_VALUE) {
+      channel.truncate(offset);
+      size = offset;
+      mapped = channel.map(READ_ONLY, 0, size);
+    }
+
+    if (LOG.isLoggable(Level.FINE)) {
+      LOG.fine(String.format("System distance cache: %s sites [%s]", offsets.size(), file));
+    }
+    return new SectionDistanceCache(file, channel, mapped, offsets, size);
+  }
+
+  /*
+   * Close all open caches. Caches are reopened from their files as needed by
+   * subsequent calculations.
+   */
+  static synchronized void closeAll() throws IOException {
+    IOException failure = null;
+    for (SectionDistanceCache cache : CACHES.values()) {
+      try {
+        cache.channel.close();
+      } catch (IOException ioe) {
+        failure = (failure == null) ? ioe : failure;
+      }
+    }
+    CACHES.clear();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /* Whether this cache may still be used. */
+  boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  private static boolean validHeader(
+      FileChannel channel,
+      long size,
+      long hash,
+      int sectionCount) throws IOException {
+
+    if (size < HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    return header.getLong() == MARKER &&
+        header.getLong() == hash &&
+        header.getInt() == sectionCount;
+  }
+
+  /*
+   * Return the distances previously stored for the supplied site location and
+   * maximum distance as a flat array of rJB, rRup, and rX values, or null if
+   * no such distances exist or the number of stored sections does not match
+   * the supplied count.
+   */
+  double[] get(Location loc, double maxDistance, int count) throws IOException {
+    Key key = new Key(loc.lat(), loc.lon(), maxDistance);
+    Integer offset = mappedOffsets.get(key);
+    if (offset != null) {
+      if (mapped.getInt(offset + 24) != count) {
+        return null;
+      }
+      double[] distances = new double[count * 3];
+      int position = offset + RECORD_HEADER_SIZE;
+      for (int i = 0; i < distances.length; i++, position += 8) {
+        distances[i] = mapped.getDouble(position);
+      }
+      return distances;
+    }
+    Long addedOffset = addedOffsets.get(key);
+    if (addedOffset == null) {
+      return null;
+    }
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + count * 24);
+    long position = addedOffset;
+    while (record.hasRemaining()) {
+      int read = channel.read(record, position);
+      if (read < 0) {
+        return null;
+      }
+      position += read;
+    }
+    if (record.getInt(24) != count) {
+      return null;
+    }
+    record.position(RECORD_HEADER_SIZE);
+    double[] distances = new double[count * 3];
+    record.asDoubleBuffer().get(distances);
+    return distances;
+  }
+
+  /*
+   * Store the distances computed for the supplied site location and maximum
+   * distance and append them to the cache file.
+   */
+  void put(Location loc, double maxDistance, double[] distances) throws IOException {
+    Key key = new Key(loc.lat(), loc.lon(), maxDistance);
+    if (mappedOffsets.containsKey(key) || addedOffsets.containsKey(key)) {
+      return;
+    }
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + distances.length * 8)
+        .putDouble(key.lat)
+        .putDouble(key.lon)
+        .putDouble(key.distance)
+        .putInt(distances.length / 3);
+    for (double r : distances) {
+      record.putDouble(r);
+    }
+    record.flip();
+    synchronized (this) {
+      if (addedOffsets.containsKey(key)) {
+        return;
+      }
+      long offset = end;
+      long position = offset;
+      while (record.hasRemaining()) {
+        position += channel.write(record, position);
+      }
+      end = position;
+      addedOffsets.put(key, offset);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SectionDistanceCache [" + file + "]";
+  }
+
+  /* Hash of all section surface locations. */
+  private static long geometryHash(GriddedSurface[] sections) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hasher.putInt(sections.length);
+    for (GriddedSurface section : sections) {
+      hasher.putInt(section.getNumRows()).putInt(section.getNumCols());
+      for (Location loc : section) {
+        hasher.putDouble(loc.lat()).putDouble(loc.lon()).putDouble(loc.depth());
+      }
+    }
+    return hasher.hash().asLong();
+  }
+
+  private static final class Key {
+
+    final double lat;
+    final double lon;
+    final double distance;
+
+    Key(double lat, double lon, double distance) {
+      this.lat = lat;
+      this.lon = lon;
+      this.distance = distance;
+    }
+
+    @Override
+    public int hashCode() {
+      long bits = Double.doubleToLongBits(lat);
+      bits = 31 * bits + Double.doubleToLongBits(lon);
+      bits = 31 * bits + Double.doubleToLongBits(distance);
+      return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return Double.doubleToLongBits(lat) == Double.doubleToLongBits(that.lat) &&
+          Double.doubleToLongBits(lon) == Double.doubleToLongBits(that.lon) &&
+          Double.doubleToLongBits(distance) == Double.doubleToLongBits(that.distance);
+    }
+  }
+}
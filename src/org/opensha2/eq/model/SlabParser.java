@@ -6,6 +6,7 @@ import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 import javax.xml.parsers.SAXParser;
 
@@ -33,4 +34,10 @@ class SlabParser {
     return new SlabSourceSet(delegate);
   }
 
+  SlabSourceSet parse(Path xml, Path compiledPath, GmmSet gmmSet, ModelConfig config,
+      boolean compile) throws SAXException, IOException {
+    GridSourceSet delegate = gridParser.parse(xml, compiledPath, gmmSet, config, compile);
+    return new SlabSourceSet(delegate);
+  }
+
 }
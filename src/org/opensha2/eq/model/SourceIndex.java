@@ -0,0 +1,228 @@
+package org.opensha2.eq.model;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.abs;
+import static java.lang.Math.cos;
+import static java.lang.Math.floor;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import static org.opensha2.geo.GeoTools.EARTH_RADIUS_MEAN;
+
+import org.opensha2.geo.Location;
+
+import com.google.common.base.Function;
+import com.google.common.primitives.Ints;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Uniform latitude-longitude bucket grid that identifies the sources of a
+ * {@code SourceSet} that may lie within {@link GmmSet#maxDistance()} of a
+ * site.
+ *
+ * <p>The fault, interface, area, and cluster source distance filters all
+ * accept a source if any one of a small number of representative locations
+ * (e.g. trace endpoints or border vertices) is within the maximum distance of
+ * a site using {@link org.opensha2.geo.Locations#horzDistanceFast(Location, Location)}.
+ * An index stores each source in the grid cells that contain its
+ * representative locations. Cells are sized to the maximum distance, so a
+ * query only visits the few cells that intersect a conservative bounding box
+ * around a site, and the returned candidates always include every source the
+ * distance filter would accept. Candidates are returned in source set order
+ * so that filtered results are identical to those obtained by filtering all
+ * sources.
+ *
+ * <p>Grid source sets index node locations directly, in which case the
+ * indices of candidate nodes are used.
+ *
+ * <p>Source sets smaller than {@code MIN_SIZE} are not gridded and all
+ * sources are returned as candidates.
+ *
+ * @author Peter Powers
+ */
+final class SourceIndex<T> {
+
+  /* Minimum number of sources for which a grid is built. */
+  private static final int MIN_SIZE = 32;
+
+  /* Maximum number of cells along either axis. */
+  private static final int MAX_CELLS = 1024;
+
+  /* Relative padding applied to query bounds to absorb rounding. */
+  private static final double PAD = 1.0 + 1e-9;
+
+  private final List<T> sources;
+
+  /* Grid geometry in radians; cells are null if the set is not gridded. */
+  private final double minLat;
+  private final double minLon;
+  private final double cellSize;
+  private final int latCount;
+  private final int lonCount;
+  private final double distance;
+  private final int[][] cells;
+
+  private SourceIndex(
+      List<T> sources,
+      double minLat,
+      double minLon,
+      double cellSize,
+      int latCount,
+      int lonCount,
+      double distance,
+      int[][] cells) {
+
+    this.sources = sources;
+    this.minLat = minLat;
+    this.minLon = minLon;
+    this.cellSize = cellSize;
+    this.latCount = latCount;
+    this.lonCount = lonCount;
+    this.distance = distance;
+    this.cells = cells;
+  }
+
+  /*
+   * Create an index of the supplied sources. The locations function supplies
+   * the representative locations used by the distance filter of a source set
+   * and distance is the maximum distance used to filter sources.
+   */
+  static <T> SourceIndex<T> create(
+      List<T> sources,
+      Function<? super T, ? extends Iterable<Location>> locations,
+      double distance) {
+
+    if (sources.size() < MIN_SIZE) {
+      return new SourceIndex<T>(sources, 0.0, 0.0, 0.0, 0, 0, distance, null);
+    }
+
+    double latMin = Double.POSITIVE_INFINITY;
+    double latMax = Double.NEGATIVE_INFINITY;
+    double lonMin = Double.POSITIVE_INFINITY;
+    double lonMax = Double.NEGATIVE_INFINITY;
+    for (T source : sources) {
+      for (Location loc : locations.apply(source)) {
+        latMin = min(latMin, loc.latRad());
+        latMax = max(latMax, loc.latRad());
+        lonMin = min(lonMin, loc.lonRad());
+        lonMax = max(lonMax, loc.lonRad());
+      }
+    }
+
+    double cellSize = max(
+        distance / EARTH_RADIUS_MEAN,
+        max(latMax - latMin, lonMax - lonMin) / MAX_CELLS);
+    int latCount = (int) floor((latMax - latMin) / cellSize) + 1;
+    int lonCount = (int) floor((lonMax - lonMin) / cellSize) + 1;
+
+    /*
+     * Sources are added in order, so each cell list is sorted and only the
+     * last element need be checked for duplicates.
+     */
+    List<List<Integer>> cellLists = new ArrayList<>(latCount * lonCount);
+    for (int i = 0; i < latCount * lonCount; i++) {
+      cellLists.add(null);
+    }
+    for (int i = 0; i < sources.size(); i++) {
+      for (Location loc : locations.apply(sources.get(i))) {
+        int latIndex = min((int) ((loc.latRad() - latMin) / cellSize), latCount - 1);
+        int lonIndex = min((int) ((loc.lonRad() - lonMin) / cellSize), lonCount - 1);
+        int cellIndex = latIndex * lonCount + lonIndex;
+        List<Integer> cell = cellLists.get(cellIndex);
+        if (cell == null) {
+          cell = new ArrayList<>(4);
+          cellLists.set(cellIndex, cell);
+        }
+        if (cell.isEmpty() || cell.get(cell.size() - 1) != i) {
+          cell.add(i);
+        }
+      }
+    }
+    int[][] cells = new int[cellLists.size()][];
+    for (int i = 0; i < cells.length; i++) {
+      List<Integer> cell = cellLists.get(i);
+      if (cell != null) {
+        cells[i] = Ints.toArray(cell);
+      }
+    }
+
+    return new SourceIndex<T>(
+        sources,
+        latMin,
+        lonMin,
+        cellSize,
+        latCount,
+        lonCount,
+        distance,
+        cells);
+  }
+
+  /*
+   * Return the sources that may be within the maximum distance of the supplied
+   * location, in source set order.
+   */
+  List<T> candidates(Location loc) {
+    if (cells == null) {
+      return sources;
+    }
+    BitSet indices = candidateIndices(loc);
+    List<T> result = new ArrayList<>(indices.cardinality());
+    for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+      result.add(sources.get(i));
+    }
+    return result;
+  }
+
+  /*
+   * Return the indices of the sources that may be within the maximum distance
+   * of the supplied location.
+   */
+  BitSet candidateIndices(Location loc) {
+    BitSet indices = new BitSet(sources.size());
+    if (cells == null) {
+      indices.set(0, sources.size());
+      return indices;
+    }
+
+    /*
+     * Bounds are derived from horzDistanceFast(): a location within the
+     * maximum distance differs in latitude by at most dLat, and in longitude by
+     * at most dLat / cos(midLat), where the absolute mid-point latitude is at
+     * most |lat| + dLat / 2. At or near the poles, longitude is unbounded.
+     */
+    double lat = loc.latRad();
+    double lon = loc.lonRad();
+    double dLat = distance / EARTH_RADIUS_MEAN * PAD;
+    double midLatMax = abs(lat) + dLat * 0.5;
+    double cosMid = (midLatMax < PI / 2) ? cos(midLatMax) : 0.0;
+    double dLon = (cosMid > 0.0) ? dLat / cosMid * PAD : Double.POSITIVE_INFINITY;
+
+    int latLo = max(cellIndex(lat - dLat, minLat), 0);
+    int latHi = min(cellIndex(lat + dLat, minLat), latCount - 1);
+    int lonLo = max(cellIndex(lon - dLon, minLon), 0);
+    int lonHi = min(cellIndex(lon + dLon, minLon), lonCount - 1);
+
+    for (int latIndex = latLo; latIndex <= latHi; latIndex++) {
+      for (int lonIndex = lonLo; lonIndex <= lonHi; lonIndex++) {
+        int[] cell = cells[latIndex * lonCount + lonIndex];
+        if (cell != null) {
+          for (int sourceIndex : cell) {
+            indices.set(sourceIndex);
+          }
+        }
+      }
+    }
+    return indices;
+  }
+
+  /*
+   * Return the unclamped index of the cell containing the supplied value;
+   * infinite values saturate.
+   */
+  private int cellIndex(double value, double min) {
+    return (int) floor((value - min) / cellSize);
+  }
+}
@@ -39,6 +39,8 @@ import com.google.common.collect.Iterables;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -110,6 +112,45 @@ class SystemParser extends DefaultHandler {
     return sourceSet;
   }
 
+  /*
+   * Parse fault sections and load ruptures from the supplied compiled rupture
+   * file if it is current, otherwise parse the supplied rupture XML.
+   */
+  SystemSourceSet parse(InputStream sectionsIn, Path rupturesPath, Path compiledPath,
+      GmmSet gmmSet) throws SAXException, IOException {
+    checkState(!used, "This parser has expired");
+    this.gmmSet = gmmSet;
+    parseSections(sectionsIn);
+    SystemRuptureFile compiled = SystemRuptureFile.read(compiledPath, rupturesPath);
+    if (compiled == null) {
+      try (InputStream rupturesIn = Files.newInputStream(rupturesPath)) {
+        sax.parse(rupturesIn, this);
+      }
+    } else {
+      initBuilder(compiled.name(), compiled.id(), compiled.weight(), SystemRuptureFile.FILENAME);
+      compiled.addRuptures(sourceSetBuilder);
+      sourceSet = sourceSetBuilder.build();
+      log.info("       Size: " + sourceSet.size());
+    }
+    checkState(sourceSet.size() > 0, "SystemSourceSet is empty");
+    used = true;
+    return sourceSet;
+  }
+
+  private void initBuilder(String name, int id, double weight, String rupturesFilename) {
+    sourceSetBuilder = new SystemSourceSet.Builder();
+    sourceSetBuilder
+        .name(name)
+        .id(id)
+        .weight(weight)
+        .gmms(gmmSet);
+    sourceSetBuilder.sections(sections);
+    sourceSetBuilder.sectionNames(sectionNames);
+    log.info("     Weight: " + weight);
+    log.info("   Sections: " + sections.size());
+    log.info("   Ruptures: " + name + "/" + rupturesFilename);
+  }
+
   private void parseSections(InputStream in) throws SAXException, IOException {
     SystemSectionParser parser = SystemSectionParser.create(sax);
     parser.parse(in);
@@ -135,17 +176,7 @@ class SystemParser extends DefaultHandler {
           String name = readString(NAME, atts);
           int id = readInt(ID, atts);
           double weight = readDouble(WEIGHT, atts);
-          sourceSetBuilder = new SystemSourceSet.Builder();
-          sourceSetBuilder
-              .name(name)
-              .id(id)
-              .weight(weight)
-              .gmms(gmmSet);
-          sourceSetBuilder.sections(sections);
-          sourceSetBuilder.sectionNames(sectionNames);
-          log.info("     Weight: " + weight);
-          log.info("   Sections: " + sections.size());
-          log.info("   Ruptures: " + name + "/" + RUPTURES_FILENAME);
+          initBuilder(name, id, weight, RUPTURES_FILENAME);
           mfdHelperBuilder = MfdHelper.builder();
           mfdHelper = mfdHelperBuilder.build(); // dummy; usually
           // overwritten
@@ -0,0 +1,144 @@
+package org.opensha2.eq.model;
+
+import static org.opensha2.eq.model.CompiledFile.readDoubles;
+import static org.opensha2.eq.model.CompiledFile.readInts;
+import static org.opensha2.eq.model.CompiledFile.readString;
+import static org.opensha2.eq.model.CompiledFile.writeDoubles;
+import static org.opensha2.eq.model.CompiledFile.writeInts;
+import static org.opensha2.eq.model.CompiledFile.writeString;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Compiled, binary representation of the ruptures in a fault system rupture
+ * file ({@code fault_ruptures.xml}).
+ *
+ * <p>Large fault systems, such as UCERF3 solutions, define hundreds of
+ * thousands of ruptures, and parsing the rupture XML dominates the time
+ * required to load a model. A compiled rupture file, written alongside the XML
+ * by {@link HazardModel#compile(java.nio.file.Path)}, stores the source set
+ * name, id, and weight, followed by the section indices, magnitude, rate,
+ * depth, dip, width, and rake of every rupture in the columnar form used by
+ * {@code SystemSourceSet}. The file is memory-mapped when a model is loaded and
+ * is used in place of the XML, provided it was compiled from the current
+ * content of the XML; otherwise it is ignored. Fault sections are always
+ * parsed from XML.
+ *
+ * <p>Each file consists of a marker, format version, and the size,
+ * last-modified time, and hash of the rupture XML from which it was compiled
+ * (see {@code CompiledFile}), followed by the source set name, id, and weight,
+ * the number of ruptures and total number of rupture section indices, and the
+ * columns themselves.
+ *
+ * @author Peter Powers
+ */
+final class SystemRuptureFile {
+
+  static final String FILENAME = "fault_ruptures.bin";
+
+  private static final long MARKER = 0x4e53484d50535953L; // "NSHMPSYS"
+  private static final int VERSION = 2;
+
+  private final String name;
+  private final int id;
+  private final double weight;
+  private final int[] ruptureOffsets;
+  private final int[] ruptureSections;
+  private final double[] mags;
+  private final double[] rates;
+  private final double[] depths;
+  private final double[] dips;
+  private final double[] widths;
+  private final double[] rakes;
+
+  private SystemRuptureFile(ByteBuffer buffer) {
+    name = readString(buffer);
+    id = buffer.getInt();
+    weight = buffer.getDouble();
+    int size = buffer.getInt();
+    ruptureOffsets = readInts(buffer, size + 1);
+    ruptureSections = readInts(buffer, buffer.getInt());
+    mags = readDoubles(buffer, size);
+    rates = readDoubles(buffer, size);
+    depths = readDoubles(buffer, size);
+    dips = readDoubles(buffer, size);
+    widths = readDoubles(buffer, size);
+    rakes = readDoubles(buffer, size);
+  }
+
+  /*
+   * Return the compiled ruptures in the supplied file, or null if the file
+   * does not exist or was not compiled from the current content of the
+   * supplied rupture XML.
+   */
+  static SystemRuptureFile read(Path file, Path ruptureXml) throws IOException {
+    return CompiledFile.read(file, ruptureXml, MARKER, VERSION,
+        new CompiledFile.Reader<SystemRuptureFile>() {
+          @Override
+          SystemRuptureFile read(ByteBuffer buffer) {
+            return new SystemRuptureFile(buffer);
+          }
+        });
+  }
+
+  /*
+   * Write the ruptures of the supplied source set, which was parsed from the
+   * supplied rupture XML, to a compiled rupture file.
+   */
+  static void write(final SystemSourceSet sourceSet, Path ruptureXml, Path file)
+      throws IOException {
+    CompiledFile.write(file, ruptureXml, MARKER, VERSION, new CompiledFile.Writer() {
+      @Override
+      void write(DataOutputStream out) throws IOException {
+        writeString(out, sourceSet.name());
+        out.writeInt(sourceSet.id());
+        out.writeDouble(sourceSet.weight());
+        out.writeInt(sourceSet.size());
+        writeInts(out, sourceSet.ruptureOffsets);
+        out.writeInt(sourceSet.ruptureSections.length);
+        writeInts(out, sourceSet.ruptureSections);
+        writeDoubles(out, sourceSet.mags);
+        writeDoubles(out, sourceSet.rates);
+        writeDoubles(out, sourceSet.depths);
+        writeDoubles(out, sourceSet.dips);
+        writeDoubles(out, sourceSet.widths);
+        writeDoubles(out, sourceSet.rakes);
+      }
+    });
+  }
+
+  String name() {
+    return name;
+  }
+
+  int id() {
+    return id;
+  }
+
+  double weight() {
+    return weight;
+  }
+
+  /*
+   * Add all ruptures to the supplied builder, which must already have been
+   * supplied with fault sections.
+   */
+  void addRuptures(SystemSourceSet.Builder builder) {
+    for (int i = 0; i < mags.length; i++) {
+      int start = ruptureOffsets[i];
+      int[] indices = new int[ruptureOffsets[i + 1] - start];
+      System.arraycopy(ruptureSections, start, indices, 0, indices.length);
+      builder
+          .mag(mags[i])
+          .rate(rates[i])
+          .indices(indices)
+          .depth(depths[i])
+          .dip(dips[i])
+          .rake(rakes[i])
+          .width(widths[i]);
+    }
+  }
+}
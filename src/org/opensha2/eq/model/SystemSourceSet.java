@@ -1,6 +1,7 @@
 package org.opensha2.eq.model;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.min;
@@ -13,6 +14,7 @@ import static org.opensha2.eq.fault.Faults.validateWidth;
 import static org.opensha2.eq.model.SourceType.SYSTEM;
 import static org.opensha2.geo.Locations.horzDistanceFast;
 
+import org.opensha2.calc.CalcConfig;
 import org.opensha2.calc.HazardInput;
 import org.opensha2.calc.InputList;
 import org.opensha2.calc.Site;
@@ -26,15 +28,18 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
 import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Wrapper class for related {@link SystemSource}s.
@@ -45,19 +50,28 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
 
   private final GriddedSurface[] sections;
   private final String[] sectionNames;
-  private final BitSet[] bitsets;
-  private final double[] mags;
-  private final double[] rates;
-  private final double[] depths;
-  private final double[] dips;
-  private final double[] widths;
-  private final double[] rakes;
+  private final int[][] sectionRuptures;
+
+  /* Package-private for use by SystemRuptureFile. */
+  final int[] ruptureOffsets;
+  final int[] ruptureSections;
+  final double[] mags;
+  final double[] rates;
+  final double[] depths;
+  final double[] dips;
+  final double[] widths;
+  final double[] rakes;
 
   public final Statistics stats;
 
+  /* Section distance cache and its directory, opened on first use. */
+  private SectionDistanceCache distanceCache;
+  private Path distanceCacheDirectory;
+
   /*
-   * TODO revisit the fact that BitSets are mutable and could potentially be
-   * altered via a SystemSource.
+   * Rupture data are stored in columns. The ascending section indices of the
+   * rupture at index i are ruptureSections[ruptureOffsets[i]] (inclusive)
+   * through ruptureSections[ruptureOffsets[i + 1]] (exclusive).
    * 
    * TODO don't like the fact that original trace data for sections is lost;
    * same for other attributes
@@ -68,7 +82,8 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
       GmmSet gmmSet,
       GriddedSurface[] sections,
       String[] sectionNames,
-      BitSet[] bitsets,
+      int[] ruptureOffsets,
+      int[] ruptureSections,
       double[] mags,
       double[] rates,
       double[] depths,
@@ -81,7 +96,9 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
 
     this.sections = sections;
     this.sectionNames = sectionNames;
-    this.bitsets = bitsets;
+    this.ruptureOffsets = ruptureOffsets;
+    this.ruptureSections = ruptureSections;
+    this.sectionRuptures = invert(ruptureOffsets, ruptureSections, sections.length);
     this.mags = mags;
     this.rates = rates;
     this.depths = depths;
@@ -99,7 +116,7 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
 
   @Override
   public int size() {
-    return bitsets.length;
+    return mags.length;
   }
 
   @Override
@@ -130,6 +147,37 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
     return new BitsetFilter(siteBitset);
   }
 
+  @Override
+  Iterable<SystemSource> candidatesForLocation(Location loc) {
+    BitSet siteBitset = bitsetForLocation(loc, groundMotionModels().maxDistance());
+    final BitSet ruptures = rupturesForSections(Data.bitsToIndices(siteBitset));
+    return new Iterable<SystemSource>() {
+      @Override
+      public Iterator<SystemSource> iterator() {
+        return new Iterator<SystemSource>() {
+          int caret = ruptures.nextSetBit(0);
+
+          @Override
+          public boolean hasNext() {
+            return caret >= 0;
+          }
+
+          @Override
+          public SystemSource next() {
+            SystemSource source = new SystemSource(caret);
+            caret = ruptures.nextSetBit(caret + 1);
+            return source;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
   /**
    * The fault section surface corresponding to the supplied {@code index}.
    * 
@@ -153,6 +201,48 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
     return sectionNames[index];
   }
 
+  /**
+   * Return whether the source at {@code index} includes the fault section at
+   * {@code sectionIndex}.
+   *
+   * @param index of source
+   * @param sectionIndex of fault section
+   */
+  public boolean sourceIncludesSection(int index, int sectionIndex) {
+    return Arrays.binarySearch(
+        ruptureSections,
+        ruptureOffsets[index],
+        ruptureOffsets[index + 1],
+        sectionIndex) >= 0;
+  }
+
+  /*
+   * Create the inverse of the rupture section columns: the indices of the
+   * ruptures that include each section, in ascending order.
+   */
+  private static int[][] invert(
+      int[] ruptureOffsets,
+      int[] ruptureSections,
+      int sectionCount) {
+
+    int[] counts = new int[sectionCount];
+    for (int section : ruptureSections) {
+      counts[section]++;
+    }
+    int[][] ruptures = new int[sectionCount][];
+    for (int i = 0; i < sectionCount; i++) {
+      ruptures[i] = new int[counts[i]];
+      counts[i] = 0;
+    }
+    for (int rupture = 0; rupture < ruptureOffsets.length - 1; rupture++) {
+      for (int i = ruptureOffsets[rupture]; i < ruptureOffsets[rupture + 1]; i++) {
+        int section = ruptureSections[i];
+        ruptures[section][counts[section]++] = rupture;
+      }
+    }
+    return ruptures;
+  }
+
   /**
    * A single source in a fault system. These sources do not currently support
    * rupture iteration.
@@ -205,8 +295,14 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
       throw new UnsupportedOperationException();
     }
 
-    private final BitSet bitset() {
-      return bitsets[index];
+    /* Return whether any section of this source is set in the supplied bits. */
+    private final boolean intersects(BitSet sectionBits) {
+      for (int i = ruptureOffsets[index]; i < ruptureOffsets[index + 1]; i++) {
+        if (sectionBits.get(ruptureSections[i])) {
+          return true;
+        }
+      }
+      return false;
     }
 
     private final double magnitude() {
@@ -264,20 +360,25 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
    */
   static class Builder extends AbstractSourceSet.Builder {
 
-    /* Unfiltered UCERF3: FM31 = 253,706 FM32 = 305,709 */
-    static final int RUP_SET_SIZE = 306000;
+    /*
+     * Unfiltered UCERF3: FM31 = 253,706 FM32 = 305,709
+     *
+     * Rupture data are accumulated in growable primitive columns rather than
+     * lists of boxed values.
+     */
 
     static final String ID = "SystemSourceSet.Builder";
 
     private List<GriddedSurface> sections;
     private List<String> sectionNames;
-    private final List<BitSet> bitsets = new ArrayList<>(RUP_SET_SIZE);
-    private final List<Double> mags = new ArrayList<>(RUP_SET_SIZE);
-    private final List<Double> rates = new ArrayList<>(RUP_SET_SIZE);
-    private final List<Double> depths = new ArrayList<>(RUP_SET_SIZE);
-    private final List<Double> dips = new ArrayList<>(RUP_SET_SIZE);
-    private final List<Double> widths = new ArrayList<>(RUP_SET_SIZE);
-    private final List<Double> rakes = new ArrayList<>(RUP_SET_SIZE);
+    private final IntColumn ruptureOffsets = new IntColumn().add(0);
+    private final IntColumn ruptureSections = new IntColumn();
+    private final DoubleColumn mags = new DoubleColumn();
+    private final DoubleColumn rates = new DoubleColumn();
+    private final DoubleColumn depths = new DoubleColumn();
+    private final DoubleColumn dips = new DoubleColumn();
+    private final DoubleColumn widths = new DoubleColumn();
+    private final DoubleColumn rakes = new DoubleColumn();
 
     private double mMin = Double.POSITIVE_INFINITY;
     private double mMax = Double.NEGATIVE_INFINITY;
@@ -297,12 +398,24 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
     }
 
     Builder indices(List<Integer> indices) {
-      checkState(sections != null, "Indices may only be set after call to sections()");
       checkNotNull(indices, "Rupture index list is null");
+      return indices(Ints.toArray(indices));
+    }
+
+    Builder indices(int[] indices) {
+      checkState(sections != null, "Indices may only be set after call to sections()");
       // NOTE we're doublechecking a UCERF3 rule that ruptures be composed
       // of at least 2 sections; this may not be the case in the future.
-      checkArgument(indices.size() > 1, "Rupture index list must contain 2 or more values");
-      bitsets.add(Data.indicesToBits(indices, sections.size()));
+      checkArgument(indices.length > 1, "Rupture index list must contain 2 or more values");
+      int[] sorted = Arrays.copyOf(indices, indices.length);
+      Arrays.sort(sorted);
+      for (int i = 0; i < sorted.length; i++) {
+        checkElementIndex(sorted[i], sections.size());
+        if (i == 0 || sorted[i] != sorted[i - 1]) {
+          ruptureSections.add(sorted[i]);
+        }
+      }
+      ruptureOffsets.add(ruptureSections.size);
       return this;
     }
 
@@ -344,19 +457,19 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
       super.validateState(buildId);
 
       checkState(sections.size() > 0, "%s no sections added", buildId);
-      checkState(bitsets.size() > 0, "%s no index lists added", buildId);
+      int target = ruptureOffsets.size - 1;
+      checkState(target > 0, "%s no index lists added", buildId);
       checkState(
           sections.size() == sectionNames.size(),
           "%s section list (%s) and name list (%s) are different sizes",
           buildId, sections.size(), sectionNames.size());
 
-      int target = bitsets.size();
-      checkSize(mags.size(), target, buildId, "magnitudes");
-      checkSize(rates.size(), target, buildId, "rates");
-      checkSize(depths.size(), target, buildId, "depths");
-      checkSize(dips.size(), target, buildId, "dips");
-      checkSize(widths.size(), target, buildId, "widths");
-      checkSize(rakes.size(), target, buildId, "rakes");
+      checkSize(mags.size, target, buildId, "magnitudes");
+      checkSize(rates.size, target, buildId, "rates");
+      checkSize(depths.size, target, buildId, "depths");
+      checkSize(dips.size, target, buildId, "dips");
+      checkSize(widths.size, target, buildId, "widths");
+      checkSize(rakes.size, target, buildId, "rakes");
     }
 
     private static void checkSize(int size, int target, String classId, String dataId) {
@@ -374,17 +487,58 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
           gmmSet,
           sections.toArray(new GriddedSurface[] {}),
           sectionNames.toArray(new String[] {}),
-          bitsets.toArray(new BitSet[] {}),
-          Doubles.toArray(mags),
-          Doubles.toArray(rates),
-          Doubles.toArray(depths),
-          Doubles.toArray(dips),
-          Doubles.toArray(widths),
-          Doubles.toArray(rakes),
+          ruptureOffsets.toArray(),
+          ruptureSections.toArray(),
+          mags.toArray(),
+          rates.toArray(),
+          depths.toArray(),
+          dips.toArray(),
+          widths.toArray(),
+          rakes.toArray(),
           stats);
     }
   }
 
+  private static final int INITIAL_COLUMN_CAPACITY = 1024;
+
+  /* Growable int array. */
+  private static final class IntColumn {
+
+    private int[] values = new int[INITIAL_COLUMN_CAPACITY];
+    private int size;
+
+    IntColumn add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+      return this;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  /* Growable double array. */
+  private static final class DoubleColumn {
+
+    private double[] values = new double[INITIAL_COLUMN_CAPACITY];
+    private int size;
+
+    DoubleColumn add(double value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+      return this;
+    }
+
+    double[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
   /*
    * System source calculation pipeline.
    *
@@ -408,8 +562,8 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
    * precomuting that data which will be required, and then mining it on a
    * per-source basis, as follows:
    *
-   * 1) For each source, create a BitSet with size = nSections. Set the bits for
-   * each section that the source uses. [sourceBitSet]
+   * 1) For each source, store the ascending indices of the sections that the
+   * source uses. [sourceSections]
    *
    * 2) Create another BitSet with size = nSections. Set the bits for each
    * section within the distance cutoff for a Site. Do this quickly using only
@@ -419,19 +573,17 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
    * distance metrics for each section in the siteBitSet. This is created
    * pre-sorted ascending on rRup (the closest sections to a site come first).
    *
-   * 4) For each sourceBitSet, 'siteBitSet.intersects(sourceBitSet)' returns
-   * whether a source is close enough to the site to be considered.
-   *
-   * 5) For each considered source, 'sourceBitSet AND siteBitSet' yields a
-   * BitSet that only includes set bits with indices in the distance metric
-   * table.
+   * 4) Using an inverted index of the ruptures that include each section,
+   * built once when a source set is created, collect the sources that include
+   * any section in the siteBitSet. These are the only sources close enough to
+   * the site to be considered, and no other source is visited.
    *
-   * 6) For each source, loop the ascending indices, checking whether the bit at
-   * 'index' is set in the sources bitset. The first hit will be the closest
-   * section in a source, relative to a site. (the rX value used is keyed to the
-   * minimum rRup).
+   * 5) Loop the distance metric table in ascending rRup order and, for each
+   * section, update the distance minima of each considered source that
+   * includes it. The first hit will be the closest section in a source,
+   * relative to a site. (the rX value used is keyed to the minimum rRup).
    *
-   * 7) Build GmmInputs and proceed with hazard calculation.
+   * 6) Build GmmInputs, in source order, and proceed with hazard calculation.
    *
    * Note on the above. Although one could argue that only rRup or rJb be
    * calculated first, there are geometries for which min(rRup) != min(rJB);
@@ -459,15 +611,33 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
    * @param site with which to initialize instance.
    */
   public static Function<SystemSourceSet, InputList> toInputsFunction(Site site) {
-    return new ToInputs(site);
+    return new ToInputs(site, null);
+  }
+
+  /**
+   * Return an instance of a {@code Function} that converts a
+   * {@code SystemSourceSet} to a ground motion model {@code InputList}, reusing
+   * fault section distances stored in the
+   * {@linkplain CalcConfig.Performance#systemCache system cache}, if one is
+   * specified.
+   *
+   * @param site with which to initialize instance
+   * @param config that may specify a system cache directory
+   */
+  public static Function<SystemSourceSet, InputList> toInputsFunction(
+      Site site,
+      CalcConfig config) {
+    return new ToInputs(site, config.performance.systemCache);
   }
 
   private static final class ToInputs implements Function<SystemSourceSet, InputList> {
 
     private final Site site;
+    private final Path cacheDirectory;
 
-    ToInputs(final Site site) {
+    ToInputs(final Site site, final Path cacheDirectory) {
       this.site = site;
+      this.cacheDirectory = cacheDirectory;
     }
 
     @Override
@@ -485,28 +655,33 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
 
         /* Create and fill distance map. */
         int[] siteIndices = Data.bitsToIndices(siteBitset);
+        double[] distances = sectionDistances(sourceSet, siteIndices, maxDistance);
         ImmutableMap.Builder<Integer, double[]> rMapBuilder =
             ImmutableMap.<Integer, double[]> builder()
                 .orderEntriesByValue(new DistanceTypeSorter(R_RUP_INDEX));
-        for (int i : siteIndices) {
-          Distance r = sourceSet.sections[i].distanceTo(site.location);
-          rMapBuilder.put(i, new double[] { r.rJB, r.rRup, r.rX });
+        for (int i = 0, j = 0; i < siteIndices.length; i++) {
+          rMapBuilder.put(siteIndices[i], new double[] {
+              distances[j++],
+              distances[j++],
+              distances[j++] });
         }
 
         /* Create inputs. */
         Map<Integer, double[]> rMap = rMapBuilder.build();
+        BitSet ruptures = sourceSet.rupturesForSections(siteIndices);
         Function<SystemSource, HazardInput> inputGenerator = new InputGenerator(
             rMap,
+            ruptures,
+            sourceSet.sectionRuptures,
             site);
-        Predicate<SystemSource> rFilter = new BitsetFilter(siteBitset);
-        Iterable<SystemSource> sources = Iterables.filter(sourceSet, rFilter);
 
         /* Fill input list. */
         SystemInputList inputs = new SystemInputList(sourceSet, rMap.keySet());
-        for (SystemSource source : sources) {
+        for (int i = ruptures.nextSetBit(0); i >= 0; i = ruptures.nextSetBit(i + 1)) {
+          SystemSource source = sourceSet.new SystemSource(i);
           inputs.add(inputGenerator.apply(source));
           // for deagg
-          inputs.addBitset(source.bitset());
+          inputs.addSource(i);
         }
 
         return inputs;
@@ -516,6 +691,37 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
         return null;
       }
     }
+
+    /*
+     * Return the rJB, rRup, and rX of each of the supplied sections, using and
+     * updating the system cache, if present.
+     */
+    private double[] sectionDistances(
+        SystemSourceSet sourceSet,
+        int[] indices,
+        double maxDistance) throws IOException {
+
+      SectionDistanceCache cache = null;
+      if (cacheDirectory != null) {
+        cache = sourceSet.distanceCache(cacheDirectory);
+        double[] distances = cache.get(site.location, maxDistance, indices.length);
+        if (distances != null) {
+          return distances;
+        }
+      }
+      double[] distances = new double[indices.length * 3];
+      int j = 0;
+      for (int i : indices) {
+        Distance r = sourceSet.sections[i].distanceTo(site.location);
+        distances[j++] = r.rJB;
+        distances[j++] = r.rRup;
+        distances[j++] = r.rX;
+      }
+      if (cache != null) {
+        cache.put(site.location, maxDistance, distances);
+      }
+      return distances;
+    }
   }
 
   private static final class DistanceTypeSorter extends Ordering<double[]> {
@@ -543,7 +749,7 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
 
     @Override
     public boolean apply(SystemSource source) {
-      return bitset.intersects(source.bitset());
+      return source.intersects(bitset);
     }
 
     @Override
@@ -558,42 +764,66 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
 
   private static final int R_HIT_LIMIT = 3;
 
+  /*
+   * Computes the r minima of the supplied ruptures, which are stored in
+   * ascending rupture order, up front. Sections are visited in ascending rRup
+   * order and each rupture considers at most the first R_HIT_LIMIT + 1 sections
+   * it includes.
+   */
   private static final class InputGenerator implements Function<SystemSource, HazardInput> {
 
-    private final Map<Integer, double[]> rMap;
+    private final int[] slots;
+    private final double[] rMinima;
     private final Site site;
 
     InputGenerator(
         final Map<Integer, double[]> rMap,
+        final BitSet ruptures,
+        final int[][] sectionRuptures,
         final Site site) {
 
-      this.rMap = rMap;
+      this.slots = new int[ruptures.length()];
+      int slot = 0;
+      for (int i = ruptures.nextSetBit(0); i >= 0; i = ruptures.nextSetBit(i + 1)) {
+        slots[i] = slot++;
+      }
+      this.rMinima = new double[slot * 3];
       this.site = site;
-    }
-
-    @Override
-    public HazardInput apply(SystemSource source) {
 
       /* Find r minima. */
-      BitSet sectionBitset = source.bitset();
-      double rJB = Double.MAX_VALUE;
-      double rRup = Double.MAX_VALUE;
-      double rX = Double.MAX_VALUE;
-      int hitCount = 0;
-      for (int sectionIndex : rMap.keySet()) {
-        if (sectionBitset.get(sectionIndex)) {
-          double[] distances = rMap.get(sectionIndex);
-          rJB = min(rJB, distances[R_JB_INDEX]);
-          double rRupNew = distances[R_RUP_INDEX];
-          if (rRupNew < rRup) {
-            rRup = rRupNew;
-            rX = distances[R_X_INDEX];
+      int[] hitCounts = new int[slot];
+      for (Entry<Integer, double[]> entry : rMap.entrySet()) {
+        double[] distances = entry.getValue();
+        for (int rupture : sectionRuptures[entry.getKey()]) {
+          int rSlot = slots[rupture];
+          int hitCount = hitCounts[rSlot];
+          if (hitCount > R_HIT_LIMIT) {
+            continue;
+          }
+          int j = rSlot * 3;
+          if (hitCount == 0) {
+            rMinima[j + R_JB_INDEX] = Double.MAX_VALUE;
+            rMinima[j + R_RUP_INDEX] = Double.MAX_VALUE;
+            rMinima[j + R_X_INDEX] = Double.MAX_VALUE;
           }
-          if (++hitCount > R_HIT_LIMIT) {
-            break;
+          rMinima[j + R_JB_INDEX] = min(rMinima[j + R_JB_INDEX], distances[R_JB_INDEX]);
+          double rRupNew = distances[R_RUP_INDEX];
+          if (rRupNew < rMinima[j + R_RUP_INDEX]) {
+            rMinima[j + R_RUP_INDEX] = rRupNew;
+            rMinima[j + R_X_INDEX] = distances[R_X_INDEX];
           }
+          hitCounts[rSlot] = hitCount + 1;
         }
       }
+    }
+
+    @Override
+    public HazardInput apply(SystemSource source) {
+
+      int j = slots[source.index] * 3;
+      double rJB = rMinima[j + R_JB_INDEX];
+      double rRup = rMinima[j + R_RUP_INDEX];
+      double rX = rMinima[j + R_X_INDEX];
 
       double dip = source.dip();
       double width = source.width();
@@ -618,6 +848,47 @@ public final class SystemSourceSet extends AbstractSourceSet<SystemSourceSet.Sys
     }
   }
 
+  /*
+   * Return the section distance cache in the supplied directory, opening it if
+   * this is the first request for the directory or the cache has since been
+   * closed.
+   */
+  private synchronized SectionDistanceCache distanceCache(Path directory) throws IOException {
+    if (distanceCache == null ||
+        !distanceCache.isOpen() ||
+        !distanceCacheDirectory.equals(directory)) {
+      distanceCache = SectionDistanceCache.open(name(), id(), sections, directory);
+      distanceCacheDirectory = directory;
+    }
+    return distanceCache;
+  }
+
+  /**
+   * Close any section distance caches opened by calculations using a
+   * {@linkplain CalcConfig.Performance#systemCache system cache}. Call once
+   * all calculations are complete; caches are reopened if subsequently
+   * required.
+   *
+   * @throws IOException if a problem occurs closing a cache file
+   */
+  public static void closeDistanceCaches() throws IOException {
+    SectionDistanceCache.closeAll();
+  }
+
+  /*
+   * Return the indices of the ruptures that include any of the supplied
+   * sections.
+   */
+  private BitSet rupturesForSections(int[] sectionIndices) {
+    BitSet ruptures = new BitSet(size());
+    for (int sectionIndex : sectionIndices) {
+      for (int rupture : sectionRuptures[sectionIndex]) {
+        ruptures.set(rupture);
+      }
+    }
+    return ruptures;
+  }
+
   private final BitSet bitsetForLocation(final Location loc, final double r) {
     BitSet bits = new BitSet(sections.length);
     int count = 0;
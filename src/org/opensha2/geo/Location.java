@@ -43,10 +43,10 @@ public final class Location implements Comparable<Location> {
   private final double lon;
   private final double depth;
 
-  private Location(double lat, double lon, double depth) {
-    this.lat = validateLat(lat) * TO_RAD;
-    this.lon = validateLon(lon) * TO_RAD;
-    this.depth = validateDepth(depth);
+  private Location(double latRad, double lonRad, double depth) {
+    this.lat = latRad;
+    this.lon = lonRad;
+    this.depth = depth;
   }
 
   /**
@@ -73,7 +73,25 @@ public final class Location implements Comparable<Location> {
    * @see GeoTools
    */
   public static Location create(double lat, double lon, double depth) {
-    return new Location(lat, lon, depth);
+    return new Location(
+        validateLat(lat) * TO_RAD,
+        validateLon(lon) * TO_RAD,
+        validateDepth(depth));
+  }
+
+  /**
+   * Create a new {@code Location} with the supplied latitude and longitude in
+   * radians, and depth. This method does not validate its arguments and is
+   * intended for recreating a {@code Location} from the values returned by
+   * {@link #latRad()}, {@link #lonRad()}, and {@link #depth()} of another, such
+   * that the two are {@linkplain #equals(Object) equal}.
+   *
+   * @param latRad latitude in radians
+   * @param lonRad longitude in radians
+   * @param depth in km (positive down)
+   */
+  public static Location fromRadians(double latRad, double lonRad, double depth) {
+    return new Location(latRad, lonRad, depth);
   }
 
   /**
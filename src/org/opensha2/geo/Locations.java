@@ -135,6 +135,25 @@ public final class Locations {
     return EARTH_RADIUS_MEAN * sqrt(dLat * dLat + dLon * dLon);
   }
 
+  /**
+   * Calculates approximate distance between a {@code Location} and a point
+   * specified by its latitude and longitude in radians. Method returns the same
+   * value as {@link #horzDistanceFast(Location, Location)} without requiring a
+   * {@code Location} for the second point, and is intended for use with
+   * primitive coordinate arrays.
+   *
+   * @param p1 the first {@code Location} point
+   * @param lat2 the latitude of the second point in radians
+   * @param lon2 the longitude of the second point in radians
+   * @return the distance between the points in km
+   */
+  public static double horzDistanceFast(Location p1, double lat2, double lon2) {
+    double lat1 = p1.latRad();
+    double dLat = lat1 - lat2;
+    double dLon = (p1.lonRad() - lon2) * cos((lat1 + lat2) * 0.5);
+    return EARTH_RADIUS_MEAN * sqrt(dLat * dLat + dLon * dLon);
+  }
+
   public static void main(String[] args) {
     // Location p1 = Location.create(40, 163);
     // Location p2 = Location.create(40, 165);
@@ -23,6 +23,7 @@ import org.opensha2.gmm.GmmInput.Constraints;
 
 import com.google.common.collect.Range;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -46,7 +47,7 @@ import java.util.Map;
  * @author Peter Powers
  * @see Gmm#ASK_14
  */
-public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
+public final class AbrahamsonEtAl_2014 implements BatchGroundMotionModel {
 
   static final String NAME = "Abrahamson, Silva & Kamai (2014)";
 
@@ -89,6 +90,10 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
         s1e, s2e, s3, s4, s1m, s2m,
         M1, Vlin;
 
+    // period dependent site terms and soil depth interpolation values
+    final double v1, f5rk;
+    final double[] z1c;
+
     // same for all periods; replaced with constant
     // final double a3, a4, a5, c4, n;
 
@@ -124,6 +129,11 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
       s2m = coeffs.get("s2m");
       M1 = coeffs.get("M1");
       Vlin = coeffs.get("Vlin");
+      v1 = getV1(imt);
+      // use this f5 form for Sa1180 Vlin is always < 1180
+      double vs30s_rk = (VS_RK < v1) ? VS_RK : v1;
+      f5rk = (a10 + b * N) * log(vs30s_rk / Vlin);
+      z1c = new double[] { a43, a44, a45, a46, a46 };
     }
   }
 
@@ -133,19 +143,141 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
     coeffs = new Coefficients(imt, COEFFS);
   }
 
+  /* Per-thread scratch for scalar and spectrum calculations. */
+  private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+    @Override
+    protected Scratch initialValue() {
+      return new Scratch();
+    }
+  };
+
   @Override
   public final ScalarGroundMotion calc(final GmmInput in) {
-    return calc(coeffs, in);
+    Scratch s = SCRATCH.get();
+    calc(coeffs, in, s.terms.set(in), s.μ, s.σ, 0);
+    return DefaultScalarGroundMotion.create(s.μ[0], s.σ[0]);
+  }
+
+  @Override
+  public final void calc(List<? extends GmmInput> inputs, double[] μ, double[] σ) {
+    final Coefficients c = coeffs;
+    final Terms t = new Terms();
+    for (int i = 0; i < inputs.size(); i++) {
+      GmmInput in = inputs.get(i);
+      calc(c, in, t.set(in), μ, σ, i);
+    }
   }
 
-  private static final ScalarGroundMotion calc(final Coefficients c, final GmmInput in) {
+  /*
+   * Multi-Imt implementation that computes period independent terms once per
+   * input.
+   */
+  static final class Spectrum implements GroundMotionSpectrum {
+
+    private final Coefficients[] coeffs;
+
+    Spectrum(List<GroundMotionModel> models) {
+      coeffs = new Coefficients[models.size()];
+      for (int i = 0; i < coeffs.length; i++) {
+        coeffs[i] = ((AbrahamsonEtAl_2014) models.get(i)).coeffs;
+      }
+    }
+
+    @Override
+    public void calc(GmmInput in, double[] μ, double[] σ) {
+      Terms t = SCRATCH.get().terms.set(in);
+      for (int i = 0; i < coeffs.length; i++) {
+        AbrahamsonEtAl_2014.calc(coeffs[i], in, t, μ, σ, i);
+      }
+    }
+  }
+
+  /* Terms and scalar result arrays reusable by a single thread. */
+  private static final class Scratch {
+    final Terms terms = new Terms();
+    final double[] μ = new double[1];
+    final double[] σ = new double[1];
+  }
+
+  /* Period independent terms; reusable by a single thread. */
+  private static final class Terms {
+
+    double logR;
+    double MaxMwSq;
+    boolean hangingWall;
+    double T1, T2, T3, T4, T5;
+    FaultStyle style;
+    double z1Term;
+
+    Terms set(final GmmInput in) {
+
+      double Mw = in.Mw;
+      double rJB = in.rJB;
+      double rRup = in.rRup;
+      double rX = in.rX;
+      double dip = in.dip;
+      double zTop = in.zTop;
+
+      // Magnitude dependent taper -- Equation 4
+      double c4mag = (Mw > 5) ? C4 : (Mw > 4) ? C4 - (C4 - 1.0) * (5.0 - Mw) : 1.0;
+
+      // -- Equation 3
+      double R = sqrt(rRup * rRup + c4mag * c4mag);
+      logR = log(R);
+
+      // -- Equation 2
+      MaxMwSq = (8.5 - Mw) * (8.5 - Mw);
+
+      // Hanging Wall Model tapers
+      // short-circuit: f4 is 0 if rJB >= 30, rX < 0, Mw <= 5.5, zTop > 10
+      hangingWall = rJB < 30 && rX >= 0.0 && Mw > 5.5 && zTop <= 10.0;
+      if (hangingWall) {
+
+        // ... dip taper -- Equation 11
+        T1 = (dip > 30.0) ? (90.0 - dip) / 45 : 1.33333333; // 60/45
+
+        // ... mag taper -- Equation 12
+        double dM = Mw - 6.5;
+        T2 = (Mw >= 6.5) ? 1 + A2_HW * dM : 1 + A2_HW * dM - (1 - A2_HW) * dM * dM;
+
+        // ... rX taper -- Equation 13
+        T3 = 0.0;
+        double r1 = in.width * cos(dip * TO_RAD);
+        double r2 = 3 * r1;
+        if (rX <= r1) {
+          double rXr1 = rX / r1;
+          T3 = H1 + H2 * rXr1 + H3 * rXr1 * rXr1;
+        } else if (rX <= r2) {
+          T3 = 1 - (rX - r1) / (r2 - r1);
+        }
+
+        // ... zTop taper -- Equation 14
+        T4 = 1 - (zTop * zTop) / 100.0;
+
+        // ... rX, rY0 taper -- Equation 15b
+        T5 = (rJB == 0.0) ? 1.0 : 1 - rJB / 30.0;
+
+      }
+
+      style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+
+      // Soil Depth Model, z1 ratio -- Equations 17, 18
+      z1Term = calcSoilDepthRatio(in.vs30, in.z1p0);
+      return this;
+    }
+  }
+
+  /*
+   * Computes the mean and standard deviation for the supplied input and
+   * period independent terms, writing values to index i of the supplied
+   * arrays.
+   */
+  private static final void calc(final Coefficients c, final GmmInput in, final Terms t,
+      final double[] μ, final double[] σ, final int i) {
 
     // frequently used method locals
     double Mw = in.Mw;
-    double rJB = in.rJB;
     double rRup = in.rRup;
-    double rX = in.rX;
-    double dip = in.dip;
     double zTop = in.zTop;
     double vs30 = in.vs30;
 
@@ -153,27 +285,21 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
 
     // Base Model (magnitude and distance dependence for strike-slip eq)
 
-    // Magnitude dependent taper -- Equation 4
-    double c4mag = (Mw > 5) ? C4 : (Mw > 4) ? C4 - (C4 - 1.0) * (5.0 - Mw) : 1.0;
-
-    // -- Equation 3
-    double R = sqrt(rRup * rRup + c4mag * c4mag);
-
     // -- Equation 2
-    double MaxMwSq = (8.5 - Mw) * (8.5 - Mw);
+    double MaxMwSq = t.MaxMwSq;
     double MwM1 = Mw - c.M1;
 
     double f1 = c.a1 + c.a17 * rRup;
     if (Mw > c.M1) {
-      f1 += A5 * MwM1 + c.a8 * MaxMwSq + (c.a2 + A3 * MwM1) * log(R);
+      f1 += A5 * MwM1 + c.a8 * MaxMwSq + (c.a2 + A3 * MwM1) * t.logR;
     } else if (Mw >= M2) {
-      f1 += A4 * MwM1 + c.a8 * MaxMwSq + (c.a2 + A3 * MwM1) * log(R);
+      f1 += A4 * MwM1 + c.a8 * MaxMwSq + (c.a2 + A3 * MwM1) * t.logR;
     } else {
       double M2M1 = M2 - c.M1;
       double MaxM2Sq = (8.5 - M2) * (8.5 - M2);
       double MwM2 = Mw - M2;
       // a7 == 0; removed a7 * MwM2 * MwM2 below
-      f1 += A4 * M2M1 + c.a8 * MaxM2Sq + c.a6 * MwM2 + (c.a2 + A3 * M2M1) * log(R);
+      f1 += A4 * M2M1 + c.a8 * MaxM2Sq + c.a6 * MwM2 + (c.a2 + A3 * M2M1) * t.logR;
     }
 
     // Aftershock Model (Class1 = mainshock; Class2 = afershock)
@@ -186,39 +312,8 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
     // f11 = a14 * (1 - (rJBc - 5.0) / 10.0);
     // }
 
-    // Hanging Wall Model
-    double f4 = 0.0;
-    // short-circuit: f4 is 0 if rJB >= 30, rX < 0, Mw <= 5.5, zTop > 10
-    // these switches have been removed below
-    if (rJB < 30 && rX >= 0.0 && Mw > 5.5 && zTop <= 10.0) {
-
-      // ... dip taper -- Equation 11
-      double T1 = (dip > 30.0) ? (90.0 - dip) / 45 : 1.33333333; // 60/45
-
-      // ... mag taper -- Equation 12
-      double dM = Mw - 6.5;
-      double T2 = (Mw >= 6.5) ? 1 + A2_HW * dM : 1 + A2_HW * dM - (1 - A2_HW) * dM * dM;
-
-      // ... rX taper -- Equation 13
-      double T3 = 0.0;
-      double r1 = in.width * cos(dip * TO_RAD);
-      double r2 = 3 * r1;
-      if (rX <= r1) {
-        double rXr1 = rX / r1;
-        T3 = H1 + H2 * rXr1 + H3 * rXr1 * rXr1;
-      } else if (rX <= r2) {
-        T3 = 1 - (rX - r1) / (r2 - r1);
-      }
-
-      // ... zTop taper -- Equation 14
-      double T4 = 1 - (zTop * zTop) / 100.0;
-
-      // ... rX, rY0 taper -- Equation 15b
-      double T5 = (rJB == 0.0) ? 1.0 : 1 - rJB / 30.0;
-
-      // total -- Equation 10
-      f4 = c.a13 * T1 * T2 * T3 * T4 * T5;
-    }
+    // Hanging Wall Model -- Equation 10
+    double f4 = t.hangingWall ? c.a13 * t.T1 * t.T2 * t.T3 * t.T4 * t.T5 : 0.0;
 
     // Depth to Rupture Top Model -- Equation 16
     double f6 = c.a15;
@@ -229,16 +324,15 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
     // Style-of-Faulting Model -- Equations 5 & 6
     // Note: REVERSE doesn not need to be implemented as f7 always resolves
     // to 0 as a11==0; we skip f7 here
-    FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
-    double f78 = (style == NORMAL) ? (Mw > 5.0) ? c.a12 : (Mw >= 4.0) ? c.a12 * (Mw - 4) : 0.0
+    double f78 = (t.style == NORMAL) ? (Mw > 5.0) ? c.a12 : (Mw >= 4.0) ? c.a12 * (Mw - 4) : 0.0
         : 0.0;
 
     // Soil Depth Model -- Equation 17
-    double f10 = calcSoilTerm(c, vs30, in.z1p0);
+    double f10 = calcSoilTerm(c, vs30, in.z1p0, t.z1Term);
 
     // Site Response Model
     double f5 = 0.0;
-    double v1 = getV1(c.imt); // -- Equation 9
+    double v1 = c.v1; // -- Equation 9
     double vs30s = (vs30 < v1) ? vs30 : v1; // -- Equation 8
 
     // Site term -- Equation 7
@@ -249,10 +343,7 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
     if (vs30 < c_Vlin) {
       // soil term (f10) for Sa1180 is zero per R. Kamai's code where
       // Z1 < 0 for Sa1180 loop
-      double vs30s_rk = (VS_RK < v1) ? VS_RK : v1;
-      // use this f5 form for Sa1180 Vlin is always < 1180
-      double f5_rk = (c.a10 + c_b * N) * log(vs30s_rk / c_Vlin);
-      saRock = exp(f1 + f78 + f5_rk + f4 + f6);
+      saRock = exp(f1 + f78 + c.f5rk + f4 + f6);
       f5 = c.a10 * log(vs30s / c_Vlin) - c_b * log(saRock + c_c) + c_b *
           log(saRock + c_c * pow(vs30s / c_Vlin, N));
     } else {
@@ -260,7 +351,7 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
     }
 
     // total model (no aftershock f11) -- Equation 1
-    double μ = f1 + f78 + f5 + f4 + f6 + f10;
+    μ[i] = f1 + f78 + f5 + f4 + f6 + f10;
 
     // ****** Aleatory uncertainty model ******
 
@@ -285,10 +376,7 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
     double τ = tauB * dAmp_p1;
 
     // total std dev
-    double σ = sqrt(phiSq + τ * τ);
-
-    return DefaultScalarGroundMotion.create(μ, σ);
-
+    σ[i] = sqrt(phiSq + τ * τ);
   }
 
   // -- Equation 9
@@ -311,24 +399,31 @@ public final class AbrahamsonEtAl_2014 implements GroundMotionModel {
 
   // Soil depth model adapted from CY13 form -- Equation 17
   private static final double calcSoilTerm(final Coefficients c, final double vs30,
-      final double z1p0) {
+      final double z1p0, final double z1Term) {
     // short circuit; default z1 will be the same as z1ref
     if (Double.isNaN(z1p0)) {
       return 0.0;
     }
-    // -- Equation 18
-    double vsPow4 = vs30 * vs30 * vs30 * vs30;
-    double z1ref = exp(-7.67 / 4.0 * log((vsPow4 + A) / B)) / 1000.0; // km
 
     // double z1c = (vs30 > 500.0) ? a46 :
     // (vs30 > 300.0) ? a45 :
     // (vs30 > 200.0) ? a44 : a43;
 
     // new interpolation algorithm
-    double[] vsCoeff = { c.a43, c.a44, c.a45, c.a46, c.a46 };
-    double z1c = Interpolate.findY(VS_BINS, vsCoeff, vs30);
+    double z1c = Interpolate.findY(VS_BINS, c.z1c, vs30);
 
-    return z1c * log((z1p0 + 0.01) / (z1ref + 0.01));
+    return z1c * z1Term;
+  }
+
+  // Period independent z1 ratio of soil depth model -- Equation 17
+  private static final double calcSoilDepthRatio(final double vs30, final double z1p0) {
+    if (Double.isNaN(z1p0)) {
+      return 0.0;
+    }
+    // -- Equation 18
+    double vsPow4 = vs30 * vs30 * vs30 * vs30;
+    double z1ref = exp(-7.67 / 4.0 * log((vsPow4 + A) / B)) / 1000.0; // km
+    return log((z1p0 + 0.01) / (z1ref + 0.01));
   }
 
   // -- Equation 24
@@ -0,0 +1,39 @@
+package org.opensha2.gmm;
+
+import java.util.List;
+
+/**
+ * Implemented by ground motion models (GMMs) that provide an optimized method
+ * for computing ground motions for many inputs at once. Batch implementations
+ * write means and standard deviations directly to primitive arrays, avoiding
+ * the creation of a {@link ScalarGroundMotion} for every input, and must return
+ * results identical to repeat calls to {@link #calc(GmmInput)}.
+ *
+ * <p>Consumers should generally use
+ * {@link GmmUtils#calc(GroundMotionModel, List, double[], double[])}, which
+ * uses the batch method where supported and otherwise iterates over the
+ * supplied inputs.
+ *
+ * @author Peter Powers
+ * @see AbrahamsonEtAl_2014
+ * @see BooreEtAl_2014
+ * @see CampbellBozorgnia_2014
+ * @see ChiouYoungs_2014
+ * @see Idriss_2014
+ */
+public interface BatchGroundMotionModel extends GroundMotionModel {
+
+  /**
+   * Compute the scalar ground motions and their standard deviations for the
+   * supplied inputs. Values are written to the supplied arrays at the index of
+   * the corresponding input.
+   *
+   * @param inputs ground motion model input argument containers
+   * @param μ array to populate with natural log mean ground motions; must be
+   *        at least as long as {@code inputs}
+   * @param σ array to populate with standard deviations; must be at least as
+   *        long as {@code inputs}
+   */
+  void calc(List<? extends GmmInput> inputs, double[] μ, double[] σ);
+
+}
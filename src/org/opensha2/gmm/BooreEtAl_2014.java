@@ -21,6 +21,7 @@ import org.opensha2.gmm.GmmInput.Constraints;
 
 import com.google.common.collect.Range;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -45,7 +46,7 @@ import java.util.Map;
  * @author Peter Powers
  * @see Gmm#BSSA_14
  */
-public final class BooreEtAl_2014 implements GroundMotionModel {
+public final class BooreEtAl_2014 implements BatchGroundMotionModel {
 
   static final String NAME = "Boore, Stewart, Seyhan & Atkinson (2014)";
 
@@ -77,6 +78,10 @@ public final class BooreEtAl_2014 implements GroundMotionModel {
     final double e0, e1, e2, e3, e4, e5, e6, Mh, c1, c2, c3, h, c, Vc, f4, f5,
         f6, f7, r1, r2, Δφ_r, Δφ_v, φ1, φ2, τ1, τ2;
 
+    // site nonlinear reference term and basin depth switch
+    final double f2ref;
+    final boolean basinTerm;
+
     // same for all periods; replaced with constant
     // double Mref, Rref, Dc3CaTw, Vref, f1, f3, v1, v2;
 
@@ -112,6 +117,8 @@ public final class BooreEtAl_2014 implements GroundMotionModel {
       φ2 = coeffs.get("phi2");
       τ1 = coeffs.get("tau1");
       τ2 = coeffs.get("tau2");
+      f2ref = exp(f5 * (760.0 - 360.0));
+      basinTerm = imt.isSA() && imt.period() >= 0.65;
     }
   }
 
@@ -130,13 +137,57 @@ public final class BooreEtAl_2014 implements GroundMotionModel {
     return calc(coeffs, coeffsPGA, in);
   }
 
+  @Override
+  public final void calc(List<? extends GmmInput> inputs, double[] μ, double[] σ) {
+    final Coefficients c = coeffs;
+    final Coefficients cPGA = coeffsPGA;
+    for (int i = 0; i < inputs.size(); i++) {
+      GmmInput in = inputs.get(i);
+      FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+      double pgaRock = calcPGArock(cPGA, in.Mw, in.rJB, style);
+      double DZ1 = calcDeltaZ1(in.z1p0, in.vs30);
+      μ[i] = calcMean(c, style, pgaRock, DZ1, in);
+      σ[i] = calcStdDev(c, in);
+    }
+  }
+
+  /*
+   * Multi-Imt implementation that computes the rock PGA and basin depth terms
+   * once per input.
+   */
+  static final class Spectrum implements GroundMotionSpectrum {
+
+    private final Coefficients[] coeffs;
+    private final Coefficients coeffsPGA;
+
+    Spectrum(List<GroundMotionModel> models) {
+      coeffs = new Coefficients[models.size()];
+      for (int i = 0; i < coeffs.length; i++) {
+        coeffs[i] = ((BooreEtAl_2014) models.get(i)).coeffs;
+      }
+      coeffsPGA = ((BooreEtAl_2014) models.get(0)).coeffsPGA;
+    }
+
+    @Override
+    public void calc(GmmInput in, double[] μ, double[] σ) {
+      FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+      double pgaRock = calcPGArock(coeffsPGA, in.Mw, in.rJB, style);
+      double DZ1 = calcDeltaZ1(in.z1p0, in.vs30);
+      for (int i = 0; i < coeffs.length; i++) {
+        μ[i] = calcMean(coeffs[i], style, pgaRock, DZ1, in);
+        σ[i] = calcStdDev(coeffs[i], in);
+      }
+    }
+  }
+
   private static final ScalarGroundMotion calc(final Coefficients c, final Coefficients cPGA,
       final GmmInput in) {
 
     FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
     double pgaRock = calcPGArock(cPGA, in.Mw, in.rJB, style);
+    double DZ1 = calcDeltaZ1(in.z1p0, in.vs30);
 
-    double μ = calcMean(c, style, pgaRock, in);
+    double μ = calcMean(c, style, pgaRock, DZ1, in);
     double σ = calcStdDev(c, in);
 
     return DefaultScalarGroundMotion.create(μ, σ);
@@ -144,7 +195,7 @@ public final class BooreEtAl_2014 implements GroundMotionModel {
 
   // Mean ground motion model
   private static final double calcMean(final Coefficients c, final FaultStyle style,
-      final double pgaRock, final GmmInput in) {
+      final double pgaRock, final double DZ1, final GmmInput in) {
 
     double Mw = in.Mw;
     double rJB = in.rJB;
@@ -162,12 +213,11 @@ public final class BooreEtAl_2014 implements GroundMotionModel {
     double lnFlin = c.c * log(vsLin / V_REF);
 
     // Site Nonlinear Term -- Equations 7, 8
-    double f2 = c.f4 * (exp(c.f5 * (min(vs30, 760.0) - 360.0)) - exp(c.f5 * (760.0 - 360.0)));
+    double f2 = c.f4 * (exp(c.f5 * (min(vs30, 760.0) - 360.0)) - c.f2ref);
     double lnFnl = F1 + f2 * log((pgaRock + F3) / F3);
 
     // Basin depth term -- Equations 9, 10 , 11
-    double DZ1 = calcDeltaZ1(in.z1p0, vs30);
-    double Fdz1 = (c.imt.isSA() && c.imt.period() >= 0.65)
+    double Fdz1 = c.basinTerm
         ? (DZ1 <= c.f7 / c.f6) ? c.f6 * DZ1 : c.f7 : 0.0;
 
     // Total site term -- Equation 5
@@ -27,6 +27,7 @@ import org.opensha2.gmm.GmmInput.Constraints;
 import com.google.common.collect.Range;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -52,7 +53,7 @@ import java.util.Set;
  * @author Peter Powers
  * @see Gmm#CB_14
  */
-public final class CampbellBozorgnia_2014 implements GroundMotionModel {
+public final class CampbellBozorgnia_2014 implements BatchGroundMotionModel {
 
   static final String NAME = "Campbell & Bozorgnia (2014)";
 
@@ -90,6 +91,9 @@ public final class CampbellBozorgnia_2014 implements GroundMotionModel {
         τ1, τ2,
         ρ;
 
+    // whether to prevent SA < PGA
+    final boolean shortPeriod;
+
     // same for all periods; replaced with constant; or unused (c8)
     // double c8, c12, c13, h4, c, n, phi_lnaf;
 
@@ -130,6 +134,7 @@ public final class CampbellBozorgnia_2014 implements GroundMotionModel {
       τ1 = coeffs.get("tau1");
       τ2 = coeffs.get("tau2");
       ρ = coeffs.get("rho");
+      shortPeriod = SHORT_PERIODS.contains(imt);
     }
   }
 
@@ -146,27 +151,107 @@ public final class CampbellBozorgnia_2014 implements GroundMotionModel {
     return calc(coeffs, coeffsPGA, in);
   }
 
+  @Override
+  public final void calc(List<? extends GmmInput> inputs, double[] μ, double[] σ) {
+    final Coefficients c = coeffs;
+    final Coefficients cPGA = coeffsPGA;
+    for (int i = 0; i < inputs.size(); i++) {
+      GmmInput in = inputs.get(i);
+      FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+      double pgaRock = calcPgaRock(c, cPGA, style, in);
+      μ[i] = calcMean(c, cPGA, style, pgaRock, in);
+      σ[i] = calcStdDev(c, cPGA, in.Mw, in.vs30, pgaRock);
+    }
+  }
+
+  /*
+   * Multi-Imt implementation that computes the rock PGA reference value and,
+   * for short periods, the PGA ground motion once per input.
+   */
+  static final class Spectrum implements GroundMotionSpectrum {
+
+    private final Coefficients[] coeffs;
+    private final Coefficients coeffsPGA;
+
+    Spectrum(List<GroundMotionModel> models) {
+      coeffs = new Coefficients[models.size()];
+      for (int i = 0; i < coeffs.length; i++) {
+        coeffs[i] = ((CampbellBozorgnia_2014) models.get(i)).coeffs;
+      }
+      coeffsPGA = ((CampbellBozorgnia_2014) models.get(0)).coeffsPGA;
+    }
+
+    @Override
+    public void calc(GmmInput in, double[] μ, double[] σ) {
+
+      Coefficients cPGA = coeffsPGA;
+      FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+      double vs30 = in.vs30;
+      double z2p5 = in.z2p5;
+
+      // lazily computed shared terms; pgaRock is 0.0 when vs30 >= k1
+      double pgaRockRef = Double.NaN;
+      double pgaMeanRock = Double.NaN;
+      double pgaMeanZero = Double.NaN;
+
+      for (int i = 0; i < coeffs.length; i++) {
+        Coefficients c = coeffs[i];
+        boolean rock = vs30 < c.k1;
+        if (rock && Double.isNaN(pgaRockRef)) {
+          pgaRockRef = exp(calcMean(cPGA, style, 1100.0, 0.398, 0.0, in));
+        }
+        double pgaRock = rock ? pgaRockRef : 0.0;
+
+        double μi = calcMean(c, style, vs30, z2p5, pgaRock, in);
+
+        // prevent SA<PGA for short periods
+        if (c.shortPeriod) {
+          if (rock && Double.isNaN(pgaMeanRock)) {
+            pgaMeanRock = calcMean(cPGA, style, vs30, z2p5, pgaRock, in);
+          } else if (!rock && Double.isNaN(pgaMeanZero)) {
+            pgaMeanZero = calcMean(cPGA, style, vs30, z2p5, pgaRock, in);
+          }
+          μi = max(μi, rock ? pgaMeanRock : pgaMeanZero);
+        }
+
+        μ[i] = μi;
+        σ[i] = calcStdDev(c, cPGA, in.Mw, vs30, pgaRock);
+      }
+    }
+  }
+
   private static final ScalarGroundMotion calc(final Coefficients c, final Coefficients cPGA,
       final GmmInput in) {
 
     FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+    double pgaRock = calcPgaRock(c, cPGA, style, in);
+    double μ = calcMean(c, cPGA, style, pgaRock, in);
+    double σ = calcStdDev(c, cPGA, in.Mw, in.vs30, pgaRock);
+
+    return DefaultScalarGroundMotion.create(μ, σ);
+  }
+
+  // calc pga rock reference value using CA vs30 z2p5 value: 0.398
+  private static final double calcPgaRock(final Coefficients c, final Coefficients cPGA,
+      final FaultStyle style, final GmmInput in) {
+    return (in.vs30 < c.k1) ? exp(calcMean(cPGA, style, 1100.0, 0.398, 0.0, in)) : 0.0;
+  }
+
+  // Mean ground motion model with short period SA<PGA check
+  private static final double calcMean(final Coefficients c, final Coefficients cPGA,
+      final FaultStyle style, final double pgaRock, final GmmInput in) {
+
     double vs30 = in.vs30;
     double z2p5 = in.z2p5;
 
-    // calc pga rock reference value using CA vs30 z2p5 value: 0.398
-    double pgaRock = (vs30 < c.k1) ? exp(calcMean(cPGA, style, 1100.0, 0.398, 0.0, in)) : 0.0;
-
     double μ = calcMean(c, style, vs30, z2p5, pgaRock, in);
 
     // prevent SA<PGA for short periods
-    if (SHORT_PERIODS.contains(c.imt)) {
+    if (c.shortPeriod) {
       double pgaMean = calcMean(cPGA, style, vs30, z2p5, pgaRock, in);
       μ = max(μ, pgaMean);
     }
-
-    double σ = calcStdDev(c, cPGA, in.Mw, in.vs30, pgaRock);
-
-    return DefaultScalarGroundMotion.create(μ, σ);
+    return μ;
   }
 
   // Mean ground motion model -- we use supplied vs30 and z2p5 rather than
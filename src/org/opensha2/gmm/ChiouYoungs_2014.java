@@ -25,6 +25,7 @@ import org.opensha2.gmm.GmmInput.Constraints;
 
 import com.google.common.collect.Range;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -51,7 +52,7 @@ import java.util.Map;
  * @author Peter Powers
  * @see Gmm#CY_14
  */
-public final class ChiouYoungs_2014 implements GroundMotionModel {
+public final class ChiouYoungs_2014 implements BatchGroundMotionModel {
 
   // this model includes 0.12 and 0.17s periods that
   // are not generally supported in other models
@@ -91,6 +92,9 @@ public final class ChiouYoungs_2014 implements GroundMotionModel {
         τ1, τ2,
         σ1, σ2, σ3;
 
+    // soil nonlinear reference term
+    final double snlRef;
+
     // same for all periods; replaced with constant
     // double c2, c4, c4a, c11, cRB, phi6;
 
@@ -130,6 +134,7 @@ public final class ChiouYoungs_2014 implements GroundMotionModel {
       σ1 = coeffs.get("sigma1");
       σ2 = coeffs.get("sigma2");
       σ3 = coeffs.get("sigma3");
+      snlRef = exp(φ3 * (1130.0 - 360.0));
     }
   }
 
@@ -139,32 +144,129 @@ public final class ChiouYoungs_2014 implements GroundMotionModel {
     coeffs = new Coefficients(imt, COEFFS);
   }
 
+  /* Per-thread terms for scalar and spectrum calculations. */
+  private static final ThreadLocal<Terms> TERMS = new ThreadLocal<Terms>() {
+    @Override
+    protected Terms initialValue() {
+      return new Terms();
+    }
+  };
+
   @Override
   public final ScalarGroundMotion calc(final GmmInput in) {
-    return calc(coeffs, in);
+    return calc(coeffs, in, TERMS.get().set(in));
+  }
+
+  @Override
+  public final void calc(List<? extends GmmInput> inputs, double[] μ, double[] σ) {
+    final Coefficients c = coeffs;
+    final Terms t = new Terms();
+    for (int i = 0; i < inputs.size(); i++) {
+      GmmInput in = inputs.get(i);
+      calc(c, in, t.set(in), μ, σ, i);
+    }
+  }
+
+  /*
+   * Multi-Imt implementation that computes period independent source, path,
+   * and basin terms once per input.
+   */
+  static final class Spectrum implements GroundMotionSpectrum {
+
+    private final Coefficients[] coeffs;
+
+    Spectrum(List<GroundMotionModel> models) {
+      coeffs = new Coefficients[models.size()];
+      for (int i = 0; i < coeffs.length; i++) {
+        coeffs[i] = ((ChiouYoungs_2014) models.get(i)).coeffs;
+      }
+    }
+
+    @Override
+    public void calc(GmmInput in, double[] μ, double[] σ) {
+      Terms t = TERMS.get().set(in);
+      for (int i = 0; i < coeffs.length; i++) {
+        ChiouYoungs_2014.calc(coeffs[i], in, t, μ, σ, i);
+      }
+    }
   }
 
-  private static final ScalarGroundMotion calc(final Coefficients c, final GmmInput in) {
+  /* Period independent terms; reusable by a single thread. */
+  private static final class Terms {
+
+    FaultStyle style;
+    double coshM;
+    double cosδ;
+    double ΔZtop;
+    double rRupRb;
+    double hwTaper;
+    double basinTaper;
+
+    Terms set(final GmmInput in) {
+
+      double Mw = in.Mw;
+      double rJB = in.rJB;
+      double rRup = in.rRup;
+      double zTop = in.zTop;
+
+      style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+
+      // Far-field distance scaling
+      rRupRb = log(sqrt(rRup * rRup + CRBsq));
+
+      // Scaling with other source variables
+      coshM = cosh(2 * max(Mw - 4.5, 0));
+      cosδ = cos(in.dip * TO_RAD);
+      // Center zTop on the zTop-M relation
+      ΔZtop = zTop - calcMwZtop(style, Mw);
+
+      // Hanging-wall effect
+      hwTaper = (1 - sqrt(rJB * rJB + zTop * zTop) / (rRup + 1.0));
+
+      // Soil effect: sediment thickness
+      double dZ1 = calcDeltaZ1(in.z1p0, in.vs30);
+      basinTaper = (1.0 - exp(-dZ1 / PHI6));
+
+      return this;
+    }
+  }
+
+  private static final ScalarGroundMotion calc(final Coefficients c, final GmmInput in,
+      final Terms t) {
 
     // terms used by both mean and stdDev
-    double saRef = calcSAref(c, in);
+    double saRef = calcSAref(c, in, t);
     double soilNonLin = calcSoilNonLin(c, in.vs30);
 
-    double μ = calcMean(c, in.vs30, in.z1p0, soilNonLin, saRef);
+    double μ = calcMean(c, in.vs30, t, soilNonLin, saRef);
     double σ = calcStdDev(c, in.Mw, in.vsInf, soilNonLin, saRef);
 
     return DefaultScalarGroundMotion.create(μ, σ);
   }
 
+  /*
+   * Computes the mean and standard deviation for the supplied input and
+   * period independent terms, writing values to index i of the supplied
+   * arrays.
+   */
+  private static final void calc(final Coefficients c, final GmmInput in, final Terms t,
+      final double[] μ, final double[] σ, final int i) {
+
+    double saRef = calcSAref(c, in, t);
+    double soilNonLin = calcSoilNonLin(c, in.vs30);
+
+    μ[i] = calcMean(c, in.vs30, t, soilNonLin, saRef);
+    σ[i] = calcStdDev(c, in.Mw, in.vsInf, soilNonLin, saRef);
+  }
+
   // Seismic Source Scaling -- Equation 11
-  private static final double calcSAref(final Coefficients c, final GmmInput in) {
+  private static final double calcSAref(final Coefficients c, final GmmInput in,
+      final Terms t) {
 
     double Mw = in.Mw;
-    double rJB = in.rJB;
     double rRup = in.rRup;
-    double zTop = in.zTop;
 
-    FaultStyle style = GmmUtils.rakeToFaultStyle_NSHMP(in.rake);
+    FaultStyle style = t.style;
 
     // Magnitude scaling
     double r1 = c.c1 + C2 * (Mw - 6.0) + ((C2 - c.c3) / c.cn) *
@@ -175,23 +277,21 @@ public final class ChiouYoungs_2014 implements GroundMotionModel {
 
     // Far-field distance scaling
     double γ = (c.γ1 + c.γ2 / cosh(max(Mw - c.γ3, 0.0)));
-    double r3 = dC4 * log(sqrt(rRup * rRup + CRBsq)) + rRup * γ;
+    double r3 = dC4 * t.rRupRb + rRup * γ;
 
     // Scaling with other source variables
-    double coshM = cosh(2 * max(Mw - 4.5, 0));
-    double cosδ = cos(in.dip * TO_RAD);
-    // Center zTop on the zTop-M relation
-    double ΔZtop = zTop - calcMwZtop(style, Mw);
-    double r4 = (c.c7 + c.c7b / coshM) * ΔZtop + (C11 + c.c11b / coshM) * cosδ * cosδ;
+    double coshM = t.coshM;
+    double cosδ = t.cosδ;
+    double r4 = (c.c7 + c.c7b / coshM) * t.ΔZtop + (C11 + c.c11b / coshM) * cosδ * cosδ;
     r4 += (style == REVERSE) ? (c.c1a + c.c1c / coshM)
         : (style == NORMAL) ? (c.c1b + c.c1d / coshM) : 0.0;
 
     // Hanging-wall effect
     double r5 = 0.0;
     if (in.rX >= 0.0) {
-      r5 = c.c9 * cos(in.dip * TO_RAD) *
+      r5 = c.c9 * cosδ *
           (c.c9a + (1.0 - c.c9a) * tanh(in.rX / c.c9b)) *
-          (1 - sqrt(rJB * rJB + zTop * zTop) / (rRup + 1.0));
+          t.hwTaper;
     }
 
     // Directivity effect (not implemented)
@@ -209,13 +309,12 @@ public final class ChiouYoungs_2014 implements GroundMotionModel {
 
   private static final double calcSoilNonLin(final Coefficients c, final double vs30) {
     double exp1 = exp(c.φ3 * (min(vs30, 1130.0) - 360.0));
-    double exp2 = exp(c.φ3 * (1130.0 - 360.0));
-    return c.φ2 * (exp1 - exp2);
+    return c.φ2 * (exp1 - c.snlRef);
   }
 
   // Mean ground motion model -- Equation 12
   private static final double calcMean(final Coefficients c, final double vs30,
-      final double z1p0, final double snl, final double saRef) {
+      final Terms t, final double snl, final double saRef) {
 
     // Soil effect: linear response
     double sl = c.φ1 * min(log(vs30 / 1130.0), 0.0);
@@ -223,9 +322,8 @@ public final class ChiouYoungs_2014 implements GroundMotionModel {
     // Soil effect: nonlinear response (base passed in)
     double snl_mod = snl * log((saRef + c.φ4) / c.φ4);
 
-    // Soil effect: sediment thickness
-    double dZ1 = calcDeltaZ1(z1p0, vs30);
-    double rkdepth = c.φ5 * (1.0 - exp(-dZ1 / PHI6));
+    // Soil effect: sediment thickness (taper passed in)
+    double rkdepth = c.φ5 * t.basinTaper;
 
     // total model
     return log(saRef) + sl + snl_mod + rkdepth;
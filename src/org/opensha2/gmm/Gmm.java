@@ -28,6 +28,7 @@ import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
@@ -85,6 +86,7 @@ public enum Gmm {
   /** @see AbrahamsonEtAl_2014 */
   ASK_14(
       AbrahamsonEtAl_2014.class,
+      AbrahamsonEtAl_2014.Spectrum.class,
       AbrahamsonEtAl_2014.NAME,
       AbrahamsonEtAl_2014.COEFFS,
       AbrahamsonEtAl_2014.CONSTRAINTS),
@@ -92,6 +94,7 @@ public enum Gmm {
   /** @see BooreEtAl_2014 */
   BSSA_14(
       BooreEtAl_2014.class,
+      BooreEtAl_2014.Spectrum.class,
       BooreEtAl_2014.NAME,
       BooreEtAl_2014.COEFFS,
       BooreEtAl_2014.CONSTRAINTS),
@@ -99,6 +102,7 @@ public enum Gmm {
   /** @see CampbellBozorgnia_2014 */
   CB_14(
       CampbellBozorgnia_2014.class,
+      CampbellBozorgnia_2014.Spectrum.class,
       CampbellBozorgnia_2014.NAME,
       CampbellBozorgnia_2014.COEFFS,
       CampbellBozorgnia_2014.CONSTRAINTS),
@@ -106,6 +110,7 @@ public enum Gmm {
   /** @see ChiouYoungs_2014 */
   CY_14(
       ChiouYoungs_2014.class,
+      ChiouYoungs_2014.Spectrum.class,
       ChiouYoungs_2014.NAME,
       ChiouYoungs_2014.COEFFS,
       ChiouYoungs_2014.CONSTRAINTS),
@@ -473,16 +478,27 @@ public enum Gmm {
       MunsonThurber_1997.CONSTRAINTS);
 
   private final Class<? extends GroundMotionModel> delegate;
+  private final Class<? extends GroundMotionSpectrum> spectrumDelegate;
   private final String name;
   private final Set<Imt> imts;
   private final Constraints constraints;
   private final LoadingCache<Imt, GroundMotionModel> cache;
+  private final LoadingCache<Set<Imt>, GroundMotionSpectrum> spectrumCache;
 
   private Gmm(Class<? extends GroundMotionModel> delegate,
       String name,
       CoefficientContainer coeffs,
       Constraints constraints) {
+    this(delegate, null, name, coeffs, constraints);
+  }
+
+  private Gmm(Class<? extends GroundMotionModel> delegate,
+      Class<? extends GroundMotionSpectrum> spectrumDelegate,
+      String name,
+      CoefficientContainer coeffs,
+      Constraints constraints) {
     this.delegate = delegate;
+    this.spectrumDelegate = spectrumDelegate;
     this.name = name;
     this.constraints = constraints;
     imts = coeffs.imts();
@@ -492,6 +508,13 @@ public enum Gmm {
         return createInstance(imt);
       }
     });
+    spectrumCache = CacheBuilder.newBuilder().build(
+        new CacheLoader<Set<Imt>, GroundMotionSpectrum>() {
+          @Override
+          public GroundMotionSpectrum load(Set<Imt> imts) throws Exception {
+            return createSpectrum(imts);
+          }
+        });
   }
 
   private GroundMotionModel createInstance(Imt imt) throws Exception {
@@ -515,6 +538,52 @@ public enum Gmm {
     return cache.getUnchecked(imt);
   }
 
+  private GroundMotionSpectrum createSpectrum(Set<Imt> imts) throws Exception {
+    List<GroundMotionModel> models = new ArrayList<>(imts.size());
+    for (Imt imt : imts) {
+      models.add(instance(imt));
+    }
+    if (spectrumDelegate == null) {
+      return new InstanceSpectrum(models);
+    }
+    Constructor<? extends GroundMotionSpectrum> con =
+        spectrumDelegate.getDeclaredConstructor(List.class);
+    return con.newInstance(models);
+  }
+
+  /**
+   * Retreive a {@code GroundMotionSpectrum} that computes ground motions for
+   * multiple {@code Imt}s in a single call, either by creating a new one, or
+   * fetching from a cache. Results are in {@code Imt} declaration order,
+   * consistent with the iteration order of an {@code EnumSet}.
+   *
+   * @param imts of the retreived spectrum
+   * @throws UncheckedExecutionException if there is an instantiation problem
+   */
+  public GroundMotionSpectrum spectrum(Set<Imt> imts) {
+    checkArgument(!imts.isEmpty(), "Gmm: %s spectrum requires at least one Imt", this.name());
+    return spectrumCache.getUnchecked(Sets.immutableEnumSet(imts));
+  }
+
+  /* Spectrum backed by Imt-specific instances of a model. */
+  private static final class InstanceSpectrum implements GroundMotionSpectrum {
+
+    private final GroundMotionModel[] models;
+
+    InstanceSpectrum(List<GroundMotionModel> models) {
+      this.models = models.toArray(new GroundMotionModel[models.size()]);
+    }
+
+    @Override
+    public void calc(GmmInput input, double[] μ, double[] σ) {
+      for (int i = 0; i < models.length; i++) {
+        ScalarGroundMotion sgm = models[i].calc(input);
+        μ[i] = sgm.mean();
+        σ[i] = sgm.sigma();
+      }
+    }
+  }
+
   /**
    * Retrieve an immutable map of {@code GroundMotionModel} instances, either by
    * creating new ones, or fetching them from a cache.
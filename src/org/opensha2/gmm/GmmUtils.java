@@ -44,6 +44,38 @@ public final class GmmUtils {
    */
   static final double LN_G_CM_TO_M = log(980.0);
 
+  /**
+   * Compute the scalar ground motions and their standard deviations for the
+   * supplied inputs. If the supplied model implements
+   * {@link BatchGroundMotionModel}, its batch method is used; otherwise
+   * {@link GroundMotionModel#calc(GmmInput)} is called for each input.
+   *
+   * @param model to use
+   * @param inputs ground motion model input argument containers
+   * @param μ array to populate with natural log mean ground motions; must be
+   *        at least as long as {@code inputs}
+   * @param σ array to populate with standard deviations; must be at least as
+   *        long as {@code inputs}
+   */
+  public static void calc(
+      GroundMotionModel model,
+      List<? extends GmmInput> inputs,
+      double[] μ,
+      double[] σ) {
+
+    checkArgument(μ.length >= inputs.size() && σ.length >= inputs.size(),
+        "Output arrays are smaller than input list");
+    if (model instanceof BatchGroundMotionModel) {
+      ((BatchGroundMotionModel) model).calc(inputs, μ, σ);
+      return;
+    }
+    for (int i = 0; i < inputs.size(); i++) {
+      ScalarGroundMotion sgm = model.calc(inputs.get(i));
+      μ[i] = sgm.mean();
+      σ[i] = sgm.sigma();
+    }
+  }
+
   /**
    * Returns the NSHMP interpretation of fault type based on rake; divisions are
    * on 45° diagonals.
@@ -0,0 +1,34 @@
+package org.opensha2.gmm;
+
+import java.util.Set;
+
+/**
+ * Computes ground motions for multiple intensity measure types ({@link Imt}s)
+ * of a single ground motion model (GMM) in one call. Some GMMs supply
+ * implementations that compute magnitude, distance, and site terms that do not
+ * depend on period once per input rather than once per {@code Imt}; for all
+ * other GMMs, results are computed using the {@code Imt}-specific instances of
+ * the model. In either case, results are identical to those returned by
+ * {@link GroundMotionModel#calc(GmmInput)}.
+ *
+ * <p>Use {@link Gmm#spectrum(Set)} to retrieve an instance. Implementations
+ * are thread safe.
+ *
+ * @author Peter Powers
+ * @see Gmm#spectrum(Set)
+ */
+public interface GroundMotionSpectrum {
+
+  /**
+   * Compute the scalar ground motions and their standard deviations for the
+   * supplied input. Values are written to the supplied arrays in
+   * {@code Imt} declaration order for the {@code Imt}s used to create this
+   * spectrum.
+   *
+   * @param input ground motion model input argument container
+   * @param μ array to populate with natural log mean ground motions
+   * @param σ array to populate with standard deviations
+   */
+  void calc(GmmInput input, double[] μ, double[] σ);
+
+}
@@ -16,6 +16,7 @@ import org.opensha2.gmm.GmmInput.Constraints;
 
 import com.google.common.collect.Range;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -44,7 +45,7 @@ import java.util.Map;
  * @author Peter Powers
  * @see Gmm#IDRISS_14
  */
-public final class Idriss_2014 implements GroundMotionModel {
+public final class Idriss_2014 implements BatchGroundMotionModel {
 
   static final String NAME = "Idriss (2014)";
 
@@ -66,6 +67,9 @@ public final class Idriss_2014 implements GroundMotionModel {
     final Imt imt;
     final double a1_lo, a2_lo, a1_hi, a2_hi, a3, b1_lo, b2_lo, b1_hi, b2_hi, ξ, γ, φ;
 
+    // period dependent term of aleatory uncertainty model
+    final double s1;
+
     Coefficients(Imt imt, CoefficientContainer cc) {
       this.imt = imt;
       Map<String, Double> coeffs = cc.get(imt);
@@ -81,6 +85,8 @@ public final class Idriss_2014 implements GroundMotionModel {
       ξ = coeffs.get("xi");
       γ = coeffs.get("gamma");
       φ = coeffs.get("phi");
+      Double T = imt.period();
+      s1 = 0.035 * ((T == null || T <= 0.05) ? log(0.05) : (T < 3.0) ? log(T) : log(3d));
     }
   }
 
@@ -95,6 +101,16 @@ public final class Idriss_2014 implements GroundMotionModel {
     return calc(coeffs, in);
   }
 
+  @Override
+  public final void calc(List<? extends GmmInput> inputs, double[] μ, double[] σ) {
+    final Coefficients c = coeffs;
+    for (int i = 0; i < inputs.size(); i++) {
+      GmmInput in = inputs.get(i);
+      μ[i] = calcMean(c, in);
+      σ[i] = calcStdDev(c, in.Mw);
+    }
+  }
+
   private static final ScalarGroundMotion calc(final Coefficients c, final GmmInput in) {
 
     double μ = calcMean(c, in);
@@ -126,12 +142,9 @@ public final class Idriss_2014 implements GroundMotionModel {
 
   // Aleatory uncertainty model
   private static final double calcStdDev(final Coefficients c, final double Mw) {
-    double s1 = 0.035;
-    Double T = c.imt.period();
-    s1 *= (T == null || T <= 0.05) ? log(0.05) : (T < 3.0) ? log(T) : log(3d);
     double s2 = 0.06;
     s2 *= (Mw <= 5.0) ? 5.0 : (Mw < 7.5) ? Mw : 7.5;
-    return 1.18 + s1 - s2;
+    return 1.18 + c.s1 - s2;
   }
 
 }
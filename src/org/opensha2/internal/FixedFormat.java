@@ -0,0 +1,111 @@
+package org.opensha2.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Formatter of {@code double} values in fixed-point notation that appends
+ * directly to a {@code StringBuilder}. For a given {@code precision}, output is
+ * identical to that of {@code String.format("%.[precision]f", value)}, but
+ * typical values are formatted without creating any intermediate objects.
+ *
+ * <p>As with {@link ScientificFormat}, a formatter scales a value to an integer
+ * and rounds it half-up, delegating to {@code String.format()} when the scaled
+ * value is close enough to a rounding boundary that the result might differ,
+ * when it is too large to be represented exactly, and for non-finite and zero
+ * values. A formatter also delegates all values if the default locale does not
+ * format numbers with ASCII digits and a '.' decimal separator.
+ *
+ * <p>Instances are immutable and thread safe.
+ *
+ * @author Peter Powers
+ */
+public final class FixedFormat {
+
+  private static final int MAX_PRECISION = 12;
+
+  /* Scaled values at or above this are not exact integers in a long. */
+  private static final double MAX_SCALED = 1e15;
+
+  private final int precision;
+  private final String format;
+  private final long scale;
+  private final boolean fast;
+
+  private FixedFormat(int precision) {
+    this.precision = precision;
+    this.format = "%." + precision + "f";
+    this.scale = (long) Math.pow(10, precision);
+    this.fast = String.format(format, -1.5).equals(asciiFormat(precision));
+  }
+
+  /**
+   * Create a new formatter.
+   *
+   * @param precision the number of digits after the decimal point
+   * @throws IllegalArgumentException if {@code precision} is outside the
+   *         range [1..12]
+   */
+  public static FixedFormat create(int precision) {
+    checkArgument(precision >= 1 && precision <= MAX_PRECISION,
+        "Precision [%s] not in range [1..%s]", precision, MAX_PRECISION);
+    return new FixedFormat(precision);
+  }
+
+  /**
+   * Append the formatted {@code value} to the supplied {@code StringBuilder}.
+   *
+   * @param value to format
+   * @param sb to append to
+   * @return the supplied {@code StringBuilder}
+   */
+  public StringBuilder format(double value, StringBuilder sb) {
+    if (!fast || value == 0.0 || Double.isNaN(value) || Double.isInfinite(value)) {
+      return sb.append(String.format(format, value));
+    }
+    double scaled = Math.abs(value) * scale;
+    if (scaled >= MAX_SCALED) {
+      return sb.append(String.format(format, value));
+    }
+
+    /*
+     * A scaled value carries at most a few ulps of error; this tolerance is
+     * several times larger.
+     */
+    double floor = Math.floor(scaled);
+    double fraction = scaled - floor;
+    if (Math.abs(fraction - 0.5) < scaled * 1e-15) {
+      return sb.append(String.format(format, value));
+    }
+    long digits = (long) floor + (fraction > 0.5 ? 1 : 0);
+
+    /* Negative values that round to zero retain their sign. */
+    if (value < 0.0) {
+      sb.append('-');
+    }
+    long integer = digits / scale;
+    long rest = digits - integer * scale;
+    sb.append(integer).append('.');
+    for (long pow = scale / 10; pow > rest && pow > 1; pow /= 10) {
+      sb.append('0');
+    }
+    return sb.append(rest);
+  }
+
+  /**
+   * Return the formatted {@code value}.
+   *
+   * @param value to format
+   */
+  public String format(double value) {
+    return format(value, new StringBuilder(precision + 8)).toString();
+  }
+
+  /* Expected output for -1.5 in locales that use ASCII digits and '.' */
+  private static String asciiFormat(int precision) {
+    StringBuilder sb = new StringBuilder("-1.5");
+    for (int i = 1; i < precision; i++) {
+      sb.append('0');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,155 @@
+package org.opensha2.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Formatter of {@code double} values in scientific notation that appends
+ * directly to a {@code StringBuilder}. For a given {@code precision}, output is
+ * identical to that of {@code String.format("%.[precision]e", value)}, but
+ * typical values are formatted without creating any intermediate objects.
+ *
+ * <p>{@code Formatter} rounds (half-up) the shortest decimal representation
+ * of a value rather than its exact binary value. A formatter scales a value to
+ * an integer with {@code precision + 1} digits and rounds it in the same
+ * manner. In the rare event that the scaled value is close enough to a
+ * rounding boundary that the two approaches might differ, and for
+ * non-finite, zero, and extremely small values, a formatter delegates to
+ * {@code String.format()}. A formatter also delegates all values if the
+ * default locale does not format numbers with ASCII digits and a '.' decimal
+ * separator.
+ *
+ * <p>Instances are immutable and thread safe.
+ *
+ * @author Peter Powers
+ */
+public final class ScientificFormat {
+
+  private static final int MAX_PRECISION = 12;
+
+  /* Powers of 10 up to the largest finite power. */
+  private static final double[] POW10 = new double[309];
+
+  static {
+    for (int i = 0; i < POW10.length; i++) {
+      POW10[i] = Double.parseDouble("1e" + i);
+    }
+  }
+
+  private final int precision;
+  private final String format;
+  private final long minDigits;
+  private final long maxDigits;
+  private final double tolerance;
+  private final boolean fast;
+
+  private ScientificFormat(int precision) {
+    this.precision = precision;
+    this.format = "%." + precision + "e";
+    this.minDigits = (long) POW10[precision];
+    this.maxDigits = (long) POW10[precision + 1];
+
+    /*
+     * A scaled value carries at most a few ulps of error; this tolerance, in
+     * units of the last digit, is several times larger.
+     */
+    this.tolerance = POW10[precision + 1] * 1e-15;
+    this.fast = String.format(format, 1.5).equals(asciiFormat(precision));
+  }
+
+  /**
+   * Create a new formatter.
+   *
+   * @param precision the number of digits after the decimal point
+   * @throws IllegalArgumentException if {@code precision} is outside the
+   *         range [1..12]
+   */
+  public static ScientificFormat create(int precision) {
+    checkArgument(precision >= 1 && precision <= MAX_PRECISION,
+        "Precision [%s] not in range [1..%s]", precision, MAX_PRECISION);
+    return new ScientificFormat(precision);
+  }
+
+  /**
+   * Append the formatted {@code value} to the supplied {@code StringBuilder}.
+   *
+   * @param value to format
+   * @param sb to append to
+   * @return the supplied {@code StringBuilder}
+   */
+  public StringBuilder format(double value, StringBuilder sb) {
+    if (!fast || value == 0.0 || Double.isNaN(value) || Double.isInfinite(value)) {
+      return sb.append(String.format(format, value));
+    }
+    double abs = Math.abs(value);
+    int exponent = (int) Math.floor(Math.log10(abs));
+    int scale = precision - exponent;
+    if (scale > POW10.length - 2 || scale < -(POW10.length - 2)) {
+      return sb.append(String.format(format, value));
+    }
+    double scaled = scale(abs, scale);
+
+    /* log10() may be off by one near powers of 10 */
+    if (scaled < minDigits) {
+      exponent--;
+      scaled = scale(abs, ++scale);
+    } else if (scaled >= maxDigits) {
+      exponent++;
+      scaled = scale(abs, --scale);
+    }
+
+    double floor = Math.floor(scaled);
+    double fraction = scaled - floor;
+    if (Math.abs(fraction - 0.5) < tolerance) {
+      return sb.append(String.format(format, value));
+    }
+    long digits = (long) floor + (fraction > 0.5 ? 1 : 0);
+    if (digits == maxDigits) {
+      digits = minDigits;
+      exponent++;
+    }
+
+    if (value < 0.0) {
+      sb.append('-');
+    }
+    appendDigits(sb, digits);
+    sb.append('e').append(exponent < 0 ? '-' : '+');
+    int absExponent = Math.abs(exponent);
+    if (absExponent < 10) {
+      sb.append('0');
+    }
+    return sb.append(absExponent);
+  }
+
+  /**
+   * Return the formatted {@code value}.
+   *
+   * @param value to format
+   */
+  public String format(double value) {
+    return format(value, new StringBuilder(precision + 8)).toString();
+  }
+
+  private static double scale(double value, int scale) {
+    return (scale >= 0) ? value * POW10[scale] : value / POW10[-scale];
+  }
+
+  /* Append 'd.ddd' given the integer of precision + 1 digits. */
+  private void appendDigits(StringBuilder sb, long digits) {
+    long lead = digits / minDigits;
+    long rest = digits - lead * minDigits;
+    sb.append((char) ('0' + lead)).append('.');
+    for (long pow = minDigits / 10; pow > rest && pow > 1; pow /= 10) {
+      sb.append('0');
+    }
+    sb.append(rest);
+  }
+
+  /* Expected output for 1.5 in locales that use ASCII digits and '.' */
+  private static String asciiFormat(int precision) {
+    StringBuilder sb = new StringBuilder("1.5");
+    for (int i = 1; i < precision; i++) {
+      sb.append('0');
+    }
+    return sb.append("e+00").toString();
+  }
+}
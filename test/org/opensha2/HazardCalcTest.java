@@ -0,0 +1,129 @@
+package org.opensha2;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.opensha2.calc.CalcConfig;
+import org.opensha2.calc.Sites;
+import org.opensha2.eq.model.HazardModel;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@SuppressWarnings("javadoc")
+public class HazardCalcTest {
+
+  private static final Path MODEL_DIR = Paths.get("etc", "peer", "models", "Set2-Case2a-fast");
+  private static final Logger LOG = Logger.getLogger(HazardCalcTest.class.getName());
+
+  private static HazardModel model;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    LOG.setLevel(Level.WARNING);
+    model = HazardModel.load(MODEL_DIR);
+  }
+
+  /*
+   * Sites near the fault are interleaved with sites beyond the maximum
+   * distance, which have no sources and complete first, so map results are
+   * passed to the handler out of order. Output must be identical to that of
+   * a calculation that processes one site at a time.
+   */
+  @Test
+  public final void testMapSiteOrder() throws Exception {
+    Path root = folder.getRoot().toPath();
+    StringBuilder csv = new StringBuilder("name,lon,lat\n");
+    for (int i = 0; i < 24; i++) {
+      double lat = (i % 3 == 0) ? 0.0 : 20.0 + i * 0.1;
+      csv.append("Site").append(i).append(",").append(-64.91 - i * 0.01)
+          .append(",").append(lat).append("\n");
+    }
+    Path sitesFile = root.resolve("sites.csv");
+    Files.write(sitesFile, csv.toString().getBytes(US_ASCII));
+
+    CalcConfig serialConfig = config(root.resolve("serial"), "ONE", 1);
+    CalcConfig mapConfig = config(root.resolve("map"), "ALL", 8);
+    Path serialDir = HazardCalc.calc(
+        model, serialConfig, Sites.fromCsv(sitesFile, serialConfig), LOG);
+    Path mapDir = HazardCalc.calc(
+        model, mapConfig, Sites.fromCsv(sitesFile, mapConfig), LOG);
+
+    List<Path> serialFiles = files(serialDir);
+    List<Path> mapFiles = files(mapDir);
+    assertEquals(serialFiles.size(), mapFiles.size());
+    for (int i = 0; i < serialFiles.size(); i++) {
+      assertEquals(
+          serialDir.relativize(serialFiles.get(i)),
+          mapDir.relativize(mapFiles.get(i)));
+      assertArrayEquals(
+          serialFiles.get(i).toString(),
+          Files.readAllBytes(serialFiles.get(i)),
+          Files.readAllBytes(mapFiles.get(i)));
+    }
+  }
+
+  @Test
+  public final void testSitesInFlightZero() {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("sitesInFlight");
+    config(folder.getRoot().toPath(), "ALL", 0);
+  }
+
+  @Test
+  public final void testSitesInFlightNegative() {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("sitesInFlight");
+    config(folder.getRoot().toPath(), "ONE", -1);
+  }
+
+  private static CalcConfig config(Path dir, String threadCount, int sitesInFlight) {
+    String json = "{" +
+        "\"curve\": {\"imts\": [\"PGA\", \"SA1P0\"]}, " +
+        "\"performance\": {\"threadCount\": \"" + threadCount + "\", " +
+        "\"sitesInFlight\": " + sitesInFlight + "}, " +
+        "\"output\": {" +
+        "\"directory\": \"" + dir.toString().replace("\\", "\\\\") + "\", " +
+        "\"curveTypes\": [\"TOTAL\", \"GMM\", \"SOURCE\"], \"flushLimit\": 5}}";
+    return CalcConfig.Builder.copyOf(model.config())
+        .extend(CalcConfig.Builder.fromJson(json))
+        .build();
+  }
+
+  /* All files in a directory tree, sorted. */
+  private static List<Path> files(Path dir) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        files.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    Collections.sort(files);
+    return files;
+  }
+}
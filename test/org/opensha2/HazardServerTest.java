@@ -0,0 +1,247 @@
+package org.opensha2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.opensha2.calc.CalcConfig;
+import org.opensha2.calc.Site;
+import org.opensha2.eq.model.HazardModel;
+import org.opensha2.gmm.GmmInput;
+import org.opensha2.gmm.Imt;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+@SuppressWarnings("javadoc")
+public class HazardServerTest {
+
+  private static final String SITE = "Site1,-64.91005,0.0";
+
+  private static HazardModel model;
+  private static HazardServer server;
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws IOException {
+    model = HazardModel.load(Paths.get("etc", "peer", "models", "Set2-Case2a-fast"));
+    server = new HazardServer(ImmutableMap.of(model.name(), model), 0, 2);
+    server.startLocal();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() {
+    server.stop();
+  }
+
+  @Test
+  public final void testParseQuery() throws IOException {
+    ListMultimap<String, String> params = HazardServer.parseQuery(
+        "site=A%20B,-118.0,34.0&site=C,-117.0,35.0&&model=m&flag");
+    assertEquals(Arrays.asList("A B,-118.0,34.0", "C,-117.0,35.0"), params.get("site"));
+    assertEquals(Arrays.asList("m"), params.get("model"));
+    assertEquals(Arrays.asList(""), params.get("flag"));
+    assertEquals(4, params.size());
+    assertTrue(HazardServer.parseQuery(null).isEmpty());
+  }
+
+  @Test
+  public final void testGmmInput() throws IOException {
+    GmmInput input = HazardServer.gmmInput(HazardServer.parseQuery(
+        "gmm=ASK_14&mag=7.25&rjb=12.5&rrup=14.0&rx=-3.0&dip=60&width=15&ztop=1.5" +
+            "&zhyp=8&rake=90&vs30=530&vsinf=false&z1p0=0.4&z2p5=2.1"));
+    assertEquals(7.25, input.Mw, 0.0);
+    assertEquals(12.5, input.rJB, 0.0);
+    assertEquals(14.0, input.rRup, 0.0);
+    assertEquals(-3.0, input.rX, 0.0);
+    assertEquals(60.0, input.dip, 0.0);
+    assertEquals(15.0, input.width, 0.0);
+    assertEquals(1.5, input.zTop, 0.0);
+    assertEquals(8.0, input.zHyp, 0.0);
+    assertEquals(90.0, input.rake, 0.0);
+    assertEquals(530.0, input.vs30, 0.0);
+    assertEquals(false, input.vsInf);
+    assertEquals(0.4, input.z1p0, 0.0);
+    assertEquals(2.1, input.z2p5, 0.0);
+
+    /* Unspecified fields take default values. */
+    GmmInput defaults = GmmInput.builder().withDefaults().build();
+    input = HazardServer.gmmInput(HazardServer.parseQuery("gmm=ASK_14&mag=6.0"));
+    assertEquals(6.0, input.Mw, 0.0);
+    assertEquals(defaults.rJB, input.rJB, 0.0);
+    assertEquals(defaults.vsInf, input.vsInf);
+  }
+
+  @Test
+  public final void testGmmInputUnknownField() throws IOException {
+    exception.expect(IllegalArgumentException.class);
+    HazardServer.gmmInput(HazardServer.parseQuery("gmm=ASK_14&magnitude=6.0"));
+  }
+
+  @Test
+  public final void testConfigOverride() {
+    assertEquals(model.config(), HazardServer.config(model, " "));
+    CalcConfig config = HazardServer.config(model,
+        "{\"curve\": {\"imts\": [\"SA1P0\"]}, \"siteDefaults\": {\"vs30\": 530.0}, " +
+            "\"deagg\": {\"contributorLimit\": 1.0}}");
+    assertEquals(EnumSet.of(Imt.SA1P0), config.curve.imts);
+    assertEquals(530.0, config.siteDefaults.vs30, 0.0);
+    assertEquals(1.0, config.deagg.contributorLimit, 0.0);
+    assertEquals(model.config().performance.threadCount, config.performance.threadCount);
+  }
+
+  @Test
+  public final void testConfigOverridePerformance() {
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("performance");
+    HazardServer.config(model, "{\"performance\": {\"systemCache\": \"/tmp/cache\"}}");
+  }
+
+  @Test
+  public final void testConfigOverrideOutput() {
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("output");
+    HazardServer.config(model, "{\"curve\": {}, \"output\": {\"directory\": \"/tmp\"}}");
+  }
+
+  @Test
+  public final void testConfigOverrideMalformed() {
+    exception.expect(IllegalArgumentException.class);
+    HazardServer.config(model, "{\"curve\": ");
+  }
+
+  @Test
+  public final void testSites() {
+    ListMultimap<String, String> params = ArrayListMultimap.create();
+    for (int i = 0; i < HazardServer.MAX_SITES; i++) {
+      params.put("site", "Site" + i + ",-118.0," + (30.0 + i * 0.01));
+    }
+    List<Site> sites = HazardServer.sites(params, model.config());
+    assertEquals(HazardServer.MAX_SITES, sites.size());
+    assertEquals("Site1", sites.get(1).name());
+
+    params.put("site", "Extra,-118.0,34.0");
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("Too many sites");
+    HazardServer.sites(params, model.config());
+  }
+
+  @Test
+  public final void testModelsHandler() throws IOException {
+    JsonArray json = get("/models").getAsJsonArray();
+    assertEquals(1, json.size());
+    JsonObject modelJson = json.get(0).getAsJsonObject();
+    assertEquals(model.name(), modelJson.get("name").getAsString());
+    assertTrue(modelJson.getAsJsonObject("config").has("curve"));
+  }
+
+  @Test
+  public final void testHazardHandler() throws IOException {
+    JsonArray json = get("/hazard?site=" + SITE + "&site=Site2,-65.04497,0.0")
+        .getAsJsonArray();
+    assertEquals(2, json.size());
+    JsonObject siteJson = json.get(0).getAsJsonObject();
+    assertEquals("Site1", siteJson.getAsJsonObject("site").get("name").getAsString());
+    JsonObject curve = siteJson.getAsJsonArray("curves").get(0).getAsJsonObject();
+    assertEquals("PGA", curve.get("imt").getAsString());
+    assertEquals(
+        curve.getAsJsonArray("xValues").size(),
+        curve.getAsJsonArray("yValues").size());
+  }
+
+  @Test
+  public final void testHazardHandlerOverride() throws IOException {
+    JsonArray json = post("/hazard?site=" + SITE,
+        "{\"curve\": {\"imts\": [\"SA1P0\"]}}", 200).getAsJsonArray();
+    JsonObject curve = json.get(0).getAsJsonObject()
+        .getAsJsonArray("curves").get(0).getAsJsonObject();
+    assertEquals("SA1P0", curve.get("imt").getAsString());
+
+    JsonObject error = post("/hazard?site=" + SITE,
+        "{\"performance\": {\"threadCount\": \"ONE\"}}", 400).getAsJsonObject();
+    assertEquals("error", error.get("status").getAsString());
+  }
+
+  @Test
+  public final void testDeaggHandler() throws IOException {
+    JsonArray json = get("/deagg?site=" + SITE + "&returnPeriod=475").getAsJsonArray();
+    JsonObject siteJson = json.get(0).getAsJsonObject();
+    assertEquals(475.0, siteJson.get("returnPeriod").getAsDouble(), 0.0);
+    JsonObject deagg = siteJson.getAsJsonArray("deaggregation").get(0).getAsJsonObject();
+    assertEquals("PGA", deagg.get("imt").getAsString());
+    JsonObject total = deagg.getAsJsonArray("components").get(0).getAsJsonObject();
+    assertEquals("Total", total.get("component").getAsString());
+  }
+
+  @Test
+  public final void testSpectraHandler() throws IOException {
+    JsonObject json = get("/spectra?gmm=ASK_14&gmm=BSSA_14&mag=6.5&rjb=10.0")
+        .getAsJsonObject();
+    assertEquals(6.5, json.getAsJsonObject("input").get("mag").getAsDouble(), 0.0);
+    int periods = json.getAsJsonArray("periods").size();
+    JsonArray spectra = json.getAsJsonArray("spectra");
+    assertEquals(2, spectra.size());
+    for (JsonElement spectrum : spectra) {
+      assertEquals(periods, spectrum.getAsJsonObject().getAsJsonArray("means").size());
+      assertEquals(periods, spectrum.getAsJsonObject().getAsJsonArray("sigmas").size());
+    }
+  }
+
+  @Test
+  public final void testBadRequest() throws IOException {
+    assertEquals(400, connect("/hazard?model=unknown&site=" + SITE).getResponseCode());
+    assertEquals(400, connect("/spectra?gmm=NOT_A_GMM").getResponseCode());
+  }
+
+  private static JsonElement get(String path) throws IOException {
+    HttpURLConnection connection = connect(path);
+    assertEquals(200, connection.getResponseCode());
+    return read(connection.getInputStream());
+  }
+
+  private static JsonElement post(String path, String body, int status) throws IOException {
+    HttpURLConnection connection = connect(path);
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body.getBytes(UTF_8));
+    }
+    assertEquals(status, connection.getResponseCode());
+    return read((status == 200) ? connection.getInputStream() : connection.getErrorStream());
+  }
+
+  private static HttpURLConnection connect(String path) throws IOException {
+    URL url = new URL("http://localhost:" + server.port() + path);
+    return (HttpURLConnection) url.openConnection();
+  }
+
+  private static JsonElement read(InputStream in) throws IOException {
+    try (InputStream s = in) {
+      return new JsonParser().parse(new String(ByteStreams.toByteArray(s), UTF_8));
+    }
+  }
+}
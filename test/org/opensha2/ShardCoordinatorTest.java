@@ -0,0 +1,205 @@
+package org.opensha2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opensha2.ShardCoordinator.Message;
+import org.opensha2.calc.CalcConfig;
+import org.opensha2.calc.Sites;
+import org.opensha2.eq.model.HazardModel;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Optional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@SuppressWarnings("javadoc")
+public class ShardCoordinatorTest {
+
+  private static final Path MODEL_DIR = Paths.get("etc", "peer", "models", "Set2-Case2a-fast");
+  private static final Logger LOG = Logger.getLogger(ShardCoordinatorTest.class.getName());
+
+  private static HazardModel model;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    LOG.setLevel(Level.WARNING);
+    model = HazardModel.load(MODEL_DIR);
+  }
+
+  /*
+   * Partition a calculation across two workers and a third that dies after
+   * being assigned a shard; the shard of the dead worker is reassigned and
+   * merged output is identical to that of a single process.
+   */
+  @Test
+  public final void testPartitionedCalc() throws Exception {
+    Path root = folder.getRoot().toPath();
+    int port = freePort();
+    CalcConfig config = config(root.resolve("single"), 0, port);
+    final CalcConfig shardConfig = config(root.resolve("sharded"), 2, port);
+    final Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+
+    Path singleDir = HazardCalc.calc(model, config, sites, LOG);
+
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try {
+      Future<Path> coordinator = exec.submit(new Callable<Path>() {
+        @Override
+        public Path call() throws Exception {
+          return ShardCoordinator.calc(MODEL_DIR, shardConfig, sites,
+              Optional.<Double> absent(), LOG);
+        }
+      });
+
+      /* Take a shard and die without responding. */
+      Socket dead = connect(port);
+      BufferedReader in = new BufferedReader(new InputStreamReader(dead.getInputStream(), UTF_8));
+      assertEquals(Message.JOB, ShardCoordinator.receive(in).type);
+      assertEquals(Message.SHARD, ShardCoordinator.receive(in).type);
+
+      final String[] args = { "localhost", Integer.toString(port) };
+      List<Future<Optional<String>>> workers = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        workers.add(exec.submit(new Callable<Optional<String>>() {
+          @Override
+          public Optional<String> call() {
+            return HazardWorker.run(args);
+          }
+        }));
+      }
+      dead.setSoLinger(true, 0);
+      dead.close();
+
+      Path shardedDir = coordinator.get(2, TimeUnit.MINUTES);
+      for (Future<Optional<String>> worker : workers) {
+        assertFalse(worker.get(1, TimeUnit.MINUTES).isPresent());
+      }
+      assertFalse(Files.exists(shardedDir.resolve("shards")));
+      assertTreesEqual(singleDir, shardedDir);
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public final void testNegativeShardSize() throws Exception {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("shardSize");
+    config(folder.getRoot().toPath(), -1, 7117);
+  }
+
+  @Test
+  public final void testCoordinatorPortRange() throws Exception {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("coordinatorPort");
+    config(folder.getRoot().toPath(), 2, 65536);
+  }
+
+  @Test
+  public final void testSystemCacheRejected() throws Exception {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("systemCache");
+    CalcConfig.Builder.copyOf(config(folder.getRoot().toPath(), 2, 7117))
+        .extend(CalcConfig.Builder.fromJson(
+            "{\"performance\": {\"systemCache\": \"cache\"}}"))
+        .build();
+  }
+
+  private static void assertTreesEqual(Path expectedDir, Path actualDir) throws IOException {
+    List<Path> expectedFiles = files(expectedDir);
+    List<Path> actualFiles = files(actualDir);
+    assertTrue(expectedFiles.size() > 0);
+    assertEquals(expectedFiles.size(), actualFiles.size());
+    for (int i = 0; i < expectedFiles.size(); i++) {
+      assertEquals(
+          expectedDir.relativize(expectedFiles.get(i)),
+          actualDir.relativize(actualFiles.get(i)));
+      assertArrayEquals(
+          expectedFiles.get(i).toString(),
+          Files.readAllBytes(expectedFiles.get(i)),
+          Files.readAllBytes(actualFiles.get(i)));
+    }
+  }
+
+  /* All files in a directory tree, sorted. */
+  private static List<Path> files(Path dir) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        files.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    Collections.sort(files);
+    return files;
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /* Connect once the coordinator is listening. */
+  private static Socket connect(int port) throws Exception {
+    for (int i = 0;; i++) {
+      try {
+        return new Socket("localhost", port);
+      } catch (IOException ioe) {
+        if (i == 100) {
+          throw ioe;
+        }
+        Thread.sleep(100);
+      }
+    }
+  }
+
+  private static CalcConfig config(Path dir, int shardSize, int port) {
+    String json = "{" +
+        "\"curve\": {\"imts\": [\"PGA\", \"SA0P2\", \"SA1P0\"]}, " +
+        "\"performance\": {\"threadCount\": \"ONE\", " +
+        "\"shardSize\": " + shardSize + ", \"coordinatorPort\": " + port + "}, " +
+        "\"output\": {" +
+        "\"directory\": \"" + dir.toString().replace("\\", "\\\\") + "\", " +
+        "\"curveTypes\": [\"TOTAL\", \"GMM\"], \"flushLimit\": 2}}";
+    return CalcConfig.Builder.copyOf(model.config())
+        .extend(CalcConfig.Builder.fromJson(json))
+        .build();
+  }
+}
@@ -0,0 +1,75 @@
+package org.opensha2.calc;
+
+import static org.junit.Assert.assertEquals;
+
+import org.opensha2.gmm.Imt;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.EnumSet;
+
+@SuppressWarnings("javadoc")
+public class CalcConfigTest {
+
+  private static final String JSON = "{" +
+      "\"curve\": {" +
+      "\"exceedanceModel\": \"TRUNCATION_LOWER_UPPER\", " +
+      "\"truncationLevel\": 2.5, " +
+      "\"imts\": [\"PGA\", \"SA1P0\", \"PGV\"], " +
+      "\"gmmUncertainty\": true, " +
+      "\"valueType\": \"POISSON_PROBABILITY\", " +
+      "\"defaultImls\": [0.01, 0.1, 1.0], " +
+      "\"customImls\": {\"PGV\": [1.0, 10.0, 100.0]}}, " +
+      "\"siteDefaults\": {\"vs30\": 530.0, \"vsInferred\": false, " +
+      "\"z1p0\": 0.5, \"z2p5\": 2.0}, " +
+      "\"performance\": {\"threadCount\": \"HALF\", \"sitesInFlight\": 4, " +
+      "\"gmmCacheSize\": 1000, \"gmmCacheQuantum\": 0.1, \"systemCache\": \"cache\"}, " +
+      "\"output\": {\"directory\": \"results\", \"curveTypes\": [\"GMM\", \"SOURCE\"], " +
+      "\"flushLimit\": 10, \"resume\": true}, " +
+      "\"deagg\": {\"contributorLimit\": 0.5}}";
+
+  /* A config serialized by toJson() must reproduce the same config. */
+  @Test
+  public final void testJsonRoundTrip() {
+    CalcConfig config = CalcConfig.Builder.withDefaults()
+        .extend(CalcConfig.Builder.fromJson(JSON))
+        .build();
+    String json = config.toJson();
+    CalcConfig copy = CalcConfig.Builder.withDefaults()
+        .extend(CalcConfig.Builder.fromJson(json))
+        .build();
+    assertEquals(json, copy.toJson());
+    assertEquals(config.toString(), copy.toString());
+
+    assertEquals(EnumSet.of(Imt.PGA, Imt.SA1P0, Imt.PGV), copy.curve.imts);
+    assertEquals(ExceedanceModel.TRUNCATION_LOWER_UPPER, copy.curve.exceedanceModel);
+    assertEquals(2.5, copy.curve.truncationLevel, 0.0);
+    assertEquals(CurveValue.POISSON_PROBABILITY, copy.curve.valueType);
+    assertEquals(config.curve.modelCurves(), copy.curve.modelCurves());
+    assertEquals(530.0, copy.siteDefaults.vs30, 0.0);
+    assertEquals(0.5, copy.siteDefaults.z1p0, 0.0);
+    assertEquals(ThreadCount.HALF, copy.performance.threadCount);
+    assertEquals(4, copy.performance.sitesInFlight);
+    assertEquals(0.1, copy.performance.gmmCacheQuantum, 0.0);
+    assertEquals(Paths.get("cache").toAbsolutePath(), copy.performance.systemCache);
+    assertEquals(Paths.get("results").toAbsolutePath(), copy.output.directory);
+    assertEquals(
+        EnumSet.of(CurveType.TOTAL, CurveType.GMM, CurveType.SOURCE),
+        copy.output.curveTypes);
+    assertEquals(true, copy.output.resume);
+    assertEquals(0.5, copy.deagg.contributorLimit, 0.0);
+  }
+
+  /* Undefined basin depths are written as null and read as undefined. */
+  @Test
+  public final void testJsonRoundTripNaN() {
+    CalcConfig config = CalcConfig.Builder.withDefaults().build();
+    CalcConfig copy = CalcConfig.Builder.withDefaults()
+        .extend(CalcConfig.Builder.fromJson(config.toJson()))
+        .build();
+    assertEquals(config.toJson(), copy.toJson());
+    assertEquals(Double.NaN, copy.siteDefaults.z1p0, 0.0);
+    assertEquals(Double.NaN, copy.siteDefaults.z2p5, 0.0);
+  }
+}
@@ -0,0 +1,178 @@
+package org.opensha2.calc;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.opensha2.calc.CurveStore.Precision;
+import org.opensha2.geo.Location;
+import org.opensha2.gmm.Imt;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.primitives.Doubles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@SuppressWarnings("javadoc")
+public class CurveStoreTest {
+
+  private static final double[] IMLS = { 0.001, 0.01, 0.1, 0.5, 1.0 };
+  private static final int SITE_COUNT = 2000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public final void testRoundTripDouble() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("total" + CurveStore.SUFFIX);
+    List<Location> locations = locations(new Random(1L), SITE_COUNT);
+    List<double[]> values = values(new Random(2L), SITE_COUNT);
+
+    /* Write in two batches. */
+    int split = SITE_COUNT / 3;
+    append(path, true, Precision.DOUBLE, locations.subList(0, split), values.subList(0, split));
+    append(path, false, Precision.DOUBLE,
+        locations.subList(split, SITE_COUNT), values.subList(split, SITE_COUNT));
+
+    CurveStore store = CurveStore.open(path);
+    assertEquals(Imt.SA1P0, store.imt());
+    assertEquals("total", store.dataset());
+    assertEquals(CurveValue.ANNUAL_RATE, store.valueType());
+    assertEquals(Precision.DOUBLE, store.precision());
+    assertEquals(Doubles.asList(IMLS), store.imls());
+    assertEquals(SITE_COUNT, store.size());
+
+    for (int i = 0; i < SITE_COUNT; i++) {
+      Location location = locations.get(i);
+      assertEquals(location, store.location(i));
+      assertEquals(i, store.indexOf(location));
+      assertArrayEquals(values.get(i), store.yValues(i), 0.0);
+      assertArrayEquals(values.get(i), Doubles.toArray(store.curve(i).yValues()), 0.0);
+      assertEquals(values.get(i)[2], store.y(i, 2), 0.0);
+    }
+    assertEquals(-1, store.indexOf(Location.create(10.0, 10.0)));
+    assertEquals(0, store.indexOf(Location.create(
+        locations.get(0).lat(), locations.get(0).lon(), 5.0)));
+  }
+
+  @Test
+  public final void testRoundTripFloat() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("total" + CurveStore.SUFFIX);
+    List<Location> locations = locations(new Random(3L), SITE_COUNT);
+    List<double[]> values = values(new Random(4L), SITE_COUNT);
+    append(path, true, Precision.FLOAT, locations, values);
+
+    CurveStore store = CurveStore.open(path);
+    assertEquals(Precision.FLOAT, store.precision());
+    assertEquals(SITE_COUNT, store.size());
+    for (int i = 0; i < SITE_COUNT; i++) {
+      assertEquals(i, store.indexOf(locations.get(i)));
+      double[] expected = values.get(i);
+      double[] actual = store.yValues(i);
+      for (int j = 0; j < expected.length; j++) {
+        assertEquals((float) expected[j], actual[j], 0.0);
+      }
+    }
+  }
+
+  @Test
+  public final void testDuplicateLocations() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("total" + CurveStore.SUFFIX);
+    Location location = Location.create(34.05, -118.25);
+    List<Location> locations = new ArrayList<>();
+    locations.add(Location.create(34.0, -118.0));
+    locations.add(location);
+    locations.add(location);
+    append(path, true, Precision.DOUBLE, locations, values(new Random(5L), 3));
+
+    CurveStore store = CurveStore.open(path);
+    assertEquals(1, store.indexOf(location));
+  }
+
+  @Test
+  public final void testIncompleteRecord() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("total" + CurveStore.SUFFIX);
+    List<Location> locations = locations(new Random(6L), 20);
+    List<double[]> values = values(new Random(7L), 20);
+    append(path, true, Precision.DOUBLE, locations.subList(0, 10), values.subList(0, 10));
+    Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 }, APPEND);
+    assertEquals(10, CurveStore.open(path).size());
+
+    /* A partial trailing record is overwritten when appending. */
+    append(path, false, Precision.DOUBLE, locations.subList(10, 20), values.subList(10, 20));
+    CurveStore store = CurveStore.open(path);
+    assertEquals(20, store.size());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i, store.indexOf(locations.get(i)));
+      assertArrayEquals(values.get(i), store.yValues(i), 0.0);
+    }
+  }
+
+  @Test
+  public final void testAppendStore() throws Exception {
+    Path target = folder.getRoot().toPath().resolve("target" + CurveStore.SUFFIX);
+    Path source = folder.getRoot().toPath().resolve("source" + CurveStore.SUFFIX);
+    List<Location> locations = locations(new Random(8L), 30);
+    List<double[]> values = values(new Random(9L), 30);
+    append(target, true, Precision.DOUBLE, locations.subList(0, 12), values.subList(0, 12));
+    append(source, true, Precision.DOUBLE, locations.subList(12, 30), values.subList(12, 30));
+
+    CurveStore.appendStore(target, source);
+    CurveStore store = CurveStore.open(target);
+    assertEquals(30, store.size());
+    for (int i = 0; i < 30; i++) {
+      assertEquals(locations.get(i), store.location(i));
+      assertEquals(i, store.indexOf(locations.get(i)));
+      assertArrayEquals(values.get(i), store.yValues(i), 0.0);
+    }
+  }
+
+  private static void append(
+      Path path,
+      boolean create,
+      Precision precision,
+      List<Location> locations,
+      List<double[]> values) throws Exception {
+
+    CurveStore.append(
+        path,
+        create,
+        Imt.SA1P0,
+        "total",
+        CurveValue.ANNUAL_RATE,
+        precision,
+        IMLS,
+        locations,
+        values);
+  }
+
+  /* Site locations in degrees, as read from site files. */
+  private static List<Location> locations(Random random, int count) {
+    List<Location> locations = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      double lat = Math.round((random.nextDouble() * 180.0 - 90.0) * 1000.0) / 1000.0;
+      double lon = Math.round((random.nextDouble() * 360.0 - 180.0) * 1000.0) / 1000.0;
+      locations.add(Location.create(lat, lon));
+    }
+    return locations;
+  }
+
+  private static List<double[]> values(Random random, int count) {
+    List<double[]> values = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      double[] curve = new double[IMLS.length];
+      for (int j = 0; j < curve.length; j++) {
+        curve[j] = random.nextDouble() * Math.pow(10, -random.nextInt(10));
+      }
+      values.add(curve);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,112 @@
+package org.opensha2.calc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static org.opensha2.calc.ExceedanceEvaluation.ERF;
+import static org.opensha2.calc.ExceedanceEvaluation.TABLE_CUBIC;
+import static org.opensha2.calc.ExceedanceEvaluation.TABLE_LINEAR;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+@SuppressWarnings("javadoc")
+public class ExceedanceEvaluationTest {
+
+  /* Documented maximum differences from direct evaluation. */
+  private static final double LINEAR_TOL = 2.9e-8;
+  private static final double CUBIC_TOL = 1e-9;
+  private static final double CUBIC_TOL_AWAY_FROM_ZERO = 1e-14;
+  private static final double TAIL_TOL = 1e-15;
+
+  private static final double TABLE_MIN = -8.0;
+  private static final double TABLE_MAX = 8.0;
+  private static final double TABLE_Δ = 1.0 / 1024.0;
+
+  private static final ExceedanceEvaluation[] TABLES = { TABLE_LINEAR, TABLE_CUBIC };
+
+  /* Sweep step; not a divisor of the table interval. */
+  private static final double SWEEP_Δ = TABLE_Δ / 7.3;
+
+  @Test
+  public final void testLinear() {
+    double max = maxDifference(TABLE_LINEAR, TABLE_MIN, TABLE_MAX, SWEEP_Δ);
+    assertTrue("Linear max difference " + max, max <= LINEAR_TOL);
+    /* A bound this loose would hide a broken table. */
+    assertTrue("Linear max difference " + max, max > LINEAR_TOL / 10.0);
+  }
+
+  @Test
+  public final void testCubic() {
+    double max = maxDifference(TABLE_CUBIC, TABLE_MIN, TABLE_MAX, SWEEP_Δ);
+    assertTrue("Cubic max difference " + max, max <= CUBIC_TOL);
+
+    /* Only the intervals adjacent to ε = 0 approach the bound. */
+    double lower = maxDifference(TABLE_CUBIC, TABLE_MIN, -TABLE_Δ, SWEEP_Δ);
+    double upper = maxDifference(TABLE_CUBIC, TABLE_Δ, TABLE_MAX, SWEEP_Δ);
+    assertTrue("Cubic max difference " + lower, lower <= CUBIC_TOL_AWAY_FROM_ZERO);
+    assertTrue("Cubic max difference " + upper, upper <= CUBIC_TOL_AWAY_FROM_ZERO);
+  }
+
+  @Test
+  public final void testRandom() {
+    Random random = new Random(1024L);
+    for (int i = 0; i < 200000; i++) {
+      double ε = TABLE_MIN + random.nextDouble() * (TABLE_MAX - TABLE_MIN);
+      double expected = ERF.ccd(ε);
+      assertEquals("ε = " + ε, expected, TABLE_LINEAR.ccd(ε), LINEAR_TOL);
+      assertEquals("ε = " + ε, expected, TABLE_CUBIC.ccd(ε), CUBIC_TOL);
+    }
+  }
+
+  /* Table nodes reproduce direct evaluation exactly. */
+  @Test
+  public final void testNodes() {
+    for (double ε = TABLE_MIN; ε <= TABLE_MAX; ε += 1.0 / 16.0) {
+      assertEquals("ε = " + ε, ERF.ccd(ε), TABLE_LINEAR.ccd(ε), 0.0);
+      assertEquals("ε = " + ε, ERF.ccd(ε), TABLE_CUBIC.ccd(ε), 0.0);
+    }
+  }
+
+  /* Outside the table, values are clamped to the nearest end. */
+  @Test
+  public final void testClampedTails() {
+    double upperEnd = ERF.ccd(TABLE_MAX);
+    double lowerEnd = ERF.ccd(TABLE_MIN);
+    double[] tails = {
+        TABLE_MAX, TABLE_MAX + 1e-12, TABLE_MAX + SWEEP_Δ, 9.0, 12.0, 40.0, 1e300,
+        Double.POSITIVE_INFINITY
+    };
+    for (double ε : tails) {
+      for (ExceedanceEvaluation eval : TABLES) {
+        assertEquals(eval + " ε = " + ε, upperEnd, eval.ccd(ε), 0.0);
+        assertEquals(eval + " ε = " + -ε, lowerEnd, eval.ccd(-ε), 0.0);
+        if (!Double.isInfinite(ε)) {
+          assertEquals(eval + " ε = " + ε, ERF.ccd(ε), eval.ccd(ε), TAIL_TOL);
+          assertEquals(eval + " ε = " + -ε, ERF.ccd(-ε), eval.ccd(-ε), TAIL_TOL);
+        }
+      }
+    }
+    for (ExceedanceEvaluation eval : TABLES) {
+      double tailMax = Math.max(
+          maxDifference(eval, -16.0, TABLE_MIN, SWEEP_Δ),
+          maxDifference(eval, TABLE_MAX, 16.0, SWEEP_Δ));
+      assertTrue(eval + " tail max difference " + tailMax, tailMax < TAIL_TOL);
+    }
+  }
+
+  private static double maxDifference(
+      ExceedanceEvaluation eval,
+      double min,
+      double max,
+      double Δ) {
+    double maxDiff = 0.0;
+    int count = (int) Math.floor((max - min) / Δ);
+    for (int i = 0; i <= count; i++) {
+      double ε = min + i * Δ;
+      maxDiff = Math.max(maxDiff, Math.abs(eval.ccd(ε) - ERF.ccd(ε)));
+    }
+    return maxDiff;
+  }
+}
@@ -0,0 +1,121 @@
+package org.opensha2.calc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.opensha2.eq.model.HazardModel;
+import org.opensha2.eq.model.Source;
+import org.opensha2.eq.model.SourceSet;
+import org.opensha2.gmm.GmmInput;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+
+import java.nio.file.Paths;
+
+@SuppressWarnings("javadoc")
+public class GroundMotionCacheTest {
+
+  private static HazardModel model;
+  private static SourceSet<? extends Source> sources;
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    model = HazardModel.load(Paths.get("etc", "peer", "models", "Set2-Case2a-fast"));
+    sources = Iterables.getFirst(model, null);
+  }
+
+  @Test
+  public final void testDisabled() {
+    assertFalse(GroundMotionCache.create(sources, config(0, 1.0)).isPresent());
+  }
+
+  @Test
+  public final void testExactKeys() {
+    GroundMotionCache cache = cache(100, 0.0);
+    assertEquals(cache.key(input().build()), cache.key(input().build()));
+    assertNotEquals(
+        cache.key(input().build()),
+        cache.key(input().rJB(10.0 + 1e-9).build()));
+    /* NaN basin depths are equal. */
+    assertEquals(
+        cache.key(input().z1p0(Double.NaN).build()),
+        cache.key(input().z1p0(Double.NaN).build()));
+  }
+
+  @Test
+  public final void testQuantizedDistances() {
+    GroundMotionCache cache = cache(100, 1.0);
+    assertEquals(
+        cache.key(input().distances(10.2, 12.1, 3.3).build()),
+        cache.key(input().distances(9.8, 11.9, 2.6).build()));
+    assertNotEquals(
+        cache.key(input().distances(10.2, 12.1, 3.3).build()),
+        cache.key(input().distances(10.6, 12.1, 3.3).build()));
+  }
+
+  /* A quantum suited to distances must not merge other fields. */
+  @Test
+  public final void testUnquantizedFields() {
+    GroundMotionCache cache = cache(100, 5.0);
+    assertNotEquals(
+        cache.key(input().mag(6.55).build()),
+        cache.key(input().mag(6.95).build()));
+    assertNotEquals(
+        cache.key(input().vsInf(true).build()),
+        cache.key(input().vsInf(false).build()));
+    assertNotEquals(
+        cache.key(input().rake(90.0).build()),
+        cache.key(input().rake(91.0).build()));
+    assertNotEquals(
+        cache.key(input().dip(45.0).build()),
+        cache.key(input().dip(46.0).build()));
+    assertNotEquals(
+        cache.key(input().vs30(760.0).build()),
+        cache.key(input().vs30(761.0).build()));
+    assertNotEquals(
+        cache.key(input().zTop(1.0).build()),
+        cache.key(input().zTop(2.0).build()));
+  }
+
+  @Test
+  public final void testCapacity() {
+    GroundMotionCache cache = cache(2, 0.0);
+    GroundMotionCache.Key k1 = cache.key(input().mag(6.0).build());
+    GroundMotionCache.Key k2 = cache.key(input().mag(6.5).build());
+    GroundMotionCache.Key k3 = cache.key(input().mag(7.0).build());
+    double[] v1 = { 1.0 };
+    double[] v2 = { 2.0 };
+    double[] v3 = { 3.0 };
+
+    assertNull(cache.get(k1));
+    cache.put(k1, v1);
+    /* Existing keys are neither replaced nor counted again. */
+    cache.put(k1, v2);
+    cache.put(k2, v2);
+    cache.put(k3, v3);
+    assertArrayEquals(v1, cache.get(k1), 0.0);
+    assertArrayEquals(v2, cache.get(k2), 0.0);
+    assertNull(cache.get(k3));
+  }
+
+  private static GmmInput.Builder input() {
+    return GmmInput.builder().withDefaults();
+  }
+
+  private static GroundMotionCache cache(int size, double quantum) {
+    return GroundMotionCache.create(sources, config(size, quantum)).get();
+  }
+
+  private static CalcConfig config(int size, double quantum) {
+    return CalcConfig.Builder.copyOf(model.config())
+        .extend(CalcConfig.Builder.fromJson("{\"performance\": {" +
+            "\"gmmCacheSize\": " + size + ", \"gmmCacheQuantum\": " + quantum + "}}"))
+        .build();
+  }
+}
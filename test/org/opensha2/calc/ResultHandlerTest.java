@@ -0,0 +1,374 @@
+package org.opensha2.calc;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opensha2.data.XySequence;
+import org.opensha2.eq.model.HazardModel;
+import org.opensha2.gmm.Gmm;
+import org.opensha2.gmm.Imt;
+import org.opensha2.internal.Parsing;
+import org.opensha2.internal.Parsing.Delimiter;
+import org.opensha2.mfd.Mfds;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Optional;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@SuppressWarnings("javadoc")
+public class ResultHandlerTest {
+
+  private static final Path MODEL_DIR = Paths.get("etc", "peer", "models", "Set2-Case2a-fast");
+  private static final Logger LOG = Logger.getLogger(ResultHandlerTest.class.getName());
+
+  private static HazardModel model;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    LOG.setLevel(Level.WARNING);
+    model = HazardModel.load(MODEL_DIR);
+  }
+
+  @Test
+  public final void testAnnualRateText() throws Exception {
+    compareText(CurveValue.ANNUAL_RATE);
+  }
+
+  @Test
+  public final void testPoissonProbabilityText() throws Exception {
+    compareText(CurveValue.POISSON_PROBABILITY);
+  }
+
+  /*
+   * Compare text curves written by a handler with those formatted using
+   * String.format, as curves were written prior to the introduction of
+   * ScientificFormat.
+   */
+  private void compareText(CurveValue valueType) throws Exception {
+    Path dir = folder.getRoot().toPath().resolve("curves");
+    CalcConfig config = config(
+        dir,
+        "\"valueType\": \"" + valueType + "\"",
+        "\"curveTypes\": [\"TOTAL\", \"GMM\"], \"flushLimit\": 2");
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+
+    ResultHandler handler = ResultHandler.create(config, sites, LOG);
+    List<Hazard> hazards = new ArrayList<>();
+    for (Site site : sites) {
+      Hazard hazard = Calcs.hazard(model, config, site, Optional.<Executor> absent());
+      hazards.add(hazard);
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.expire();
+
+    Function<Double, String> formatter = Parsing.formatDoubleFunction("%.8e");
+    if (valueType == CurveValue.POISSON_PROBABILITY) {
+      formatter = Functions.compose(formatter, Mfds.annualRateToProbabilityConverter());
+    }
+
+    for (Imt imt : config.curve.imts) {
+      List<String> totalLines = headerLines(config, imt);
+      List<String> gmmLines = headerLines(config, imt);
+      for (Hazard hazard : hazards) {
+        List<String> location = Lists.newArrayList(
+            hazard.site.name,
+            String.format("%.5f", hazard.site.location.lon()),
+            String.format("%.5f", hazard.site.location.lat()));
+        XySequence total = hazard.curves().get(imt);
+        totalLines.add(line(location, total.yValues(), formatter));
+        Map<Gmm, XySequence> gmmCurves = ResultHandler.curvesByGmm(hazard).get(imt);
+        gmmLines.add(line(location, gmmCurves.get(Gmm.ASK_14).yValues(), formatter));
+      }
+      Path imtDir = dir.resolve(imt.name());
+      assertEquals(totalLines, Files.readAllLines(imtDir.resolve("total.csv"), US_ASCII));
+      assertEquals(gmmLines, Files.readAllLines(
+          imtDir.resolve("gmm").resolve(Gmm.ASK_14.name() + ".csv"), US_ASCII));
+    }
+  }
+
+  @Test
+  public final void testResume() throws Exception {
+    Path root = folder.getRoot().toPath();
+    String output = "\"curveTypes\": [\"TOTAL\", \"GMM\", \"STORE\"], " +
+        "\"flushLimit\": 2, \"resume\": true";
+    CalcConfig fullConfig = config(root.resolve("full"), "", output);
+    CalcConfig config = config(root.resolve("resumed"), "", output);
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    List<Hazard> hazards = new ArrayList<>();
+    for (Site site : sites) {
+      hazards.add(Calcs.hazard(model, config, site, Optional.<Executor> absent()));
+    }
+
+    /* Uninterrupted. */
+    ResultHandler handler = ResultHandler.create(fullConfig, sites, LOG);
+    for (Hazard hazard : hazards) {
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.expire();
+
+    /*
+     * Interrupted after two batches, with a third batch partially written
+     * after the last checkpoint; the handler is abandoned without expiring.
+     */
+    handler = ResultHandler.create(config, sites, LOG);
+    for (Hazard hazard : hazards.subList(0, 4)) {
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.flush();
+    Path resumedDir = handler.outputDir();
+    assertTrue(Files.exists(resumedDir.resolve(Checkpoint.FILENAME)));
+    for (Path file : files(resumedDir)) {
+      if (!file.endsWith(Checkpoint.FILENAME)) {
+        Files.write(file, "partial,batch".getBytes(US_ASCII), StandardOpenOption.APPEND);
+      }
+    }
+
+    /* Resumed. */
+    handler = ResultHandler.create(config, sites, LOG);
+    assertEquals(4, handler.resumeIndex());
+    assertEquals(resumedDir, handler.outputDir());
+    for (Hazard hazard : Iterables.skip(hazards, handler.resumeIndex())) {
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.expire();
+
+    assertTreesEqual(root.resolve("full"), resumedDir);
+  }
+
+  /*
+   * Results added by index in any order are written in site order and are
+   * identical to those added sequentially.
+   */
+  @Test
+  public final void testAddOutOfOrder() throws Exception {
+    Path root = folder.getRoot().toPath();
+    String output = "\"curveTypes\": [\"TOTAL\", \"GMM\"], \"flushLimit\": 2";
+    CalcConfig orderedConfig = config(root.resolve("ordered"), "", output);
+    CalcConfig config = config(root.resolve("unordered"), "", output);
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    List<Hazard> hazards = new ArrayList<>();
+    for (Site site : sites) {
+      hazards.add(Calcs.hazard(model, config, site, Optional.<Executor> absent()));
+    }
+    assertEquals(6, hazards.size());
+
+    ResultHandler handler = ResultHandler.create(orderedConfig, sites, LOG);
+    for (Hazard hazard : hazards) {
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.expire();
+
+    handler = ResultHandler.create(config, sites, LOG);
+    int[] order = { 3, 1, 5, 0, 4, 2 };
+    int[] processed = { 0, 0, 0, 2, 2, 6 };
+    for (int i = 0; i < order.length; i++) {
+      handler.add(order[i], hazards.get(order[i]), Optional.<Deaggregation> absent());
+      assertEquals(processed[i], handler.resultsProcessed());
+    }
+    handler.expire();
+
+    assertTreesEqual(root.resolve("ordered"), root.resolve("unordered"));
+  }
+
+  @Test
+  public final void testAddDuplicateIndex() throws Exception {
+    Path dir = folder.getRoot().toPath().resolve("curves");
+    CalcConfig config = config(dir, "", "\"curveTypes\": [\"TOTAL\"]");
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    Hazard hazard = Calcs.hazard(model, config, sites.first(), Optional.<Executor> absent());
+    ResultHandler handler = ResultHandler.create(config, sites, LOG);
+    handler.add(2, hazard, Optional.<Deaggregation> absent());
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("[2] already added");
+    handler.add(2, hazard, Optional.<Deaggregation> absent());
+  }
+
+  /* Indices below that of the next result to be written are rejected. */
+  @Test
+  public final void testAddWrittenIndex() throws Exception {
+    Path dir = folder.getRoot().toPath().resolve("curves");
+    CalcConfig config = config(dir, "", "\"curveTypes\": [\"TOTAL\"]");
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    Hazard hazard = Calcs.hazard(model, config, sites.first(), Optional.<Executor> absent());
+    ResultHandler handler = ResultHandler.create(config, sites, LOG);
+    handler.add(0, hazard, Optional.<Deaggregation> absent());
+    handler.add(hazard, Optional.<Deaggregation> absent());
+    assertEquals(2, handler.resultsProcessed());
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("[0] already added");
+    handler.add(0, hazard, Optional.<Deaggregation> absent());
+  }
+
+  /*
+   * A calculation started when the configured directory already existed
+   * writes to an incremented directory; resuming must find its checkpoint
+   * there rather than start over.
+   */
+  @Test
+  public final void testResumeIncrementedDir() throws Exception {
+    Path dir = folder.getRoot().toPath().resolve("curves");
+    Files.createDirectories(dir);
+    CalcConfig config = config(dir, "",
+        "\"curveTypes\": [\"TOTAL\"], \"flushLimit\": 2, \"resume\": true");
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    List<Hazard> hazards = new ArrayList<>();
+    for (Site site : sites) {
+      hazards.add(Calcs.hazard(model, config, site, Optional.<Executor> absent()));
+    }
+
+    ResultHandler handler = ResultHandler.create(config, sites, LOG);
+    Path resumedDir = handler.outputDir();
+    assertEquals(dir.resolveSibling("curves-1"), resumedDir);
+    for (Hazard hazard : hazards.subList(0, 2)) {
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.flush();
+
+    handler = ResultHandler.create(config, sites, LOG);
+    assertEquals(2, handler.resumeIndex());
+    assertEquals(resumedDir, handler.outputDir());
+    for (Hazard hazard : Iterables.skip(hazards, handler.resumeIndex())) {
+      handler.add(hazard, Optional.<Deaggregation> absent());
+    }
+    handler.expire();
+    assertFalse(Files.exists(resumedDir.resolve(Checkpoint.FILENAME)));
+    assertFalse(Files.exists(dir.resolveSibling("curves-2")));
+
+    /* No checkpoint remains; a new calculation starts. */
+    handler = ResultHandler.create(config, sites, LOG);
+    assertEquals(0, handler.resumeIndex());
+    assertEquals(dir.resolveSibling("curves-2"), handler.outputDir());
+    handler.expire();
+  }
+
+  @Test
+  public final void testResumeCurveTypeMismatch() throws Exception {
+    Path dir = folder.getRoot().toPath().resolve("curves");
+    CalcConfig config = config(dir, "",
+        "\"curveTypes\": [\"TOTAL\"], \"flushLimit\": 1, \"resume\": true");
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    ResultHandler handler = ResultHandler.create(config, sites, LOG);
+    Site site = sites.first();
+    handler.add(
+        Calcs.hazard(model, config, site, Optional.<Executor> absent()),
+        Optional.<Deaggregation> absent());
+    handler.flush();
+
+    CalcConfig gmmConfig = config(dir, "",
+        "\"curveTypes\": [\"TOTAL\", \"GMM\"], \"flushLimit\": 1, \"resume\": true");
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("Curve types");
+    ResultHandler.create(gmmConfig, sites, LOG);
+  }
+
+  @Test
+  public final void testNoCheckpointWithoutResume() throws Exception {
+    Path dir = folder.getRoot().toPath().resolve("curves");
+    CalcConfig config = config(dir, "",
+        "\"curveTypes\": [\"TOTAL\"], \"flushLimit\": 1, \"resume\": false");
+    Sites sites = Sites.fromCsv(MODEL_DIR.resolve("sites.csv"), config);
+    ResultHandler handler = ResultHandler.create(config, sites, LOG);
+    Site site = sites.first();
+    handler.add(
+        Calcs.hazard(model, config, site, Optional.<Executor> absent()),
+        Optional.<Deaggregation> absent());
+    handler.flush();
+    assertFalse(Files.exists(handler.outputDir().resolve(Checkpoint.FILENAME)));
+    handler.expire();
+  }
+
+  /* Directory trees contain identically named files with identical content. */
+  private static void assertTreesEqual(Path expectedDir, Path actualDir) throws IOException {
+    List<Path> expectedFiles = files(expectedDir);
+    List<Path> actualFiles = files(actualDir);
+    assertEquals(expectedFiles.size(), actualFiles.size());
+    for (int i = 0; i < expectedFiles.size(); i++) {
+      assertEquals(
+          expectedDir.relativize(expectedFiles.get(i)),
+          actualDir.relativize(actualFiles.get(i)));
+      assertArrayEquals(
+          expectedFiles.get(i).toString(),
+          Files.readAllBytes(expectedFiles.get(i)),
+          Files.readAllBytes(actualFiles.get(i)));
+    }
+  }
+
+  /* All files in a directory tree, sorted. */
+  private static List<Path> files(Path dir) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        files.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    Collections.sort(files);
+    return files;
+  }
+
+  /* Config with additional curve and output members. */
+  private static CalcConfig config(Path dir, String curveMembers, String outputMembers) {
+    String json = "{" +
+        "\"curve\": {\"imts\": [\"PGA\", \"SA0P2\", \"SA1P0\"]" +
+        (curveMembers.isEmpty() ? "" : ", " + curveMembers) + "}, " +
+        "\"performance\": {\"threadCount\": \"ONE\"}, " +
+        "\"output\": {" +
+        "\"directory\": \"" + dir.toString().replace("\\", "\\\\") + "\", " +
+        outputMembers + "}}";
+    return CalcConfig.Builder.copyOf(model.config())
+        .extend(CalcConfig.Builder.fromJson(json))
+        .build();
+  }
+
+  private static List<String> headerLines(CalcConfig config, Imt imt) {
+    Iterable<?> header = Iterables.concat(
+        Lists.newArrayList("name", "lon", "lat"),
+        config.curve.modelCurves().get(imt).xValues());
+    return Lists.newArrayList(Parsing.join(header, Delimiter.COMMA));
+  }
+
+  private static String line(
+      List<String> location,
+      Iterable<Double> values,
+      Function<Double, String> formatter) {
+
+    return Parsing.join(
+        FluentIterable.from(location).append(Iterables.transform(values, formatter)),
+        Delimiter.COMMA);
+  }
+}
@@ -0,0 +1,207 @@
+package org.opensha2.calc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+@SuppressWarnings("javadoc")
+public class SitesTest {
+
+  private static final Path EXAMPLES = Paths.get("etc", "examples");
+  private static final Path SITES_JSON = EXAMPLES.resolve("3-sites-file/sites.geojson");
+  private static final Path MAP_JSON = EXAMPLES.resolve("4-hazard-map/map.geojson");
+  private static final Path OPEN_FILES = Paths.get("/proc/self/fd");
+
+  private static final String CSV = "# Test sites\n" +
+      "\n" +
+      "   \n" +
+      "# name, lon, lat, vs30\n" +
+      "name,lon,lat,vs30,vsInf\n" +
+      "Site0,-118.0,34.0,530.0,false\n" +
+      "# comment between sites\n" +
+      "\n" +
+      "Site1,-118.1,34.1,540.0,true\n" +
+      "Site2,-118.2,34.2,550.0,true\n" +
+      "Site3,-118.3,34.3,560.0,true\n" +
+      "Site4,-118.4,34.4,570.0,true\n" +
+      "Site5,-118.5,34.5,580.0,true\n" +
+      "Site6,-118.6,34.6,590.0,true\n" +
+      "Site7,-118.7,34.7,600.0,true\n";
+
+  private static final CalcConfig DEFAULTS = CalcConfig.Builder.withDefaults().build();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public final void testCsv() throws IOException {
+    Sites sites = Sites.fromCsv(write(CSV), DEFAULTS);
+    List<Site> siteList = list(sites);
+    assertEquals(8, siteList.size());
+    for (int i = 0; i < siteList.size(); i++) {
+      Site site = siteList.get(i);
+      assertEquals("Site" + i, site.name);
+      assertEquals(-118.0 - i * 0.1, site.location.lon(), 1e-12);
+      assertEquals(34.0 + i * 0.1, site.location.lat(), 1e-12);
+      assertEquals(530.0 + i * 10.0, site.vs30, 0.0);
+      assertEquals(i > 0, site.vsInferred);
+    }
+    assertEquals("Site0", sites.first().name);
+  }
+
+  @Test
+  public final void testCsvIllegalKey() throws IOException {
+    Path path = write("name,lon,lat,vs31\nSite0,-118.0,34.0,530.0\n");
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("vs31");
+    Sites.fromCsv(path, DEFAULTS);
+  }
+
+  @Test
+  public final void testCsvMissingLat() throws IOException {
+    Path path = write("# comment\nname,lon\nSite0,-118.0\n");
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("latitudes");
+    Sites.fromCsv(path, DEFAULTS);
+  }
+
+  @Test
+  public final void testCsvMissingLon() throws IOException {
+    Path path = write("lat,name\n34.0,Site0\n");
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("longitudes");
+    Sites.fromCsv(path, DEFAULTS);
+  }
+
+  @Test
+  public final void testCsvNoSites() throws IOException {
+    Path path = write("# comment\n\nname,lon,lat\n# no sites\n");
+    exception.expect(IllegalStateException.class);
+    Sites.fromCsv(path, DEFAULTS);
+  }
+
+  @Test
+  public final void testRepeatIteration() throws IOException {
+    assertRepeatable(Sites.fromCsv(write(CSV), DEFAULTS));
+    assertRepeatable(Sites.fromJson(SITES_JSON, DEFAULTS));
+  }
+
+  @Test
+  public final void testClosedAfterExhaustion() throws IOException {
+    assumeTrue(Files.isDirectory(OPEN_FILES));
+    Path path = write(CSV);
+    Sites sites = Sites.fromCsv(path, DEFAULTS);
+    assertFalse(isOpen(path));
+
+    Iterator<Site> iterator = sites.iterator();
+    iterator.next();
+    assertTrue(isOpen(path));
+    assertEquals(7, Iterators.size(iterator));
+    assertFalse(iterator.hasNext());
+    assertFalse(isOpen(path));
+
+    Path jsonPath = folder.getRoot().toPath().resolve("sites.geojson");
+    Files.copy(SITES_JSON, jsonPath);
+    Sites jsonSites = Sites.fromJson(jsonPath, DEFAULTS);
+    assertFalse(isOpen(jsonPath));
+    assertEquals(7, Iterables.size(jsonSites));
+    assertFalse(isOpen(jsonPath));
+  }
+
+  @Test
+  public final void testGet() throws IOException {
+    Path path = write(CSV);
+    Sites sites = Sites.fromCsv(path, DEFAULTS);
+    assertEquals("Site0", sites.get(0).name);
+    assertEquals("Site7", sites.get(7).name);
+    assertNull(sites.get(8));
+    assertNull(sites.get(100));
+    if (Files.isDirectory(OPEN_FILES)) {
+      assertFalse(isOpen(path));
+    }
+    assertNull(Sites.fromJson(SITES_JSON, DEFAULTS).get(7));
+  }
+
+  @Test
+  public final void testJsonPoints() throws IOException {
+    Sites sites = Sites.fromJson(SITES_JSON, DEFAULTS);
+    assertTrue(sites.toString().startsWith("File ["));
+    assertFalse(sites.mapSpacing().isPresent());
+    List<Site> siteList = list(sites);
+    assertEquals(7, siteList.size());
+    assertEquals("Concord CA", siteList.get(0).name);
+    assertEquals(-122.0, siteList.get(0).location.lon(), 1e-12);
+    assertEquals(37.95, siteList.get(0).location.lat(), 1e-12);
+    assertEquals("Oakland CA", siteList.get(1).name);
+  }
+
+  @Test
+  public final void testJsonPolygon() throws IOException {
+    Sites sites = Sites.fromJson(MAP_JSON, DEFAULTS);
+    assertTrue(sites.toString().contains("Region [size=441"));
+    assertEquals(0.1, sites.mapSpacing().get(), 0.0);
+    assertEquals(21 * 21, Iterables.size(sites));
+  }
+
+  private static void assertRepeatable(Sites sites) {
+    List<Site> first = list(sites);
+    List<Site> second = list(sites);
+    assertEquals(first.size(), second.size());
+    for (int i = 0; i < first.size(); i++) {
+      assertEquals(first.get(i).toString(), second.get(i).toString());
+      assertEquals(first.get(i).location, second.get(i).location);
+    }
+  }
+
+  private static List<Site> list(Sites sites) {
+    List<Site> list = new ArrayList<>();
+    Iterables.addAll(list, sites);
+    return list;
+  }
+
+  private Path write(String content) throws IOException {
+    Path path = folder.newFile().toPath();
+    Files.write(path, content.getBytes(UTF_8));
+    return path;
+  }
+
+  /* Whether this process has the supplied file open; Linux only. */
+  private static boolean isOpen(Path file) throws IOException {
+    Path target = file.toRealPath();
+    try (DirectoryStream<Path> fds = Files.newDirectoryStream(OPEN_FILES)) {
+      for (Path fd : fds) {
+        try {
+          if (Files.readSymbolicLink(fd).equals(target)) {
+            return true;
+          }
+        } catch (IOException ioe) {
+          // descriptor closed while listing
+        }
+      }
+    }
+    return false;
+  }
+}
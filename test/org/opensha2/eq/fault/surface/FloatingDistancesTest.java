@@ -0,0 +1,139 @@
+package org.opensha2.eq.fault.surface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.opensha2.eq.model.Distance;
+import org.opensha2.eq.model.Rupture;
+import org.opensha2.geo.Location;
+import org.opensha2.geo.LocationList;
+
+import org.junit.Test;
+
+import com.google.common.primitives.Ints;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@SuppressWarnings("javadoc")
+public class FloatingDistancesTest {
+
+  private static final RuptureFloating[] MODELS = {
+      RuptureFloating.ON,
+      RuptureFloating.STRIKE_ONLY,
+      RuptureFloating.NSHM,
+      RuptureFloating.TRIANGULAR };
+
+  /* Small magnitudes yield many floaters, large magnitudes only a few. */
+  private static final double[] MAGS = { 6.05, 6.45, 6.65, 6.85, 7.25, 7.65 };
+
+  private static final LocationList TRACE = LocationList.create(
+      Location.create(34.0, -118.0),
+      Location.create(34.2, -117.95),
+      Location.create(34.4, -117.95));
+
+  /* Sites on, near, and far from the trace, on both sides of it. */
+  private static final LocationList SITES = LocationList.create(
+      Location.create(34.0, -118.0),
+      Location.create(34.2, -117.95),
+      Location.create(34.21, -117.94),
+      Location.create(34.19, -117.97),
+      Location.create(34.1, -117.88),
+      Location.create(34.3, -118.1),
+      Location.create(33.95, -118.02),
+      Location.create(34.46, -117.93),
+      Location.create(34.2, -116.9),
+      Location.create(35.1, -118.4));
+
+  @Test
+  public final void testDipping() {
+    check(surface(45.0, 20.0));
+  }
+
+  @Test
+  public final void testVertical() {
+    check(surface(90.0, 15.0));
+  }
+
+  /*
+   * Compare the distances to every floater of every model with those computed
+   * by each floating surface, and by iterating its nodes, and confirm that
+   * both windowed and sliding minima were exercised.
+   */
+  private static void check(GriddedSurface parent) {
+    boolean direct = false;
+    boolean sliding = false;
+    for (RuptureFloating model : MODELS) {
+      FloatingDistances.Builder builder = FloatingDistances.builder(parent);
+      List<Rupture> ruptures = new ArrayList<>();
+      for (double mag : MAGS) {
+        ruptures.addAll(model.createFloatingRuptures(
+            parent, RuptureScaling.NSHM_FAULT_WC94_LENGTH, mag, 1.0, 90.0, false));
+        if (model == RuptureFloating.ON) {
+          ruptures.addAll(model.createFloatingRuptures(
+              parent, RuptureScaling.PEER, mag, 1.0, 90.0, true));
+        }
+      }
+
+      int[] indices = new int[ruptures.size()];
+      Map<List<Integer>, Set<Integer>> groups = new HashMap<>();
+      for (int i = 0; i < ruptures.size(); i++) {
+        GriddedSurface surface = (GriddedSurface) ruptures.get(i).surface();
+        indices[i] = builder.add(surface);
+        assertTrue(indices[i] >= 0);
+        List<Integer> shape = Ints.asList(
+            parent.dip() > 89 ? 1 : surface.getNumRows(),
+            surface.getNumCols());
+        Set<Integer> members = groups.get(shape);
+        if (members == null) {
+          members = new HashSet<>();
+          groups.put(shape, members);
+        }
+        members.add(indices[i]);
+      }
+      FloatingDistances floaters = builder.build();
+
+      int cells = parent.getNumRows() * parent.getNumCols();
+      for (Map.Entry<List<Integer>, Set<Integer>> group : groups.entrySet()) {
+        int nodes = group.getValue().size() * group.getKey().get(0) * group.getKey().get(1);
+        if (nodes <= FloatingDistances.DIRECT_FACTOR * cells) {
+          direct = true;
+        } else {
+          sliding = true;
+        }
+      }
+
+      for (Location site : SITES) {
+        Distance[] distances = floaters.distances(site);
+        for (int i = 0; i < ruptures.size(); i++) {
+          GriddedSurface surface = (GriddedSurface) ruptures.get(i).surface();
+          String message = model + " " + site + " " + i;
+          Distance actual = distances[indices[i]];
+          checkEquals(message, surface.distanceTo(site), actual);
+          checkEquals(message, Distance.compute(surface, site), actual);
+        }
+      }
+    }
+    assertTrue("No floaters visited directly", direct);
+    assertTrue("No floaters visited by sliding window", sliding);
+  }
+
+  private static void checkEquals(String message, Distance expected, Distance actual) {
+    assertEquals(message, expected.rJB, actual.rJB, 0.0);
+    assertEquals(message, expected.rRup, actual.rRup, 0.0);
+    assertEquals(message, expected.rX, actual.rX, 0.0);
+  }
+
+  private static GriddedSurface surface(double dip, double width) {
+    return DefaultGriddedSurface.builder()
+        .trace(TRACE)
+        .depth(0.0)
+        .dip(dip)
+        .width(width)
+        .build();
+  }
+}
@@ -0,0 +1,140 @@
+package org.opensha2.eq.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opensha2.eq.fault.surface.RuptureSurface;
+import org.opensha2.geo.Location;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Iterables;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+
+@SuppressWarnings("javadoc")
+public class CompiledFileTest {
+
+  private static final String MODEL = "data/compiled";
+  private static final Location SITE = Location.create(34.2, -117.9);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCompiledModel() throws Exception {
+    Path model = copyModel();
+    Path fault = model.resolve("Fault");
+    Path grid = model.resolve("Grid");
+
+    HazardModel parsed = HazardModel.load(model);
+    assertFalse(Files.exists(fault.resolve("fault.bin")));
+
+    HazardModel.compile(model);
+    assertTrue(Files.exists(fault.resolve("fault.bin")));
+    assertTrue(Files.exists(grid.resolve("grid.bin")));
+    assertTrue(Files.exists(grid.resolve("grid-mechs.bin")));
+    assertModelsEqual(parsed, HazardModel.load(model));
+
+    /* Out of date compiled files are ignored. */
+    Path faultXml = fault.resolve("fault.xml");
+    String xml = new String(Files.readAllBytes(faultXml), UTF_8);
+    Files.write(faultXml, xml.replace("rate=\"1.1e-3\"", "rate=\"2.20e-3\"").getBytes(UTF_8));
+    HazardModel modified = HazardModel.load(model);
+    double rate = totalRate(Iterables.getLast(sourceSet(parsed, "Faults")));
+    double modifiedRate = totalRate(Iterables.getLast(sourceSet(modified, "Faults")));
+    assertEquals(2.0 * rate, modifiedRate, rate * 1e-12);
+  }
+
+  private static void assertModelsEqual(HazardModel expected, HazardModel actual) {
+    assertEquals(expected.size(), actual.size());
+    Iterator<SourceSet<? extends Source>> actualSets = actual.iterator();
+    for (SourceSet<? extends Source> expectedSet : expected) {
+      SourceSet<? extends Source> actualSet = actualSets.next();
+      assertEquals(expectedSet.getClass(), actualSet.getClass());
+      assertEquals(expectedSet.name(), actualSet.name());
+      assertEquals(expectedSet.id(), actualSet.id());
+      assertEquals(expectedSet.weight(), actualSet.weight(), 0.0);
+      assertEquals(expectedSet.size(), actualSet.size());
+      Iterator<? extends Source> actualSources = actualSet.iterator();
+      for (Source expectedSource : expectedSet) {
+        Source actualSource = actualSources.next();
+        assertEquals(expectedSource.name(), actualSource.name());
+        assertEquals(expectedSource.size(), actualSource.size());
+        Iterator<Rupture> actualRuptures = actualSource.iterator();
+        for (Rupture expectedRupture : expectedSource) {
+          assertRupturesEqual(expectedRupture, actualRuptures.next());
+        }
+      }
+    }
+  }
+
+  private static void assertRupturesEqual(Rupture expected, Rupture actual) {
+    assertEquals(expected.mag(), actual.mag(), 0.0);
+    assertEquals(expected.rate(), actual.rate(), 0.0);
+    assertEquals(expected.rake(), actual.rake(), 0.0);
+    RuptureSurface expectedSurface = expected.surface();
+    RuptureSurface actualSurface = actual.surface();
+    assertEquals(expectedSurface.dip(), actualSurface.dip(), 0.0);
+    assertEquals(expectedSurface.width(), actualSurface.width(), 0.0);
+    assertEquals(expectedSurface.depth(), actualSurface.depth(), 0.0);
+    Distance expectedDistance = expectedSurface.distanceTo(SITE);
+    Distance actualDistance = actualSurface.distanceTo(SITE);
+    assertEquals(expectedDistance.rJB, actualDistance.rJB, 0.0);
+    assertEquals(expectedDistance.rRup, actualDistance.rRup, 0.0);
+    assertEquals(expectedDistance.rX, actualDistance.rX, 0.0);
+  }
+
+  private static double totalRate(Source source) {
+    double rate = 0.0;
+    for (Rupture rupture : source) {
+      rate += rupture.rate();
+    }
+    return rate;
+  }
+
+  private static SourceSet<? extends Source> sourceSet(HazardModel model, String name) {
+    for (SourceSet<? extends Source> sourceSet : model) {
+      if (sourceSet.name().equals(name)) {
+        return sourceSet;
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  /* Copy the test model so that compiled files are not written to the tree. */
+  private Path copyModel() throws IOException {
+    String path = Resources.getResource(CompiledFileTest.class, MODEL).getPath();
+    final Path source = Paths.get(URLDecoder.decode(path, "UTF-8"));
+    final Path target = folder.getRoot().toPath().resolve("model");
+    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+          throws IOException {
+        Files.copy(file, target.resolve(source.relativize(file).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return target;
+  }
+}
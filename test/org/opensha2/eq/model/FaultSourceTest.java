@@ -0,0 +1,136 @@
+package org.opensha2.eq.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.opensha2.calc.Calcs;
+import org.opensha2.calc.HazardInput;
+import org.opensha2.calc.InputList;
+import org.opensha2.calc.Site;
+import org.opensha2.eq.fault.Faults;
+import org.opensha2.eq.fault.surface.RuptureFloating;
+import org.opensha2.eq.fault.surface.RuptureScaling;
+import org.opensha2.eq.fault.surface.RuptureSurface;
+import org.opensha2.geo.Location;
+import org.opensha2.geo.LocationList;
+import org.opensha2.mfd.IncrementalMfd;
+import org.opensha2.mfd.Mfds;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("javadoc")
+public class FaultSourceTest {
+
+  private static final LocationList TRACE = LocationList.create(
+      Location.create(34.0, -118.0),
+      Location.create(34.2, -117.95),
+      Location.create(34.4, -117.95));
+
+  /* Sites on, near, and far from the trace, on both sides of it. */
+  private static final LocationList SITES = LocationList.create(
+      Location.create(34.0, -118.0),
+      Location.create(34.21, -117.94),
+      Location.create(34.19, -117.97),
+      Location.create(34.1, -117.88),
+      Location.create(34.46, -117.93),
+      Location.create(35.1, -118.4));
+
+  @Test
+  public final void testDipping() throws Exception {
+    for (RuptureFloating model : RuptureFloating.values()) {
+      check(source(model, 45.0, RuptureScaling.NSHM_FAULT_WC94_LENGTH, false));
+    }
+    check(source(RuptureFloating.ON, 45.0, RuptureScaling.PEER, true));
+  }
+
+  @Test
+  public final void testVertical() throws Exception {
+    for (RuptureFloating model : RuptureFloating.values()) {
+      check(source(model, 90.0, RuptureScaling.NSHM_FAULT_WC94_LENGTH, false));
+    }
+    check(source(RuptureFloating.ON, 90.0, RuptureScaling.PEER, true));
+  }
+
+  /*
+   * Compare iterated ruptures and ground motion model inputs with those
+   * derived from the ruptures as originally created.
+   */
+  private static void check(FaultSource source) throws Exception {
+    List<Rupture> expected = new ArrayList<>();
+    for (IncrementalMfd mfd : source.mfds) {
+      expected.addAll(source.createRuptureList(mfd));
+    }
+    String id = source.rupFloating + " " + source.dip;
+
+    List<Rupture> actual = Lists.newArrayList(source);
+    assertEquals(id, expected.size(), source.size());
+    assertEquals(id, expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Rupture rup = expected.get(i);
+      Rupture actualRup = actual.get(i);
+      assertEquals(id, rup.mag(), actualRup.mag(), 0.0);
+      assertEquals(id, rup.rate(), actualRup.rate(), 0.0);
+      assertEquals(id, rup.rake(), actualRup.rake(), 0.0);
+      assertEquals(id, rup.surface().dip(), actualRup.surface().dip(), 0.0);
+      assertEquals(id, rup.surface().width(), actualRup.surface().width(), 0.0);
+      assertEquals(id, rup.surface().depth(), actualRup.surface().depth(), 0.0);
+    }
+
+    Field rate = HazardInput.class.getDeclaredField("rate");
+    rate.setAccessible(true);
+    for (Location location : SITES) {
+      Site site = Site.builder().location(location).build();
+      InputList inputs = Calcs.sourceToInputs(site).apply(source);
+      assertEquals(id, expected.size(), inputs.size());
+      for (int i = 0; i < expected.size(); i++) {
+        String message = id + " " + location + " " + i;
+        Rupture rup = expected.get(i);
+        RuptureSurface surface = rup.surface();
+        Distance distance = surface.distanceTo(location);
+        double dip = surface.dip();
+        double width = surface.width();
+        double zTop = surface.depth();
+        HazardInput input = inputs.get(i);
+        assertEquals(message, rup.mag(), input.Mw, 0.0);
+        assertEquals(message, rup.rate(), rate.getDouble(input), 0.0);
+        assertEquals(message, distance.rJB, input.rJB, 0.0);
+        assertEquals(message, distance.rRup, input.rRup, 0.0);
+        assertEquals(message, distance.rX, input.rX, 0.0);
+        assertEquals(message, dip, input.dip, 0.0);
+        assertEquals(message, width, input.width, 0.0);
+        assertEquals(message, zTop, input.zTop, 0.0);
+        assertEquals(message, Faults.hypocentralDepth(dip, width, zTop), input.zHyp, 0.0);
+        assertEquals(message, rup.rake(), input.rake, 0.0);
+      }
+    }
+  }
+
+  /* Floating and non-floating ruptures over a range of magnitudes. */
+  private static FaultSource source(
+      RuptureFloating floating,
+      double dip,
+      RuptureScaling scaling,
+      boolean variability) {
+
+    FaultSource.Builder builder = new FaultSource.Builder();
+    builder.name("Test Fault")
+        .id(1)
+        .trace(TRACE)
+        .dip(dip)
+        .width(15.0)
+        .depth(0.0)
+        .rake(90.0)
+        .mfd(Mfds.newGutenbergRichterMFD(6.05, 0.1, 15, 1.0, 0.01))
+        .mfd(Mfds.newSingleMFD(7.5, 0.001, false))
+        .surfaceSpacing(1.0)
+        .ruptureScaling(scaling)
+        .ruptureFloating(floating)
+        .ruptureVariability(variability);
+    return builder.buildFaultSource();
+  }
+}
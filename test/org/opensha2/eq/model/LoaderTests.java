@@ -1,14 +1,24 @@
 package org.opensha2.eq.model;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import com.google.common.io.Resources;
 
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 @SuppressWarnings("javadoc")
 public class LoaderTests {
@@ -18,9 +28,15 @@ public class LoaderTests {
   private static final String EMPTY_ZIP = "data/empty.zip";
   private static final String BAD_URI = "data/bad[name].zip";
 
+  private static final int FILE_COPIES = 12;
+  private static final Path MULTI_FILE_MODEL = Paths.get("etc", "peer", "models", "Set2-Case1");
+
   @Rule
   public ExpectedException exception = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   // These tests attempt to drill down through the Loader.load() heirarchy.
   // It is difficult to force IO and other more deeply nested checked
   // exceptions to be thrown as eariler checks have usually validated
@@ -75,4 +91,72 @@ public class LoaderTests {
 
   // Problems with model structure
 
+  // Concurrent parsing
+
+  /*
+   * Source files parsed concurrently must yield source sets in the same order
+   * and with the same ids as when parsed one at a time. Repeated loads give
+   * differently sized files the chance to complete out of order.
+   */
+  @Test
+  public void testConcurrentOrder() throws Exception {
+    Path serialModel = copyModel("serial", "ONE");
+    Path concurrentModel = copyModel("concurrent", "ALL");
+    List<String> expected = sourceSetKeys(Loader.load(serialModel));
+    assertEquals(3 + 2 * FILE_COPIES, expected.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(expected, sourceSetKeys(Loader.load(concurrentModel)));
+    }
+  }
+
+  /*
+   * Copy a multi-file model, adding differently sized fault source files with
+   * distinct ids, and set the thread count used to parse them.
+   */
+  private Path copyModel(String name, String threadCount) throws IOException {
+    Path model = folder.newFolder(name).toPath();
+    for (String type : new String[] { "Area", "Fault" }) {
+      Path typeDir = Files.createDirectory(model.resolve(type));
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(MULTI_FILE_MODEL.resolve(type))) {
+        for (Path file : files) {
+          Files.copy(file, typeDir.resolve(file.getFileName()));
+        }
+      }
+    }
+    Path faultDir = model.resolve("Fault");
+    for (int i = 0; i < FILE_COPIES; i++) {
+      for (int j = 1; j <= 2; j++) {
+        String xml = new String(
+            Files.readAllBytes(faultDir.resolve("source" + j + ".xml")), UTF_8);
+        xml = xml.replace(
+            "id=\"-1\" name=\"Set2-Case1\"",
+            "id=\"" + (100 + 2 * i + j) + "\" name=\"Copy " + i + "-" + j + "\"");
+        /* Vary parse time by repeating the set comment. */
+        String comment = "<!--Multiple sources; Deaggregation-->";
+        StringBuilder padding = new StringBuilder();
+        for (int k = 0; k < ((i * 7 + j) % 5) * 2000; k++) {
+          padding.append(comment);
+        }
+        xml = xml.replace(comment, padding.append(comment).toString());
+        Files.write(faultDir.resolve("copy-" + i + "-" + j + ".xml"), xml.getBytes(UTF_8));
+      }
+    }
+    String config = "{" +
+        "\"model\": {\"name\": \"Multi-file model\", \"surfaceSpacing\": 1.0, " +
+        "\"ruptureFloating\": \"ON\", \"ruptureVariability\": false, " +
+        "\"pointSourceType\": \"POINT\", \"areaGridScaling\": \"UNIFORM_0P01\"}, " +
+        "\"performance\": {\"threadCount\": \"" + threadCount + "\"}}";
+    Files.write(model.resolve("config.json"), config.getBytes(UTF_8));
+    return model;
+  }
+
+  private static List<String> sourceSetKeys(HazardModel model) {
+    List<String> keys = new ArrayList<>();
+    for (SourceSet<? extends Source> sourceSet : model) {
+      keys.add(sourceSet.type() + " " + sourceSet.name() + " " + sourceSet.id() + " " +
+          sourceSet.size());
+    }
+    return keys;
+  }
+
 }
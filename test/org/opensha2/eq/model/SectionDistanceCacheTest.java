@@ -0,0 +1,132 @@
+package org.opensha2.eq.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+
+import org.opensha2.eq.fault.surface.DefaultGriddedSurface;
+import org.opensha2.eq.fault.surface.GriddedSurface;
+import org.opensha2.geo.Location;
+import org.opensha2.geo.LocationList;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@SuppressWarnings("javadoc")
+public class SectionDistanceCacheTest {
+
+  private static final String NAME = "Test System";
+  private static final int ID = 7;
+  private static final double MAX_DISTANCE = 200.0;
+
+  private static final Location SITE_1 = Location.create(34.05, -118.25);
+  private static final Location SITE_2 = Location.create(34.10, -117.9);
+
+  private static final double[] DISTANCES_1 = { 1.0, 2.0, -3.0, 4.0, 5.0, 6.0 };
+  private static final double[] DISTANCES_2 = { 7.0, 8.0, 9.0, 10.5, 11.5, -12.5 };
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void closeCaches() throws Exception {
+    SectionDistanceCache.closeAll();
+  }
+
+  @Test
+  public final void testWriteRead() throws Exception {
+    Path dir = folder.getRoot().toPath();
+    GriddedSurface[] sections = sections(0.0);
+
+    SectionDistanceCache cache = SectionDistanceCache.open(NAME, ID, sections, dir);
+    assertNull(cache.get(SITE_1, MAX_DISTANCE, 2));
+    cache.put(SITE_1, MAX_DISTANCE, DISTANCES_1);
+    cache.put(SITE_2, MAX_DISTANCE, DISTANCES_2);
+
+    /* Read back through the file while open. */
+    assertArrayEquals(DISTANCES_1, cache.get(SITE_1, MAX_DISTANCE, 2), 0.0);
+    assertArrayEquals(DISTANCES_2, cache.get(SITE_2, MAX_DISTANCE, 2), 0.0);
+    assertNull(cache.get(SITE_1, MAX_DISTANCE, 3));
+    assertNull(cache.get(SITE_1, 300.0, 2));
+    assertSame(cache, SectionDistanceCache.open(NAME, ID, sections, dir));
+
+    /* Read from the mapped file after reopening. */
+    SectionDistanceCache.closeAll();
+    assertFalse(cache.isOpen());
+    SectionDistanceCache reopened = SectionDistanceCache.open(NAME, ID, sections, dir);
+    assertNotSame(cache, reopened);
+    assertTrue(reopened.isOpen());
+    assertArrayEquals(DISTANCES_1, reopened.get(SITE_1, MAX_DISTANCE, 2), 0.0);
+    assertArrayEquals(DISTANCES_2, reopened.get(SITE_2, MAX_DISTANCE, 2), 0.0);
+    assertNull(reopened.get(SITE_2, MAX_DISTANCE, 1));
+
+    /* Repeated puts are ignored. */
+    reopened.put(SITE_1, MAX_DISTANCE, DISTANCES_2);
+    assertArrayEquals(DISTANCES_1, reopened.get(SITE_1, MAX_DISTANCE, 2), 0.0);
+    assertEquals(1, folder.getRoot().list().length);
+  }
+
+  @Test
+  public final void testIncompleteRecord() throws Exception {
+    Path dir = folder.getRoot().toPath();
+    GriddedSurface[] sections = sections(0.0);
+
+    SectionDistanceCache cache = SectionDistanceCache.open(NAME, ID, sections, dir);
+    cache.put(SITE_1, MAX_DISTANCE, DISTANCES_1);
+    SectionDistanceCache.closeAll();
+
+    File[] files = folder.getRoot().listFiles();
+    assertEquals(1, files.length);
+    Path file = files[0].toPath();
+    long size = Files.size(file);
+    Files.write(file, new byte[] { 1, 2, 3, 4, 5 }, APPEND);
+
+    cache = SectionDistanceCache.open(NAME, ID, sections, dir);
+    assertEquals(size, Files.size(file));
+    assertArrayEquals(DISTANCES_1, cache.get(SITE_1, MAX_DISTANCE, 2), 0.0);
+    cache.put(SITE_2, MAX_DISTANCE, DISTANCES_2);
+    assertArrayEquals(DISTANCES_2, cache.get(SITE_2, MAX_DISTANCE, 2), 0.0);
+  }
+
+  @Test
+  public final void testGeometryChange() throws Exception {
+    Path dir = folder.getRoot().toPath();
+
+    SectionDistanceCache cache = SectionDistanceCache.open(NAME, ID, sections(0.0), dir);
+    cache.put(SITE_1, MAX_DISTANCE, DISTANCES_1);
+    SectionDistanceCache.closeAll();
+
+    cache = SectionDistanceCache.open(NAME, ID, sections(1.0), dir);
+    assertNull(cache.get(SITE_1, MAX_DISTANCE, 2));
+    assertEquals(2, folder.getRoot().list().length);
+  }
+
+  private static GriddedSurface[] sections(double depth) {
+    return new GriddedSurface[] {
+        section(34.0, -118.0, depth),
+        section(34.5, -118.0, depth) };
+  }
+
+  private static GriddedSurface section(double lat, double lon, double depth) {
+    return DefaultGriddedSurface.builder()
+        .trace(LocationList.create(
+            Location.create(lat, lon),
+            Location.create(lat + 0.4, lon)))
+        .depth(depth)
+        .dip(90.0)
+        .width(10.0)
+        .build();
+  }
+}
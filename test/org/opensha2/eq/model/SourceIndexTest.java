@@ -0,0 +1,304 @@
+package org.opensha2.eq.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static org.opensha2.eq.model.SourceType.GRID;
+
+import org.opensha2.data.XySequence;
+import org.opensha2.eq.fault.FocalMech;
+import org.opensha2.eq.fault.surface.RuptureScaling;
+import org.opensha2.geo.Location;
+import org.opensha2.geo.Locations;
+import org.opensha2.gmm.Gmm;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/*
+ * Index candidates must include every source accepted by a brute-force
+ * distance filter, in source order, including for node sets that straddle the
+ * antimeridian, reach the poles, or are too small to be gridded.
+ */
+@SuppressWarnings("javadoc")
+public class SourceIndexTest {
+
+  private static final double[] DISTANCES = { 50.0, 200.0, 1000.0 };
+
+  /* Sites at the poles and on either side of the antimeridian. */
+  private static final List<Location> SPECIAL_SITES = ImmutableList.of(
+      Location.create(90.0, 0.0),
+      Location.create(90.0, -180.0),
+      Location.create(89.999, 179.999),
+      Location.create(-90.0, 0.0),
+      Location.create(-89.99, -179.99),
+      Location.create(52.0, 180.0),
+      Location.create(52.0, -180.0),
+      Location.create(52.0, 179.99),
+      Location.create(52.0, -179.99),
+      Location.create(52.0, 181.0),
+      Location.create(0.0, 0.0));
+
+  private static final Function<Location, List<Location>> NODE =
+      new Function<Location, List<Location>>() {
+        @Override
+        public List<Location> apply(Location loc) {
+          return ImmutableList.of(loc);
+        }
+      };
+
+  private static final Function<List<Location>, List<Location>> IDENTITY =
+      new Function<List<Location>, List<Location>>() {
+        @Override
+        public List<Location> apply(List<Location> locs) {
+          return locs;
+        }
+      };
+
+  @Test
+  public final void testAntimeridian() {
+    /* Nodes on both sides of the seam in [-180, 180]. */
+    List<Location> nodes = new ArrayList<>();
+    nodes.addAll(grid(50.0, 55.0, 175.0, 180.0, 0.25));
+    nodes.addAll(grid(50.0, 55.0, -180.0, -175.0, 0.25));
+    assertNodes(nodes, new Random(1L));
+
+    /* Nodes spanning the seam using longitudes > 180. */
+    assertNodes(grid(50.0, 55.0, 175.0, 185.0, 0.25), new Random(2L));
+  }
+
+  @Test
+  public final void testPoles() {
+    assertNodes(grid(80.0, 90.0, -180.0, 180.0, 2.0), new Random(3L));
+    assertNodes(grid(-90.0, -80.0, -180.0, 180.0, 2.0), new Random(4L));
+  }
+
+  @Test
+  public final void testScattered() {
+    Random random = new Random(5L);
+    List<Location> nodes = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      nodes.add(Location.create(
+          uniform(random, -90.0, 90.0),
+          uniform(random, -180.0, 180.0)));
+    }
+    assertNodes(nodes, random);
+  }
+
+  /* Multi-location sources, e.g. fault trace endpoints. */
+  @Test
+  public final void testMultiLocation() {
+    Random random = new Random(6L);
+    List<List<Location>> sources = new ArrayList<>();
+    for (Location loc : grid(45.0, 60.0, 170.0, 190.0, 0.5)) {
+      Location end = Location.create(
+          Math.max(-90.0, Math.min(90.0, loc.lat() + uniform(random, -2.0, 2.0))),
+          loc.lon() + uniform(random, -2.0, 2.0));
+      sources.add(ImmutableList.of(loc, end));
+    }
+    List<Location> sites = sites(Iterables.concat(sources), random);
+    for (double distance : DISTANCES) {
+      SourceIndex<List<Location>> index = SourceIndex.create(sources, IDENTITY, distance);
+      for (Location site : sites) {
+        BitSet expected = new BitSet();
+        for (int i = 0; i < sources.size(); i++) {
+          for (Location loc : sources.get(i)) {
+            if (Locations.horzDistanceFast(site, loc) <= distance) {
+              expected.set(i);
+            }
+          }
+        }
+        assertCandidates(index, sources, site, distance, expected);
+      }
+    }
+  }
+
+  @Test
+  public final void testSmallSet() {
+    List<Location> nodes = grid(0.0, 0.5, 0.0, 0.5, 0.1).subList(0, 31);
+    for (double distance : DISTANCES) {
+      SourceIndex<Location> index = SourceIndex.create(nodes, NODE, distance);
+      for (Location site : SPECIAL_SITES) {
+        assertSame(nodes, index.candidates(site));
+        assertEquals(nodes.size(), index.candidateIndices(site).cardinality());
+      }
+    }
+    assertGridNodes(nodes, new Random(7L));
+  }
+
+  @Test
+  public final void testGridNodes() {
+    Random random = new Random(8L);
+    List<Location> nodes = new ArrayList<>();
+    nodes.addAll(grid(50.0, 55.0, 175.0, 180.0, 0.5));
+    nodes.addAll(grid(50.0, 55.0, -180.0, -175.0, 0.5));
+    assertGridNodes(nodes, random);
+    assertGridNodes(grid(84.0, 90.0, -180.0, 180.0, 3.0), random);
+    assertGridNodes(grid(-90.0, -84.0, -180.0, 180.0, 3.0), random);
+    assertGridNodes(grid(34.0, 36.0, -119.0, -117.0, 0.1), random);
+  }
+
+  private static void assertNodes(List<Location> nodes, Random random) {
+    List<Location> sites = sites(nodes, random);
+    for (double distance : DISTANCES) {
+      SourceIndex<Location> index = SourceIndex.create(nodes, NODE, distance);
+      for (Location site : sites) {
+        BitSet expected = new BitSet();
+        for (int i = 0; i < nodes.size(); i++) {
+          if (Locations.horzDistanceFast(site, nodes.get(i)) <= distance) {
+            expected.set(i);
+          }
+        }
+        assertCandidates(index, nodes, site, distance, expected);
+      }
+    }
+  }
+
+  private static <T> void assertCandidates(
+      SourceIndex<T> index,
+      List<T> sources,
+      Location site,
+      double distance,
+      BitSet expected) {
+
+    BitSet actual = index.candidateIndices(site);
+    BitSet missing = (BitSet) expected.clone();
+    missing.andNot(actual);
+    assertTrue(site + " " + distance + " km missing " + missing, missing.isEmpty());
+
+    List<T> candidates = index.candidates(site);
+    assertEquals(actual.cardinality(), candidates.size());
+    int j = 0;
+    for (int i = actual.nextSetBit(0); i >= 0; i = actual.nextSetBit(i + 1)) {
+      assertSame(sources.get(i), candidates.get(j++));
+    }
+  }
+
+  /*
+   * Grid node filtering must match the grid distance filter applied to every
+   * node, and iterableForLocation() must yield the same nodes in order.
+   */
+  private static void assertGridNodes(List<Location> nodes, Random random) {
+    List<Location> sites = sites(nodes, random);
+    for (double distance : new double[] { 50.0, 200.0 }) {
+      GridSourceSet grid = gridSourceSet(nodes, distance);
+      for (Location site : sites) {
+        Predicate<Location> filter = Locations.distanceAndRectangleFilter(site, distance);
+        BitSet expected = new BitSet();
+        for (int i = 0; i < nodes.size(); i++) {
+          if (filter.apply(nodes.get(i))) {
+            expected.set(i);
+          }
+        }
+        assertEquals(site + " " + distance + " km", expected,
+            grid.nodesForLocation(site, distance));
+
+        List<Location> iterated = new ArrayList<>();
+        for (PointSource source : grid.iterableForLocation(site)) {
+          iterated.add(source.loc);
+        }
+        List<Location> filtered = new ArrayList<>();
+        for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(i + 1)) {
+          filtered.add(nodes.get(i));
+        }
+        assertEquals(site + " " + distance + " km", filtered, iterated);
+      }
+    }
+  }
+
+  private static GridSourceSet gridSourceSet(List<Location> nodes, double distance) {
+    GmmSet gmmSet = new GmmSet.Builder()
+        .primaryModelMap(ImmutableMap.of(Gmm.ASK_14, 1.0))
+        .primaryMaxDistance(distance)
+        .build();
+    NavigableMap<Double, Map<Double, Double>> depthMap = new TreeMap<>();
+    depthMap.put(10.0, ImmutableMap.of(5.0, 1.0));
+    GridSourceSet.Builder builder = new GridSourceSet.Builder();
+    builder.name("Test grid")
+        .id(0)
+        .weight(1.0)
+        .gmms(gmmSet);
+    builder.strike(Double.NaN)
+        .sourceType(PointSourceType.POINT)
+        .ruptureScaling(RuptureScaling.NSHM_POINT_WC94_LENGTH)
+        .depthMap(depthMap, GRID)
+        .maxDepth(14.0, GRID)
+        .mechs(ImmutableMap.of(
+            FocalMech.STRIKE_SLIP, 1.0,
+            FocalMech.REVERSE, 0.0,
+            FocalMech.NORMAL, 0.0))
+        .mfdData(5.05, 5.05, 0.1);
+    XySequence mfd = XySequence.create(new double[] { 5.05 }, new double[] { 1e-3 });
+    for (Location node : nodes) {
+      builder.location(node, mfd);
+    }
+    return builder.build();
+  }
+
+  /*
+   * Query sites: special cases, every tenth node, and random locations in and
+   * around the extent of the supplied locations.
+   */
+  private static List<Location> sites(Iterable<Location> locs, Random random) {
+    double latMin = 90.0;
+    double latMax = -90.0;
+    double lonMin = 360.0;
+    double lonMax = -180.0;
+    List<Location> sites = new ArrayList<>(SPECIAL_SITES);
+    int count = 0;
+    for (Location loc : locs) {
+      latMin = Math.min(latMin, loc.lat());
+      latMax = Math.max(latMax, loc.lat());
+      lonMin = Math.min(lonMin, loc.lon());
+      lonMax = Math.max(lonMax, loc.lon());
+      if (count++ % 10 == 0) {
+        sites.add(loc);
+      }
+    }
+    latMin = Math.max(-90.0, latMin - 5.0);
+    latMax = Math.min(90.0, latMax + 5.0);
+    lonMin = Math.max(-180.0, lonMin - 5.0);
+    lonMax = Math.min(360.0, lonMax + 5.0);
+    for (int i = 0; i < 200; i++) {
+      sites.add(Location.create(
+          uniform(random, latMin, latMax),
+          uniform(random, lonMin, lonMax)));
+    }
+    return sites;
+  }
+
+  private static List<Location> grid(
+      double latMin,
+      double latMax,
+      double lonMin,
+      double lonMax,
+      double spacing) {
+    List<Location> nodes = new ArrayList<>();
+    int latCount = (int) Math.round((latMax - latMin) / spacing);
+    int lonCount = (int) Math.round((lonMax - lonMin) / spacing);
+    for (int i = 0; i <= latCount; i++) {
+      for (int j = 0; j <= lonCount; j++) {
+        nodes.add(Location.create(latMin + i * spacing, lonMin + j * spacing));
+      }
+    }
+    return nodes;
+  }
+
+  private static double uniform(Random random, double min, double max) {
+    return min + random.nextDouble() * (max - min);
+  }
+}
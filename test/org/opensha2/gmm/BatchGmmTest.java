@@ -0,0 +1,187 @@
+package org.opensha2.gmm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Batch and spectrum implementations must reproduce the scalar calc() of each
+ * model exactly, including when several threads share the per-thread scratch
+ * storage used by ASK14 and CY14.
+ */
+@SuppressWarnings("javadoc")
+public class BatchGmmTest {
+
+  private static final List<Gmm> GMMS = ImmutableList.of(
+      Gmm.ASK_14,
+      Gmm.BSSA_14,
+      Gmm.CB_14,
+      Gmm.CY_14,
+      Gmm.IDRISS_14);
+
+  private static final int INPUT_COUNT = 500;
+  private static final int THREAD_COUNT = 4;
+  private static final long SEED = 20161019L;
+
+  @Test
+  public final void testBatch() {
+    List<GmmInput> inputs = inputs(new Random(SEED), INPUT_COUNT);
+    for (Gmm gmm : GMMS) {
+      for (Imt imt : gmm.supportedIMTs()) {
+        GroundMotionModel model = gmm.instance(imt);
+        assertTrue(gmm + " " + imt, model instanceof BatchGroundMotionModel);
+        double[] μ = new double[inputs.size()];
+        double[] σ = new double[inputs.size()];
+        ((BatchGroundMotionModel) model).calc(inputs, μ, σ);
+        assertScalar(gmm + " " + imt, model, inputs, μ, σ);
+
+        /* Generic entry point delegates to the batch path. */
+        double[] μu = new double[inputs.size()];
+        double[] σu = new double[inputs.size()];
+        GmmUtils.calc(model, inputs, μu, σu);
+        assertScalar(gmm + " " + imt, model, inputs, μu, σu);
+      }
+    }
+  }
+
+  @Test
+  public final void testSpectrum() {
+    List<GmmInput> inputs = inputs(new Random(SEED + 1), INPUT_COUNT);
+    Random random = new Random(SEED + 2);
+    for (Gmm gmm : GMMS) {
+      assertSpectrum(gmm, gmm.supportedIMTs(), inputs);
+      assertSpectrum(gmm, EnumSet.of(gmm.supportedIMTs().iterator().next()), inputs);
+      assertSpectrum(gmm, subset(gmm.supportedIMTs(), random), inputs);
+    }
+  }
+
+  /*
+   * Each thread alternates scalar, batch and spectrum calls for the same
+   * models so that any state leaking through per-thread scratch storage
+   * surfaces as a mismatch.
+   */
+  @Test
+  public final void testConcurrent() throws Exception {
+    ExecutorService ex = Executors.newFixedThreadPool(THREAD_COUNT);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        final List<GmmInput> inputs = inputs(new Random(SEED + 10 + i), INPUT_COUNT / 5);
+        futures.add(ex.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int j = 0; j < 5; j++) {
+              for (Gmm gmm : GMMS) {
+                assertSpectrum(gmm, gmm.supportedIMTs(), inputs);
+                for (Imt imt : gmm.supportedIMTs()) {
+                  GroundMotionModel model = gmm.instance(imt);
+                  double[] μ = new double[inputs.size()];
+                  double[] σ = new double[inputs.size()];
+                  ((BatchGroundMotionModel) model).calc(inputs, μ, σ);
+                  assertScalar(gmm + " " + imt, model, inputs, μ, σ);
+                }
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      ex.shutdownNow();
+    }
+  }
+
+  private static void assertScalar(
+      String id,
+      GroundMotionModel model,
+      List<GmmInput> inputs,
+      double[] μ,
+      double[] σ) {
+    for (int i = 0; i < inputs.size(); i++) {
+      ScalarGroundMotion sgm = model.calc(inputs.get(i));
+      assertEquals(id + " μ " + inputs.get(i), sgm.mean(), μ[i], 0.0);
+      assertEquals(id + " σ " + inputs.get(i), sgm.sigma(), σ[i], 0.0);
+    }
+  }
+
+  private static void assertSpectrum(Gmm gmm, Set<Imt> imts, List<GmmInput> inputs) {
+    GroundMotionSpectrum spectrum = gmm.spectrum(imts);
+    List<Imt> imtList = new ArrayList<>(imts);
+    double[] μ = new double[imtList.size()];
+    double[] σ = new double[imtList.size()];
+    for (GmmInput input : inputs) {
+      spectrum.calc(input, μ, σ);
+      for (int i = 0; i < imtList.size(); i++) {
+        Imt imt = imtList.get(i);
+        ScalarGroundMotion sgm = gmm.instance(imt).calc(input);
+        String id = gmm + " spectrum " + imt + " " + input;
+        assertEquals(id, sgm.mean(), μ[i], 0.0);
+        assertEquals(id, sgm.sigma(), σ[i], 0.0);
+      }
+    }
+  }
+
+  private static Set<Imt> subset(Set<Imt> imts, Random random) {
+    Set<Imt> subset = EnumSet.noneOf(Imt.class);
+    for (Imt imt : imts) {
+      if (random.nextBoolean()) {
+        subset.add(imt);
+      }
+    }
+    if (subset.isEmpty()) {
+      subset.add(imts.iterator().next());
+    }
+    return Sets.immutableEnumSet(subset);
+  }
+
+  /*
+   * Inputs span the ranges used in hazard calculations, including footwall
+   * sites, surface ruptures, and undefined basin depths.
+   */
+  private static List<GmmInput> inputs(Random random, int count) {
+    List<GmmInput> inputs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      double zTop = (random.nextInt(4) == 0) ? 0.0 : uniform(random, 0.0, 15.0);
+      double width = uniform(random, 1.0, 30.0);
+      double dip = (random.nextInt(4) == 0) ? 90.0 : uniform(random, 10.0, 90.0);
+      double rJB = (random.nextInt(8) == 0) ? 0.0 : uniform(random, 0.0, 300.0);
+      double rRup = Math.sqrt(rJB * rJB + zTop * zTop) + uniform(random, 0.0, 5.0);
+      double rX = (random.nextBoolean() ? 1.0 : -1.0) * uniform(random, 0.0, rRup);
+      inputs.add(GmmInput.builder()
+          .mag(uniform(random, 4.5, 8.5))
+          .distances(rJB, rRup, rX)
+          .dip(dip)
+          .width(width)
+          .zTop(zTop)
+          .zHyp(zTop + uniform(random, 0.0, width))
+          .rake(uniform(random, -180.0, 180.0))
+          .vs30(uniform(random, 150.0, 2000.0))
+          .vsInf(random.nextBoolean())
+          .z1p0(random.nextBoolean() ? Double.NaN : uniform(random, 0.0, 1.5))
+          .z2p5(random.nextBoolean() ? Double.NaN : uniform(random, 0.0, 8.0))
+          .build());
+    }
+    return inputs;
+  }
+
+  private static double uniform(Random random, double min, double max) {
+    return min + random.nextDouble() * (max - min);
+  }
+}
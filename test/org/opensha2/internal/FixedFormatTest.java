@@ -0,0 +1,150 @@
+package org.opensha2.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+@SuppressWarnings("javadoc")
+public class FixedFormatTest {
+
+  private static final int MAX_PRECISION = 12;
+  private static final int RANDOM_COUNT = 20000;
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public final void testPrecisionTooLow() {
+    exception.expect(IllegalArgumentException.class);
+    FixedFormat.create(0);
+  }
+
+  @Test
+  public final void testPrecisionTooHigh() {
+    exception.expect(IllegalArgumentException.class);
+    FixedFormat.create(MAX_PRECISION + 1);
+  }
+
+  @Test
+  public final void testAppend() {
+    StringBuilder sb = new StringBuilder("a,");
+    FixedFormat.create(5).format(-118.123456, sb).append(',');
+    assertEquals("a,-118.12346,", sb.toString());
+  }
+
+  @Test
+  public final void testRandom() {
+    Random random = new Random(1234L);
+    for (int precision = 1; precision <= MAX_PRECISION; precision++) {
+      FixedFormat format = FixedFormat.create(precision);
+      for (int i = 0; i < RANDOM_COUNT; i++) {
+        /* Uniformly distributed bit patterns span all exponents. */
+        double value = Double.longBitsToDouble(random.nextLong());
+        check(format, precision, value);
+
+        /* Longitudes and latitudes. */
+        value = random.nextDouble() * 540.0 - 180.0;
+        check(format, precision, value);
+
+        /* Values spanning the range formatted without delegation. */
+        value = random.nextDouble() * Math.pow(10, random.nextInt(32) - 16);
+        check(format, precision, value);
+        check(format, precision, -value);
+      }
+    }
+  }
+
+  @Test
+  public final void testRoundingTies() {
+    Random random = new Random(5678L);
+    for (int precision = 1; precision <= MAX_PRECISION; precision++) {
+      FixedFormat format = FixedFormat.create(precision);
+      for (int i = 0; i < RANDOM_COUNT / 10; i++) {
+        /*
+         * Decimal values with precision + 1 fractional digits that end in 5,
+         * and their neighbors, lie on or next to rounding boundaries.
+         */
+        StringBuilder digits = new StringBuilder();
+        digits.append(random.nextInt(1000)).append('.');
+        for (int j = 0; j < precision; j++) {
+          digits.append(random.nextInt(10));
+        }
+        digits.append('5');
+        double value = Double.parseDouble(digits.toString());
+        checkNeighbors(format, precision, value, 4);
+
+        /* Ties that survive in binary. */
+        double tie = new BigDecimal(digits.toString()).doubleValue();
+        check(format, precision, tie);
+      }
+      for (double value : new double[] { 0.5, 1.5, 2.5, 0.125, 0.375, 9.5, 99.5, 1.005 }) {
+        checkNeighbors(format, precision, value, 4);
+      }
+    }
+  }
+
+  @Test
+  public final void testPowersOfTen() {
+    for (int precision = 1; precision <= MAX_PRECISION; precision++) {
+      FixedFormat format = FixedFormat.create(precision);
+      for (int exponent = -20; exponent <= 20; exponent++) {
+        double value = Double.parseDouble("1e" + exponent);
+        checkNeighbors(format, precision, value, 2);
+        checkNeighbors(format, precision, value * 9.999999999999, 2);
+        checkNeighbors(format, precision, value * 0.5, 2);
+      }
+    }
+  }
+
+  @Test
+  public final void testExtremes() {
+    Random random = new Random(9012L);
+    for (int precision = 1; precision <= MAX_PRECISION; precision++) {
+      FixedFormat format = FixedFormat.create(precision);
+      checkNeighbors(format, precision, Double.MIN_VALUE, 2);
+      checkNeighbors(format, precision, Double.MIN_NORMAL, 2);
+      checkNeighbors(format, precision, Double.MAX_VALUE, 2);
+      checkNeighbors(format, precision, 1e15 / Math.pow(10, precision), 2);
+      for (int i = 0; i < RANDOM_COUNT / 10; i++) {
+        double subnormal = Double.longBitsToDouble(random.nextLong() & 0x000fffffffffffffL);
+        check(format, precision, subnormal);
+        check(format, precision, -subnormal);
+      }
+      check(format, precision, 0.0);
+      check(format, precision, -0.0);
+      check(format, precision, Double.NaN);
+      check(format, precision, Double.POSITIVE_INFINITY);
+      check(format, precision, Double.NEGATIVE_INFINITY);
+    }
+  }
+
+  private static void checkNeighbors(
+      FixedFormat format,
+      int precision,
+      double value,
+      int count) {
+
+    double up = value;
+    double down = value;
+    check(format, precision, value);
+    check(format, precision, -value);
+    for (int i = 0; i < count; i++) {
+      up = Math.nextUp(up);
+      down = Math.nextAfter(down, Double.NEGATIVE_INFINITY);
+      check(format, precision, up);
+      check(format, precision, down);
+      check(format, precision, -up);
+      check(format, precision, -down);
+    }
+  }
+
+  private static void check(FixedFormat format, int precision, double value) {
+    String expected = String.format("%." + precision + "f", value);
+    assertEquals("Value: " + value, expected, format.format(value));
+  }
+}